@@ -0,0 +1,62 @@
+package de.jungblut.math.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.expression.DoubleVectorExpression;
+
+/**
+ * Compares the squared euclidean distance computed by chaining vector
+ * operations against a fused {@link DoubleVectorExpression}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+  @Param({ "DENSE", "SPARSE", "SEQUENTIAL_SPARSE" })
+  public VectorType type;
+
+  @Param({ "1000", "1000000" })
+  public int dimension;
+
+  @Param({ "0.01", "1.0" })
+  public double density;
+
+  private DoubleVector left;
+  private DoubleVector right;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0L);
+    left = type.create(dimension, density, random);
+    right = type.create(dimension, density, random);
+  }
+
+  @Benchmark
+  public double eager() {
+    return left.subtract(right).pow(2).sum();
+  }
+
+  @Benchmark
+  public double fused() {
+    return DoubleVectorExpression.of(left).subtract(right).pow(2).sum();
+  }
+
+}
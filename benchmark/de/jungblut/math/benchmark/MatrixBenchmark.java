@@ -0,0 +1,81 @@
+package de.jungblut.math.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+
+/**
+ * Benchmarks the common operations of every matrix implementation on square
+ * matrices. Both operands of a multiplication are of the same type, the
+ * vectors are always dense.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+
+  @Param({ "DENSE", "SPARSE_ROW", "CSR" })
+  public MatrixType type;
+
+  @Param({ "100", "500" })
+  public int size;
+
+  @Param({ "0.01", "0.1", "1.0" })
+  public double density;
+
+  private DoubleMatrix left;
+  private DoubleMatrix right;
+  private DoubleVector vector;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0L);
+    left = type.create(size, size, density, random);
+    right = type.create(size, size, density, random);
+    vector = VectorType.DENSE.create(size, 1d, random);
+  }
+
+  @Benchmark
+  public DoubleMatrix multiply() {
+    return left.multiply(right);
+  }
+
+  @Benchmark
+  public DoubleVector multiplyVectorRow() {
+    return left.multiplyVectorRow(vector);
+  }
+
+  @Benchmark
+  public DoubleVector multiplyVectorColumn() {
+    return left.multiplyVectorColumn(vector);
+  }
+
+  @Benchmark
+  public DoubleMatrix transpose() {
+    return left.transpose();
+  }
+
+  @Benchmark
+  public DoubleMatrix add() {
+    return left.add(right);
+  }
+
+}
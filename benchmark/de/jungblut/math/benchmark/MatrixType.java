@@ -0,0 +1,54 @@
+package de.jungblut.math.benchmark;
+
+import java.util.Random;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.sparse.CsrDoubleMatrix;
+import de.jungblut.math.sparse.SparseDoubleRowMatrix;
+
+/**
+ * The matrix implementations that are benchmarked, each of them can create a
+ * random matrix with a given density.
+ */
+public enum MatrixType {
+
+  DENSE {
+    @Override
+    DoubleMatrix convert(SparseDoubleRowMatrix matrix) {
+      return new DenseDoubleMatrix(matrix.toArray());
+    }
+  },
+  SPARSE_ROW {
+    @Override
+    DoubleMatrix convert(SparseDoubleRowMatrix matrix) {
+      return matrix;
+    }
+  },
+  CSR {
+    @Override
+    DoubleMatrix convert(SparseDoubleRowMatrix matrix) {
+      return new CsrDoubleMatrix(matrix);
+    }
+  };
+
+  abstract DoubleMatrix convert(SparseDoubleRowMatrix matrix);
+
+  /**
+   * Creates a matrix where each cell is non-zero with the probability of the
+   * given density, values are random in (0, 1].
+   */
+  public DoubleMatrix create(int rows, int columns, double density,
+      Random random) {
+    SparseDoubleRowMatrix matrix = new SparseDoubleRowMatrix(rows, columns);
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        if (random.nextDouble() < density) {
+          matrix.set(row, col, 1d - random.nextDouble());
+        }
+      }
+    }
+    return convert(matrix);
+  }
+
+}
@@ -0,0 +1,83 @@
+package de.jungblut.math.benchmark;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+
+/**
+ * Benchmarks the common vector operations of every vector implementation. Both
+ * operands are of the same type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+
+  @Param({ "DENSE", "SPARSE", "SEQUENTIAL_SPARSE", "SPARSE_BIT" })
+  public VectorType type;
+
+  @Param({ "1000", "100000" })
+  public int dimension;
+
+  @Param({ "0.01", "0.1", "1.0" })
+  public double density;
+
+  private DoubleVector left;
+  private DoubleVector right;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0L);
+    left = type.create(dimension, density, random);
+    right = type.create(dimension, density, random);
+  }
+
+  @Benchmark
+  public double dot() {
+    return left.dot(right);
+  }
+
+  @Benchmark
+  public DoubleVector add() {
+    return left.add(right);
+  }
+
+  @Benchmark
+  public DoubleVector multiply() {
+    return left.multiply(right);
+  }
+
+  @Benchmark
+  public DoubleVector multiplyScalar() {
+    return left.multiply(2d);
+  }
+
+  @Benchmark
+  public double iterateNonZero() {
+    double sum = 0d;
+    Iterator<DoubleVectorElement> iterateNonZero = left.iterateNonZero();
+    while (iterateNonZero.hasNext()) {
+      sum += iterateNonZero.next().getValue();
+    }
+    return sum;
+  }
+
+}
@@ -0,0 +1,60 @@
+package de.jungblut.math.benchmark;
+
+import java.util.Random;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.sparse.SequentialSparseDoubleVector;
+import de.jungblut.math.sparse.SparseBitVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+/**
+ * The vector implementations that are benchmarked, each of them can create a
+ * random vector with a given density.
+ */
+public enum VectorType {
+
+  DENSE {
+    @Override
+    DoubleVector newVector(int dimension) {
+      return new DenseDoubleVector(dimension);
+    }
+  },
+  SPARSE {
+    @Override
+    DoubleVector newVector(int dimension) {
+      return new SparseDoubleVector(dimension);
+    }
+  },
+  SEQUENTIAL_SPARSE {
+    @Override
+    DoubleVector newVector(int dimension) {
+      return new SequentialSparseDoubleVector(dimension);
+    }
+  },
+  SPARSE_BIT {
+    @Override
+    DoubleVector newVector(int dimension) {
+      return new SparseBitVector(dimension);
+    }
+  };
+
+  abstract DoubleVector newVector(int dimension);
+
+  /**
+   * Creates a vector where each dimension is non-zero with the probability of
+   * the given density. Bit vectors only contain ones, all other types random
+   * values in (0, 1].
+   */
+  public DoubleVector create(int dimension, double density, Random random) {
+    DoubleVector v = newVector(dimension);
+    // indices are increasing, so the sequential vector only appends
+    for (int i = 0; i < dimension; i++) {
+      if (random.nextDouble() < density) {
+        v.set(i, this == SPARSE_BIT ? 1d : 1d - random.nextDouble());
+      }
+    }
+    return v;
+  }
+
+}
@@ -0,0 +1,123 @@
+package de.jungblut.math.dense;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels on the incubating Java Vector API with the preferred species of the
+ * platform, the tails are handled by scalar loops. Element-wise operations
+ * give the same results as the scalar kernels, the reductions (dot and sum)
+ * accumulate in a different order and may differ in the last bits.<br/>
+ * <br/>
+ * Only compiled with the "simd" profile and loaded reflectively by
+ * {@link DoubleArrayKernels}, so the rest of the library still runs on older
+ * JVMs.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class SimdDoubleArrayKernels extends DoubleArrayKernels {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  private static final int LANES = SPECIES.length();
+
+  @Override
+  public double dot(double[] a, double[] b, int length) {
+    // two accumulators to hide the latency of the fused multiply-add
+    DoubleVector acc1 = DoubleVector.zero(SPECIES);
+    DoubleVector acc2 = DoubleVector.zero(SPECIES);
+    int i = 0;
+    int upper = length - 2 * LANES;
+    for (; i <= upper; i += 2 * LANES) {
+      acc1 = DoubleVector.fromArray(SPECIES, a, i).fma(
+          DoubleVector.fromArray(SPECIES, b, i), acc1);
+      acc2 = DoubleVector.fromArray(SPECIES, a, i + LANES).fma(
+          DoubleVector.fromArray(SPECIES, b, i + LANES), acc2);
+    }
+    for (; i < SPECIES.loopBound(length); i += LANES) {
+      acc1 = DoubleVector.fromArray(SPECIES, a, i).fma(
+          DoubleVector.fromArray(SPECIES, b, i), acc1);
+    }
+    double dotProduct = acc1.add(acc2).reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      dotProduct += a[i] * b[i];
+    }
+    return dotProduct;
+  }
+
+  @Override
+  public double sum(double[] a, int length) {
+    DoubleVector acc = DoubleVector.zero(SPECIES);
+    int i = 0;
+    for (; i < SPECIES.loopBound(length); i += LANES) {
+      acc = acc.add(DoubleVector.fromArray(SPECIES, a, i));
+    }
+    double sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      sum += a[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public void add(double[] a, double[] b, double[] result, int length) {
+    int i = 0;
+    for (; i < SPECIES.loopBound(length); i += LANES) {
+      DoubleVector.fromArray(SPECIES, a, i)
+          .add(DoubleVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+    }
+    for (; i < length; i++) {
+      result[i] = a[i] + b[i];
+    }
+  }
+
+  @Override
+  public void subtract(double[] a, double[] b, double[] result, int length) {
+    int i = 0;
+    for (; i < SPECIES.loopBound(length); i += LANES) {
+      DoubleVector.fromArray(SPECIES, a, i)
+          .sub(DoubleVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+    }
+    for (; i < length; i++) {
+      result[i] = a[i] - b[i];
+    }
+  }
+
+  @Override
+  public void multiply(double[] a, double[] b, double[] result, int length) {
+    int i = 0;
+    for (; i < SPECIES.loopBound(length); i += LANES) {
+      DoubleVector.fromArray(SPECIES, a, i)
+          .mul(DoubleVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+    }
+    for (; i < length; i++) {
+      result[i] = a[i] * b[i];
+    }
+  }
+
+  @Override
+  public void scale(double[] a, double scalar, double[] result, int length) {
+    int i = 0;
+    for (; i < SPECIES.loopBound(length); i += LANES) {
+      DoubleVector.fromArray(SPECIES, a, i).mul(scalar).intoArray(result, i);
+    }
+    for (; i < length; i++) {
+      result[i] = a[i] * scalar;
+    }
+  }
+
+  @Override
+  public void axpy(double alpha, double[] x, double[] y, int length) {
+    int i = 0;
+    for (; i < SPECIES.loopBound(length); i += LANES) {
+      // no fma, so the result matches the scalar kernel
+      DoubleVector.fromArray(SPECIES, x, i).mul(alpha)
+          .add(DoubleVector.fromArray(SPECIES, y, i)).intoArray(y, i);
+    }
+    for (; i < length; i++) {
+      y[i] += alpha * x[i];
+    }
+  }
+
+}
@@ -4,6 +4,7 @@ import java.util.Iterator;
 
 import de.jungblut.math.function.DoubleDoubleVectorFunction;
 import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
 
 /**
  * Vector with doubles. Some of the operations are mutable, unlike the apply and
@@ -188,6 +189,56 @@ public interface DoubleVector {
    */
   public DoubleVector exp();
 
+  /**
+   * Adds the given {@link DoubleVector} to this vector. Unlike
+   * {@link #add(DoubleVector)} this mutates this vector instead of creating a
+   * new one.
+   * 
+   * @param v the other vector.
+   * @return this vector.
+   */
+  public DoubleVector addInPlace(DoubleVector v);
+
+  /**
+   * Subtracts the given {@link DoubleVector} from this vector. Unlike
+   * {@link #subtract(DoubleVector)} this mutates this vector instead of
+   * creating a new one.
+   * 
+   * @param v the other vector.
+   * @return this vector.
+   */
+  public DoubleVector subtractInPlace(DoubleVector v);
+
+  /**
+   * Multiplies every element of this vector by the given scalar. Unlike
+   * {@link #multiply(double)} this mutates this vector instead of creating a
+   * new one.
+   * 
+   * @param scalar the scalar.
+   * @return this vector.
+   */
+  public DoubleVector scaleInPlace(double scalar);
+
+  /**
+   * Adds the given vector multiplied by alpha to this vector (this = this +
+   * alpha * x), without creating any intermediate vector.
+   * 
+   * @param alpha the scalar to multiply x with.
+   * @param x the other vector.
+   * @return this vector.
+   */
+  public DoubleVector axpy(double alpha, DoubleVector x);
+
+  /**
+   * Apply a given {@link DoubleVectorFunction} to every element of this vector.
+   * Unlike {@link #apply(DoubleVectorFunction)} this mutates this vector
+   * instead of creating a new one.
+   * 
+   * @param func the function to apply.
+   * @return this vector.
+   */
+  public DoubleVector applyInPlace(DoubleVectorFunction func);
+
   /**
    * @return the sum of all elements in this vector.
    */
@@ -279,6 +330,20 @@ public interface DoubleVector {
    */
   public Iterator<DoubleVectorElement> iterate();
 
+  /**
+   * Passes every non zero element to the given consumer. This runs directly
+   * over the backing structure and doesn't allocate an iterator. Dense and
+   * ordered sparse vectors visit the indices in ascending order, hash based
+   * vectors in an unspecified order.
+   */
+  public void forEachNonZero(IntDoubleConsumer consumer);
+
+  /**
+   * Passes every element (including zeros) in ascending index order to the
+   * given consumer.
+   */
+  public void forEach(IntDoubleConsumer consumer);
+
   /**
    * @return true if this instance is a sparse vector. Smarter and faster than
    *         instanceof.
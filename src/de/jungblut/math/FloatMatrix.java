@@ -0,0 +1,121 @@
+package de.jungblut.math;
+
+/**
+ * Matrix interface for single precision float elements, the counterpart of
+ * {@link DoubleMatrix} with half the memory footprint. Every implementation
+ * should return a fresh new Matrix when operating with other elements.
+ */
+public interface FloatMatrix {
+
+  /**
+   * Get a specific value of the matrix.
+   */
+  public float get(int row, int col);
+
+  /**
+   * Returns the number of columns in the matrix. Always a constant time
+   * operation.
+   */
+  public int getColumnCount();
+
+  /**
+   * Get a whole column of the matrix as vector.
+   */
+  public FloatVector getColumnVector(int col);
+
+  /**
+   * Returns the number of rows in this matrix. Always a constant time
+   * operation.
+   */
+  public int getRowCount();
+
+  /**
+   * Get a single row of the matrix as a vector.
+   */
+  public FloatVector getRowVector(int row);
+
+  /**
+   * Sets the value at the given row and column index.
+   */
+  public void set(int row, int col, float value);
+
+  /**
+   * Sets a whole column at index col with the given vector.
+   */
+  public void setColumnVector(int col, FloatVector column);
+
+  /**
+   * Sets the whole row at index rowIndex with the given vector.
+   */
+  public void setRowVector(int rowIndex, FloatVector row);
+
+  /**
+   * Multiplies this matrix (each element) with the given scalar and returns a
+   * new matrix.
+   */
+  public FloatMatrix multiply(float scalar);
+
+  /**
+   * Multiplies this matrix with the given other matrix.
+   */
+  public FloatMatrix multiply(FloatMatrix other);
+
+  /**
+   * Multiplies this matrix per element with a given matrix.
+   */
+  public FloatMatrix multiplyElementWise(FloatMatrix other);
+
+  /**
+   * Multiplies this matrix with a given vector v. The returning vector contains
+   * the sum of the rows.
+   */
+  public FloatVector multiplyVectorRow(FloatVector v);
+
+  /**
+   * Multiplies this matrix with a given vector v. The returning vector contains
+   * the sum of the columns.
+   */
+  public FloatVector multiplyVectorColumn(FloatVector v);
+
+  /**
+   * Transposes this matrix.
+   */
+  public FloatMatrix transpose();
+
+  /**
+   * Subtracts this matrix by the given other matrix.
+   */
+  public FloatMatrix subtract(FloatMatrix other);
+
+  /**
+   * Adds the elements in the given matrix to the elements in this matrix.
+   */
+  public FloatMatrix add(FloatMatrix other);
+
+  /**
+   * Sums all elements.
+   */
+  public double sum();
+
+  /**
+   * @return this matrix as a dense two dimensional float array.
+   */
+  public float[][] toArray();
+
+  /**
+   * @return a double precision copy of this matrix.
+   */
+  public DoubleMatrix toDoubleMatrix();
+
+  /**
+   * @return true if the underlying implementation is sparse.
+   */
+  public boolean isSparse();
+
+  /**
+   * @return a deep copy (new object and new internal datastructures) of the
+   *         current matrix.
+   */
+  public FloatMatrix deepCopy();
+
+}
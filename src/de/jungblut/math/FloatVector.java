@@ -0,0 +1,266 @@
+package de.jungblut.math;
+
+import java.util.Iterator;
+
+import de.jungblut.math.function.IntFloatConsumer;
+
+/**
+ * Vector with single precision floats, it takes half the memory of a
+ * {@link DoubleVector}. Some of the operations are mutable, the arithmetic
+ * operations return a fresh instance every time. Sums and dot products are
+ * accumulated in double precision.
+ *
+ */
+public interface FloatVector {
+
+  /**
+   * Retrieves the value at given index.
+   *
+   * @param index the index.
+   * @return a float value at the index.
+   */
+  public float get(int index);
+
+  /**
+   * Get the length of a vector, for sparse instance it is the actual length.
+   * (not the dimension!) Always a constant time operation.
+   *
+   * @return the length of the vector.
+   */
+  public int getLength();
+
+  /**
+   * Get the dimension of a vector, for dense instance it is the same like the
+   * length, for sparse instances it is usually not the same. Always a constant
+   * time operation.
+   *
+   * @return the dimension of the vector.
+   */
+  public int getDimension();
+
+  /**
+   * Set a value at the given index.
+   *
+   * @param index the index of the vector to set.
+   * @param value the value at the index of the vector to set.
+   */
+  public void set(int index, float value);
+
+  /**
+   * Adds the given {@link FloatVector} to this vector.
+   *
+   * @param v the other vector.
+   * @return a new vector with the sum of both vectors at each element index.
+   */
+  public FloatVector add(FloatVector v);
+
+  /**
+   * Adds the given scalar to this vector.
+   *
+   * @param scalar the scalar.
+   * @return a new vector with the result at each element index.
+   */
+  public FloatVector add(float scalar);
+
+  /**
+   * Subtracts this vector by the given {@link FloatVector}.
+   *
+   * @param v the other vector.
+   * @return a new vector with the difference of both vectors.
+   */
+  public FloatVector subtract(FloatVector v);
+
+  /**
+   * Subtracts the given scalar to this vector. (vector - scalar).
+   *
+   * @param scalar the scalar.
+   * @return a new vector with the result at each element index.
+   */
+  public FloatVector subtract(float scalar);
+
+  /**
+   * Multiplies the given scalar to this vector.
+   *
+   * @param scalar the scalar.
+   * @return a new vector with the result of the operation.
+   */
+  public FloatVector multiply(float scalar);
+
+  /**
+   * Multiplies the given {@link FloatVector} with this vector.
+   *
+   * @param vector the other vector.
+   * @return a new vector with the result of the operation.
+   */
+  public FloatVector multiply(FloatVector vector);
+
+  /**
+   * Divides this vector by the given scalar. (= vector/scalar).
+   *
+   * @param scalar the given scalar.
+   * @return a new vector with the result of the operation.
+   */
+  public FloatVector divide(float scalar);
+
+  /**
+   * Adds the given {@link FloatVector} to this vector. Unlike
+   * {@link #add(FloatVector)} this mutates this vector instead of creating a
+   * new one.
+   *
+   * @param v the other vector.
+   * @return this vector.
+   */
+  public FloatVector addInPlace(FloatVector v);
+
+  /**
+   * Subtracts the given {@link FloatVector} from this vector. Unlike
+   * {@link #subtract(FloatVector)} this mutates this vector instead of
+   * creating a new one.
+   *
+   * @param v the other vector.
+   * @return this vector.
+   */
+  public FloatVector subtractInPlace(FloatVector v);
+
+  /**
+   * Multiplies every element of this vector by the given scalar. Unlike
+   * {@link #multiply(float)} this mutates this vector instead of creating a new
+   * one.
+   *
+   * @param scalar the scalar.
+   * @return this vector.
+   */
+  public FloatVector scaleInPlace(float scalar);
+
+  /**
+   * Adds the given vector multiplied by alpha to this vector (this = this +
+   * alpha * x), without creating any intermediate vector.
+   *
+   * @param alpha the scalar to multiply x with.
+   * @param x the other vector.
+   * @return this vector.
+   */
+  public FloatVector axpy(float alpha, FloatVector x);
+
+  /**
+   * @return the sum of all elements in this vector.
+   */
+  public double sum();
+
+  /**
+   * Calculates the dot product between this vector and the given vector.
+   *
+   * @param s the given vector s.
+   * @return the dot product, accumulated in double precision.
+   */
+  public double dot(FloatVector s);
+
+  /**
+   * @return the maximum element value in this vector. Note that on sparse
+   *         instances you may not see zero as the maximum.
+   */
+  public float max();
+
+  /**
+   * @return the minimum element value in this vector. Note that on sparse
+   *         instances you may not see zero as the minimum.
+   */
+  public float min();
+
+  /**
+   * @return the index where the element value in this vector is the maximum.
+   *         Note that on sparse instances you may not see indices that contain
+   *         a zero as the maximum.
+   */
+  public int maxIndex();
+
+  /**
+   * @return the index where the element value in this vector is the
+   *         minimum.Note that on sparse instances you may not see indices that
+   *         contain a zero as the minimum.
+   */
+  public int minIndex();
+
+  /**
+   * @return an array representation of this vector.
+   */
+  public float[] toArray();
+
+  /**
+   * @return a double precision copy of this vector, dense vectors become a
+   *         dense and sparse vectors a sparse {@link DoubleVector}.
+   */
+  public DoubleVector toDoubleVector();
+
+  /**
+   * @return a fresh new copy of this vector, copies all elements to a new
+   *         vector.
+   */
+  public FloatVector deepCopy();
+
+  /**
+   * @return an iterator that only iterates over non zero elements.
+   */
+  public Iterator<FloatVectorElement> iterateNonZero();
+
+  /**
+   * @return an iterator that iterates over all elements.
+   */
+  public Iterator<FloatVectorElement> iterate();
+
+  /**
+   * Passes every non zero element to the given consumer. This runs directly
+   * over the backing structure and doesn't allocate an iterator. Dense vectors
+   * visit the indices in ascending order, hash based vectors in an unspecified
+   * order.
+   */
+  public void forEachNonZero(IntFloatConsumer consumer);
+
+  /**
+   * Passes every element (including zeros) in ascending index order to the
+   * given consumer.
+   */
+  public void forEach(IntFloatConsumer consumer);
+
+  /**
+   * @return true if this instance is a sparse vector. Smarter and faster than
+   *         instanceof.
+   */
+  public boolean isSparse();
+
+  /**
+   * Class for iteration of elements, consists of an index and a value at this
+   * index. May be reused for performance/GC purposes.
+   */
+  public static final class FloatVectorElement {
+
+    private int index;
+    private float value;
+
+    public FloatVectorElement() {
+      super();
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public float getValue() {
+      return value;
+    }
+
+    public void setIndex(int in) {
+      this.index = in;
+    }
+
+    public void setValue(float in) {
+      this.value = in;
+    }
+
+    @Override
+    public String toString() {
+      return index + " -> " + value;
+    }
+  }
+
+}
@@ -0,0 +1,417 @@
+package de.jungblut.math.dense;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Array of doubles that lives outside of the java heap and is addressed with
+ * long indices. A single {@link ByteBuffer} can hold at most 2^31 bytes, so the
+ * values are split into chunks of 2^chunkShift doubles each.<br/>
+ * After {@link #close()} the memory of the chunks is released and every access
+ * throws an {@link IllegalStateException}.<br/>
+ * The range operations hold a reference on the buffer while they touch the
+ * chunks, so closing the buffer while they run on other threads is safe: the
+ * memory is freed by whoever drops the last reference. Single element access
+ * is kept free of atomic operations for the hot loops and is NOT guarded,
+ * {@link #close()} must not race with {@link #get(long)} or
+ * {@link #set(long, double)}, otherwise they may touch freed memory.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class ChunkedDoubleBuffer implements Closeable {
+
+  /**
+   * 2^27 doubles are 1gb per chunk.
+   */
+  static final int DEFAULT_CHUNK_SHIFT = 27;
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> clazz = Class.forName("sun.misc.Unsafe");
+      Field field = clazz.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = field.get(null);
+      invokeCleaner = clazz.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // before java 9 the memory is freed once the buffer is garbage collected
+      unsafe = null;
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private final long length;
+  private final int chunkShift;
+  private final int chunkMask;
+
+  private final ByteBuffer[] buffers;
+  private final DoubleBuffer[] chunks;
+
+  /**
+   * The lowest bit is set once the buffer is closed, the remaining bits count
+   * the accesses in flight.
+   */
+  private final AtomicInteger state = new AtomicInteger();
+
+  /**
+   * Creates a new buffer over the given byte buffers, every buffer except the
+   * last must contain exactly 2^chunkShift doubles. The byte order of the
+   * buffers is used to read and write the values.
+   *
+   * @param length the number of doubles.
+   * @param chunkShift the log2 of the number of doubles in a chunk.
+   * @param buffers the byte buffers that contain the values.
+   */
+  ChunkedDoubleBuffer(long length, int chunkShift, ByteBuffer[] buffers) {
+    this.length = length;
+    this.chunkShift = chunkShift;
+    this.chunkMask = (1 << chunkShift) - 1;
+    this.buffers = buffers;
+    this.chunks = new DoubleBuffer[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      chunks[i] = buffers[i].asDoubleBuffer();
+    }
+  }
+
+  /**
+   * Allocates a new zero filled buffer in direct memory, using the native byte
+   * order.
+   *
+   * @param length the number of doubles.
+   * @param chunkShift the log2 of the number of doubles in a chunk, at most 27.
+   */
+  static ChunkedDoubleBuffer allocateDirect(long length, int chunkShift) {
+    checkArguments(length, chunkShift);
+    long chunkSize = 1L << chunkShift;
+    ByteBuffer[] buffers = new ByteBuffer[numChunks(length, chunkShift)];
+    for (int i = 0; i < buffers.length; i++) {
+      long size = Math.min(chunkSize, length - i * chunkSize);
+      buffers[i] = ByteBuffer.allocateDirect((int) size * 8).order(
+          ByteOrder.nativeOrder());
+    }
+    return new ChunkedDoubleBuffer(length, chunkShift, buffers);
+  }
+
+  /**
+   * Maps a region of the given file into memory, chunk by chunk. The mapping
+   * stays valid after the channel is closed.
+   *
+   * @param channel the channel of the file.
+   * @param mode the mode to map the file with.
+   * @param offset the offset in bytes where the first double starts.
+   * @param length the number of doubles.
+   * @param chunkShift the log2 of the number of doubles in a chunk, at most 27.
+   * @param order the byte order of the doubles in the file.
+   */
+  static ChunkedDoubleBuffer map(FileChannel channel, MapMode mode,
+      long offset, long length, int chunkShift, ByteOrder order)
+      throws IOException {
+    checkArguments(length, chunkShift);
+    long chunkSize = 1L << chunkShift;
+    ByteBuffer[] buffers = new ByteBuffer[numChunks(length, chunkShift)];
+    for (int i = 0; i < buffers.length; i++) {
+      long size = Math.min(chunkSize, length - i * chunkSize);
+      buffers[i] = channel.map(mode, offset + i * chunkSize * 8, size * 8)
+          .order(order);
+    }
+    return new ChunkedDoubleBuffer(length, chunkShift, buffers);
+  }
+
+  private static void checkArguments(long length, int chunkShift) {
+    if (length < 0) {
+      throw new IllegalArgumentException("Negative length: " + length);
+    }
+    if (chunkShift < 0 || chunkShift > DEFAULT_CHUNK_SHIFT) {
+      throw new IllegalArgumentException("Chunk shift must be between 0 and "
+          + DEFAULT_CHUNK_SHIFT + ", but was " + chunkShift);
+    }
+  }
+
+  private static int numChunks(long length, int chunkShift) {
+    return (int) ((length + (1L << chunkShift) - 1) >>> chunkShift);
+  }
+
+  /**
+   * @return the number of doubles in this buffer.
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Unguarded single element read, must not race with {@link #close()}.
+   */
+  double get(long index) {
+    checkOpen();
+    return chunks[(int) (index >>> chunkShift)].get((int) index & chunkMask);
+  }
+
+  /**
+   * Unguarded single element write, must not race with {@link #close()}.
+   */
+  void set(long index, double value) {
+    checkOpen();
+    chunks[(int) (index >>> chunkShift)].put((int) index & chunkMask, value);
+  }
+
+  /**
+   * Copies length values, that are stride apart starting at offset, into the
+   * given array.
+   */
+  void get(long offset, long stride, double[] dst, int dstOffset, int length) {
+    acquire();
+    try {
+      for (int i = 0; i < length; i++) {
+        long index = offset + i * stride;
+        dst[dstOffset + i] = chunks[(int) (index >>> chunkShift)]
+            .get((int) index & chunkMask);
+      }
+    } finally {
+      releaseReference();
+    }
+  }
+
+  /**
+   * Copies length values of the given array into this buffer, stride apart
+   * starting at offset.
+   */
+  void put(long offset, long stride, double[] src, int srcOffset, int length) {
+    acquire();
+    try {
+      for (int i = 0; i < length; i++) {
+        long index = offset + i * stride;
+        chunks[(int) (index >>> chunkShift)].put((int) index & chunkMask,
+            src[srcOffset + i]);
+      }
+    } finally {
+      releaseReference();
+    }
+  }
+
+  /**
+   * Copies length values starting at offset into the given array.
+   */
+  void get(long offset, double[] dst, int dstOffset, int length) {
+    acquire();
+    try {
+      while (length > 0) {
+        DoubleBuffer chunk = chunks[(int) (offset >>> chunkShift)].duplicate();
+        int position = (int) offset & chunkMask;
+        int n = Math.min(length, chunk.limit() - position);
+        // cast, because java 9 overrides position with a covariant return type
+        ((Buffer) chunk).position(position);
+        chunk.get(dst, dstOffset, n);
+        offset += n;
+        dstOffset += n;
+        length -= n;
+      }
+    } finally {
+      releaseReference();
+    }
+  }
+
+  /**
+   * Copies length values of the given array into this buffer, starting at
+   * offset.
+   */
+  void put(long offset, double[] src, int srcOffset, int length) {
+    acquire();
+    try {
+      while (length > 0) {
+        DoubleBuffer chunk = chunks[(int) (offset >>> chunkShift)].duplicate();
+        int position = (int) offset & chunkMask;
+        int n = Math.min(length, chunk.limit() - position);
+        ((Buffer) chunk).position(position);
+        chunk.put(src, srcOffset, n);
+        offset += n;
+        srcOffset += n;
+        length -= n;
+      }
+    } finally {
+      releaseReference();
+    }
+  }
+
+  /**
+   * @return the dot product of length values starting at offset with the
+   *         values of the given array starting at otherOffset.
+   */
+  double dot(long offset, double[] other, int otherOffset, int length) {
+    acquire();
+    try {
+      double dotProduct = 0d;
+      while (length > 0) {
+        DoubleBuffer chunk = chunks[(int) (offset >>> chunkShift)];
+        int position = (int) offset & chunkMask;
+        int n = Math.min(length, chunk.limit() - position);
+        for (int i = 0; i < n; i++) {
+          dotProduct += chunk.get(position + i) * other[otherOffset + i];
+        }
+        offset += n;
+        otherOffset += n;
+        length -= n;
+      }
+      return dotProduct;
+    } finally {
+      releaseReference();
+    }
+  }
+
+  /**
+   * Computes y += alpha * x, where x are length values starting at offset.
+   */
+  void axpy(long offset, double alpha, double[] y, int yOffset, int length) {
+    acquire();
+    try {
+      while (length > 0) {
+        DoubleBuffer chunk = chunks[(int) (offset >>> chunkShift)];
+        int position = (int) offset & chunkMask;
+        int n = Math.min(length, chunk.limit() - position);
+        for (int i = 0; i < n; i++) {
+          y[yOffset + i] += alpha * chunk.get(position + i);
+        }
+        offset += n;
+        yOffset += n;
+        length -= n;
+      }
+    } finally {
+      releaseReference();
+    }
+  }
+
+  /**
+   * @return a copy of this buffer in direct memory, with the same chunk size
+   *         and byte order.
+   */
+  ChunkedDoubleBuffer copy() {
+    acquire();
+    try {
+      ByteBuffer[] copy = new ByteBuffer[buffers.length];
+      for (int i = 0; i < buffers.length; i++) {
+        ByteBuffer source = buffers[i].duplicate();
+        ((Buffer) source).clear();
+        copy[i] = ByteBuffer.allocateDirect(source.capacity()).order(
+            buffers[i].order());
+        copy[i].put(source);
+        ((Buffer) copy[i]).clear();
+      }
+      return new ChunkedDoubleBuffer(length, chunkShift, copy);
+    } finally {
+      releaseReference();
+    }
+  }
+
+  /**
+   * Writes the changes of memory mapped chunks back to the file.
+   */
+  void force() {
+    acquire();
+    try {
+      for (ByteBuffer buffer : buffers) {
+        if (buffer instanceof MappedByteBuffer) {
+          ((MappedByteBuffer) buffer).force();
+        }
+      }
+    } finally {
+      releaseReference();
+    }
+  }
+
+  /**
+   * @return true if this buffer was closed.
+   */
+  boolean isClosed() {
+    return (state.get() & 1) != 0;
+  }
+
+  /**
+   * Closes this buffer, every later access throws an
+   * {@link IllegalStateException}. The memory of the chunks is released right
+   * away if no range operation is in flight, otherwise by the last running one
+   * once it finishes. Must not race with single element access. Closing an
+   * already closed buffer has no effect.
+   */
+  @Override
+  public void close() {
+    while (true) {
+      int current = state.get();
+      if ((current & 1) != 0) {
+        return;
+      }
+      if (state.compareAndSet(current, current | 1)) {
+        if (current == 0) {
+          free();
+        }
+        return;
+      }
+    }
+  }
+
+  private void checkOpen() {
+    if ((state.get() & 1) != 0) {
+      throw new IllegalStateException("Buffer was already closed!");
+    }
+  }
+
+  /**
+   * Takes a reference on the chunks, must be paired with
+   * {@link #releaseReference()}.
+   */
+  private void acquire() {
+    while (true) {
+      int current = state.get();
+      if ((current & 1) != 0) {
+        throw new IllegalStateException("Buffer was already closed!");
+      }
+      if (state.compareAndSet(current, current + 2)) {
+        return;
+      }
+    }
+  }
+
+  private void releaseReference() {
+    // only the closed bit is left, so this was the last access after a close
+    if (state.addAndGet(-2) == 1) {
+      free();
+    }
+  }
+
+  private void free() {
+    for (ByteBuffer buffer : buffers) {
+      release(buffer);
+    }
+  }
+
+  /**
+   * Frees the memory of the given direct or mapped buffer immediately, if the
+   * runtime supports it. Otherwise it is freed when the buffer is garbage
+   * collected.
+   */
+  static void release(ByteBuffer buffer) {
+    if (INVOKE_CLEANER != null && buffer.isDirect()) {
+      try {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+      } catch (ReflectiveOperationException e) {
+        // leave it to the garbage collector
+      }
+    }
+  }
+
+}
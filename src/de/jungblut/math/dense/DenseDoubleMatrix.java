@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.math3.util.FastMath;
 
@@ -19,6 +21,24 @@ import de.jungblut.math.DoubleVector.DoubleVectorElement;
  */
 public final class DenseDoubleMatrix implements DoubleMatrix {
 
+  /**
+   * Number of rows of the left operand that are processed in a single block of
+   * the matrix multiplication. 256 rows of four result columns and one column
+   * of the left operand (~10kb) fit into the L1 cache.
+   */
+  private static final int BLOCK_ROWS = 256;
+  /**
+   * Number of columns of the left operand that are processed in a single block
+   * of the matrix multiplication. A 256x128 panel (256kb) fits into the L2
+   * cache.
+   */
+  private static final int BLOCK_INNER = 128;
+  /**
+   * Number of multiply-add operations below which a parallel multiplication is
+   * computed on a single thread, as the scheduling overhead would dominate.
+   */
+  private static final long PARALLEL_THRESHOLD = 1L << 21;
+
   /**
    * We use a column major format to store the matrix, as two dimensional arrays
    * have a high waste of space.
@@ -307,9 +327,7 @@ public final class DenseDoubleMatrix implements DoubleMatrix {
   @Override
   public DenseDoubleMatrix multiply(double scalar) {
     double[] csjr = new double[this.numRows * this.numColumns];
-    for (int i = 0; i < matrix.length; i++) {
-      csjr[i] = this.matrix[i] * scalar;
-    }
+    DoubleArrayKernels.get().scale(matrix, scalar, csjr, matrix.length);
     return new DenseDoubleMatrix(csjr, this.numRows, this.numColumns, false);
   }
 
@@ -319,6 +337,13 @@ public final class DenseDoubleMatrix implements DoubleMatrix {
     int n = this.numColumns;
     int p = other.getColumnCount();
 
+    if (other instanceof DenseDoubleMatrix) {
+      double[] result = new double[m * p];
+      multiplyBlocked(this.matrix, ((DenseDoubleMatrix) other).matrix, result,
+          m, n, 0, m, 0, p);
+      return new DenseDoubleMatrix(result, m, p, false);
+    }
+
     DenseDoubleMatrix matrix = new DenseDoubleMatrix(m, p);
     for (int k = 0; k < n; k++) {
       for (int i = 0; i < m; i++) {
@@ -331,8 +356,47 @@ public final class DenseDoubleMatrix implements DoubleMatrix {
     return matrix;
   }
 
+  /**
+   * Multiplies this matrix with the given other matrix using the common
+   * {@link ForkJoinPool}. See {@link #multiply(DoubleMatrix, ForkJoinPool)}.
+   */
+  public DoubleMatrix multiplyParallel(DoubleMatrix other) {
+    return multiply(other, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Multiplies this matrix with the given other matrix. The result is split
+   * into row and column panels that are computed in parallel on the given
+   * pool. Small products and products with non-dense matrices are computed on
+   * the calling thread, just like {@link #multiply(DoubleMatrix)}.
+   * 
+   * @param other the other matrix.
+   * @param pool the pool to run the panel computations on.
+   * @return a new matrix with the result of the multiplication.
+   */
+  public DoubleMatrix multiply(DoubleMatrix other, ForkJoinPool pool) {
+    int m = this.numRows;
+    int n = this.numColumns;
+    int p = other.getColumnCount();
+    if (!(other instanceof DenseDoubleMatrix)
+        || (long) m * n * p <= PARALLEL_THRESHOLD) {
+      return multiply(other);
+    }
+
+    double[] result = new double[m * p];
+    pool.invoke(new MultiplyTask(this.matrix,
+        ((DenseDoubleMatrix) other).matrix, result, m, n, 0, m, 0, p));
+    return new DenseDoubleMatrix(result, m, p, false);
+  }
+
   @Override
   public DoubleMatrix multiplyElementWise(DoubleMatrix other) {
+    if (hasSameShape(other)) {
+      double[] csjr = new double[this.matrix.length];
+      DoubleArrayKernels.get().multiply(this.matrix,
+          ((DenseDoubleMatrix) other).matrix, csjr, csjr.length);
+      return new DenseDoubleMatrix(csjr, this.numRows, this.numColumns, false);
+    }
     DenseDoubleMatrix matrix = new DenseDoubleMatrix(this.numRows,
         this.numColumns);
 
@@ -413,6 +477,12 @@ public final class DenseDoubleMatrix implements DoubleMatrix {
 
   @Override
   public DoubleMatrix subtract(DoubleMatrix other) {
+    if (hasSameShape(other)) {
+      double[] csjr = new double[this.matrix.length];
+      DoubleArrayKernels.get().subtract(this.matrix,
+          ((DenseDoubleMatrix) other).matrix, csjr, csjr.length);
+      return new DenseDoubleMatrix(csjr, this.numRows, this.numColumns, false);
+    }
     DoubleMatrix m = new DenseDoubleMatrix(this.numRows, this.numColumns);
     for (int i = 0; i < numRows; i++) {
       for (int j = 0; j < numColumns; j++) {
@@ -464,6 +534,12 @@ public final class DenseDoubleMatrix implements DoubleMatrix {
 
   @Override
   public DoubleMatrix add(DoubleMatrix other) {
+    if (hasSameShape(other)) {
+      double[] csjr = new double[this.matrix.length];
+      DoubleArrayKernels.get().add(this.matrix,
+          ((DenseDoubleMatrix) other).matrix, csjr, csjr.length);
+      return new DenseDoubleMatrix(csjr, this.numRows, this.numColumns, false);
+    }
     DoubleMatrix m = new DenseDoubleMatrix(this.numRows, this.numColumns);
     for (int i = 0; i < numRows; i++) {
       for (int j = 0; j < numColumns; j++) {
@@ -534,6 +610,16 @@ public final class DenseDoubleMatrix implements DoubleMatrix {
     return false;
   }
 
+  /**
+   * @return true if the other matrix is dense and has the same number of rows
+   *         and columns, so both backing arrays have the same layout.
+   */
+  private boolean hasSameShape(DoubleMatrix other) {
+    return other instanceof DenseDoubleMatrix
+        && other.getRowCount() == numRows
+        && other.getColumnCount() == numColumns;
+  }
+
   @Override
   public double sum() {
     double x = 0.0d;
@@ -586,6 +672,119 @@ public final class DenseDoubleMatrix implements DoubleMatrix {
     return numRows + "x" + numColumns;
   }
 
+  /**
+   * Cache blocked kernel for c += a * b, where all arrays are in column major
+   * layout. a is a (m x n) matrix, b is a (n x p) matrix and c is a (m x p)
+   * matrix. Only the panel [rowStart, rowEnd) x [colStart, colEnd) of c is
+   * computed, so disjoint panels can be computed concurrently.<br/>
+   * A (BLOCK_ROWS x BLOCK_INNER) panel of a is kept in the L2 cache while four
+   * columns of c are updated at once, so every element of a that is loaded into
+   * a register is used four times and the innermost loop streams over
+   * contiguous memory only.
+   */
+  static void multiplyBlocked(double[] a, double[] b, double[] c, int m,
+      int n, int rowStart, int rowEnd, int colStart, int colEnd) {
+    for (int kBlock = 0; kBlock < n; kBlock += BLOCK_INNER) {
+      final int kMax = Math.min(kBlock + BLOCK_INNER, n);
+      for (int iBlock = rowStart; iBlock < rowEnd; iBlock += BLOCK_ROWS) {
+        final int iMax = Math.min(iBlock + BLOCK_ROWS, rowEnd);
+        int j = colStart;
+        for (; j + 3 < colEnd; j += 4) {
+          final int c0 = j * m;
+          final int c1 = c0 + m;
+          final int c2 = c1 + m;
+          final int c3 = c2 + m;
+          final int b0 = j * n;
+          final int b1 = b0 + n;
+          final int b2 = b1 + n;
+          final int b3 = b2 + n;
+          for (int k = kBlock; k < kMax; k++) {
+            final double bk0 = b[b0 + k];
+            final double bk1 = b[b1 + k];
+            final double bk2 = b[b2 + k];
+            final double bk3 = b[b3 + k];
+            final int aOffset = k * m;
+            for (int i = iBlock; i < iMax; i++) {
+              final double aik = a[aOffset + i];
+              c[c0 + i] += aik * bk0;
+              c[c1 + i] += aik * bk1;
+              c[c2 + i] += aik * bk2;
+              c[c3 + i] += aik * bk3;
+            }
+          }
+        }
+        // remaining columns that did not fit into the four column tile
+        for (; j < colEnd; j++) {
+          final int c0 = j * m;
+          final int b0 = j * n;
+          for (int k = kBlock; k < kMax; k++) {
+            final double bk0 = b[b0 + k];
+            final int aOffset = k * m;
+            for (int i = iBlock; i < iMax; i++) {
+              c[c0 + i] += a[aOffset + i] * bk0;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes a panel of the product of two dense matrices, splits the panel
+   * until it is small enough to be computed by a single thread. Panels with at
+   * least eight columns are split by columns, so every task writes whole
+   * column major columns of the result, only narrower panels are split by
+   * rows.
+   */
+  private static final class MultiplyTask extends RecursiveAction {
+
+    private static final long serialVersionUID = -1825389434315553578L;
+
+    private final double[] a;
+    private final double[] b;
+    private final double[] c;
+    private final int m;
+    private final int n;
+    private final int rowStart;
+    private final int rowEnd;
+    private final int colStart;
+    private final int colEnd;
+
+    MultiplyTask(double[] a, double[] b, double[] c, int m, int n,
+        int rowStart, int rowEnd, int colStart, int colEnd) {
+      this.a = a;
+      this.b = b;
+      this.c = c;
+      this.m = m;
+      this.n = n;
+      this.rowStart = rowStart;
+      this.rowEnd = rowEnd;
+      this.colStart = colStart;
+      this.colEnd = colEnd;
+    }
+
+    @Override
+    protected void compute() {
+      int rows = rowEnd - rowStart;
+      int cols = colEnd - colStart;
+      if ((long) rows * cols * n <= PARALLEL_THRESHOLD
+          || (rows <= BLOCK_ROWS && cols < 8)) {
+        multiplyBlocked(a, b, c, m, n, rowStart, rowEnd, colStart, colEnd);
+      } else if (cols >= 8) {
+        // split the columns, but keep the four column tiles intact
+        int mid = colStart + ((cols / 2) & ~3);
+        invokeAll(new MultiplyTask(a, b, c, m, n, rowStart, rowEnd, colStart,
+            mid), new MultiplyTask(a, b, c, m, n, rowStart, rowEnd, mid,
+            colEnd));
+      } else {
+        int mid = rowStart + rows / 2;
+        invokeAll(new MultiplyTask(a, b, c, m, n, rowStart, mid, colStart,
+            colEnd), new MultiplyTask(a, b, c, m, n, mid, rowEnd, colStart,
+            colEnd));
+      }
+    }
+  }
+
   /**
    * Translates the 2D addressing to a single offset in the 1D matrix.
    * 
@@ -10,6 +10,9 @@ import com.google.common.collect.AbstractIterator;
 import de.jungblut.math.DoubleVector;
 import de.jungblut.math.function.DoubleDoubleVectorFunction;
 import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
+import de.jungblut.math.sparse.VectorKernels;
+import de.jungblut.math.sparse.VectorKernels.Operation;
 
 /**
  * Dense double vector implementation.
@@ -92,6 +95,17 @@ public final class DenseDoubleVector implements DoubleVector {
 
   }
 
+  private DenseDoubleVector(double[] arr, boolean copy) {
+    this.vector = copy ? Arrays.copyOf(arr, arr.length) : arr;
+  }
+
+  /**
+   * @return a new vector backed by the given array, no copy is made.
+   */
+  static DenseDoubleVector wrap(double[] arr) {
+    return new DenseDoubleVector(arr, false);
+  }
+
   @Override
   public final double get(int index) {
     return vector[index];
@@ -132,7 +146,10 @@ public final class DenseDoubleVector implements DoubleVector {
 
   @Override
   public final DoubleVector add(DoubleVector v) {
-    DoubleVector newv = null;
+    DoubleVector newv = VectorKernels.apply(Operation.ADD, this, v);
+    if (newv != null) {
+      return newv;
+    }
     if (v.isSparse()) {
       newv = new DenseDoubleVector(vector);
       Iterator<DoubleVectorElement> iterateNonZero = v.iterateNonZero();
@@ -160,7 +177,10 @@ public final class DenseDoubleVector implements DoubleVector {
 
   @Override
   public final DoubleVector subtract(DoubleVector v) {
-    DoubleVector newv = null;
+    DoubleVector newv = VectorKernels.apply(Operation.SUBTRACT, this, v);
+    if (newv != null) {
+      return newv;
+    }
     if (v.isSparse()) {
       newv = new DenseDoubleVector(vector);
       Iterator<DoubleVectorElement> iterateNonZero = v.iterateNonZero();
@@ -197,15 +217,17 @@ public final class DenseDoubleVector implements DoubleVector {
 
   @Override
   public DoubleVector multiply(double scalar) {
-    DoubleVector v = new DenseDoubleVector(this.getLength());
-    for (int i = 0; i < v.getLength(); i++) {
-      v.set(i, this.get(i) * scalar);
-    }
-    return v;
+    double[] result = new double[vector.length];
+    DoubleArrayKernels.get().scale(vector, scalar, result, vector.length);
+    return wrap(result);
   }
 
   @Override
   public DoubleVector multiply(DoubleVector v) {
+    DoubleVector result = VectorKernels.apply(Operation.MULTIPLY, this, v);
+    if (result != null) {
+      return result;
+    }
     DoubleVector newv = new DenseDoubleVector(this.getLength());
     if (v.isSparse()) {
       Iterator<DoubleVectorElement> iterateNonZero = v.iterateNonZero();
@@ -301,12 +323,48 @@ public final class DenseDoubleVector implements DoubleVector {
   }
 
   @Override
-  public double sum() {
-    double sum = 0.0d;
-    for (double aVector : vector) {
-      sum += aVector;
+  public DoubleVector addInPlace(DoubleVector v) {
+    return axpy(1d, v);
+  }
+
+  @Override
+  public DoubleVector subtractInPlace(DoubleVector v) {
+    return axpy(-1d, v);
+  }
+
+  @Override
+  public DoubleVector scaleInPlace(double scalar) {
+    DoubleArrayKernels.get().scale(vector, scalar, vector, vector.length);
+    return this;
+  }
+
+  @Override
+  public DoubleVector axpy(double alpha, DoubleVector x) {
+    if (x.isSparse()) {
+      Iterator<DoubleVectorElement> iterateNonZero = x.iterateNonZero();
+      while (iterateNonZero.hasNext()) {
+        DoubleVectorElement next = iterateNonZero.next();
+        vector[next.getIndex()] += alpha * next.getValue();
+      }
+    } else {
+      // dense vectors return their backing array, so this does not copy
+      double[] other = x.toArray();
+      DoubleArrayKernels.get().axpy(alpha, other, vector, other.length);
     }
-    return sum;
+    return this;
+  }
+
+  @Override
+  public DoubleVector applyInPlace(DoubleVectorFunction func) {
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] = func.calculate(i, vector[i]);
+    }
+    return this;
+  }
+
+  @Override
+  public double sum() {
+    return DoubleArrayKernels.get().sum(vector, vector.length);
   }
 
   @Override
@@ -320,19 +378,7 @@ public final class DenseDoubleVector implements DoubleVector {
 
   @Override
   public double dot(DoubleVector s) {
-    double dotProduct = 0.0d;
-    if (s.isSparse()) {
-      Iterator<DoubleVectorElement> iterateNonZero = s.iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement next = iterateNonZero.next();
-        dotProduct += this.get(next.getIndex()) * next.getValue();
-      }
-    } else {
-      for (int i = 0; i < getLength(); i++) {
-        dotProduct += this.get(i) * s.get(i);
-      }
-    }
-    return dotProduct;
+    return VectorKernels.dot(this, s);
   }
 
   @Override
@@ -445,6 +491,22 @@ public final class DenseDoubleVector implements DoubleVector {
     return new DefaultIterator();
   }
 
+  @Override
+  public void forEachNonZero(IntDoubleConsumer consumer) {
+    for (int i = 0; i < vector.length; i++) {
+      if (vector[i] != 0d) {
+        consumer.accept(i, vector[i]);
+      }
+    }
+  }
+
+  @Override
+  public void forEach(IntDoubleConsumer consumer) {
+    for (int i = 0; i < vector.length; i++) {
+      consumer.accept(i, vector[i]);
+    }
+  }
+
   @Override
   public DoubleVector log() {
     DoubleVector v = new DenseDoubleVector(getLength());
@@ -0,0 +1,350 @@
+package de.jungblut.math.dense;
+
+import java.util.Arrays;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.FloatMatrix;
+import de.jungblut.math.FloatVector;
+
+/**
+ * Dense float matrix implementation, the single precision counterpart of
+ * {@link DenseDoubleMatrix} with the same column major layout, so conversions
+ * between both are a single pass over the backing arrays.
+ */
+public final class DenseFloatMatrix implements FloatMatrix {
+
+  private final float[] matrix;
+  private final int numRows;
+  private final int numColumns;
+
+  /**
+   * Creates a new empty matrix from the rows and columns.
+   *
+   * @param rows the num of rows.
+   * @param columns the num of columns.
+   */
+  public DenseFloatMatrix(int rows, int columns) {
+    this(rows, columns, new float[rows * columns]);
+  }
+
+  /**
+   * Creates a new matrix from the rows and columns, given the column major
+   * array input. This method does not copy the given array.
+   *
+   * @param rows the num of rows.
+   * @param columns the num of columns.
+   * @param columnMajorArray the array that has a column major layout.
+   */
+  public DenseFloatMatrix(int rows, int columns, float[] columnMajorArray) {
+    this.numRows = rows;
+    this.numColumns = columns;
+    this.matrix = columnMajorArray;
+  }
+
+  /**
+   * Creates a new matrix from the given two dimensional array (row major).
+   *
+   * @param otherMatrix the array to copy.
+   */
+  public DenseFloatMatrix(float[][] otherMatrix) {
+    this(otherMatrix.length, otherMatrix[0].length);
+    for (int row = 0; row < numRows; row++) {
+      for (int col = 0; col < numColumns; col++) {
+        set(row, col, otherMatrix[row][col]);
+      }
+    }
+  }
+
+  /**
+   * Narrows the given double matrix into a float matrix, values outside the
+   * float range become infinite.
+   *
+   * @param other a double matrix.
+   */
+  public DenseFloatMatrix(DoubleMatrix other) {
+    this(other.getRowCount(), other.getColumnCount());
+    if (other instanceof DenseDoubleMatrix) {
+      double[] src = ((DenseDoubleMatrix) other).getColumnMajorMatrix();
+      for (int i = 0; i < matrix.length; i++) {
+        matrix[i] = (float) src[i];
+      }
+    } else {
+      for (int row : other.rowIndices()) {
+        other.getRowVector(row).forEachNonZero(
+            (col, value) -> set(row, col, (float) value));
+      }
+    }
+  }
+
+  @Override
+  public float get(int row, int col) {
+    return matrix[translate(row, col, numRows)];
+  }
+
+  @Override
+  public int getColumnCount() {
+    return numColumns;
+  }
+
+  @Override
+  public int getRowCount() {
+    return numRows;
+  }
+
+  @Override
+  public DenseFloatVector getColumnVector(int col) {
+    int offset = col * numRows;
+    return DenseFloatVector.wrap(Arrays.copyOfRange(matrix, offset, offset
+        + numRows));
+  }
+
+  @Override
+  public DenseFloatVector getRowVector(int row) {
+    float[] rowArray = new float[numColumns];
+    for (int col = 0; col < numColumns; col++) {
+      rowArray[col] = matrix[translate(row, col, numRows)];
+    }
+    return DenseFloatVector.wrap(rowArray);
+  }
+
+  @Override
+  public void set(int row, int col, float value) {
+    matrix[translate(row, col, numRows)] = value;
+  }
+
+  @Override
+  public void setColumnVector(int col, FloatVector column) {
+    int offset = col * numRows;
+    Arrays.fill(matrix, offset, offset + numRows, 0f);
+    column.forEachNonZero((row, value) -> matrix[offset + row] = value);
+  }
+
+  @Override
+  public void setRowVector(int rowIndex, FloatVector row) {
+    for (int col = 0; col < numColumns; col++) {
+      matrix[translate(rowIndex, col, numRows)] = 0f;
+    }
+    row.forEachNonZero((col, value) -> set(rowIndex, col, value));
+  }
+
+  @Override
+  public DenseFloatMatrix multiply(float scalar) {
+    float[] result = new float[matrix.length];
+    for (int i = 0; i < matrix.length; i++) {
+      result[i] = matrix[i] * scalar;
+    }
+    return new DenseFloatMatrix(numRows, numColumns, result);
+  }
+
+  @Override
+  public DenseFloatMatrix multiply(FloatMatrix other) {
+    int n = numColumns;
+    int p = other.getColumnCount();
+    float[] result = new float[numRows * p];
+    for (int j = 0; j < p; j++) {
+      int resultOffset = j * numRows;
+      // result column j is a linear combination of the columns of this
+      for (int k = 0; k < n; k++) {
+        float b = other.get(k, j);
+        if (b != 0f) {
+          int offset = k * numRows;
+          for (int i = 0; i < numRows; i++) {
+            result[resultOffset + i] += matrix[offset + i] * b;
+          }
+        }
+      }
+    }
+    return new DenseFloatMatrix(numRows, p, result);
+  }
+
+  @Override
+  public DenseFloatMatrix multiplyElementWise(FloatMatrix other) {
+    float[] result = new float[matrix.length];
+    if (hasSameShape(other)) {
+      float[] b = ((DenseFloatMatrix) other).matrix;
+      for (int i = 0; i < matrix.length; i++) {
+        result[i] = matrix[i] * b[i];
+      }
+    } else {
+      for (int col = 0; col < numColumns; col++) {
+        for (int row = 0; row < numRows; row++) {
+          int index = translate(row, col, numRows);
+          result[index] = matrix[index] * other.get(row, col);
+        }
+      }
+    }
+    return new DenseFloatMatrix(numRows, numColumns, result);
+  }
+
+  @Override
+  public DenseFloatVector multiplyVectorRow(FloatVector v) {
+    // accumulate column by column, so the matrix is read sequentially
+    double[] sums = new double[numRows];
+    v.forEachNonZero((col, value) -> {
+      int offset = col * numRows;
+      for (int row = 0; row < numRows; row++) {
+        sums[row] += (double) matrix[offset + row] * value;
+      }
+    });
+    return DenseFloatVector.wrap(narrow(sums));
+  }
+
+  @Override
+  public DenseFloatVector multiplyVectorColumn(FloatVector v) {
+    float[] result = new float[numColumns];
+    for (int col = 0; col < numColumns; col++) {
+      int offset = col * numRows;
+      double sum = 0d;
+      for (int row = 0; row < numRows; row++) {
+        sum += (double) matrix[offset + row] * v.get(row);
+      }
+      result[col] = (float) sum;
+    }
+    return DenseFloatVector.wrap(result);
+  }
+
+  @Override
+  public DenseFloatMatrix transpose() {
+    DenseFloatMatrix m = new DenseFloatMatrix(numColumns, numRows);
+    for (int col = 0; col < numColumns; col++) {
+      for (int row = 0; row < numRows; row++) {
+        m.set(col, row, matrix[translate(row, col, numRows)]);
+      }
+    }
+    return m;
+  }
+
+  @Override
+  public DenseFloatMatrix subtract(FloatMatrix other) {
+    return combine(other, -1f);
+  }
+
+  @Override
+  public DenseFloatMatrix add(FloatMatrix other) {
+    return combine(other, 1f);
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0d;
+    for (float f : matrix) {
+      sum += f;
+    }
+    return sum;
+  }
+
+  @Override
+  public float[][] toArray() {
+    float[][] mat = new float[numRows][numColumns];
+    int index = 0;
+    for (int col = 0; col < numColumns; col++) {
+      for (int row = 0; row < numRows; row++) {
+        mat[row][col] = matrix[index++];
+      }
+    }
+    return mat;
+  }
+
+  @Override
+  public DenseDoubleMatrix toDoubleMatrix() {
+    double[] result = new double[matrix.length];
+    for (int i = 0; i < matrix.length; i++) {
+      result[i] = matrix[i];
+    }
+    return new DenseDoubleMatrix(numRows, numColumns, result);
+  }
+
+  @Override
+  public boolean isSparse() {
+    return false;
+  }
+
+  @Override
+  public DenseFloatMatrix deepCopy() {
+    return new DenseFloatMatrix(numRows, numColumns, Arrays.copyOf(matrix,
+        matrix.length));
+  }
+
+  /**
+   * @return the column major backing array, not a copy.
+   */
+  public float[] getColumnMajorMatrix() {
+    return matrix;
+  }
+
+  private DenseFloatMatrix combine(FloatMatrix other, float sign) {
+    float[] result = Arrays.copyOf(matrix, matrix.length);
+    if (hasSameShape(other)) {
+      float[] b = ((DenseFloatMatrix) other).matrix;
+      for (int i = 0; i < result.length; i++) {
+        result[i] += sign * b[i];
+      }
+    } else {
+      for (int col = 0; col < numColumns; col++) {
+        for (int row = 0; row < numRows; row++) {
+          result[translate(row, col, numRows)] += sign * other.get(row, col);
+        }
+      }
+    }
+    return new DenseFloatMatrix(numRows, numColumns, result);
+  }
+
+  /**
+   * @return true if the other matrix is dense and has the same number of rows
+   *         and columns, so both backing arrays have the same layout.
+   */
+  private boolean hasSameShape(FloatMatrix other) {
+    return other instanceof DenseFloatMatrix
+        && other.getRowCount() == numRows
+        && other.getColumnCount() == numColumns;
+  }
+
+  private static float[] narrow(double[] arr) {
+    float[] result = new float[arr.length];
+    for (int i = 0; i < arr.length; i++) {
+      result[i] = (float) arr[i];
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    if (numRows < 10) {
+      StringBuilder s = new StringBuilder();
+      for (int row = 0; row < numRows; row++) {
+        s.append(Arrays.toString(getRowVector(row).toArray())).append('\n');
+      }
+      return s.toString();
+    } else {
+      return numRows + "x" + numColumns;
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + Arrays.hashCode(matrix);
+    result = prime * result + numColumns;
+    result = prime * result + numRows;
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    DenseFloatMatrix other = (DenseFloatMatrix) obj;
+    return numRows == other.numRows && numColumns == other.numColumns
+        && Arrays.equals(matrix, other.matrix);
+  }
+
+  private static int translate(int row, int col, int numRows) {
+    return row + col * numRows;
+  }
+
+}
@@ -0,0 +1,369 @@
+package de.jungblut.math.dense;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import com.google.common.collect.AbstractIterator;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.FloatVector;
+import de.jungblut.math.function.IntFloatConsumer;
+
+/**
+ * Dense float vector implementation, see {@link DenseDoubleVector} for the
+ * double precision counterpart.
+ */
+public final class DenseFloatVector implements FloatVector {
+
+  private final float[] vector;
+
+  /**
+   * Creates a new vector with the given length.
+   */
+  public DenseFloatVector(int length) {
+    this.vector = new float[length];
+  }
+
+  /**
+   * Creates a new vector with the given length and default value.
+   *
+   * @param length the length of the new vector.
+   * @param val the value of all the vector elements.
+   */
+  public DenseFloatVector(int length, float val) {
+    this(length);
+    Arrays.fill(vector, val);
+  }
+
+  /**
+   * Creates a new vector with the given array. This wraps a copy of the given
+   * array.
+   */
+  public DenseFloatVector(float[] arr) {
+    this.vector = Arrays.copyOf(arr, arr.length);
+  }
+
+  /**
+   * Transforms the given vector into this vector.
+   *
+   * @param vec a float vector.
+   */
+  public DenseFloatVector(FloatVector vec) {
+    this.vector = new float[vec.getDimension()];
+    if (vec.isSparse()) {
+      vec.forEachNonZero((index, value) -> vector[index] = value);
+    } else {
+      System.arraycopy(vec.toArray(), 0, this.vector, 0, this.vector.length);
+    }
+  }
+
+  /**
+   * Narrows the given double vector into a float vector, values outside the
+   * float range become infinite.
+   *
+   * @param vec a double vector.
+   */
+  public DenseFloatVector(DoubleVector vec) {
+    this.vector = new float[vec.getDimension()];
+    if (vec.isSparse()) {
+      vec.forEachNonZero((index, value) -> vector[index] = (float) value);
+    } else {
+      // dense vectors return their backing array, so this does not copy
+      double[] arr = vec.toArray();
+      for (int i = 0; i < vector.length; i++) {
+        vector[i] = (float) arr[i];
+      }
+    }
+  }
+
+  private DenseFloatVector(float[] arr, boolean copy) {
+    this.vector = copy ? Arrays.copyOf(arr, arr.length) : arr;
+  }
+
+  /**
+   * @return a new vector backed by the given array, no copy is made.
+   */
+  public static DenseFloatVector wrap(float[] arr) {
+    return new DenseFloatVector(arr, false);
+  }
+
+  @Override
+  public final float get(int index) {
+    return vector[index];
+  }
+
+  @Override
+  public final int getLength() {
+    return vector.length;
+  }
+
+  @Override
+  public final int getDimension() {
+    return vector.length;
+  }
+
+  @Override
+  public final void set(int index, float value) {
+    vector[index] = value;
+  }
+
+  @Override
+  public FloatVector add(FloatVector v) {
+    return deepCopy().axpy(1f, v);
+  }
+
+  @Override
+  public FloatVector add(float scalar) {
+    float[] result = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      result[i] = vector[i] + scalar;
+    }
+    return wrap(result);
+  }
+
+  @Override
+  public FloatVector subtract(FloatVector v) {
+    return deepCopy().axpy(-1f, v);
+  }
+
+  @Override
+  public FloatVector subtract(float scalar) {
+    return add(-scalar);
+  }
+
+  @Override
+  public FloatVector multiply(float scalar) {
+    return deepCopy().scaleInPlace(scalar);
+  }
+
+  @Override
+  public FloatVector multiply(FloatVector v) {
+    float[] result = new float[vector.length];
+    if (v.isSparse()) {
+      v.forEachNonZero((index, value) -> result[index] = vector[index] * value);
+    } else {
+      float[] other = v.toArray();
+      for (int i = 0; i < vector.length; i++) {
+        result[i] = vector[i] * other[i];
+      }
+    }
+    return wrap(result);
+  }
+
+  @Override
+  public FloatVector divide(float scalar) {
+    float[] result = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      result[i] = vector[i] / scalar;
+    }
+    return wrap(result);
+  }
+
+  @Override
+  public FloatVector addInPlace(FloatVector v) {
+    return axpy(1f, v);
+  }
+
+  @Override
+  public FloatVector subtractInPlace(FloatVector v) {
+    return axpy(-1f, v);
+  }
+
+  @Override
+  public FloatVector scaleInPlace(float scalar) {
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] *= scalar;
+    }
+    return this;
+  }
+
+  @Override
+  public FloatVector axpy(float alpha, FloatVector x) {
+    if (x.isSparse()) {
+      x.forEachNonZero((index, value) -> vector[index] += alpha * value);
+    } else {
+      // dense vectors return their backing array, so this does not copy
+      float[] other = x.toArray();
+      for (int i = 0; i < other.length; i++) {
+        vector[i] += alpha * other[i];
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0d;
+    for (float f : vector) {
+      sum += f;
+    }
+    return sum;
+  }
+
+  @Override
+  public double dot(FloatVector s) {
+    if (s.isSparse()) {
+      return s.dot(this);
+    }
+    float[] other = s.toArray();
+    double dotProduct = 0d;
+    for (int i = 0; i < vector.length; i++) {
+      dotProduct += (double) vector[i] * other[i];
+    }
+    return dotProduct;
+  }
+
+  @Override
+  public float max() {
+    float max = -Float.MAX_VALUE;
+    for (float f : vector) {
+      if (f > max) {
+        max = f;
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public float min() {
+    float min = Float.MAX_VALUE;
+    for (float f : vector) {
+      if (f < min) {
+        min = f;
+      }
+    }
+    return min;
+  }
+
+  @Override
+  public int maxIndex() {
+    float max = -Float.MAX_VALUE;
+    int maxIndex = 0;
+    for (int i = 0; i < vector.length; i++) {
+      if (vector[i] > max) {
+        max = vector[i];
+        maxIndex = i;
+      }
+    }
+    return maxIndex;
+  }
+
+  @Override
+  public int minIndex() {
+    float min = Float.MAX_VALUE;
+    int minIndex = 0;
+    for (int i = 0; i < vector.length; i++) {
+      if (vector[i] < min) {
+        min = vector[i];
+        minIndex = i;
+      }
+    }
+    return minIndex;
+  }
+
+  @Override
+  public final float[] toArray() {
+    return vector;
+  }
+
+  @Override
+  public DenseDoubleVector toDoubleVector() {
+    double[] result = new double[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      result[i] = vector[i];
+    }
+    return DenseDoubleVector.wrap(result);
+  }
+
+  @Override
+  public DenseFloatVector deepCopy() {
+    return new DenseFloatVector(vector, true);
+  }
+
+  @Override
+  public Iterator<FloatVectorElement> iterateNonZero() {
+    return new AbstractIterator<FloatVectorElement>() {
+      private final FloatVectorElement element = new FloatVectorElement();
+      private int currentIndex = 0;
+
+      @Override
+      protected FloatVectorElement computeNext() {
+        while (currentIndex < vector.length && vector[currentIndex] == 0f) {
+          currentIndex++;
+        }
+        if (currentIndex >= vector.length) {
+          return endOfData();
+        }
+        element.setIndex(currentIndex);
+        element.setValue(vector[currentIndex++]);
+        return element;
+      }
+    };
+  }
+
+  @Override
+  public Iterator<FloatVectorElement> iterate() {
+    return new AbstractIterator<FloatVectorElement>() {
+      private final FloatVectorElement element = new FloatVectorElement();
+      private int currentIndex = 0;
+
+      @Override
+      protected FloatVectorElement computeNext() {
+        if (currentIndex >= vector.length) {
+          return endOfData();
+        }
+        element.setIndex(currentIndex);
+        element.setValue(vector[currentIndex++]);
+        return element;
+      }
+    };
+  }
+
+  @Override
+  public void forEachNonZero(IntFloatConsumer consumer) {
+    for (int i = 0; i < vector.length; i++) {
+      if (vector[i] != 0f) {
+        consumer.accept(i, vector[i]);
+      }
+    }
+  }
+
+  @Override
+  public void forEach(IntFloatConsumer consumer) {
+    for (int i = 0; i < vector.length; i++) {
+      consumer.accept(i, vector[i]);
+    }
+  }
+
+  @Override
+  public boolean isSparse() {
+    return false;
+  }
+
+  @Override
+  public final String toString() {
+    if (getLength() < 50) {
+      return Arrays.toString(vector);
+    } else {
+      return getLength() + "x1";
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 + Arrays.hashCode(vector);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    DenseFloatVector other = (DenseFloatVector) obj;
+    return Arrays.equals(vector, other.vector);
+  }
+
+}
@@ -0,0 +1,466 @@
+package de.jungblut.math.dense;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+import org.apache.commons.math3.util.FastMath;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+
+/**
+ * Dense double matrix that stores its values outside of the java heap in
+ * direct memory, thus the values are not visible to the garbage collector and
+ * the matrix may contain more than 2^31 elements. Just like the
+ * {@link DenseDoubleMatrix} a column major ordering is used.<br/>
+ * The memory must be released with {@link #close()}, afterwards every access
+ * throws an {@link IllegalStateException}. Operations that return a new matrix
+ * allocate a new {@link DirectDoubleMatrix} which must be closed as well, rows,
+ * columns and the results of vector multiplications are returned as
+ * {@link DenseDoubleVector} on the heap.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class DirectDoubleMatrix implements DoubleMatrix, Closeable {
+
+  private final int numRows;
+  private final int numColumns;
+  private final ChunkedDoubleBuffer buffer;
+
+  /**
+   * Creates a new zero filled matrix.
+   *
+   * @param rows the num of rows.
+   * @param columns the num of columns.
+   */
+  public DirectDoubleMatrix(int rows, int columns) {
+    this(rows, columns, ChunkedDoubleBuffer.DEFAULT_CHUNK_SHIFT);
+  }
+
+  /**
+   * Creates a new matrix with a copy of the given two dimensional array.
+   */
+  public DirectDoubleMatrix(double[][] otherMatrix) {
+    this(otherMatrix.length, otherMatrix[0].length);
+    for (int row = 0; row < numRows; row++) {
+      setRow(row, otherMatrix[row]);
+    }
+  }
+
+  /**
+   * Creates a new matrix with a copy of the values of the given matrix.
+   */
+  public DirectDoubleMatrix(DoubleMatrix otherMatrix) {
+    this(otherMatrix.getRowCount(), otherMatrix.getColumnCount());
+    if (otherMatrix instanceof DenseDoubleMatrix) {
+      double[] columnMajor = ((DenseDoubleMatrix) otherMatrix)
+          .getColumnMajorMatrix();
+      buffer.put(0, columnMajor, 0, columnMajor.length);
+    } else {
+      for (int row : otherMatrix.rowIndices()) {
+        otherMatrix.getRowVector(row).forEachNonZero(
+            (col, value) -> set(row, col, value));
+      }
+    }
+  }
+
+  DirectDoubleMatrix(int rows, int columns, int chunkShift) {
+    this(rows, columns, ChunkedDoubleBuffer.allocateDirect((long) rows
+        * columns, chunkShift));
+  }
+
+  DirectDoubleMatrix(int rows, int columns, ChunkedDoubleBuffer buffer) {
+    this.numRows = rows;
+    this.numColumns = columns;
+    this.buffer = buffer;
+  }
+
+  @Override
+  public double get(int row, int col) {
+    return buffer.get(translate(row, col));
+  }
+
+  @Override
+  public void set(int row, int col, double value) {
+    buffer.set(translate(row, col), value);
+  }
+
+  @Override
+  public int getColumnCount() {
+    return numColumns;
+  }
+
+  @Override
+  public int getRowCount() {
+    return numRows;
+  }
+
+  /**
+   * Gets a whole column of the matrix as a double array.
+   */
+  public double[] getColumn(int col) {
+    double[] column = new double[numRows];
+    buffer.get(translate(0, col), column, 0, numRows);
+    return column;
+  }
+
+  /**
+   * Get a single row of the matrix as a double array.
+   */
+  public double[] getRow(int row) {
+    double[] rowArray = new double[numColumns];
+    buffer.get(translate(row, 0), numRows, rowArray, 0, numColumns);
+    return rowArray;
+  }
+
+  @Override
+  public DoubleVector getColumnVector(int col) {
+    return DenseDoubleVector.wrap(getColumn(col));
+  }
+
+  @Override
+  public DoubleVector getRowVector(int row) {
+    return DenseDoubleVector.wrap(getRow(row));
+  }
+
+  /**
+   * Sets the column to a given double array.
+   */
+  public void setColumn(int col, double[] values) {
+    buffer.put(translate(0, col), values, 0, values.length);
+  }
+
+  /**
+   * Sets the row to a given double array.
+   */
+  public void setRow(int row, double[] values) {
+    buffer.put(translate(row, 0), numRows, values, 0, values.length);
+  }
+
+  @Override
+  public void setColumnVector(int col, DoubleVector column) {
+    setColumn(col, column.toArray());
+  }
+
+  @Override
+  public void setRowVector(int rowIndex, DoubleVector row) {
+    setRow(rowIndex, row.toArray());
+  }
+
+  @Override
+  public DirectDoubleMatrix multiply(double scalar) {
+    return map(value -> value * scalar);
+  }
+
+  /**
+   * Multiplies this matrix with the other matrix column by column: every column
+   * of the result is a linear combination of the columns of this matrix, so
+   * this matrix is only read sequentially.
+   */
+  @Override
+  public DirectDoubleMatrix multiply(DoubleMatrix other) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows,
+        other.getColumnCount());
+    double[] column = new double[numRows];
+    for (int j = 0; j < other.getColumnCount(); j++) {
+      for (int k = 0; k < numColumns; k++) {
+        double value = other.get(k, j);
+        if (value != 0d) {
+          buffer.axpy(translate(0, k), value, column, 0, numRows);
+        }
+      }
+      result.setColumn(j, column);
+      Arrays.fill(column, 0d);
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix multiplyElementWise(DoubleMatrix other) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, numColumns);
+    for (int col = 0; col < numColumns; col++) {
+      double[] column = getColumn(col);
+      for (int row = 0; row < numRows; row++) {
+        column[row] *= other.get(row, col);
+      }
+      result.setColumn(col, column);
+    }
+    return result;
+  }
+
+  /**
+   * Multiplies this matrix with the given vector by adding up the columns of
+   * this matrix scaled by the vector values. Columns with a zero vector value
+   * are skipped.
+   */
+  @Override
+  public DoubleVector multiplyVectorRow(DoubleVector v) {
+    double[] result = new double[numRows];
+    v.forEachNonZero((col, value) -> buffer.axpy(translate(0, col), value,
+        result, 0, numRows));
+    return DenseDoubleVector.wrap(result);
+  }
+
+  @Override
+  public DoubleVector multiplyVectorColumn(DoubleVector v) {
+    double[] result = new double[numColumns];
+    // dense vectors return their backing array, so this does not copy
+    double[] vector = v.toArray();
+    for (int col = 0; col < numColumns; col++) {
+      result[col] = buffer.dot(translate(0, col), vector, 0, numRows);
+    }
+    return DenseDoubleVector.wrap(result);
+  }
+
+  @Override
+  public DirectDoubleMatrix transpose() {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numColumns, numRows);
+    for (int col = 0; col < numColumns; col++) {
+      result.setRow(col, getColumn(col));
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix subtractBy(double amount) {
+    return map(value -> amount - value);
+  }
+
+  @Override
+  public DirectDoubleMatrix subtract(double amount) {
+    return map(value -> value - amount);
+  }
+
+  @Override
+  public DirectDoubleMatrix subtract(DoubleMatrix other) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, numColumns);
+    for (int col = 0; col < numColumns; col++) {
+      double[] column = getColumn(col);
+      for (int row = 0; row < numRows; row++) {
+        column[row] -= other.get(row, col);
+      }
+      result.setColumn(col, column);
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix subtract(DoubleVector vec) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, numColumns);
+    double[] vector = vec.toArray();
+    for (int col = 0; col < numColumns; col++) {
+      double[] column = getColumn(col);
+      for (int row = 0; row < numRows; row++) {
+        column[row] -= vector[row];
+      }
+      result.setColumn(col, column);
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix divide(DoubleVector vec) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, numColumns);
+    double[] vector = vec.toArray();
+    for (int col = 0; col < numColumns; col++) {
+      double[] column = getColumn(col);
+      for (int row = 0; row < numRows; row++) {
+        column[row] /= vector[row];
+      }
+      result.setColumn(col, column);
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix divide(DoubleMatrix other) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, numColumns);
+    for (int col = 0; col < numColumns; col++) {
+      double[] column = getColumn(col);
+      for (int row = 0; row < numRows; row++) {
+        column[row] /= other.get(row, col);
+      }
+      result.setColumn(col, column);
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix divide(double scalar) {
+    return map(value -> value / scalar);
+  }
+
+  @Override
+  public DirectDoubleMatrix add(DoubleMatrix other) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, numColumns);
+    for (int col = 0; col < numColumns; col++) {
+      double[] column = getColumn(col);
+      for (int row = 0; row < numRows; row++) {
+        column[row] += other.get(row, col);
+      }
+      result.setColumn(col, column);
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix pow(double x) {
+    if (x == 2d) {
+      return map(value -> value * value);
+    }
+    return map(value -> FastMath.pow(value, x));
+  }
+
+  @Override
+  public double max(int column) {
+    double max = -Double.MAX_VALUE;
+    long offset = translate(0, column);
+    for (int row = 0; row < numRows; row++) {
+      double d = buffer.get(offset + row);
+      if (d > max) {
+        max = d;
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public double min(int column) {
+    double min = Double.MAX_VALUE;
+    long offset = translate(0, column);
+    for (int row = 0; row < numRows; row++) {
+      double d = buffer.get(offset + row);
+      if (d < min) {
+        min = d;
+      }
+    }
+    return min;
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0d;
+    for (long i = 0; i < buffer.length(); i++) {
+      sum += buffer.get(i);
+    }
+    return sum;
+  }
+
+  @Override
+  public int[] columnIndices() {
+    int[] x = new int[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      x[i] = i;
+    }
+    return x;
+  }
+
+  @Override
+  public int[] rowIndices() {
+    int[] x = new int[numRows];
+    for (int i = 0; i < numRows; i++) {
+      x[i] = i;
+    }
+    return x;
+  }
+
+  @Override
+  public double[][] toArray() {
+    double[][] mat = new double[numRows][numColumns];
+    for (int col = 0; col < numColumns; col++) {
+      double[] column = getColumn(col);
+      for (int row = 0; row < numRows; row++) {
+        mat[row][col] = column[row];
+      }
+    }
+    return mat;
+  }
+
+  @Override
+  public boolean isSparse() {
+    return false;
+  }
+
+  @Override
+  public DirectDoubleMatrix slice(int rows, int cols) {
+    return slice(0, rows, 0, cols);
+  }
+
+  @Override
+  public DirectDoubleMatrix slice(int rowOffset, int rowMax, int colOffset,
+      int colMax) {
+    int rows = rowMax - rowOffset;
+    DirectDoubleMatrix result = new DirectDoubleMatrix(rows, colMax
+        - colOffset);
+    double[] column = new double[rows];
+    for (int col = colOffset; col < colMax; col++) {
+      buffer.get(translate(rowOffset, col), column, 0, rows);
+      result.setColumn(col - colOffset, column);
+    }
+    return result;
+  }
+
+  /**
+   * @return a copy of this matrix in new direct memory, that must be closed as
+   *         well.
+   */
+  @Override
+  public DirectDoubleMatrix deepCopy() {
+    return new DirectDoubleMatrix(numRows, numColumns, buffer.copy());
+  }
+
+  /**
+   * @return true if the memory of this matrix was already released.
+   */
+  public boolean isClosed() {
+    return buffer.isClosed();
+  }
+
+  /**
+   * Releases the direct memory of this matrix. Closing an already closed matrix
+   * has no effect.
+   */
+  @Override
+  public void close() {
+    buffer.close();
+  }
+
+  @Override
+  public String toString() {
+    if (!isClosed() && (long) numRows * numColumns < 100) {
+      return new DenseDoubleMatrix(toArray()).toString();
+    } else {
+      return sizeToString();
+    }
+  }
+
+  /**
+   * Returns the size of the matrix as string (ROWSxCOLUMNS).
+   */
+  public String sizeToString() {
+    return numRows + "x" + numColumns;
+  }
+
+  /**
+   * @return a new matrix with the given function applied to every element,
+   *         processed column by column.
+   */
+  private DirectDoubleMatrix map(DoubleUnaryOperator func) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, numColumns);
+    for (int col = 0; col < numColumns; col++) {
+      double[] column = getColumn(col);
+      for (int row = 0; row < numRows; row++) {
+        column[row] = func.applyAsDouble(column[row]);
+      }
+      result.setColumn(col, column);
+    }
+    return result;
+  }
+
+  private long translate(int row, int col) {
+    return row + (long) col * numRows;
+  }
+
+}
@@ -0,0 +1,458 @@
+package de.jungblut.math.dense;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import com.google.common.collect.AbstractIterator;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.function.DoubleDoubleVectorFunction;
+import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
+import de.jungblut.math.sparse.VectorKernels;
+
+/**
+ * Dense double vector that stores its values outside of the java heap in
+ * direct memory, thus the values are not visible to the garbage collector. The
+ * memory must be released with {@link #close()}, afterwards every access
+ * throws an {@link IllegalStateException}.<br/>
+ * Operations that return a new vector (like {@link #add(DoubleVector)})
+ * return a {@link DenseDoubleVector} on the heap, only {@link #deepCopy()}
+ * allocates new direct memory. The in-place operations write to direct memory.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class DirectDoubleVector implements DoubleVector, Closeable {
+
+  static {
+    VectorKernels.registerDot(DirectDoubleVector.class,
+        DenseDoubleVector.class, DirectDoubleVector::dotDense);
+    VectorKernels.registerDot(DirectDoubleVector.class,
+        DirectDoubleVector.class, DirectDoubleVector::dotDirect);
+  }
+
+  private final int dimension;
+  private final ChunkedDoubleBuffer buffer;
+
+  /**
+   * Creates a new zero filled vector with the given dimension.
+   */
+  public DirectDoubleVector(int dimension) {
+    this(dimension, ChunkedDoubleBuffer.allocateDirect(dimension,
+        ChunkedDoubleBuffer.DEFAULT_CHUNK_SHIFT));
+  }
+
+  /**
+   * Creates a new vector with a copy of the given array.
+   */
+  public DirectDoubleVector(double[] arr) {
+    this(arr.length);
+    buffer.put(0, arr, 0, arr.length);
+  }
+
+  /**
+   * Creates a new vector with a copy of the values of the given vector.
+   */
+  public DirectDoubleVector(DoubleVector vec) {
+    this(vec.getDimension());
+    if (vec.isSparse()) {
+      vec.forEachNonZero(buffer::set);
+    } else {
+      buffer.put(0, vec.toArray(), 0, dimension);
+    }
+  }
+
+  DirectDoubleVector(int dimension, ChunkedDoubleBuffer buffer) {
+    this.dimension = dimension;
+    this.buffer = buffer;
+  }
+
+  @Override
+  public double get(int index) {
+    return buffer.get(index);
+  }
+
+  @Override
+  public int getLength() {
+    return dimension;
+  }
+
+  @Override
+  public int getDimension() {
+    return dimension;
+  }
+
+  @Override
+  public void set(int index, double value) {
+    buffer.set(index, value);
+  }
+
+  @Override
+  public DoubleVector apply(DoubleVectorFunction func) {
+    return toDense().apply(func);
+  }
+
+  @Override
+  public DoubleVector apply(DoubleVector other, DoubleDoubleVectorFunction func) {
+    return toDense().apply(other, func);
+  }
+
+  @Override
+  public DoubleVector add(DoubleVector v) {
+    return toDense().add(v);
+  }
+
+  @Override
+  public DoubleVector add(double scalar) {
+    return toDense().add(scalar);
+  }
+
+  @Override
+  public DoubleVector subtract(DoubleVector v) {
+    return toDense().subtract(v);
+  }
+
+  @Override
+  public DoubleVector subtract(double scalar) {
+    return toDense().subtract(scalar);
+  }
+
+  @Override
+  public DoubleVector subtractFrom(double scalar) {
+    return toDense().subtractFrom(scalar);
+  }
+
+  @Override
+  public DoubleVector multiply(double scalar) {
+    return toDense().multiply(scalar);
+  }
+
+  @Override
+  public DoubleVector multiply(DoubleVector vector) {
+    return toDense().multiply(vector);
+  }
+
+  @Override
+  public DoubleVector divide(double scalar) {
+    return toDense().divide(scalar);
+  }
+
+  @Override
+  public DoubleVector divideFrom(double scalar) {
+    return toDense().divideFrom(scalar);
+  }
+
+  @Override
+  public DoubleVector divideFrom(DoubleVector vector) {
+    return toDense().divideFrom(vector);
+  }
+
+  @Override
+  public DoubleVector divide(DoubleVector vector) {
+    return toDense().divide(vector);
+  }
+
+  @Override
+  public DoubleVector pow(double x) {
+    return toDense().pow(x);
+  }
+
+  @Override
+  public DoubleVector abs() {
+    return toDense().abs();
+  }
+
+  @Override
+  public DoubleVector sqrt() {
+    return toDense().sqrt();
+  }
+
+  @Override
+  public DoubleVector log() {
+    return toDense().log();
+  }
+
+  @Override
+  public DoubleVector exp() {
+    return toDense().exp();
+  }
+
+  @Override
+  public DoubleVector addInPlace(DoubleVector v) {
+    return axpy(1d, v);
+  }
+
+  @Override
+  public DoubleVector subtractInPlace(DoubleVector v) {
+    return axpy(-1d, v);
+  }
+
+  @Override
+  public DoubleVector scaleInPlace(double scalar) {
+    for (int i = 0; i < dimension; i++) {
+      buffer.set(i, buffer.get(i) * scalar);
+    }
+    return this;
+  }
+
+  @Override
+  public DoubleVector axpy(double alpha, DoubleVector x) {
+    if (x.isSparse()) {
+      x.forEachNonZero((index, value) -> buffer.set(index, buffer.get(index)
+          + alpha * value));
+    } else {
+      double[] other = x.toArray();
+      for (int i = 0; i < dimension; i++) {
+        buffer.set(i, buffer.get(i) + alpha * other[i]);
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public DoubleVector applyInPlace(DoubleVectorFunction func) {
+    for (int i = 0; i < dimension; i++) {
+      buffer.set(i, func.calculate(i, buffer.get(i)));
+    }
+    return this;
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0d;
+    for (int i = 0; i < dimension; i++) {
+      sum += buffer.get(i);
+    }
+    return sum;
+  }
+
+  @Override
+  public double dot(DoubleVector s) {
+    return VectorKernels.dot(this, s);
+  }
+
+  @Override
+  public DoubleVector slice(int end) {
+    return slice(0, end);
+  }
+
+  @Override
+  public DoubleVector slice(int start, int end) {
+    double[] values = new double[end - start];
+    buffer.get(start, values, 0, values.length);
+    return DenseDoubleVector.wrap(values);
+  }
+
+  @Override
+  public DoubleVector sliceByLength(int start, int length) {
+    return slice(start, start + length);
+  }
+
+  @Override
+  public double max() {
+    double max = -Double.MAX_VALUE;
+    for (int i = 0; i < dimension; i++) {
+      double d = buffer.get(i);
+      if (d > max) {
+        max = d;
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public double min() {
+    double min = Double.MAX_VALUE;
+    for (int i = 0; i < dimension; i++) {
+      double d = buffer.get(i);
+      if (d < min) {
+        min = d;
+      }
+    }
+    return min;
+  }
+
+  @Override
+  public int maxIndex() {
+    double max = -Double.MAX_VALUE;
+    int maxIndex = 0;
+    for (int i = 0; i < dimension; i++) {
+      double d = buffer.get(i);
+      if (d > max) {
+        max = d;
+        maxIndex = i;
+      }
+    }
+    return maxIndex;
+  }
+
+  @Override
+  public int minIndex() {
+    double min = Double.MAX_VALUE;
+    int minIndex = 0;
+    for (int i = 0; i < dimension; i++) {
+      double d = buffer.get(i);
+      if (d < min) {
+        min = d;
+        minIndex = i;
+      }
+    }
+    return minIndex;
+  }
+
+  /**
+   * @return a copy of the values on the heap.
+   */
+  @Override
+  public double[] toArray() {
+    double[] values = new double[dimension];
+    buffer.get(0, values, 0, dimension);
+    return values;
+  }
+
+  /**
+   * @return a copy of this vector in new direct memory, that must be closed as
+   *         well.
+   */
+  @Override
+  public DoubleVector deepCopy() {
+    return new DirectDoubleVector(dimension, buffer.copy());
+  }
+
+  @Override
+  public Iterator<DoubleVectorElement> iterateNonZero() {
+    return new NonZeroIterator();
+  }
+
+  @Override
+  public Iterator<DoubleVectorElement> iterate() {
+    return new DefaultIterator();
+  }
+
+  @Override
+  public void forEachNonZero(IntDoubleConsumer consumer) {
+    for (int i = 0; i < dimension; i++) {
+      double value = buffer.get(i);
+      if (value != 0d) {
+        consumer.accept(i, value);
+      }
+    }
+  }
+
+  @Override
+  public void forEach(IntDoubleConsumer consumer) {
+    for (int i = 0; i < dimension; i++) {
+      consumer.accept(i, buffer.get(i));
+    }
+  }
+
+  @Override
+  public boolean isSparse() {
+    return false;
+  }
+
+  @Override
+  public boolean isNamed() {
+    return false;
+  }
+
+  @Override
+  public boolean isSingle() {
+    return false;
+  }
+
+  @Override
+  public String getName() {
+    return null;
+  }
+
+  /**
+   * @return true if the memory of this vector was already released.
+   */
+  public boolean isClosed() {
+    return buffer.isClosed();
+  }
+
+  /**
+   * Releases the direct memory of this vector. Closing an already closed
+   * vector has no effect.
+   */
+  @Override
+  public void close() {
+    buffer.close();
+  }
+
+  @Override
+  public String toString() {
+    if (isClosed()) {
+      return "closed " + dimension + "x1";
+    } else if (dimension < 50) {
+      return toDense().toString();
+    } else {
+      return dimension + "x1";
+    }
+  }
+
+  /**
+   * @return a copy of this vector on the heap.
+   */
+  private DenseDoubleVector toDense() {
+    return DenseDoubleVector.wrap(toArray());
+  }
+
+  private static double dotDense(DirectDoubleVector left,
+      DenseDoubleVector right) {
+    // dense vectors return their backing array, so this does not copy
+    return left.buffer.dot(0, right.toArray(), 0, left.dimension);
+  }
+
+  private static double dotDirect(DirectDoubleVector left,
+      DirectDoubleVector right) {
+    double dotProduct = 0d;
+    for (int i = 0; i < left.dimension; i++) {
+      dotProduct += left.buffer.get(i) * right.buffer.get(i);
+    }
+    return dotProduct;
+  }
+
+  private final class NonZeroIterator extends
+      AbstractIterator<DoubleVectorElement> {
+
+    private final DoubleVectorElement element = new DoubleVectorElement();
+    private int currentIndex = 0;
+
+    @Override
+    protected final DoubleVectorElement computeNext() {
+      while (currentIndex < dimension) {
+        double value = buffer.get(currentIndex++);
+        if (value != 0d) {
+          element.setIndex(currentIndex - 1);
+          element.setValue(value);
+          return element;
+        }
+      }
+      return endOfData();
+    }
+  }
+
+  private final class DefaultIterator extends
+      AbstractIterator<DoubleVectorElement> {
+
+    private final DoubleVectorElement element = new DoubleVectorElement();
+    private int currentIndex = 0;
+
+    @Override
+    protected final DoubleVectorElement computeNext() {
+      if (currentIndex < dimension) {
+        element.setIndex(currentIndex);
+        element.setValue(buffer.get(currentIndex));
+        currentIndex++;
+        return element;
+      } else {
+        return endOfData();
+      }
+    }
+  }
+
+}
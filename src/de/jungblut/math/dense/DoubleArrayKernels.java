@@ -0,0 +1,118 @@
+package de.jungblut.math.dense;
+
+/**
+ * Loops over plain double arrays that back the dense vectors and matrices. The
+ * default implementation is scalar java code, a SIMD implementation based on
+ * the incubating Java Vector API is used when it was compiled in (profile
+ * "simd", needs a JDK 17) and the JVM runs with
+ * "--add-modules jdk.incubator.vector". It can be switched off with the system
+ * property "de.jungblut.math.simd=false" or at runtime with
+ * {@link #setSimdEnabled(boolean)}.<br/>
+ * <br/>
+ * All operations work on the first length elements of the arrays, the result
+ * array may be the same as one of the input arrays.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public abstract class DoubleArrayKernels {
+
+  public static final String SIMD_PROPERTY = "de.jungblut.math.simd";
+
+  private static final String SIMD_CLASS = "de.jungblut.math.dense.SimdDoubleArrayKernels";
+
+  private static final DoubleArrayKernels SCALAR = new ScalarDoubleArrayKernels();
+  private static final DoubleArrayKernels SIMD = loadSimd();
+
+  private static volatile DoubleArrayKernels current = SIMD != null
+      && !"false".equalsIgnoreCase(System.getProperty(SIMD_PROPERTY)) ? SIMD
+      : SCALAR;
+
+  /**
+   * @return the kernels that are currently in use.
+   */
+  public static DoubleArrayKernels get() {
+    return current;
+  }
+
+  /**
+   * @return the scalar kernels, regardless of the current switch.
+   */
+  public static DoubleArrayKernels scalar() {
+    return SCALAR;
+  }
+
+  /**
+   * @return true if the SIMD kernels could be loaded in this JVM.
+   */
+  public static boolean isSimdAvailable() {
+    return SIMD != null;
+  }
+
+  /**
+   * @return true if the SIMD kernels are currently in use.
+   */
+  public static boolean isSimdEnabled() {
+    return current != SCALAR;
+  }
+
+  /**
+   * Switches between the SIMD and the scalar kernels, enabling has no effect
+   * if the SIMD kernels are not available.
+   *
+   * @return true if the SIMD kernels are in use afterwards.
+   */
+  public static boolean setSimdEnabled(boolean enabled) {
+    current = enabled && SIMD != null ? SIMD : SCALAR;
+    return isSimdEnabled();
+  }
+
+  /**
+   * @return the dot product of a and b.
+   */
+  public abstract double dot(double[] a, double[] b, int length);
+
+  /**
+   * @return the sum of the elements of a.
+   */
+  public abstract double sum(double[] a, int length);
+
+  /**
+   * Computes result = a + b.
+   */
+  public abstract void add(double[] a, double[] b, double[] result, int length);
+
+  /**
+   * Computes result = a - b.
+   */
+  public abstract void subtract(double[] a, double[] b, double[] result,
+      int length);
+
+  /**
+   * Computes result = a * b element-wise.
+   */
+  public abstract void multiply(double[] a, double[] b, double[] result,
+      int length);
+
+  /**
+   * Computes result = a * scalar.
+   */
+  public abstract void scale(double[] a, double scalar, double[] result,
+      int length);
+
+  /**
+   * Computes y = y + alpha * x.
+   */
+  public abstract void axpy(double alpha, double[] x, double[] y, int length);
+
+  private static DoubleArrayKernels loadSimd() {
+    try {
+      return (DoubleArrayKernels) Class.forName(SIMD_CLASS)
+          .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // not compiled in, older JVM or the incubator module wasn't added
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,561 @@
+package de.jungblut.math.dense;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import org.apache.commons.math3.util.FastMath;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+
+/**
+ * Dense double matrix that is backed by a memory mapped binary file of doubles
+ * in row or column major order. The file is mapped in chunks of 1gb, so it can
+ * be larger than the 2gb limit of a single mapping and larger than the
+ * available memory, the operating system pages the values in and out on
+ * demand.<br/>
+ * A read-only matrix throws an {@link IllegalStateException} on every
+ * mutation, a writable matrix writes its changes through to the file. They are
+ * guaranteed to be on disk after {@link #flush()} or {@link #close()}.
+ * Operations that return a new matrix allocate a {@link DirectDoubleMatrix}
+ * which must be closed as well, rows, columns and the results of vector
+ * multiplications are returned as {@link DenseDoubleVector} on the heap.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class MappedDoubleMatrix implements DoubleMatrix, Closeable {
+
+  /**
+   * The order of the values in the file.
+   */
+  public static enum Order {
+    /**
+     * The columns are stored one after another, like in
+     * {@link DenseDoubleMatrix}.
+     */
+    COLUMN_MAJOR,
+    /**
+     * The rows are stored one after another.
+     */
+    ROW_MAJOR
+  }
+
+  private final int numRows;
+  private final int numColumns;
+  private final boolean columnMajor;
+  private final boolean writable;
+  private final ChunkedDoubleBuffer buffer;
+
+  /**
+   * Maps the given file read-only, it contains little endian doubles in column
+   * major order.
+   *
+   * @param file the file to map.
+   * @param rows the num of rows.
+   * @param columns the num of columns.
+   */
+  public MappedDoubleMatrix(Path file, int rows, int columns)
+      throws IOException {
+    this(file, rows, columns, Order.COLUMN_MAJOR, false);
+  }
+
+  /**
+   * Maps the given file, it contains little endian doubles in the given order.
+   * A writable matrix creates or extends the file if it is too small.
+   *
+   * @param file the file to map.
+   * @param rows the num of rows.
+   * @param columns the num of columns.
+   * @param order the order of the values in the file.
+   * @param writable true if changes should be written through to the file.
+   */
+  public MappedDoubleMatrix(Path file, int rows, int columns, Order order,
+      boolean writable) throws IOException {
+    this(file, 0L, rows, columns, order, ByteOrder.LITTLE_ENDIAN, writable);
+  }
+
+  /**
+   * Maps the given file, the values start at the given byte offset.
+   *
+   * @param file the file to map.
+   * @param offset the offset in bytes of the first value, e.g. to skip a
+   *          header.
+   * @param rows the num of rows.
+   * @param columns the num of columns.
+   * @param order the order of the values in the file.
+   * @param byteOrder the byte order of the values in the file.
+   * @param writable true if changes should be written through to the file.
+   */
+  public MappedDoubleMatrix(Path file, long offset, int rows, int columns,
+      Order order, ByteOrder byteOrder, boolean writable) throws IOException {
+    this(file, offset, rows, columns, order, byteOrder, writable,
+        ChunkedDoubleBuffer.DEFAULT_CHUNK_SHIFT);
+  }
+
+  MappedDoubleMatrix(Path file, long offset, int rows, int columns,
+      Order order, ByteOrder byteOrder, boolean writable, int chunkShift)
+      throws IOException {
+    this.numRows = rows;
+    this.numColumns = columns;
+    this.columnMajor = order == Order.COLUMN_MAJOR;
+    this.writable = writable;
+    long length = (long) rows * columns;
+    if (writable) {
+      try (FileChannel channel = FileChannel.open(file,
+          StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        this.buffer = ChunkedDoubleBuffer.map(channel, MapMode.READ_WRITE,
+            offset, length, chunkShift, byteOrder);
+      }
+    } else {
+      try (FileChannel channel = FileChannel.open(file,
+          StandardOpenOption.READ)) {
+        if (channel.size() < offset + length * 8) {
+          throw new IllegalArgumentException("File " + file + " has "
+              + channel.size() + " bytes, but a " + rows + "x" + columns
+              + " matrix at offset " + offset + " needs "
+              + (offset + length * 8) + " bytes!");
+        }
+        this.buffer = ChunkedDoubleBuffer.map(channel, MapMode.READ_ONLY,
+            offset, length, chunkShift, byteOrder);
+      }
+    }
+  }
+
+  @Override
+  public double get(int row, int col) {
+    return buffer.get(translate(row, col));
+  }
+
+  @Override
+  public void set(int row, int col, double value) {
+    checkWritable();
+    buffer.set(translate(row, col), value);
+  }
+
+  @Override
+  public int getColumnCount() {
+    return numColumns;
+  }
+
+  @Override
+  public int getRowCount() {
+    return numRows;
+  }
+
+  /**
+   * Gets a whole column of the matrix as a double array.
+   */
+  public double[] getColumn(int col) {
+    double[] column = new double[numRows];
+    if (columnMajor) {
+      buffer.get(translate(0, col), column, 0, numRows);
+    } else {
+      buffer.get(translate(0, col), numColumns, column, 0, numRows);
+    }
+    return column;
+  }
+
+  /**
+   * Get a single row of the matrix as a double array.
+   */
+  public double[] getRow(int row) {
+    double[] rowArray = new double[numColumns];
+    if (columnMajor) {
+      buffer.get(translate(row, 0), numRows, rowArray, 0, numColumns);
+    } else {
+      buffer.get(translate(row, 0), rowArray, 0, numColumns);
+    }
+    return rowArray;
+  }
+
+  @Override
+  public DoubleVector getColumnVector(int col) {
+    return DenseDoubleVector.wrap(getColumn(col));
+  }
+
+  @Override
+  public DoubleVector getRowVector(int row) {
+    return DenseDoubleVector.wrap(getRow(row));
+  }
+
+  @Override
+  public void setColumnVector(int col, DoubleVector column) {
+    checkWritable();
+    double[] values = column.toArray();
+    if (columnMajor) {
+      buffer.put(translate(0, col), values, 0, values.length);
+    } else {
+      buffer.put(translate(0, col), numColumns, values, 0, values.length);
+    }
+  }
+
+  @Override
+  public void setRowVector(int rowIndex, DoubleVector row) {
+    checkWritable();
+    double[] values = row.toArray();
+    if (columnMajor) {
+      buffer.put(translate(rowIndex, 0), numRows, values, 0, values.length);
+    } else {
+      buffer.put(translate(rowIndex, 0), values, 0, values.length);
+    }
+  }
+
+  /**
+   * Multiplies this matrix with the given vector. The file is read
+   * sequentially: a row major matrix computes the dot product of every row
+   * with the vector, a column major matrix adds up its columns scaled by the
+   * non-zero vector values.
+   */
+  @Override
+  public DoubleVector multiplyVectorRow(DoubleVector v) {
+    double[] result = new double[numRows];
+    if (columnMajor) {
+      v.forEachNonZero((col, value) -> buffer.axpy(translate(0, col), value,
+          result, 0, numRows));
+    } else if (v.isSparse()) {
+      // gather the non-zeros once, every row then is a plain indexed loop
+      int length = v.getLength();
+      int[] indices = new int[length];
+      double[] values = new double[length];
+      Iterator<DoubleVectorElement> iterator = v.iterateNonZero();
+      for (int i = 0; i < length; i++) {
+        DoubleVectorElement e = iterator.next();
+        indices[i] = e.getIndex();
+        values[i] = e.getValue();
+      }
+      for (int row = 0; row < numRows; row++) {
+        long offset = translate(row, 0);
+        double sum = 0d;
+        for (int i = 0; i < length; i++) {
+          sum += buffer.get(offset + indices[i]) * values[i];
+        }
+        result[row] = sum;
+      }
+    } else {
+      // dense vectors return their backing array, so this does not copy
+      double[] vector = v.toArray();
+      for (int row = 0; row < numRows; row++) {
+        result[row] = buffer.dot(translate(row, 0), vector, 0, numColumns);
+      }
+    }
+    return DenseDoubleVector.wrap(result);
+  }
+
+  @Override
+  public DoubleVector multiplyVectorColumn(DoubleVector v) {
+    double[] result = new double[numColumns];
+    if (columnMajor) {
+      double[] vector = v.toArray();
+      for (int col = 0; col < numColumns; col++) {
+        result[col] = buffer.dot(translate(0, col), vector, 0, numRows);
+      }
+    } else {
+      v.forEachNonZero((row, value) -> buffer.axpy(translate(row, 0), value,
+          result, 0, numColumns));
+    }
+    return DenseDoubleVector.wrap(result);
+  }
+
+  /**
+   * Multiplies this matrix with the other matrix, one column of the result at
+   * a time.
+   */
+  @Override
+  public DirectDoubleMatrix multiply(DoubleMatrix other) {
+    int p = other.getColumnCount();
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, p);
+    for (int j = 0; j < p; j++) {
+      result.setColumnVector(j, multiplyVectorRow(other.getColumnVector(j)));
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix multiply(double scalar) {
+    return map(value -> value * scalar);
+  }
+
+  @Override
+  public DirectDoubleMatrix multiplyElementWise(DoubleMatrix other) {
+    return combine(other, (left, right) -> left * right);
+  }
+
+  @Override
+  public DirectDoubleMatrix transpose() {
+    if (!columnMajor) {
+      // the rows of this matrix are the columns of the transpose
+      return new DirectDoubleMatrix(numColumns, numRows, buffer.copy());
+    }
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numColumns, numRows);
+    for (int col = 0; col < numColumns; col++) {
+      result.setRow(col, getColumn(col));
+    }
+    return result;
+  }
+
+  @Override
+  public DirectDoubleMatrix subtractBy(double amount) {
+    return map(value -> amount - value);
+  }
+
+  @Override
+  public DirectDoubleMatrix subtract(double amount) {
+    return map(value -> value - amount);
+  }
+
+  @Override
+  public DirectDoubleMatrix subtract(DoubleMatrix other) {
+    return combine(other, (left, right) -> left - right);
+  }
+
+  @Override
+  public DirectDoubleMatrix subtract(DoubleVector vec) {
+    double[] vector = vec.toArray();
+    return combine((row, col, value) -> value - vector[row]);
+  }
+
+  @Override
+  public DirectDoubleMatrix divide(DoubleVector vec) {
+    double[] vector = vec.toArray();
+    return combine((row, col, value) -> value / vector[row]);
+  }
+
+  @Override
+  public DirectDoubleMatrix divide(DoubleMatrix other) {
+    return combine(other, (left, right) -> left / right);
+  }
+
+  @Override
+  public DirectDoubleMatrix divide(double scalar) {
+    return map(value -> value / scalar);
+  }
+
+  @Override
+  public DirectDoubleMatrix add(DoubleMatrix other) {
+    return combine(other, (left, right) -> left + right);
+  }
+
+  @Override
+  public DirectDoubleMatrix pow(double x) {
+    if (x == 2d) {
+      return map(value -> value * value);
+    }
+    return map(value -> FastMath.pow(value, x));
+  }
+
+  @Override
+  public double max(int column) {
+    double max = -Double.MAX_VALUE;
+    for (int row = 0; row < numRows; row++) {
+      double d = get(row, column);
+      if (d > max) {
+        max = d;
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public double min(int column) {
+    double min = Double.MAX_VALUE;
+    for (int row = 0; row < numRows; row++) {
+      double d = get(row, column);
+      if (d < min) {
+        min = d;
+      }
+    }
+    return min;
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0d;
+    for (long i = 0; i < buffer.length(); i++) {
+      sum += buffer.get(i);
+    }
+    return sum;
+  }
+
+  @Override
+  public int[] columnIndices() {
+    int[] x = new int[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      x[i] = i;
+    }
+    return x;
+  }
+
+  @Override
+  public int[] rowIndices() {
+    int[] x = new int[numRows];
+    for (int i = 0; i < numRows; i++) {
+      x[i] = i;
+    }
+    return x;
+  }
+
+  @Override
+  public double[][] toArray() {
+    double[][] mat = new double[numRows][];
+    for (int row = 0; row < numRows; row++) {
+      mat[row] = getRow(row);
+    }
+    return mat;
+  }
+
+  @Override
+  public boolean isSparse() {
+    return false;
+  }
+
+  @Override
+  public DirectDoubleMatrix slice(int rows, int cols) {
+    return slice(0, rows, 0, cols);
+  }
+
+  @Override
+  public DirectDoubleMatrix slice(int rowOffset, int rowMax, int colOffset,
+      int colMax) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(rowMax - rowOffset,
+        colMax - colOffset);
+    for (int col = colOffset; col < colMax; col++) {
+      for (int row = rowOffset; row < rowMax; row++) {
+        result.set(row - rowOffset, col - colOffset, get(row, col));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a copy of this matrix in direct memory, that must be closed as
+   *         well.
+   */
+  @Override
+  public DirectDoubleMatrix deepCopy() {
+    if (columnMajor) {
+      return new DirectDoubleMatrix(numRows, numColumns, buffer.copy());
+    }
+    return map(value -> value);
+  }
+
+  /**
+   * @return true if changes are written through to the file.
+   */
+  public boolean isWritable() {
+    return writable;
+  }
+
+  /**
+   * Writes all changes back to the file.
+   */
+  public void flush() {
+    if (writable) {
+      buffer.force();
+    }
+  }
+
+  /**
+   * @return true if the file was already unmapped.
+   */
+  public boolean isClosed() {
+    return buffer.isClosed();
+  }
+
+  /**
+   * Writes all changes back to the file and unmaps it. Closing an already
+   * closed matrix has no effect.
+   */
+  @Override
+  public void close() {
+    if (!buffer.isClosed()) {
+      flush();
+      buffer.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (!isClosed() && (long) numRows * numColumns < 100) {
+      return new DenseDoubleMatrix(toArray()).toString();
+    } else {
+      return sizeToString();
+    }
+  }
+
+  /**
+   * Returns the size of the matrix as string (ROWSxCOLUMNS).
+   */
+  public String sizeToString() {
+    return numRows + "x" + numColumns;
+  }
+
+  /**
+   * Function of a single element of this matrix and its position.
+   */
+  private static interface ElementFunction {
+
+    double apply(int row, int col, double value);
+
+  }
+
+  private DirectDoubleMatrix map(DoubleUnaryOperator func) {
+    return combine((row, col, value) -> func.applyAsDouble(value));
+  }
+
+  private DirectDoubleMatrix combine(DoubleMatrix other,
+      DoubleBinaryOperator func) {
+    return combine((row, col, value) -> func.applyAsDouble(value,
+        other.get(row, col)));
+  }
+
+  /**
+   * Applies the given function to every element. This matrix is read line by
+   * line in the order of the file, so the mapped pages are read sequentially.
+   */
+  private DirectDoubleMatrix combine(ElementFunction func) {
+    DirectDoubleMatrix result = new DirectDoubleMatrix(numRows, numColumns);
+    if (columnMajor) {
+      for (int col = 0; col < numColumns; col++) {
+        double[] column = getColumn(col);
+        for (int row = 0; row < numRows; row++) {
+          column[row] = func.apply(row, col, column[row]);
+        }
+        result.setColumn(col, column);
+      }
+    } else {
+      for (int row = 0; row < numRows; row++) {
+        double[] rowArray = getRow(row);
+        for (int col = 0; col < numColumns; col++) {
+          rowArray[col] = func.apply(row, col, rowArray[col]);
+        }
+        result.setRow(row, rowArray);
+      }
+    }
+    return result;
+  }
+
+  private void checkWritable() {
+    if (!writable) {
+      throw new IllegalStateException("Can't mutate a read-only mapped matrix!");
+    }
+  }
+
+  private long translate(int row, int col) {
+    if (columnMajor) {
+      return row + (long) col * numRows;
+    }
+    return (long) row * numColumns + col;
+  }
+
+}
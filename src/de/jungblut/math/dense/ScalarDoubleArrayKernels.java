@@ -0,0 +1,64 @@
+package de.jungblut.math.dense;
+
+/**
+ * Plain java loops, the fallback if no SIMD kernels are available.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class ScalarDoubleArrayKernels extends DoubleArrayKernels {
+
+  @Override
+  public double dot(double[] a, double[] b, int length) {
+    double dotProduct = 0d;
+    for (int i = 0; i < length; i++) {
+      dotProduct += a[i] * b[i];
+    }
+    return dotProduct;
+  }
+
+  @Override
+  public double sum(double[] a, int length) {
+    double sum = 0d;
+    for (int i = 0; i < length; i++) {
+      sum += a[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public void add(double[] a, double[] b, double[] result, int length) {
+    for (int i = 0; i < length; i++) {
+      result[i] = a[i] + b[i];
+    }
+  }
+
+  @Override
+  public void subtract(double[] a, double[] b, double[] result, int length) {
+    for (int i = 0; i < length; i++) {
+      result[i] = a[i] - b[i];
+    }
+  }
+
+  @Override
+  public void multiply(double[] a, double[] b, double[] result, int length) {
+    for (int i = 0; i < length; i++) {
+      result[i] = a[i] * b[i];
+    }
+  }
+
+  @Override
+  public void scale(double[] a, double scalar, double[] result, int length) {
+    for (int i = 0; i < length; i++) {
+      result[i] = a[i] * scalar;
+    }
+  }
+
+  @Override
+  public void axpy(double alpha, double[] x, double[] y, int length) {
+    for (int i = 0; i < length; i++) {
+      y[i] += alpha * x[i];
+    }
+  }
+
+}
@@ -9,6 +9,7 @@ import com.google.common.collect.AbstractIterator;
 import de.jungblut.math.DoubleVector;
 import de.jungblut.math.function.DoubleDoubleVectorFunction;
 import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
 
 /**
  * Single entry vector with just a single double at vector index 0. Setting
@@ -136,6 +137,31 @@ public final class SingleEntryDoubleVector implements DoubleVector {
     return new SingleEntryDoubleVector(FastMath.exp(value));
   }
 
+  @Override
+  public DoubleVector addInPlace(DoubleVector v) {
+    throw new IllegalStateException("Can't mutate this single entry vector!");
+  }
+
+  @Override
+  public DoubleVector subtractInPlace(DoubleVector v) {
+    throw new IllegalStateException("Can't mutate this single entry vector!");
+  }
+
+  @Override
+  public DoubleVector scaleInPlace(double scalar) {
+    throw new IllegalStateException("Can't mutate this single entry vector!");
+  }
+
+  @Override
+  public DoubleVector axpy(double alpha, DoubleVector x) {
+    throw new IllegalStateException("Can't mutate this single entry vector!");
+  }
+
+  @Override
+  public DoubleVector applyInPlace(DoubleVectorFunction func) {
+    throw new IllegalStateException("Can't mutate this single entry vector!");
+  }
+
   @Override
   public double sum() {
     return value;
@@ -229,6 +255,18 @@ public final class SingleEntryDoubleVector implements DoubleVector {
     };
   }
 
+  @Override
+  public void forEachNonZero(IntDoubleConsumer consumer) {
+    if (value != 0d) {
+      consumer.accept(0, value);
+    }
+  }
+
+  @Override
+  public void forEach(IntDoubleConsumer consumer) {
+    consumer.accept(0, value);
+  }
+
   @Override
   public boolean isSparse() {
     return false;
@@ -0,0 +1,603 @@
+package de.jungblut.math.expression;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.math3.util.FastMath;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.function.DoubleDoubleVectorFunction;
+import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+/**
+ * Lazy expression over {@link DoubleVector}s. Every operation only records a
+ * node in the expression tree, nothing is computed until one of the terminal
+ * operations ({@link #sum()}, {@link #dot(DoubleVector)}, {@link #max()},
+ * {@link #min()}, {@link #toArray()} or {@link #materialize()}) is called.
+ * Terminal operations evaluate the whole expression element by element in a
+ * single loop, so no intermediate vectors are created. For example the
+ * euclidean distance
+ *
+ * <pre>
+ * Math.sqrt(DoubleVectorExpression.of(vec2).subtract(vec1).pow(2).sum());
+ * </pre>
+ *
+ * only iterates once over the vectors. <br/>
+ * If the expression maps zeros to zeros (like subtracting two sparse vectors
+ * and squaring the result), only the indices of the non-zero elements of the
+ * sparse operands are evaluated.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public abstract class DoubleVectorExpression {
+
+  private final int dimension;
+
+  DoubleVectorExpression(int dimension) {
+    this.dimension = dimension;
+  }
+
+  /**
+   * Creates a new expression that starts with the given vector. The vector is
+   * not copied, so changes to it are visible to the expression until a
+   * terminal operation was evaluated.
+   *
+   * @param vector the vector to start the expression with.
+   * @return a new expression.
+   */
+  public static DoubleVectorExpression of(DoubleVector vector) {
+    return new VectorNode(vector);
+  }
+
+  /**
+   * @return the dimension of the vector this expression evaluates to.
+   */
+  public int getDimension() {
+    return dimension;
+  }
+
+  /*
+   * ------------EXPRESSION BUILDING------------
+   */
+
+  public DoubleVectorExpression add(DoubleVector v) {
+    return add(of(v));
+  }
+
+  public DoubleVectorExpression add(DoubleVectorExpression other) {
+    return new BinaryNode(BinaryNode.ADD, this, other);
+  }
+
+  public DoubleVectorExpression add(double scalar) {
+    return new ElementNode(ElementNode.ADD, this, scalar);
+  }
+
+  public DoubleVectorExpression subtract(DoubleVector v) {
+    return subtract(of(v));
+  }
+
+  public DoubleVectorExpression subtract(DoubleVectorExpression other) {
+    return new BinaryNode(BinaryNode.SUBTRACT, this, other);
+  }
+
+  public DoubleVectorExpression subtract(double scalar) {
+    return new ElementNode(ElementNode.ADD, this, -scalar);
+  }
+
+  public DoubleVectorExpression multiply(DoubleVector v) {
+    return multiply(of(v));
+  }
+
+  public DoubleVectorExpression multiply(DoubleVectorExpression other) {
+    return new BinaryNode(BinaryNode.MULTIPLY, this, other);
+  }
+
+  public DoubleVectorExpression multiply(double scalar) {
+    return new ElementNode(ElementNode.MULTIPLY, this, scalar);
+  }
+
+  public DoubleVectorExpression divide(DoubleVector v) {
+    return divide(of(v));
+  }
+
+  public DoubleVectorExpression divide(DoubleVectorExpression other) {
+    return new BinaryNode(BinaryNode.DIVIDE, this, other);
+  }
+
+  public DoubleVectorExpression divide(double scalar) {
+    return new ElementNode(ElementNode.DIVIDE, this, scalar);
+  }
+
+  public DoubleVectorExpression pow(double x) {
+    return new ElementNode(ElementNode.POW, this, x);
+  }
+
+  public DoubleVectorExpression abs() {
+    return new ElementNode(ElementNode.ABS, this, 0d);
+  }
+
+  public DoubleVectorExpression sqrt() {
+    return new ElementNode(ElementNode.SQRT, this, 0d);
+  }
+
+  public DoubleVectorExpression log() {
+    return new ElementNode(ElementNode.LOG, this, 0d);
+  }
+
+  public DoubleVectorExpression exp() {
+    return new ElementNode(ElementNode.EXP, this, 0d);
+  }
+
+  /**
+   * Applies the given function to every element. As nothing is known about
+   * the function, the result is always evaluated over all indices.
+   */
+  public DoubleVectorExpression apply(DoubleVectorFunction func) {
+    return new ApplyNode(this, func);
+  }
+
+  /**
+   * Applies the given function to every element of this and the other vector.
+   * As nothing is known about the function, the result is always evaluated
+   * over all indices.
+   */
+  public DoubleVectorExpression apply(DoubleVector other,
+      DoubleDoubleVectorFunction func) {
+    return new ApplyBinaryNode(this, of(other), func);
+  }
+
+  /*
+   * ------------TERMINAL OPERATIONS------------
+   */
+
+  /**
+   * @return the sum of all elements of the evaluated expression.
+   */
+  public double sum() {
+    double sum = 0d;
+    IndexCursor cursor = cursor();
+    for (int i = cursor.next(); i >= 0; i = cursor.next()) {
+      sum += valueAt(i);
+    }
+    return sum;
+  }
+
+  /**
+   * @return the dot product between the evaluated expression and the given
+   *         vector.
+   */
+  public double dot(DoubleVector s) {
+    double dotProduct = 0d;
+    if (s.isSparse()) {
+      // only the non-zeros of s contribute, no matter what the expression is
+      Iterator<DoubleVectorElement> iterateNonZero = s.iterateNonZero();
+      while (iterateNonZero.hasNext()) {
+        DoubleVectorElement next = iterateNonZero.next();
+        dotProduct += valueAt(next.getIndex()) * next.getValue();
+      }
+    } else {
+      IndexCursor cursor = cursor();
+      for (int i = cursor.next(); i >= 0; i = cursor.next()) {
+        dotProduct += valueAt(i) * s.get(i);
+      }
+    }
+    return dotProduct;
+  }
+
+  /**
+   * @return the maximum element of the evaluated expression. Unlike the sparse
+   *         vector implementations, this does take zeros into account.
+   */
+  public double max() {
+    double max = -Double.MAX_VALUE;
+    int visited = 0;
+    IndexCursor cursor = cursor();
+    for (int i = cursor.next(); i >= 0; i = cursor.next()) {
+      double d = valueAt(i);
+      if (d > max) {
+        max = d;
+      }
+      visited++;
+    }
+    // there are zeros we have skipped
+    if (visited < dimension && max < 0d) {
+      max = 0d;
+    }
+    return max;
+  }
+
+  /**
+   * @return the minimum element of the evaluated expression. Unlike the sparse
+   *         vector implementations, this does take zeros into account.
+   */
+  public double min() {
+    double min = Double.MAX_VALUE;
+    int visited = 0;
+    IndexCursor cursor = cursor();
+    for (int i = cursor.next(); i >= 0; i = cursor.next()) {
+      double d = valueAt(i);
+      if (d < min) {
+        min = d;
+      }
+      visited++;
+    }
+    // there are zeros we have skipped
+    if (visited < dimension && min > 0d) {
+      min = 0d;
+    }
+    return min;
+  }
+
+  /**
+   * @return the evaluated expression as a dense array.
+   */
+  public double[] toArray() {
+    double[] result = new double[dimension];
+    IndexCursor cursor = cursor();
+    for (int i = cursor.next(); i >= 0; i = cursor.next()) {
+      result[i] = valueAt(i);
+    }
+    return result;
+  }
+
+  /**
+   * Evaluates the expression into a new vector. If the expression only
+   * consists of sparse vectors and operations that map zeros to zeros, the
+   * result is a {@link SparseDoubleVector}, otherwise a
+   * {@link DenseDoubleVector}.
+   *
+   * @return a new vector with the evaluated expression.
+   */
+  public DoubleVector materialize() {
+    List<DoubleVector> support = support();
+    IndexCursor cursor = cursor(support);
+    DoubleVector result = support != null ? new SparseDoubleVector(dimension)
+        : new DenseDoubleVector(dimension);
+    for (int i = cursor.next(); i >= 0; i = cursor.next()) {
+      result.set(i, valueAt(i));
+    }
+    return result;
+  }
+
+  /*
+   * ------------EVALUATION------------
+   */
+
+  /**
+   * Evaluates the expression at the given index.
+   */
+  abstract double valueAt(int index);
+
+  /**
+   * Collects the sparse vectors whose non-zero indices contain all non-zero
+   * indices of this expression.
+   *
+   * @return false if the non-zero elements of this expression are not bounded
+   *         by sparse vectors, for example because zeros are mapped to
+   *         non-zeros. The collected vectors are incomplete in this case.
+   */
+  abstract boolean collectSupport(List<DoubleVector> support);
+
+  /**
+   * @return the sparse vectors whose non-zero indices contain all non-zero
+   *         indices of this expression or null if all indices need to be
+   *         evaluated.
+   */
+  private List<DoubleVector> support() {
+    List<DoubleVector> support = new ArrayList<>(2);
+    return collectSupport(support) ? support : null;
+  }
+
+  /**
+   * @return a cursor over all indices that need to be evaluated.
+   */
+  private IndexCursor cursor() {
+    return cursor(support());
+  }
+
+  private IndexCursor cursor(List<DoubleVector> support) {
+    if (support == null) {
+      return new RangeCursor(dimension);
+    }
+    if (support.size() == 1) {
+      return new NonZeroCursor(support.get(0));
+    }
+    return new UnionCursor(support);
+  }
+
+  /**
+   * Iterates over indices, returns -1 once the end is reached.
+   */
+  private static abstract class IndexCursor {
+    abstract int next();
+  }
+
+  private static final class RangeCursor extends IndexCursor {
+
+    private final int dimension;
+    private int index = 0;
+
+    RangeCursor(int dimension) {
+      this.dimension = dimension;
+    }
+
+    @Override
+    int next() {
+      return index < dimension ? index++ : -1;
+    }
+  }
+
+  private static final class NonZeroCursor extends IndexCursor {
+
+    private final Iterator<DoubleVectorElement> iterator;
+
+    NonZeroCursor(DoubleVector vector) {
+      this.iterator = vector.iterateNonZero();
+    }
+
+    @Override
+    int next() {
+      return iterator.hasNext() ? iterator.next().getIndex() : -1;
+    }
+  }
+
+  /**
+   * Merges the sorted non-zero indices of all vectors, every index of the union
+   * is returned once in ascending order.
+   */
+  private static final class UnionCursor extends IndexCursor {
+
+    private final int[][] indices;
+    private final int[] positions;
+
+    UnionCursor(List<DoubleVector> vectors) {
+      this.indices = new int[vectors.size()][];
+      this.positions = new int[vectors.size()];
+      for (int i = 0; i < indices.length; i++) {
+        indices[i] = sortedNonZeroIndices(vectors.get(i));
+      }
+    }
+
+    @Override
+    int next() {
+      int min = -1;
+      for (int i = 0; i < indices.length; i++) {
+        if (positions[i] < indices[i].length) {
+          int index = indices[i][positions[i]];
+          if (min < 0 || index < min) {
+            min = index;
+          }
+        }
+      }
+      if (min >= 0) {
+        // skip the index in all vectors that contain it
+        for (int i = 0; i < indices.length; i++) {
+          if (positions[i] < indices[i].length
+              && indices[i][positions[i]] == min) {
+            positions[i]++;
+          }
+        }
+      }
+      return min;
+    }
+
+    private static int[] sortedNonZeroIndices(DoubleVector vector) {
+      TIntArrayList list = new TIntArrayList(vector.getLength());
+      vector.forEachNonZero((index, value) -> list.add(index));
+      // hash based vectors have no defined order
+      list.sort();
+      return list.toArray();
+    }
+  }
+
+  /*
+   * ------------NODES------------
+   */
+
+  private static final class VectorNode extends DoubleVectorExpression {
+
+    private final DoubleVector vector;
+    // backing array of dense vectors, null for sparse vectors
+    private final double[] array;
+
+    VectorNode(DoubleVector vector) {
+      super(vector.getDimension());
+      this.vector = vector;
+      this.array = vector.isSparse() ? null : vector.toArray();
+    }
+
+    @Override
+    double valueAt(int index) {
+      return array != null ? array[index] : vector.get(index);
+    }
+
+    @Override
+    boolean collectSupport(List<DoubleVector> support) {
+      if (array != null) {
+        return false;
+      }
+      support.add(vector);
+      return true;
+    }
+  }
+
+  private static final class ElementNode extends DoubleVectorExpression {
+
+    static final int ADD = 0;
+    static final int MULTIPLY = 1;
+    static final int DIVIDE = 2;
+    static final int POW = 3;
+    static final int ABS = 4;
+    static final int SQRT = 5;
+    static final int LOG = 6;
+    static final int EXP = 7;
+
+    private final int op;
+    private final DoubleVectorExpression child;
+    private final double scalar;
+
+    ElementNode(int op, DoubleVectorExpression child, double scalar) {
+      super(child.getDimension());
+      this.op = op;
+      this.child = child;
+      this.scalar = scalar;
+    }
+
+    @Override
+    double valueAt(int index) {
+      double value = child.valueAt(index);
+      switch (op) {
+        case ADD:
+          return value + scalar;
+        case MULTIPLY:
+          return value * scalar;
+        case DIVIDE:
+          return value / scalar;
+        case POW:
+          // it is faster to multiply when we having ^2
+          return scalar == 2d ? value * value : FastMath.pow(value, scalar);
+        case ABS:
+          return FastMath.abs(value);
+        case SQRT:
+          return FastMath.sqrt(value);
+        case LOG:
+          return FastMath.log(value);
+        default:
+          return FastMath.exp(value);
+      }
+    }
+
+    @Override
+    boolean collectSupport(List<DoubleVector> support) {
+      return mapsZeroToZero() && child.collectSupport(support);
+    }
+
+    private boolean mapsZeroToZero() {
+      switch (op) {
+        case ADD:
+          return scalar == 0d;
+        case DIVIDE:
+          return scalar != 0d;
+        case POW:
+          return scalar > 0d;
+        case LOG:
+        case EXP:
+          return false;
+        default:
+          return true;
+      }
+    }
+  }
+
+  private static final class BinaryNode extends DoubleVectorExpression {
+
+    static final int ADD = 0;
+    static final int SUBTRACT = 1;
+    static final int MULTIPLY = 2;
+    static final int DIVIDE = 3;
+
+    private final int op;
+    private final DoubleVectorExpression left;
+    private final DoubleVectorExpression right;
+
+    BinaryNode(int op, DoubleVectorExpression left,
+        DoubleVectorExpression right) {
+      super(left.getDimension());
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    double valueAt(int index) {
+      switch (op) {
+        case ADD:
+          return left.valueAt(index) + right.valueAt(index);
+        case SUBTRACT:
+          return left.valueAt(index) - right.valueAt(index);
+        case MULTIPLY:
+          return left.valueAt(index) * right.valueAt(index);
+        default:
+          return left.valueAt(index) / right.valueAt(index);
+      }
+    }
+
+    @Override
+    boolean collectSupport(List<DoubleVector> support) {
+      switch (op) {
+        case MULTIPLY:
+          // zero if either side is zero, so any sparse side contains the
+          // intersection
+          int size = support.size();
+          if (left.collectSupport(support)) {
+            return true;
+          }
+          support.subList(size, support.size()).clear();
+          return right.collectSupport(support);
+        case DIVIDE:
+          // like the sparse vectors, zeros on the left side stay zero
+          return left.collectSupport(support);
+        default:
+          return left.collectSupport(support)
+              && right.collectSupport(support);
+      }
+    }
+  }
+
+  private static final class ApplyNode extends DoubleVectorExpression {
+
+    private final DoubleVectorExpression child;
+    private final DoubleVectorFunction func;
+
+    ApplyNode(DoubleVectorExpression child, DoubleVectorFunction func) {
+      super(child.getDimension());
+      this.child = child;
+      this.func = func;
+    }
+
+    @Override
+    double valueAt(int index) {
+      return func.calculate(index, child.valueAt(index));
+    }
+
+    @Override
+    boolean collectSupport(List<DoubleVector> support) {
+      // nothing is known about the function, it may map zeros to non-zeros
+      return false;
+    }
+  }
+
+  private static final class ApplyBinaryNode extends DoubleVectorExpression {
+
+    private final DoubleVectorExpression left;
+    private final DoubleVectorExpression right;
+    private final DoubleDoubleVectorFunction func;
+
+    ApplyBinaryNode(DoubleVectorExpression left, DoubleVectorExpression right,
+        DoubleDoubleVectorFunction func) {
+      super(left.getDimension());
+      this.left = left;
+      this.right = right;
+      this.func = func;
+    }
+
+    @Override
+    double valueAt(int index) {
+      return func.calculate(index, left.valueAt(index), right.valueAt(index));
+    }
+
+    @Override
+    boolean collectSupport(List<DoubleVector> support) {
+      // nothing is known about the function, it may map zeros to non-zeros
+      return false;
+    }
+  }
+
+}
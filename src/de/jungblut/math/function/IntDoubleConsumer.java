@@ -0,0 +1,17 @@
+package de.jungblut.math.function;
+
+import de.jungblut.math.DoubleVector;
+
+/**
+ * Consumes the elements of a double vector, see {@link DoubleVector}
+ * #forEach({@link IntDoubleConsumer} c) and {@link DoubleVector}
+ * #forEachNonZero({@link IntDoubleConsumer} c).
+ */
+public interface IntDoubleConsumer {
+
+  /**
+   * Consumes the given index and value of a vector.
+   */
+  public void accept(int index, double value);
+
+}
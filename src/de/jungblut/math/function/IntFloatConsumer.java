@@ -0,0 +1,17 @@
+package de.jungblut.math.function;
+
+import de.jungblut.math.FloatVector;
+
+/**
+ * Consumes the elements of a float vector, see {@link FloatVector}
+ * #forEach({@link IntFloatConsumer} c) and {@link FloatVector}
+ * #forEachNonZero({@link IntFloatConsumer} c).
+ */
+public interface IntFloatConsumer {
+
+  /**
+   * Consumes the given index and value of a vector.
+   */
+  public void accept(int index, float value);
+
+}
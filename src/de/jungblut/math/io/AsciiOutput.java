@@ -0,0 +1,102 @@
+package de.jungblut.math.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffers ASCII text for a {@link WritableByteChannel}. Integers and integral
+ * doubles are written digit by digit, all other doubles use their shortest
+ * representation of {@link Double#toString(double)}, which reads back to the
+ * same value.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class AsciiOutput implements Flushable, Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // the largest double below which all integral values are exact longs
+  private static final double MAX_INTEGRAL = 1e15;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private final byte[] digits = new byte[20];
+
+  AsciiOutput(WritableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  void writeByte(char c) throws IOException {
+    ensureCapacity(1);
+    buffer.put((byte) c);
+  }
+
+  void writeString(String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+    ensureCapacity(bytes.length);
+    buffer.put(bytes);
+  }
+
+  void writeLong(long value) throws IOException {
+    ensureCapacity(digits.length);
+    if (value == Long.MIN_VALUE) {
+      writeString(Long.toString(value));
+      return;
+    }
+    if (value < 0) {
+      buffer.put((byte) '-');
+      value = -value;
+    }
+    int pos = digits.length;
+    do {
+      digits[--pos] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    buffer.put(digits, pos, digits.length - pos);
+  }
+
+  void writeDouble(double value) throws IOException {
+    if (value == Math.rint(value) && Math.abs(value) < MAX_INTEGRAL) {
+      writeLong((long) value);
+    } else {
+      writeString(Double.toString(value));
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    // cast, because java 9 overrides flip and clear with covariant return types
+    ((Buffer) buffer).flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    ((Buffer) buffer).clear();
+  }
+
+  /**
+   * Flushes the buffered text and closes the channel.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void ensureCapacity(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+      if (buffer.remaining() < bytes) {
+        throw new IOException("Can't buffer " + bytes + " bytes at once!");
+      }
+    }
+  }
+
+}
@@ -0,0 +1,319 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses whitespace separated numbers directly from the bytes of a
+ * {@link ByteBuffer} in the range [position, limit), without creating
+ * intermediate strings. Lines end with '\n', everything after a '#' until the
+ * end of the line is treated as comment. The buffer position is never touched,
+ * so mapped buffers can be shared by multiple scanners.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class AsciiScanner {
+
+  // powers of ten that are exactly representable as double
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  static {
+    POWERS_OF_TEN[0] = 1d;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10d;
+    }
+  }
+
+  private ByteBuffer buffer;
+  private int position;
+  private int limit;
+
+  AsciiScanner(ByteBuffer buffer, int position, int limit) {
+    reset(buffer, position, limit);
+  }
+
+  /**
+   * Resets the scanner to the given range of the buffer.
+   */
+  void reset(ByteBuffer buffer, int position, int limit) {
+    this.buffer = buffer;
+    this.position = position;
+    this.limit = limit;
+  }
+
+  int position() {
+    return position;
+  }
+
+  boolean hasRemaining() {
+    return position < limit;
+  }
+
+  /**
+   * Skips spaces, tabs and carriage returns, but not line breaks.
+   */
+  void skipBlanks() {
+    while (position < limit) {
+      byte b = buffer.get(position);
+      if (b != ' ' && b != '\t' && b != '\r') {
+        break;
+      }
+      position++;
+    }
+  }
+
+  /**
+   * @return true if the scanner is at a line break, a comment or the end of
+   *         its range.
+   */
+  boolean isLineEnd() {
+    if (position >= limit) {
+      return true;
+    }
+    byte b = buffer.get(position);
+    return b == '\n' || b == '#';
+  }
+
+  /**
+   * Skips everything until after the next line break.
+   */
+  void skipLine() {
+    while (position < limit && buffer.get(position++) != '\n') {
+      // skip
+    }
+  }
+
+  /**
+   * Skips the next token, which is terminated by a blank, a line break or the
+   * end of the range.
+   */
+  void skipToken() {
+    while (position < limit && !isDelimiter(buffer.get(position))) {
+      position++;
+    }
+  }
+
+  /**
+   * @return true if the next byte is the given one, which is then consumed.
+   */
+  boolean consume(char c) {
+    if (position < limit && buffer.get(position) == c) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the upcoming bytes equal the given ASCII string, ignoring
+   *         the case. The bytes are not consumed.
+   */
+  boolean startsWithIgnoreCase(String s) {
+    if (limit - position < s.length()) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (Character.toLowerCase(buffer.get(position + i)) != Character
+          .toLowerCase(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the next token as string, only meant for headers.
+   */
+  String nextToken() {
+    skipBlanks();
+    int start = position;
+    skipToken();
+    return string(start, position);
+  }
+
+  /**
+   * Parses a signed decimal integer.
+   */
+  int nextInt() throws IOException {
+    long value = nextLong();
+    if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+      throw error("Integer overflow", position);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Parses a signed decimal long.
+   */
+  long nextLong() throws IOException {
+    int start = position;
+    boolean negative = consume('-');
+    if (!negative) {
+      consume('+');
+    }
+    int digitsStart = position;
+    long value = 0;
+    while (position < limit) {
+      int digit = buffer.get(position) - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      if (value > (Long.MAX_VALUE - digit) / 10) {
+        throw error("Long overflow", start);
+      }
+      value = value * 10 + digit;
+      position++;
+    }
+    if (position == digitsStart) {
+      throw error("Expected an integer", start);
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses a decimal floating point number. Numbers with at most 18
+   * significant digits and a small exponent are computed exactly from their
+   * digits, everything else (including NaN and infinity) falls back to
+   * {@link Double#parseDouble(String)}.
+   */
+  double nextDouble() throws IOException {
+    int start = position;
+    boolean negative = consume('-');
+    if (!negative) {
+      consume('+');
+    }
+    long mantissa = 0;
+    int significantDigits = 0;
+    int exponent = 0;
+    boolean anyDigits = false;
+    boolean exact = true;
+    while (position < limit) {
+      int digit = buffer.get(position) - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      anyDigits = true;
+      if (significantDigits < 18) {
+        mantissa = mantissa * 10 + digit;
+        if (mantissa != 0) {
+          significantDigits++;
+        }
+      } else {
+        exponent++;
+        exact &= digit == 0;
+      }
+      position++;
+    }
+    if (consume('.')) {
+      while (position < limit) {
+        int digit = buffer.get(position) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        anyDigits = true;
+        if (significantDigits < 18) {
+          mantissa = mantissa * 10 + digit;
+          if (mantissa != 0) {
+            significantDigits++;
+          }
+          exponent--;
+        } else {
+          exact &= digit == 0;
+        }
+        position++;
+      }
+    }
+    if (!anyDigits) {
+      // NaN, Infinity or garbage
+      skipToken();
+      return parseDoubleFallback(start);
+    }
+    if (consume('e') || consume('E')) {
+      int exponentStart = position;
+      boolean negativeExponent = consume('-');
+      if (!negativeExponent) {
+        consume('+');
+      }
+      int value = 0;
+      int digits = 0;
+      while (position < limit) {
+        int digit = buffer.get(position) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        if (value < 100_000) {
+          value = value * 10 + digit;
+        }
+        digits++;
+        position++;
+      }
+      if (digits == 0) {
+        throw error("Malformed exponent", exponentStart);
+      }
+      exponent += negativeExponent ? -value : value;
+    }
+    if (position < limit && !isDelimiter(buffer.get(position))
+        && buffer.get(position) != ':') {
+      throw error("Malformed number", start);
+    }
+    double result;
+    if (!exact || mantissa > (1L << 53)
+        || exponent < -(POWERS_OF_TEN.length - 1)
+        || exponent > POWERS_OF_TEN.length - 1) {
+      return parseDoubleFallback(start);
+    } else if (exponent < 0) {
+      result = mantissa / POWERS_OF_TEN[-exponent];
+    } else {
+      result = mantissa * POWERS_OF_TEN[exponent];
+    }
+    return negative ? -result : result;
+  }
+
+  /**
+   * @return an exception for the given message, containing the content of the
+   *         line around the given position.
+   */
+  IOException error(String message, int at) {
+    int lineStart = at;
+    while (lineStart > 0 && buffer.get(lineStart - 1) != '\n'
+        && at - lineStart < 80) {
+      lineStart--;
+    }
+    int lineEnd = at;
+    while (lineEnd < limit && buffer.get(lineEnd) != '\n'
+        && lineEnd - at < 80) {
+      lineEnd++;
+    }
+    return new IOException(message + " at offset " + at + " in line \""
+        + string(lineStart, lineEnd).trim() + "\"!");
+  }
+
+  private double parseDoubleFallback(int start) throws IOException {
+    int end = start;
+    while (end < limit && !isDelimiter(buffer.get(end))
+        && buffer.get(end) != ':') {
+      end++;
+    }
+    position = end;
+    try {
+      return Double.parseDouble(string(start, end));
+    } catch (NumberFormatException e) {
+      throw error("Malformed number", start);
+    }
+  }
+
+  private String string(int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  private static boolean isDelimiter(byte b) {
+    return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '#';
+  }
+
+}
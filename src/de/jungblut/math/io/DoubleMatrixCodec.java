@@ -0,0 +1,260 @@
+package de.jungblut.math.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.sparse.CsrDoubleMatrix;
+import de.jungblut.math.sparse.SparseDoubleRowMatrix;
+
+/**
+ * Compact binary format for {@link DoubleMatrix}s, using the same type byte,
+ * varints and little endian doubles as the {@link DoubleVectorCodec}.
+ * <ul>
+ * <li>dense matrices: the number of rows and columns followed by the values in
+ * column major order.</li>
+ * <li>sparse row matrices: the number of rows, columns and non-empty rows,
+ * followed by every non-empty row as delta encoded row index and its sparse
+ * entries.</li>
+ * <li>CSR matrices: the number of rows, columns and non-zeros, the length of
+ * every row, the delta encoded column indices within every row and the
+ * values.</li>
+ * </ul>
+ * Direct, mapped and unknown dense implementations are read as
+ * {@link DenseDoubleMatrix}, thus they are limited to
+ * {@link Integer#MAX_VALUE} entries.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class DoubleMatrixCodec {
+
+  static final int DENSE = 0;
+  static final int SPARSE_ROW = 1;
+  static final int CSR = 2;
+
+  private DoubleMatrixCodec() {
+    throw new IllegalAccessError();
+  }
+
+  /**
+   * Writes the given matrix to the output.
+   */
+  public static void write(DoubleMatrix matrix, DataOutput out)
+      throws IOException {
+    write(matrix, LittleEndianOutput.of(out));
+  }
+
+  /**
+   * Writes the given matrix to the buffer at its current position, the byte
+   * order of the buffer is ignored.
+   *
+   * @throws java.nio.BufferOverflowException if the buffer has less than
+   *           {@link #sizeOf(DoubleMatrix)} bytes remaining.
+   */
+  public static void write(DoubleMatrix matrix, ByteBuffer buffer)
+      throws IOException {
+    write(matrix, LittleEndianOutput.of(buffer));
+  }
+
+  /**
+   * @return the next matrix of the input.
+   */
+  public static DoubleMatrix read(DataInput in) throws IOException {
+    return read(LittleEndianInput.of(in));
+  }
+
+  /**
+   * @return the matrix at the current position of the buffer, the byte order
+   *         of the buffer is ignored.
+   */
+  public static DoubleMatrix read(ByteBuffer buffer) throws IOException {
+    return read(LittleEndianInput.of(buffer));
+  }
+
+  /**
+   * @return the number of bytes the given matrix is encoded with.
+   */
+  public static long sizeOf(DoubleMatrix matrix) {
+    LittleEndianOutput.CountingOutput out = LittleEndianOutput.counting();
+    try {
+      write(matrix, out);
+    } catch (IOException e) {
+      // the counting output never throws
+      throw new IllegalStateException(e);
+    }
+    return out.getBytes();
+  }
+
+  static void write(DoubleMatrix matrix, LittleEndianOutput out)
+      throws IOException {
+    int rows = matrix.getRowCount();
+    int cols = matrix.getColumnCount();
+    if (matrix instanceof CsrDoubleMatrix) {
+      out.writeByte(DoubleVectorCodec.typeByte(CSR));
+      out.writeVarInt(rows);
+      out.writeVarInt(cols);
+      writeCsr((CsrDoubleMatrix) matrix, out);
+    } else if (matrix instanceof SparseDoubleRowMatrix) {
+      out.writeByte(DoubleVectorCodec.typeByte(SPARSE_ROW));
+      out.writeVarInt(rows);
+      out.writeVarInt(cols);
+      writeSparseRows(matrix, out);
+    } else {
+      out.writeByte(DoubleVectorCodec.typeByte(DENSE));
+      out.writeVarInt(rows);
+      out.writeVarInt(cols);
+      if (matrix instanceof DenseDoubleMatrix) {
+        double[] array = ((DenseDoubleMatrix) matrix).getColumnMajorMatrix();
+        out.writeDoubles(array, 0, array.length);
+      } else {
+        for (int col = 0; col < cols; col++) {
+          out.writeDoubles(matrix.getColumnVector(col).toArray(), 0, rows);
+        }
+      }
+    }
+  }
+
+  static DoubleMatrix read(LittleEndianInput in) throws IOException {
+    int type = DoubleVectorCodec.readType(in.readByte());
+    int rows = in.readLength(Integer.MAX_VALUE, 0, "number of rows");
+    int cols = in.readLength(Integer.MAX_VALUE, 0, "number of columns");
+    switch (type) {
+      case DENSE:
+        long length = (long) rows * cols;
+        if (length > Integer.MAX_VALUE) {
+          throw new IOException("Dense matrix of " + rows + "x" + cols
+              + " exceeds the maximum array size!");
+        }
+        in.checkRemaining(length * 8, "dense matrix of " + rows + "x" + cols);
+        return new DenseDoubleMatrix(rows, cols, in.readDoubles((int) length));
+      case SPARSE_ROW:
+        return readSparseRows(in, rows, cols);
+      case CSR:
+        return readCsr(in, rows, cols);
+      default:
+        throw new IOException("Unknown matrix type " + type + "!");
+    }
+  }
+
+  private static void writeSparseRows(DoubleMatrix matrix,
+      LittleEndianOutput out) throws IOException {
+    int[] rowIndices = matrix.rowIndices();
+    Arrays.sort(rowIndices);
+    int nonEmpty = 0;
+    for (int row : rowIndices) {
+      if (matrix.getRowVector(row).getLength() > 0) {
+        nonEmpty++;
+      }
+    }
+    out.writeVarInt(nonEmpty);
+    int previous = 0;
+    for (int row : rowIndices) {
+      DoubleVector vector = matrix.getRowVector(row);
+      if (vector.getLength() > 0) {
+        out.writeVarInt(row - previous);
+        previous = row;
+        DoubleVectorCodec.writeSparseEntries(vector, out);
+      }
+    }
+  }
+
+  private static DoubleMatrix readSparseRows(LittleEndianInput in, int rows,
+      int cols) throws IOException {
+    // every non-empty row needs at least its row delta and its length
+    int nonEmpty = in.readLength(rows, 2, "number of non-empty rows");
+    SparseDoubleRowMatrix matrix = new SparseDoubleRowMatrix(rows, cols);
+    int row = 0;
+    // only a scratch space, the row vector copies the values
+    SparseEntries entries = new SparseEntries(0);
+    for (int i = 0; i < nonEmpty; i++) {
+      row += in.readVarInt();
+      if (row < 0 || row >= rows) {
+        throw new IOException("Corrupt row index " + row + " for " + rows
+            + " rows!");
+      }
+      int length = in.readLength(cols, 9, "row length");
+      DoubleVectorCodec.readSparseEntries(in, cols, length, entries);
+      DoubleVector vector = matrix.getRowVector(row);
+      for (int j = 0; j < length; j++) {
+        vector.set(entries.indices[j], entries.values[j]);
+      }
+    }
+    return matrix;
+  }
+
+  private static void writeCsr(CsrDoubleMatrix matrix, LittleEndianOutput out)
+      throws IOException {
+    int[] rowPointers = matrix.getRowPointers();
+    int[] columnIndices = matrix.getColumnIndices();
+    int rows = matrix.getRowCount();
+    int nnz = rowPointers[rows] - rowPointers[0];
+    out.writeVarInt(nnz);
+    for (int row = 0; row < rows; row++) {
+      out.writeVarInt(rowPointers[row + 1] - rowPointers[row]);
+    }
+    for (int row = 0; row < rows; row++) {
+      int previous = 0;
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        out.writeVarInt(columnIndices[i] - previous);
+        previous = columnIndices[i];
+      }
+    }
+    out.writeDoubles(matrix.getValues(), rowPointers[0], nnz);
+  }
+
+  private static DoubleMatrix readCsr(LittleEndianInput in, int rows, int cols)
+      throws IOException {
+    if (rows == Integer.MAX_VALUE) {
+      throw new IOException("CSR matrix of " + rows
+          + " rows exceeds the maximum array size!");
+    }
+    // every non-zero needs at least one byte for its column delta and eight
+    // for its value
+    int nnz = in.readLength(Math.min((long) rows * cols, Integer.MAX_VALUE),
+        9, "number of non-zeros");
+    // plus at least one byte for the length of every row
+    in.checkRemaining(rows + 9L * nnz, "CSR matrix of " + rows + " rows");
+    // the arrays only grow as the input is read, as long as its size is
+    // unknown
+    int[] rowPointers = new int[in.initialCapacity(rows + 1)];
+    for (int row = 0; row < rows; row++) {
+      if (row + 1 == rowPointers.length) {
+        rowPointers = Arrays.copyOf(rowPointers, LittleEndianInput.grow(
+            rowPointers.length, rows + 1));
+      }
+      rowPointers[row + 1] = rowPointers[row] + in.readVarInt();
+      if (rowPointers[row + 1] > nnz || rowPointers[row + 1] < 0) {
+        throw new IOException("Corrupt row length in row " + row + "!");
+      }
+    }
+    if (rowPointers[rows] != nnz) {
+      throw new IOException("Row lengths do not sum up to " + nnz + "!");
+    }
+    int[] columnIndices = new int[in.initialCapacity(nnz)];
+    for (int row = 0; row < rows; row++) {
+      int col = 0;
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        if (i == columnIndices.length) {
+          columnIndices = Arrays.copyOf(columnIndices, LittleEndianInput.grow(
+              i, nnz));
+        }
+        col += in.readVarInt();
+        if (col < 0 || col >= cols
+            || (i > rowPointers[row] && col <= columnIndices[i - 1])) {
+          throw new IOException("Corrupt column index " + col + " in row "
+              + row + "!");
+        }
+        columnIndices[i] = col;
+      }
+    }
+    double[] values = in.readDoubles(nnz);
+    return new CsrDoubleMatrix(rows, cols, rowPointers, columnIndices, values);
+  }
+
+}
@@ -0,0 +1,270 @@
+package de.jungblut.math.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.dense.SingleEntryDoubleVector;
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.named.NamedDoubleVector;
+import de.jungblut.math.sparse.FastIntDoubleHashMap;
+import de.jungblut.math.sparse.SequentialSparseDoubleVector;
+import de.jungblut.math.sparse.SparseBitVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+/**
+ * Compact binary format for {@link DoubleVector}s. Every vector starts with a
+ * type byte, its upper four bits contain the {@link #VERSION} of the format.
+ * All integers are written as varints and all doubles as little endian.
+ * <ul>
+ * <li>dense vectors: the dimension followed by the raw values.</li>
+ * <li>sparse vectors: the dimension, the number of non-zeros, the ascending
+ * indices as deltas to their predecessor and the values.</li>
+ * <li>bit vectors: the dimension, the number of words and the words of the
+ * bits as little endian longs.</li>
+ * <li>named and keyed vectors: the name (UTF-8) or the zig-zag encoded key,
+ * followed by the embedded vector.</li>
+ * </ul>
+ * Vectors are read back into the type they were written from, direct vectors
+ * and unknown dense implementations are read as {@link DenseDoubleVector},
+ * unknown sparse implementations as {@link SequentialSparseDoubleVector}.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class DoubleVectorCodec {
+
+  /**
+   * The version of the binary format.
+   */
+  public static final int VERSION = 1;
+
+  static final int DENSE = 0;
+  static final int SPARSE = 1;
+  static final int SEQUENTIAL_SPARSE = 2;
+  static final int BITS = 3;
+  static final int SINGLE = 4;
+  static final int NAMED = 5;
+  static final int KEYED = 6;
+
+  private DoubleVectorCodec() {
+    throw new IllegalAccessError();
+  }
+
+  /**
+   * Writes the given vector to the output.
+   */
+  public static void write(DoubleVector vector, DataOutput out)
+      throws IOException {
+    write(vector, LittleEndianOutput.of(out));
+  }
+
+  /**
+   * Writes the given vector to the buffer at its current position, the byte
+   * order of the buffer is ignored.
+   *
+   * @throws java.nio.BufferOverflowException if the buffer has less than
+   *           {@link #sizeOf(DoubleVector)} bytes remaining.
+   */
+  public static void write(DoubleVector vector, ByteBuffer buffer)
+      throws IOException {
+    write(vector, LittleEndianOutput.of(buffer));
+  }
+
+  /**
+   * @return the next vector of the input.
+   */
+  public static DoubleVector read(DataInput in) throws IOException {
+    return read(LittleEndianInput.of(in));
+  }
+
+  /**
+   * @return the vector at the current position of the buffer, the byte order
+   *         of the buffer is ignored.
+   */
+  public static DoubleVector read(ByteBuffer buffer) throws IOException {
+    return read(LittleEndianInput.of(buffer));
+  }
+
+  /**
+   * @return the number of bytes the given vector is encoded with.
+   */
+  public static int sizeOf(DoubleVector vector) {
+    LittleEndianOutput.CountingOutput out = LittleEndianOutput.counting();
+    try {
+      write(vector, out);
+    } catch (IOException e) {
+      // the counting output never throws
+      throw new IllegalStateException(e);
+    }
+    return (int) out.getBytes();
+  }
+
+  static void write(DoubleVector vector, LittleEndianOutput out)
+      throws IOException {
+    if (vector instanceof NamedDoubleVector) {
+      out.writeByte(typeByte(NAMED));
+      out.writeString(vector.getName());
+      write(((NamedDoubleVector) vector).getVector(), out);
+    } else if (vector instanceof KeyedDoubleVector) {
+      KeyedDoubleVector keyed = (KeyedDoubleVector) vector;
+      out.writeByte(typeByte(KEYED));
+      int key = keyed.getKey();
+      out.writeVarInt((key << 1) ^ (key >> 31));
+      write(keyed.getVector(), out);
+    } else if (vector instanceof SingleEntryDoubleVector) {
+      out.writeByte(typeByte(SINGLE));
+      out.writeDouble(vector.get(0));
+    } else if (vector instanceof SparseBitVector) {
+      out.writeByte(typeByte(BITS));
+      out.writeVarInt(vector.getDimension());
+      writeBits(vector, out);
+    } else if (vector.isSparse()) {
+      out.writeByte(typeByte(vector instanceof SparseDoubleVector ? SPARSE
+          : SEQUENTIAL_SPARSE));
+      out.writeVarInt(vector.getDimension());
+      writeSparseEntries(vector, out);
+    } else {
+      out.writeByte(typeByte(DENSE));
+      out.writeVarInt(vector.getDimension());
+      // dense vectors return their backing array, so this does not copy
+      out.writeDoubles(vector.toArray(), 0, vector.getDimension());
+    }
+  }
+
+  static DoubleVector read(LittleEndianInput in) throws IOException {
+    int type = readType(in.readByte());
+    switch (type) {
+      case NAMED:
+        String name = in.readString();
+        return new NamedDoubleVector(name, read(in));
+      case KEYED:
+        int zigZag = in.readVarInt();
+        return new KeyedDoubleVector((zigZag >>> 1) ^ -(zigZag & 1), read(in));
+      case SINGLE:
+        return new SingleEntryDoubleVector(in.readDouble());
+      case BITS:
+        int bitDimension = in.readLength(Integer.MAX_VALUE, 0, "dimension");
+        long[] words = in.readLongs(in.readLength((bitDimension + 63L) >>> 6,
+            8, "number of words"));
+        return new SparseBitVector(bitDimension, words);
+      case SPARSE:
+      case SEQUENTIAL_SPARSE:
+        int dimension = in.readLength(Integer.MAX_VALUE, 0, "dimension");
+        // every entry needs at least one byte for its index and eight for its
+        // value
+        int length = in.readLength(dimension, 9, "number of non-zeros");
+        SparseEntries entries = new SparseEntries(0);
+        readSparseEntries(in, dimension, length, entries);
+        if (type == SPARSE) {
+          return new SparseDoubleVector(new FastIntDoubleHashMap(
+              entries.indices, entries.values), dimension);
+        }
+        return new SequentialSparseDoubleVector(dimension, entries.indices,
+            entries.values, length);
+      case DENSE:
+        int denseDimension = in.readLength(Integer.MAX_VALUE, 8, "dimension");
+        if (in.remaining() < 0) {
+          // the size of the input is unknown, so the values are read into
+          // growing chunks first
+          return new DenseDoubleVector(in.readDoubles(denseDimension));
+        }
+        DenseDoubleVector dense = new DenseDoubleVector(denseDimension);
+        // toArray returns the backing array, so we can read into it directly
+        in.readDoubles(dense.toArray(), 0, denseDimension);
+        return dense;
+      default:
+        throw new IOException("Unknown vector type " + type + "!");
+    }
+  }
+
+  /**
+   * Writes the number of non-zeros, the ascending delta encoded indices and
+   * the values of the given sparse vector.
+   */
+  static void writeSparseEntries(DoubleVector vector, LittleEndianOutput out)
+      throws IOException {
+    SparseEntries entries = new SparseEntries();
+    entries.collect(vector);
+    int length = entries.length;
+    int[] indices = entries.indices;
+    out.writeVarInt(length);
+    int previous = 0;
+    for (int i = 0; i < length; i++) {
+      out.writeVarInt(indices[i] - previous);
+      previous = indices[i];
+    }
+    out.writeDoubles(entries.values, 0, length);
+  }
+
+  /**
+   * Reads the indices and values written by
+   * {@link #writeSparseEntries(DoubleVector, LittleEndianOutput)}, after their
+   * number was read, into the given entries. Arrays that are too small are
+   * replaced, while the size of the input is unknown they only grow as the
+   * indices are read.
+   */
+  static void readSparseEntries(LittleEndianInput in, int dimension,
+      int length, SparseEntries entries) throws IOException {
+    int[] indices = entries.indices;
+    if (indices.length < length) {
+      indices = new int[in.initialCapacity(length)];
+    }
+    int index = 0;
+    for (int i = 0; i < length; i++) {
+      if (i == indices.length) {
+        indices = Arrays.copyOf(indices, LittleEndianInput.grow(i, length));
+      }
+      index += in.readVarInt();
+      if (index < 0 || index >= dimension || (i > 0 && index <= indices[i - 1])) {
+        throw new IOException("Corrupt sparse index " + index
+            + " for dimension " + dimension + "!");
+      }
+      indices[i] = index;
+    }
+    entries.indices = indices;
+    if (entries.values.length < length) {
+      // the indices were read, so the values are at most eight times their
+      // size
+      entries.values = new double[length];
+    }
+    in.readDoubles(entries.values, 0, length);
+    entries.length = length;
+  }
+
+  static int typeByte(int type) {
+    return (VERSION << 4) | type;
+  }
+
+  /**
+   * @return the type of the given type byte, after the version was checked.
+   */
+  static int readType(int typeByte) throws IOException {
+    int version = typeByte >>> 4;
+    if (version != VERSION) {
+      throw new IOException("Unsupported format version " + version
+          + ", expected " + VERSION + "!");
+    }
+    return typeByte & 0x0F;
+  }
+
+  private static void writeBits(DoubleVector vector, LittleEndianOutput out)
+      throws IOException {
+    long[] words = new long[(vector.getDimension() + 63) >>> 6];
+    int[] numWords = new int[1];
+    // the indices are ascending, so the last set bit determines the words
+    vector.forEachNonZero((index, value) -> {
+      words[index >>> 6] |= 1L << index;
+      numWords[0] = (index >>> 6) + 1;
+    });
+    out.writeVarInt(numWords[0]);
+    for (int i = 0; i < numWords[0]; i++) {
+      out.writeLong(words[i]);
+    }
+  }
+
+}
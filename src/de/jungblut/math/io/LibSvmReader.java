@@ -0,0 +1,332 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.sparse.SequentialSparseDoubleVector;
+import de.jungblut.math.tuple.Tuple;
+
+/**
+ * Streaming parser for the LibSVM/SVMlight format, where every line is a row
+ * of the form "label index:value index:value ... # comment". Labels and
+ * entries are parsed directly from the bytes of a channel or a memory mapped
+ * file without creating strings. Every row is emitted as
+ * {@link SequentialSparseDoubleVector}, zero values are skipped, unordered
+ * indices are sorted and "qid:" tokens are ignored. Blank and comment lines
+ * don't count as rows.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class LibSvmReader {
+
+  /**
+   * Receives the parsed rows of a file.
+   */
+  @FunctionalInterface
+  public interface RowConsumer {
+
+    /**
+     * @param row the zero based number of the row in the file.
+     * @param label the label of the row.
+     * @param features the features of the row, owned by the consumer.
+     */
+    void accept(int row, double label, SequentialSparseDoubleVector features)
+        throws IOException;
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final int dimension;
+  private final int indexOffset;
+
+  /**
+   * Creates a new reader for one based indices, as written by LibSVM.
+   *
+   * @param dimension the dimension of the feature vectors.
+   */
+  public LibSvmReader(int dimension) {
+    this(dimension, false);
+  }
+
+  /**
+   * Creates a new reader.
+   *
+   * @param dimension the dimension of the feature vectors.
+   * @param zeroBased true if the indices in the file start at zero, false if
+   *          they start at one.
+   */
+  public LibSvmReader(int dimension, boolean zeroBased) {
+    this.dimension = dimension;
+    this.indexOffset = zeroBased ? 0 : 1;
+  }
+
+  /**
+   * Reads all rows from the given channel in the order of the file.
+   */
+  public void read(ReadableByteChannel channel, RowConsumer consumer)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    AsciiScanner scanner = new AsciiScanner(buffer, 0, 0);
+    RowParser parser = new RowParser();
+    int row = 0;
+    int end = 0;
+    boolean eof = false;
+    while (!eof) {
+      if (end == buffer.capacity()) {
+        // a single line doesn't fit into the buffer
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        System.arraycopy(buffer.array(), 0, larger.array(), 0, end);
+        buffer = larger;
+      }
+      int read = channel.read(ByteBuffer.wrap(buffer.array(), end,
+          buffer.capacity() - end));
+      if (read < 0) {
+        eof = true;
+      } else {
+        end += read;
+      }
+      // only parse complete lines, unless there is nothing more to come
+      int parseEnd = eof ? end : lastLineBreak(buffer.array(), end) + 1;
+      if (parseEnd > 0) {
+        scanner.reset(buffer, 0, parseEnd);
+        row += parser.parse(scanner, row, consumer);
+        System.arraycopy(buffer.array(), parseEnd, buffer.array(), 0, end
+            - parseEnd);
+        end -= parseEnd;
+      }
+    }
+  }
+
+  /**
+   * Reads all rows from the given file in the order of the file, the file is
+   * mapped into memory.
+   */
+  public void read(Path file, RowConsumer consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long[] bounds = TextSplits.split(channel, 0, 1);
+      AsciiScanner scanner = new AsciiScanner(null, 0, 0);
+      RowParser parser = new RowParser();
+      int row = 0;
+      for (int split = 0; split < bounds.length - 1; split++) {
+        ByteBuffer buffer = TextSplits.map(channel, bounds, split);
+        scanner.reset(buffer, 0, buffer.limit());
+        row += parser.parse(scanner, row, consumer);
+      }
+    }
+  }
+
+  /**
+   * Reads all rows from the given file in parallel on the common
+   * {@link ForkJoinPool}. See {@link #read(Path, int, ForkJoinPool, RowConsumer)}.
+   */
+  public void readParallel(Path file, RowConsumer consumer) throws IOException {
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    read(file, pool.getParallelism(), pool, consumer);
+  }
+
+  /**
+   * Reads all rows from the given file in parallel. The file is mapped into
+   * memory and split at line breaks, every split is parsed by a single task
+   * on the given pool. The rows of a split are passed to the consumer in their
+   * order, but the splits are parsed concurrently, so the consumer must be
+   * thread-safe. The row numbers are the same as for a sequential read.
+   *
+   * @param file the file to read.
+   * @param numSplits the number of splits to parse in parallel.
+   * @param pool the pool to run the parsing on.
+   * @param consumer the thread-safe consumer of the rows.
+   */
+  public void read(Path file, int numSplits, ForkJoinPool pool,
+      RowConsumer consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long[] bounds = TextSplits.split(channel, 0, numSplits);
+      parseSplits(channel, bounds, countRows(channel, bounds, pool), pool,
+          consumer);
+    }
+  }
+
+  /**
+   * Reads all rows from the given file in parallel on the given pool, see
+   * {@link #read(Path, int, ForkJoinPool, RowConsumer)}.
+   *
+   * @return a tuple of the rows as {@link KeyedDoubleVector}, keyed by their
+   *         row number, and the labels of the rows.
+   */
+  public Tuple<KeyedDoubleVector[], double[]> readKeyed(Path file,
+      ForkJoinPool pool) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long[] bounds = TextSplits.split(channel, 0, pool.getParallelism());
+      int[] firstRows = countRows(channel, bounds, pool);
+      int numRows = firstRows[firstRows.length - 1];
+      KeyedDoubleVector[] rows = new KeyedDoubleVector[numRows];
+      double[] labels = new double[numRows];
+      parseSplits(channel, bounds, firstRows, pool, (row, label, features) -> {
+        rows[row] = new KeyedDoubleVector(row, features);
+        labels[row] = label;
+      });
+      return new Tuple<>(rows, labels);
+    }
+  }
+
+  private void parseSplits(FileChannel channel, long[] bounds,
+      int[] firstRows, ForkJoinPool pool, RowConsumer consumer)
+      throws IOException {
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < bounds.length - 1; i++) {
+      final int split = i;
+      tasks.add(() -> {
+        ByteBuffer buffer = TextSplits.map(channel, bounds, split);
+        return new RowParser().parse(new AsciiScanner(buffer, 0,
+            buffer.limit()), firstRows[split], consumer);
+      });
+    }
+    TextSplits.invokeAll(pool, tasks);
+  }
+
+  /**
+   * Counts the rows of every split in parallel.
+   *
+   * @return the number of the first row of every split, the last element
+   *         contains the total number of rows.
+   */
+  private static int[] countRows(FileChannel channel, long[] bounds,
+      ForkJoinPool pool) throws IOException {
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < bounds.length - 1; i++) {
+      final int split = i;
+      tasks.add(() -> {
+        ByteBuffer buffer = TextSplits.map(channel, bounds, split);
+        AsciiScanner scanner = new AsciiScanner(buffer, 0, buffer.limit());
+        int rows = 0;
+        while (scanner.hasRemaining()) {
+          scanner.skipBlanks();
+          if (!scanner.isLineEnd()) {
+            rows++;
+          }
+          scanner.skipLine();
+        }
+        return rows;
+      });
+    }
+    List<Integer> counts = TextSplits.invokeAll(pool, tasks);
+    int[] firstRows = new int[bounds.length];
+    for (int i = 0; i < counts.size(); i++) {
+      firstRows[i + 1] = firstRows[i] + counts.get(i);
+    }
+    return firstRows;
+  }
+
+  private static int lastLineBreak(byte[] array, int end) {
+    for (int i = end - 1; i >= 0; i--) {
+      if (array[i] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses rows into its scratch arrays, a parser is used by a single thread.
+   */
+  private final class RowParser {
+
+    private int[] indices = new int[64];
+    private double[] values = new double[64];
+
+    /**
+     * Parses all rows in the range of the scanner.
+     *
+     * @return the number of parsed rows.
+     */
+    int parse(AsciiScanner scanner, int firstRow, RowConsumer consumer)
+        throws IOException {
+      int row = firstRow;
+      while (scanner.hasRemaining()) {
+        scanner.skipBlanks();
+        if (scanner.isLineEnd()) {
+          scanner.skipLine();
+          continue;
+        }
+        int lineStart = scanner.position();
+        double label = scanner.nextDouble();
+        int length = 0;
+        boolean sorted = true;
+        while (true) {
+          scanner.skipBlanks();
+          if (scanner.isLineEnd()) {
+            break;
+          }
+          if (scanner.startsWithIgnoreCase("qid:")) {
+            scanner.skipToken();
+            continue;
+          }
+          int tokenStart = scanner.position();
+          int index = scanner.nextInt() - indexOffset;
+          if (!scanner.consume(':')) {
+            throw scanner.error("Expected index:value", tokenStart);
+          }
+          double value = scanner.nextDouble();
+          if (index < 0 || index >= dimension) {
+            throw scanner.error("Index out of dimension " + dimension,
+                tokenStart);
+          }
+          if (value == 0d) {
+            continue;
+          }
+          if (length == indices.length) {
+            indices = Arrays.copyOf(indices, length * 2);
+            values = Arrays.copyOf(values, length * 2);
+          }
+          if (length > 0 && indices[length - 1] >= index) {
+            sorted = false;
+          }
+          indices[length] = index;
+          values[length++] = value;
+        }
+        scanner.skipLine();
+        consumer.accept(row++, label,
+            newVector(length, sorted, scanner, lineStart));
+      }
+      return row - firstRow;
+    }
+
+    private SequentialSparseDoubleVector newVector(int length, boolean sorted,
+        AsciiScanner scanner, int lineStart) throws IOException {
+      int[] rowIndices = Arrays.copyOf(indices, length);
+      double[] rowValues = Arrays.copyOf(values, length);
+      if (!sorted) {
+        // insertion sort, rows are usually sorted or nearly sorted
+        for (int i = 1; i < length; i++) {
+          int index = rowIndices[i];
+          double value = rowValues[i];
+          int j = i - 1;
+          while (j >= 0 && rowIndices[j] > index) {
+            rowIndices[j + 1] = rowIndices[j];
+            rowValues[j + 1] = rowValues[j];
+            j--;
+          }
+          if (j >= 0 && rowIndices[j] == index) {
+            throw scanner.error("Duplicate index " + (index + indexOffset),
+                lineStart);
+          }
+          rowIndices[j + 1] = index;
+          rowValues[j + 1] = value;
+        }
+      }
+      return new SequentialSparseDoubleVector(dimension, rowIndices,
+          rowValues, length);
+    }
+  }
+
+}
@@ -0,0 +1,77 @@
+package de.jungblut.math.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import de.jungblut.math.DoubleVector;
+
+/**
+ * Writes rows in the LibSVM/SVMlight format, which can be read back by the
+ * {@link LibSvmReader}. The non-zero entries of every vector are written in
+ * ascending order of their index, text is buffered and written to the channel
+ * in large blocks.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class LibSvmWriter implements Flushable, Closeable {
+
+  private final AsciiOutput out;
+  private final int indexOffset;
+  private final SparseEntries entries = new SparseEntries();
+
+  /**
+   * Creates a new writer for one based indices, as expected by LibSVM.
+   *
+   * @param channel the channel to write to, closed with this writer.
+   */
+  public LibSvmWriter(WritableByteChannel channel) {
+    this(channel, false);
+  }
+
+  /**
+   * Creates a new writer.
+   *
+   * @param channel the channel to write to, closed with this writer.
+   * @param zeroBased true if the indices should start at zero, false if they
+   *          should start at one.
+   */
+  public LibSvmWriter(WritableByteChannel channel, boolean zeroBased) {
+    this.out = new AsciiOutput(channel);
+    this.indexOffset = zeroBased ? 0 : 1;
+  }
+
+  /**
+   * Writes a single row.
+   *
+   * @param label the label of the row.
+   * @param features the features, only the non-zero entries are written.
+   */
+  public void write(double label, DoubleVector features) throws IOException {
+    out.writeDouble(label);
+    entries.collect(features);
+    for (int i = 0; i < entries.length; i++) {
+      out.writeByte(' ');
+      out.writeLong(entries.indices[i] + (long) indexOffset);
+      out.writeByte(':');
+      out.writeDouble(entries.values[i]);
+    }
+    out.writeByte('\n');
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  /**
+   * Flushes the buffered rows and closes the channel.
+   */
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+}
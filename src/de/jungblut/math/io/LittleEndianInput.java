@@ -0,0 +1,256 @@
+package de.jungblut.math.io;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads primitives in little endian byte order and varints, either from a
+ * {@link DataInput} or a {@link ByteBuffer}. This is the counterpart of
+ * {@link LittleEndianOutput}.
+ *
+ * @author thomas.jungblut
+ *
+ */
+abstract class LittleEndianInput {
+
+  /**
+   * The number of elements arrays are grown by when the size of the input is
+   * unknown, so a corrupt length fails at the end of the input instead of
+   * allocating its whole array up front.
+   */
+  static final int CHUNK = 1 << 13;
+
+  /**
+   * @return the next byte as unsigned value.
+   */
+  abstract int readByte() throws IOException;
+
+  abstract long readLong() throws IOException;
+
+  abstract void readBytes(byte[] bytes) throws IOException;
+
+  double readDouble() throws IOException {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  void readDoubles(double[] values, int offset, int length) throws IOException {
+    for (int i = 0; i < length; i++) {
+      values[offset + i] = readDouble();
+    }
+  }
+
+  int readVarInt() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint, it is longer than five bytes!");
+  }
+
+  /**
+   * @return the number of bytes left in the input, -1 if unknown.
+   */
+  long remaining() {
+    return -1;
+  }
+
+  /**
+   * Reads a varint that sizes something, before anything is allocated for it.
+   *
+   * @param max the largest valid value.
+   * @param elementBytes the least number of bytes every element is encoded
+   *          with, the elements must fit into the remaining input.
+   * @param what the name of the value for the error message.
+   * @throws IOException if the value is negative, larger than max or its
+   *           elements can't fit into the remaining input.
+   */
+  int readLength(long max, int elementBytes, String what) throws IOException {
+    int length = readVarInt();
+    if (length < 0 || length > max) {
+      throw new IOException("Corrupt " + what + " " + length + ", expected "
+          + "a value between 0 and " + max + "!");
+    }
+    checkRemaining((long) length * elementBytes, what);
+    return length;
+  }
+
+  /**
+   * @throws IOException if the input is known to have less than the given
+   *           number of bytes left.
+   */
+  void checkRemaining(long bytes, String what) throws IOException {
+    long remaining = remaining();
+    if (remaining >= 0 && bytes > remaining) {
+      throw new IOException("Corrupt " + what + ", it needs " + bytes
+          + " bytes but only " + remaining + " are left!");
+    }
+  }
+
+  /**
+   * @return the capacity to allocate for length elements: all of them if the
+   *         lengths were checked against the remaining input, otherwise at
+   *         most one chunk.
+   */
+  int initialCapacity(int length) {
+    return remaining() >= 0 ? length : Math.min(length, CHUNK);
+  }
+
+  /**
+   * @return the next capacity of an array that is full, at most length.
+   */
+  static int grow(int capacity, int length) {
+    return (int) Math.min(length, Math.max(CHUNK, 2L * capacity));
+  }
+
+  /**
+   * @return length doubles, the array only grows as the values are read.
+   */
+  double[] readDoubles(int length) throws IOException {
+    double[] values = new double[initialCapacity(length)];
+    int read = 0;
+    while (true) {
+      readDoubles(values, read, values.length - read);
+      read = values.length;
+      if (read == length) {
+        return values;
+      }
+      values = Arrays.copyOf(values, grow(read, length));
+    }
+  }
+
+  /**
+   * @return length longs, the array only grows as the values are read.
+   */
+  long[] readLongs(int length) throws IOException {
+    long[] values = new long[initialCapacity(length)];
+    int read = 0;
+    while (true) {
+      for (int i = read; i < values.length; i++) {
+        values[i] = readLong();
+      }
+      read = values.length;
+      if (read == length) {
+        return values;
+      }
+      values = Arrays.copyOf(values, grow(read, length));
+    }
+  }
+
+  String readString() throws IOException {
+    int length = readLength(Integer.MAX_VALUE, 1, "string length");
+    byte[] bytes = new byte[initialCapacity(length)];
+    int read = 0;
+    while (true) {
+      byte[] chunk = read == 0 ? bytes : new byte[bytes.length - read];
+      readBytes(chunk);
+      if (read > 0) {
+        System.arraycopy(chunk, 0, bytes, read, chunk.length);
+      }
+      read = bytes.length;
+      if (read == length) {
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+      bytes = Arrays.copyOf(bytes, grow(read, length));
+    }
+  }
+
+  static LittleEndianInput of(DataInput in) {
+    return new DataInputAdapter(in);
+  }
+
+  static LittleEndianInput of(ByteBuffer buffer) {
+    return new ByteBufferAdapter(buffer);
+  }
+
+  private static final class DataInputAdapter extends LittleEndianInput {
+
+    private final DataInput in;
+
+    DataInputAdapter(DataInput in) {
+      this.in = in;
+    }
+
+    @Override
+    int readByte() throws IOException {
+      return in.readUnsignedByte();
+    }
+
+    @Override
+    long readLong() throws IOException {
+      // DataInput is big endian
+      return Long.reverseBytes(in.readLong());
+    }
+
+    @Override
+    void readBytes(byte[] bytes) throws IOException {
+      in.readFully(bytes);
+    }
+  }
+
+  private static final class ByteBufferAdapter extends LittleEndianInput {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferAdapter(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    long remaining() {
+      return buffer.remaining();
+    }
+
+    @Override
+    int readByte() throws IOException {
+      try {
+        return buffer.get() & 0xFF;
+      } catch (BufferUnderflowException e) {
+        throw new IOException("Unexpected end of buffer!", e);
+      }
+    }
+
+    @Override
+    long readLong() throws IOException {
+      try {
+        long value = buffer.getLong();
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long
+            .reverseBytes(value);
+      } catch (BufferUnderflowException e) {
+        throw new IOException("Unexpected end of buffer!", e);
+      }
+    }
+
+    @Override
+    void readBytes(byte[] bytes) throws IOException {
+      try {
+        buffer.get(bytes);
+      } catch (BufferUnderflowException e) {
+        throw new IOException("Unexpected end of buffer!", e);
+      }
+    }
+
+    @Override
+    void readDoubles(double[] values, int offset, int length)
+        throws IOException {
+      try {
+        buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+            .get(values, offset, length);
+      } catch (BufferUnderflowException e) {
+        throw new IOException("Unexpected end of buffer!", e);
+      }
+      // cast, because java 9 overrides position with a covariant return type
+      ((Buffer) buffer).position(buffer.position() + length * 8);
+    }
+  }
+
+}
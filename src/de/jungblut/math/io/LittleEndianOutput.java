@@ -0,0 +1,161 @@
+package de.jungblut.math.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes primitives in little endian byte order and integers as varints,
+ * either to a {@link DataOutput} or a {@link ByteBuffer}.
+ *
+ * @author thomas.jungblut
+ *
+ */
+abstract class LittleEndianOutput {
+
+  abstract void writeByte(int b) throws IOException;
+
+  abstract void writeLong(long value) throws IOException;
+
+  abstract void writeBytes(byte[] bytes) throws IOException;
+
+  void writeDouble(double value) throws IOException {
+    writeLong(Double.doubleToRawLongBits(value));
+  }
+
+  void writeDoubles(double[] values, int offset, int length)
+      throws IOException {
+    for (int i = 0; i < length; i++) {
+      writeDouble(values[offset + i]);
+    }
+  }
+
+  /**
+   * Writes the given non-negative integer in groups of seven bits, the highest
+   * bit of every byte is set if another byte follows.
+   */
+  void writeVarInt(int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    writeByte(value);
+  }
+
+  /**
+   * Writes the UTF-8 bytes of the given string, prefixed by their number.
+   */
+  void writeString(String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(bytes.length);
+    writeBytes(bytes);
+  }
+
+  static LittleEndianOutput of(DataOutput out) {
+    return new DataOutputAdapter(out);
+  }
+
+  static LittleEndianOutput of(ByteBuffer buffer) {
+    return new ByteBufferAdapter(buffer);
+  }
+
+  /**
+   * @return an output that only counts the bytes written to it.
+   */
+  static CountingOutput counting() {
+    return new CountingOutput();
+  }
+
+  private static final class DataOutputAdapter extends LittleEndianOutput {
+
+    private final DataOutput out;
+
+    DataOutputAdapter(DataOutput out) {
+      this.out = out;
+    }
+
+    @Override
+    void writeByte(int b) throws IOException {
+      out.writeByte(b);
+    }
+
+    @Override
+    void writeLong(long value) throws IOException {
+      // DataOutput is big endian
+      out.writeLong(Long.reverseBytes(value));
+    }
+
+    @Override
+    void writeBytes(byte[] bytes) throws IOException {
+      out.write(bytes);
+    }
+  }
+
+  private static final class ByteBufferAdapter extends LittleEndianOutput {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferAdapter(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    void writeByte(int b) {
+      buffer.put((byte) b);
+    }
+
+    @Override
+    void writeLong(long value) {
+      buffer.putLong(buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long
+          .reverseBytes(value));
+    }
+
+    @Override
+    void writeBytes(byte[] bytes) {
+      buffer.put(bytes);
+    }
+
+    @Override
+    void writeDoubles(double[] values, int offset, int length) {
+      DoubleBuffer doubles = buffer.duplicate()
+          .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+      doubles.put(values, offset, length);
+      // cast, because java 9 overrides position with a covariant return type
+      ((Buffer) buffer).position(buffer.position() + length * 8);
+    }
+  }
+
+  static final class CountingOutput extends LittleEndianOutput {
+
+    private long bytes;
+
+    @Override
+    void writeByte(int b) {
+      bytes++;
+    }
+
+    @Override
+    void writeLong(long value) {
+      bytes += 8;
+    }
+
+    @Override
+    void writeBytes(byte[] bytes) {
+      this.bytes += bytes.length;
+    }
+
+    @Override
+    void writeDoubles(double[] values, int offset, int length) {
+      bytes += 8L * length;
+    }
+
+    long getBytes() {
+      return bytes;
+    }
+  }
+
+}
@@ -0,0 +1,433 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.sparse.CsrDoubleMatrix;
+
+/**
+ * Reads matrices in the MatrixMarket exchange format. The coordinate format is
+ * read into a {@link CsrDoubleMatrix}, the array format into a
+ * {@link DenseDoubleMatrix}. Real, integer and pattern fields are supported,
+ * as well as general, symmetric and skew-symmetric matrices. <br/>
+ * <br/>
+ * The entries of the coordinate format are parsed in parallel from newline
+ * aligned splits of the memory mapped file in two passes: the first pass
+ * counts the entries of every row per split, the second pass writes the
+ * entries directly to their final CSR position. Thus, no intermediate
+ * coordinate lists are allocated, but every split needs a counter per row.
+ * Rows that are not sorted by column in the file are sorted afterwards,
+ * duplicate entries are summed up.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class MatrixMarketReader {
+
+  private static final int MAX_HEADER_SIZE = 1024 * 1024;
+
+  private MatrixMarketReader() {
+    throw new IllegalAccessError();
+  }
+
+  /**
+   * Reads the given file, coordinate entries are parsed in parallel on the
+   * common {@link ForkJoinPool}.
+   *
+   * @return a {@link CsrDoubleMatrix} for the coordinate format or a
+   *         {@link DenseDoubleMatrix} for the array format.
+   */
+  public static DoubleMatrix read(Path file) throws IOException {
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    return read(file, pool.getParallelism(), pool);
+  }
+
+  /**
+   * Reads the given file, coordinate entries are parsed in parallel.
+   *
+   * @param file the file to read.
+   * @param numSplits the number of splits to parse the entries in parallel.
+   * @param pool the pool to run the parsing on.
+   * @return a {@link CsrDoubleMatrix} for the coordinate format or a
+   *         {@link DenseDoubleMatrix} for the array format.
+   */
+  public static DoubleMatrix read(Path file, int numSplits, ForkJoinPool pool)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Header header = readHeader(channel);
+      if (header.coordinate) {
+        return readCoordinate(channel, header, numSplits, pool);
+      }
+      return readArray(channel, header);
+    }
+  }
+
+  /**
+   * The banner and the size line of a file.
+   */
+  static final class Header {
+    boolean coordinate;
+    boolean pattern;
+    // 1 for symmetric, -1 for skew-symmetric, 0 for general
+    int symmetry;
+    int rows;
+    int columns;
+    long entries;
+    // the offset of the first line after the size line
+    long dataOffset;
+  }
+
+  static Header readHeader(FileChannel channel) throws IOException {
+    ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0,
+        Math.min(channel.size(), MAX_HEADER_SIZE));
+    AsciiScanner scanner = new AsciiScanner(buffer, 0, buffer.limit());
+    if (!scanner.startsWithIgnoreCase("%%MatrixMarket")) {
+      throw new IOException("Missing %%MatrixMarket banner!");
+    }
+    scanner.skipToken();
+    Header header = new Header();
+    String object = scanner.nextToken().toLowerCase();
+    String format = scanner.nextToken().toLowerCase();
+    String field = scanner.nextToken().toLowerCase();
+    String symmetry = scanner.nextToken().toLowerCase();
+    if (!object.equals("matrix")) {
+      throw new IOException("Unsupported object " + object + "!");
+    }
+    switch (format) {
+      case "coordinate":
+        header.coordinate = true;
+        break;
+      case "array":
+        break;
+      default:
+        throw new IOException("Unsupported format " + format + "!");
+    }
+    switch (field) {
+      case "real":
+      case "double":
+      case "integer":
+        break;
+      case "pattern":
+        if (!header.coordinate) {
+          throw new IOException("Pattern field requires coordinate format!");
+        }
+        header.pattern = true;
+        break;
+      default:
+        throw new IOException("Unsupported field " + field + "!");
+    }
+    switch (symmetry) {
+      case "general":
+        break;
+      case "symmetric":
+        header.symmetry = 1;
+        break;
+      case "skew-symmetric":
+        header.symmetry = -1;
+        break;
+      default:
+        throw new IOException("Unsupported symmetry " + symmetry + "!");
+    }
+    scanner.skipLine();
+    // skip comments and blank lines until the size line
+    while (true) {
+      scanner.skipBlanks();
+      if (!scanner.hasRemaining()) {
+        throw new IOException("Missing size line within the first "
+            + MAX_HEADER_SIZE + " bytes!");
+      }
+      if (scanner.isLineEnd() || scanner.consume('%')) {
+        scanner.skipLine();
+      } else {
+        break;
+      }
+    }
+    header.rows = scanner.nextInt();
+    scanner.skipBlanks();
+    header.columns = scanner.nextInt();
+    if (header.coordinate) {
+      scanner.skipBlanks();
+      header.entries = scanner.nextLong();
+    } else {
+      header.entries = (long) header.rows * header.columns;
+    }
+    scanner.skipLine();
+    header.dataOffset = scanner.position();
+    if (header.rows < 0 || header.columns < 0 || header.entries < 0) {
+      throw new IOException("Negative matrix size!");
+    }
+    if (header.symmetry != 0 && header.rows != header.columns) {
+      throw new IOException("Symmetric matrices must be square!");
+    }
+    return header;
+  }
+
+  private static CsrDoubleMatrix readCoordinate(FileChannel channel,
+      Header header, int numSplits, ForkJoinPool pool) throws IOException {
+    long[] bounds = TextSplits.split(channel, header.dataOffset, numSplits);
+    int numSplitsUsed = bounds.length - 1;
+
+    // first pass, count the entries per row and split
+    List<Callable<int[]>> countTasks = new ArrayList<>();
+    long[] lines = new long[numSplitsUsed];
+    for (int i = 0; i < numSplitsUsed; i++) {
+      final int split = i;
+      countTasks.add(() -> {
+        int[] counts = new int[header.rows];
+        lines[split] = parseSplit(channel, bounds, split, header,
+            (row, col, value) -> {
+              counts[row]++;
+              if (header.symmetry != 0 && row != col) {
+                counts[col]++;
+              }
+            });
+        return counts;
+      });
+    }
+    List<int[]> counts = TextSplits.invokeAll(pool, countTasks);
+    long numLines = 0;
+    for (long l : lines) {
+      numLines += l;
+    }
+    if (numLines != header.entries) {
+      throw new IOException("Expected " + header.entries + " entries, but found "
+          + numLines + "!");
+    }
+
+    // turn the counts into the insert position of every split within a row
+    int[] rowPointers = new int[header.rows + 1];
+    long position = 0;
+    for (int row = 0; row < header.rows; row++) {
+      rowPointers[row] = (int) position;
+      for (int[] splitCounts : counts) {
+        int count = splitCounts[row];
+        splitCounts[row] = (int) position;
+        position += count;
+      }
+      if (position > Integer.MAX_VALUE) {
+        throw new IOException("More than " + Integer.MAX_VALUE
+            + " entries can't be stored in CSR format!");
+      }
+    }
+    int nnz = (int) position;
+    rowPointers[header.rows] = nnz;
+    int[] columnIndices = new int[nnz];
+    double[] values = new double[nnz];
+
+    // second pass, write every entry to its position
+    List<Callable<Long>> fillTasks = new ArrayList<>();
+    for (int i = 0; i < numSplitsUsed; i++) {
+      final int split = i;
+      final int[] next = counts.get(i);
+      fillTasks.add(() -> parseSplit(channel, bounds, split, header, (row,
+          col, value) -> {
+        int index = next[row]++;
+        columnIndices[index] = col;
+        values[index] = value;
+        if (header.symmetry != 0 && row != col) {
+          index = next[col]++;
+          columnIndices[index] = row;
+          values[index] = header.symmetry * value;
+        }
+      }));
+    }
+    TextSplits.invokeAll(pool, fillTasks);
+
+    // sort the rows by column in parallel and sum up duplicates
+    List<Callable<Boolean>> sortTasks = new ArrayList<>();
+    int rowsPerTask = Math.max(1, (header.rows + numSplitsUsed - 1)
+        / numSplitsUsed);
+    for (int start = 0; start < header.rows; start += rowsPerTask) {
+      final int from = start;
+      final int to = Math.min(header.rows, start + rowsPerTask);
+      sortTasks.add(() -> sortRows(rowPointers, columnIndices, values, from,
+          to));
+    }
+    boolean duplicates = false;
+    for (boolean d : TextSplits.invokeAll(pool, sortTasks)) {
+      duplicates |= d;
+    }
+    if (duplicates) {
+      return compact(header, rowPointers, columnIndices, values);
+    }
+    return new CsrDoubleMatrix(header.rows, header.columns, rowPointers,
+        columnIndices, values);
+  }
+
+  /**
+   * Receives a single entry of the coordinate format.
+   */
+  @FunctionalInterface
+  private interface EntryConsumer {
+    void accept(int row, int col, double value);
+  }
+
+  /**
+   * Parses all entries of the given split.
+   *
+   * @return the number of entry lines.
+   */
+  private static long parseSplit(FileChannel channel, long[] bounds,
+      int split, Header header, EntryConsumer consumer) throws IOException {
+    ByteBuffer buffer = TextSplits.map(channel, bounds, split);
+    AsciiScanner scanner = new AsciiScanner(buffer, 0, buffer.limit());
+    long lines = 0;
+    while (scanner.hasRemaining()) {
+      scanner.skipBlanks();
+      if (scanner.isLineEnd()) {
+        scanner.skipLine();
+        continue;
+      }
+      int start = scanner.position();
+      int row = scanner.nextInt() - 1;
+      scanner.skipBlanks();
+      int col = scanner.nextInt() - 1;
+      double value = 1d;
+      if (!header.pattern) {
+        scanner.skipBlanks();
+        value = scanner.nextDouble();
+      }
+      if (row < 0 || row >= header.rows || col < 0 || col >= header.columns) {
+        throw scanner.error("Entry out of the matrix bounds", start);
+      }
+      scanner.skipLine();
+      consumer.accept(row, col, value);
+      lines++;
+    }
+    return lines;
+  }
+
+  /**
+   * Sorts the given rows by their columns and sums up the values of duplicate
+   * columns into the first entry, the remaining duplicates get the column -1.
+   *
+   * @return true if there were duplicates.
+   */
+  private static boolean sortRows(int[] rowPointers, int[] columnIndices,
+      double[] values, int from, int to) {
+    boolean duplicates = false;
+    for (int row = from; row < to; row++) {
+      int start = rowPointers[row];
+      int end = rowPointers[row + 1];
+      boolean sorted = true;
+      for (int i = start + 1; i < end; i++) {
+        if (columnIndices[i - 1] >= columnIndices[i]) {
+          sorted = false;
+          break;
+        }
+      }
+      if (sorted) {
+        continue;
+      }
+      // sort the column together with the position of its value
+      long[] keys = new long[end - start];
+      for (int i = start; i < end; i++) {
+        keys[i - start] = ((long) columnIndices[i] << 32) | (i - start);
+      }
+      Arrays.sort(keys);
+      double[] rowValues = Arrays.copyOfRange(values, start, end);
+      int last = -1;
+      for (int i = 0; i < keys.length; i++) {
+        int col = (int) (keys[i] >>> 32);
+        double value = rowValues[(int) keys[i]];
+        if (last >= 0 && columnIndices[last] == col) {
+          values[last] += value;
+          columnIndices[start + i] = -1;
+          duplicates = true;
+        } else {
+          last = start + i;
+          columnIndices[last] = col;
+          values[last] = value;
+        }
+      }
+    }
+    return duplicates;
+  }
+
+  /**
+   * Removes the entries that were marked as duplicate by sortRows.
+   */
+  private static CsrDoubleMatrix compact(Header header, int[] rowPointers,
+      int[] columnIndices, double[] values) {
+    int write = 0;
+    int read = 0;
+    for (int row = 0; row < header.rows; row++) {
+      int end = rowPointers[row + 1];
+      rowPointers[row] = write;
+      for (; read < end; read++) {
+        if (columnIndices[read] >= 0) {
+          columnIndices[write] = columnIndices[read];
+          values[write++] = values[read];
+        }
+      }
+    }
+    rowPointers[header.rows] = write;
+    return new CsrDoubleMatrix(header.rows, header.columns, rowPointers,
+        Arrays.copyOf(columnIndices, write), Arrays.copyOf(values, write));
+  }
+
+  private static DenseDoubleMatrix readArray(FileChannel channel,
+      Header header) throws IOException {
+    if (header.entries > Integer.MAX_VALUE) {
+      throw new IOException("Dense matrix of " + header.rows + "x"
+          + header.columns + " exceeds the maximum array size!");
+    }
+    int rows = header.rows;
+    double[] columnMajor = new double[(int) header.entries];
+    // symmetric matrices only contain the lower triangle, skew-symmetric ones
+    // without the diagonal
+    long expected = header.entries;
+    if (header.symmetry == 1) {
+      expected = (long) rows * (rows + 1) / 2;
+    } else if (header.symmetry == -1) {
+      expected = (long) rows * (rows - 1) / 2;
+    }
+    int skip = header.symmetry == -1 ? 1 : 0;
+    long numEntries = 0;
+    int row = skip;
+    int col = 0;
+    long[] bounds = TextSplits.split(channel, header.dataOffset, 1);
+    for (int split = 0; split < bounds.length - 1; split++) {
+      ByteBuffer buffer = TextSplits.map(channel, bounds, split);
+      AsciiScanner scanner = new AsciiScanner(buffer, 0, buffer.limit());
+      while (scanner.hasRemaining()) {
+        scanner.skipBlanks();
+        if (scanner.isLineEnd()) {
+          scanner.skipLine();
+          continue;
+        }
+        if (numEntries++ == expected) {
+          throw scanner.error("More entries than the matrix size",
+              scanner.position());
+        }
+        double value = scanner.nextDouble();
+        scanner.skipLine();
+        columnMajor[row + col * rows] = value;
+        if (header.symmetry != 0) {
+          columnMajor[col + row * rows] = header.symmetry * value;
+        }
+        if (++row == rows) {
+          col++;
+          row = header.symmetry == 0 ? 0 : col + skip;
+        }
+      }
+    }
+    if (numEntries != expected) {
+      throw new IOException("Expected " + expected + " entries, but found "
+          + numEntries + "!");
+    }
+    return new DenseDoubleMatrix(rows, header.columns, columnMajor);
+  }
+
+}
@@ -0,0 +1,124 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.sparse.CsrDoubleMatrix;
+
+/**
+ * Writes matrices in the MatrixMarket exchange format, sparse matrices in the
+ * coordinate format and dense matrices in the array format. The entries are
+ * streamed row by row (or column by column for the array format) into a
+ * buffered channel, the matrix is never materialized as two dimensional array.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class MatrixMarketWriter {
+
+  private MatrixMarketWriter() {
+    throw new IllegalAccessError();
+  }
+
+  /**
+   * Writes the given matrix to the channel and closes it.
+   */
+  public static void write(DoubleMatrix matrix, WritableByteChannel channel)
+      throws IOException {
+    try (AsciiOutput out = new AsciiOutput(channel)) {
+      if (matrix.isSparse()) {
+        writeCoordinate(matrix, out);
+      } else {
+        writeArray(matrix, out);
+      }
+    }
+  }
+
+  private static void writeCoordinate(DoubleMatrix matrix, AsciiOutput out)
+      throws IOException {
+    out.writeString("%%MatrixMarket matrix coordinate real general\n");
+    writeSize(matrix, out);
+    if (matrix instanceof CsrDoubleMatrix) {
+      CsrDoubleMatrix csr = (CsrDoubleMatrix) matrix;
+      int[] rowPointers = csr.getRowPointers();
+      int[] columnIndices = csr.getColumnIndices();
+      double[] values = csr.getValues();
+      out.writeByte(' ');
+      out.writeLong(csr.getNumNonZeros());
+      out.writeByte('\n');
+      for (int row = 0; row < csr.getRowCount(); row++) {
+        for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+          writeEntry(out, row, columnIndices[i], values[i]);
+        }
+      }
+    } else {
+      int[] rowIndices = matrix.rowIndices();
+      Arrays.sort(rowIndices);
+      long nnz = 0;
+      for (int row : rowIndices) {
+        nnz += countNonZeros(matrix.getRowVector(row));
+      }
+      out.writeByte(' ');
+      out.writeLong(nnz);
+      out.writeByte('\n');
+      SparseEntries entries = new SparseEntries();
+      for (int row : rowIndices) {
+        entries.collect(matrix.getRowVector(row));
+        for (int i = 0; i < entries.length; i++) {
+          writeEntry(out, row, entries.indices[i], entries.values[i]);
+        }
+      }
+    }
+  }
+
+  private static void writeArray(DoubleMatrix matrix, AsciiOutput out)
+      throws IOException {
+    out.writeString("%%MatrixMarket matrix array real general\n");
+    writeSize(matrix, out);
+    out.writeByte('\n');
+    int rows = matrix.getRowCount();
+    if (matrix instanceof DenseDoubleMatrix) {
+      // the array format is column major as well
+      for (double value : ((DenseDoubleMatrix) matrix).getColumnMajorMatrix()) {
+        out.writeDouble(value);
+        out.writeByte('\n');
+      }
+    } else {
+      for (int col = 0; col < matrix.getColumnCount(); col++) {
+        DoubleVector column = matrix.getColumnVector(col);
+        for (int row = 0; row < rows; row++) {
+          out.writeDouble(column.get(row));
+          out.writeByte('\n');
+        }
+      }
+    }
+  }
+
+  private static void writeSize(DoubleMatrix matrix, AsciiOutput out)
+      throws IOException {
+    out.writeLong(matrix.getRowCount());
+    out.writeByte(' ');
+    out.writeLong(matrix.getColumnCount());
+  }
+
+  private static void writeEntry(AsciiOutput out, int row, int col,
+      double value) throws IOException {
+    out.writeLong(row + 1L);
+    out.writeByte(' ');
+    out.writeLong(col + 1L);
+    out.writeByte(' ');
+    out.writeDouble(value);
+    out.writeByte('\n');
+  }
+
+  private static int countNonZeros(DoubleVector vector) {
+    int[] count = new int[1];
+    vector.forEachNonZero((index, value) -> count[0]++);
+    return count[0];
+  }
+
+}
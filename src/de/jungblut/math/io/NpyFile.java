@@ -0,0 +1,455 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.dense.MappedDoubleMatrix;
+import de.jungblut.math.dense.MappedDoubleMatrix.Order;
+
+/**
+ * Reads and writes NumPy's .npy format for float64 and float32 arrays, float32
+ * values are widened to double. Two dimensional arrays are read into a
+ * {@link DenseDoubleMatrix}, one dimensional arrays into a
+ * {@link DenseDoubleVector} or a matrix with a single row. <br/>
+ * <br/>
+ * Fortran ordered arrays have the same column major layout as the
+ * {@link DenseDoubleMatrix}, so they are read in bulk without any conversion
+ * and matrices are always written in Fortran order. C ordered arrays are
+ * transposed while reading. Float64 files can be mapped into memory as
+ * {@link MappedDoubleMatrix} in either order, without reading them at all.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class NpyFile {
+
+  private static final byte[] MAGIC = new byte[] { (byte) 0x93, 'N', 'U',
+      'M', 'P', 'Y' };
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int HEADER_ALIGNMENT = 64;
+
+  private static final Pattern DESCR = Pattern
+      .compile("'descr'\\s*:\\s*'([<>|=])([a-z])(\\d+)'");
+  private static final Pattern FORTRAN_ORDER = Pattern
+      .compile("'fortran_order'\\s*:\\s*(True|False)");
+  private static final Pattern SHAPE = Pattern
+      .compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+  private NpyFile() {
+    throw new IllegalAccessError();
+  }
+
+  /**
+   * Reads a one or two dimensional array from the given file.
+   */
+  public static DenseDoubleMatrix readMatrix(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return readMatrix(channel);
+    }
+  }
+
+  /**
+   * Reads a one or two dimensional array from the given channel, a one
+   * dimensional array becomes a matrix with a single row.
+   */
+  public static DenseDoubleMatrix readMatrix(ReadableByteChannel channel)
+      throws IOException {
+    Header header = readHeader(channel);
+    int rows = header.rows();
+    int columns = header.columns();
+    double[] columnMajor = new double[checkedLength(header)];
+    if (header.fortranOrder || rows == 1 || columns == 1) {
+      readValues(channel, header, columnMajor);
+    } else {
+      readTransposed(channel, header, columnMajor, rows, columns);
+    }
+    return new DenseDoubleMatrix(rows, columns, columnMajor);
+  }
+
+  /**
+   * Reads a one dimensional array, or a two dimensional array with a single
+   * row or column, from the given file.
+   */
+  public static DenseDoubleVector readVector(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return readVector(channel);
+    }
+  }
+
+  /**
+   * Reads a one dimensional array, or a two dimensional array with a single
+   * row or column, from the given channel.
+   */
+  public static DenseDoubleVector readVector(ReadableByteChannel channel)
+      throws IOException {
+    Header header = readHeader(channel);
+    if (header.rows() != 1 && header.columns() != 1) {
+      throw new IOException("Can't read an array of shape "
+          + header.shapeString() + " as vector!");
+    }
+    DenseDoubleVector vector = new DenseDoubleVector(checkedLength(header));
+    // toArray returns the backing array, so we can read into it directly
+    readValues(channel, header, vector.toArray());
+    return vector;
+  }
+
+  /**
+   * Reads all arrays of the given .npz archive, compressed or not.
+   *
+   * @return the arrays by their name without the .npy suffix, in the order of
+   *         the archive.
+   */
+  public static Map<String, DenseDoubleMatrix> readNpz(Path file)
+      throws IOException {
+    Map<String, DenseDoubleMatrix> arrays = new LinkedHashMap<>();
+    try (InputStream in = Files.newInputStream(file);
+        ZipInputStream zip = new ZipInputStream(in)) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        String name = entry.getName();
+        if (name.endsWith(".npy")) {
+          name = name.substring(0, name.length() - 4);
+        }
+        // the channel must not close the zip stream
+        arrays.put(name, readMatrix(Channels.newChannel(new EntryStream(zip))));
+      }
+    }
+    return arrays;
+  }
+
+  /**
+   * Maps a two dimensional float64 array into memory, C ordered arrays are
+   * mapped row major and Fortran ordered arrays column major.
+   *
+   * @param file the file to map.
+   * @param writable true if changes to the matrix should be written through to
+   *          the file.
+   */
+  public static MappedDoubleMatrix map(Path file, boolean writable)
+      throws IOException {
+    Header header;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      header = readHeader(channel);
+    }
+    if (header.type != 'f' || header.size != 8) {
+      throw new IOException("Only float64 arrays can be mapped, but found "
+          + header.type + header.size + "!");
+    }
+    return new MappedDoubleMatrix(file, header.dataOffset, header.rows(),
+        header.columns(), header.fortranOrder ? Order.COLUMN_MAJOR
+            : Order.ROW_MAJOR, header.byteOrder, writable);
+  }
+
+  /**
+   * Writes the given matrix as two dimensional little endian float64 array in
+   * Fortran order.
+   */
+  public static void write(DoubleMatrix matrix, Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      write(matrix, channel);
+    }
+  }
+
+  /**
+   * Writes the given matrix as two dimensional little endian float64 array in
+   * Fortran order.
+   */
+  public static void write(DoubleMatrix matrix, WritableByteChannel channel)
+      throws IOException {
+    int rows = matrix.getRowCount();
+    int columns = matrix.getColumnCount();
+    writeHeader(channel, true, "(" + rows + ", " + columns + ")");
+    ByteBuffer buffer = newBuffer(ByteOrder.LITTLE_ENDIAN);
+    if (matrix instanceof DenseDoubleMatrix) {
+      double[] values = ((DenseDoubleMatrix) matrix).getColumnMajorMatrix();
+      writeValues(channel, buffer, values, values.length);
+    } else {
+      for (int col = 0; col < columns; col++) {
+        writeValues(channel, buffer, matrix.getColumnVector(col).toArray(),
+            rows);
+      }
+    }
+  }
+
+  /**
+   * Writes the given vector as one dimensional little endian float64 array.
+   */
+  public static void write(DoubleVector vector, Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      write(vector, channel);
+    }
+  }
+
+  /**
+   * Writes the given vector as one dimensional little endian float64 array.
+   */
+  public static void write(DoubleVector vector, WritableByteChannel channel)
+      throws IOException {
+    writeHeader(channel, false, "(" + vector.getDimension() + ",)");
+    writeValues(channel, newBuffer(ByteOrder.LITTLE_ENDIAN), vector.toArray(),
+        vector.getDimension());
+  }
+
+  /**
+   * The parsed header of a .npy file.
+   */
+  static final class Header {
+    ByteOrder byteOrder;
+    char type;
+    int size;
+    boolean fortranOrder;
+    long[] shape;
+    long dataOffset;
+
+    int rows() {
+      return shape.length == 2 ? (int) shape[0] : 1;
+    }
+
+    int columns() {
+      return shape.length == 2 ? (int) shape[1] : (int) shape[0];
+    }
+
+    String shapeString() {
+      StringBuilder sb = new StringBuilder("(");
+      for (long dim : shape) {
+        sb.append(dim).append(',');
+      }
+      return sb.append(')').toString();
+    }
+  }
+
+  static Header readHeader(ReadableByteChannel channel) throws IOException {
+    ByteBuffer prefix = ByteBuffer.allocate(MAGIC.length + 2).order(
+        ByteOrder.LITTLE_ENDIAN);
+    readFully(channel, prefix);
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (prefix.get(i) != MAGIC[i]) {
+        throw new IOException("Not a .npy file, the magic string is missing!");
+      }
+    }
+    int major = prefix.get(MAGIC.length);
+    ByteBuffer length = ByteBuffer.allocate(major == 1 ? 2 : 4).order(
+        ByteOrder.LITTLE_ENDIAN);
+    if (major < 1 || major > 3) {
+      throw new IOException("Unsupported .npy version " + major + "!");
+    }
+    readFully(channel, length);
+    int headerLength = major == 1 ? length.getShort(0) & 0xFFFF : length
+        .getInt(0);
+    if (headerLength < 0) {
+      throw new IOException("Corrupt header length " + headerLength + "!");
+    }
+    ByteBuffer dict = ByteBuffer.allocate(headerLength);
+    readFully(channel, dict);
+    String text = new String(dict.array(), major == 3 ? StandardCharsets.UTF_8
+        : StandardCharsets.ISO_8859_1);
+
+    Header header = new Header();
+    header.dataOffset = prefix.capacity() + length.capacity() + headerLength;
+    Matcher descr = DESCR.matcher(text);
+    Matcher fortran = FORTRAN_ORDER.matcher(text);
+    Matcher shape = SHAPE.matcher(text);
+    if (!descr.find() || !fortran.find() || !shape.find()) {
+      throw new IOException("Malformed header " + text.trim() + "!");
+    }
+    header.byteOrder = descr.group(1).equals(">") ? ByteOrder.BIG_ENDIAN
+        : descr.group(1).equals("=") ? ByteOrder.nativeOrder()
+            : ByteOrder.LITTLE_ENDIAN;
+    header.type = descr.group(2).charAt(0);
+    header.size = Integer.parseInt(descr.group(3));
+    if (header.type != 'f' || (header.size != 8 && header.size != 4)) {
+      throw new IOException("Unsupported dtype " + descr.group(0)
+          + ", only float64 and float32 are supported!");
+    }
+    header.fortranOrder = fortran.group(1).equals("True");
+    String[] dims = shape.group(1).split(",");
+    int numDims = 0;
+    long[] parsed = new long[dims.length];
+    for (String dim : dims) {
+      if (!dim.trim().isEmpty()) {
+        parsed[numDims++] = Long.parseLong(dim.trim());
+      }
+    }
+    if (numDims < 1 || numDims > 2) {
+      throw new IOException("Only one or two dimensional arrays are supported,"
+          + " but found shape (" + shape.group(1) + ")!");
+    }
+    header.shape = new long[numDims];
+    System.arraycopy(parsed, 0, header.shape, 0, numDims);
+    for (long dim : header.shape) {
+      if (dim < 0 || dim > Integer.MAX_VALUE) {
+        throw new IOException("Unsupported shape (" + shape.group(1) + ")!");
+      }
+    }
+    return header;
+  }
+
+  private static int checkedLength(Header header) throws IOException {
+    long length = (long) header.rows() * header.columns();
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Array of shape " + header.shapeString()
+          + " exceeds the maximum array size, use map() instead!");
+    }
+    return (int) length;
+  }
+
+  /**
+   * Reads the values in the order of the file.
+   */
+  private static void readValues(ReadableByteChannel channel, Header header,
+      double[] values) throws IOException {
+    ByteBuffer buffer = newBuffer(header.byteOrder);
+    int perBuffer = buffer.capacity() / header.size;
+    for (int offset = 0; offset < values.length; offset += perBuffer) {
+      int length = Math.min(perBuffer, values.length - offset);
+      readChunk(channel, buffer, length * header.size);
+      if (header.size == 8) {
+        buffer.asDoubleBuffer().get(values, offset, length);
+      } else {
+        for (int i = 0; i < length; i++) {
+          values[offset + i] = buffer.getFloat(i * 4);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the row major values of a C ordered array into the column major
+   * array.
+   */
+  private static void readTransposed(ReadableByteChannel channel,
+      Header header, double[] columnMajor, int rows, int columns)
+      throws IOException {
+    ByteBuffer buffer = newBuffer(header.byteOrder);
+    int perBuffer = buffer.capacity() / header.size;
+    int row = 0;
+    int col = 0;
+    for (int offset = 0; offset < columnMajor.length; offset += perBuffer) {
+      int length = Math.min(perBuffer, columnMajor.length - offset);
+      readChunk(channel, buffer, length * header.size);
+      for (int i = 0; i < length; i++) {
+        columnMajor[row + col * rows] = header.size == 8 ? buffer
+            .getDouble(i * 8) : buffer.getFloat(i * 4);
+        if (++col == columns) {
+          col = 0;
+          row++;
+        }
+      }
+    }
+  }
+
+  private static void writeHeader(WritableByteChannel channel,
+      boolean fortranOrder, String shape) throws IOException {
+    StringBuilder dict = new StringBuilder();
+    dict.append("{'descr': '<f8', 'fortran_order': ")
+        .append(fortranOrder ? "True" : "False").append(", 'shape': ")
+        .append(shape).append(", }");
+    // the data starts aligned, the header is padded with spaces and a newline
+    int prefix = MAGIC.length + 2 + 2;
+    int total = prefix + dict.length() + 1;
+    int padded = (total + HEADER_ALIGNMENT - 1) / HEADER_ALIGNMENT
+        * HEADER_ALIGNMENT;
+    for (int i = total; i < padded; i++) {
+      dict.append(' ');
+    }
+    dict.append('\n');
+    byte[] text = dict.toString().getBytes(StandardCharsets.ISO_8859_1);
+    ByteBuffer header = ByteBuffer.allocate(prefix + text.length).order(
+        ByteOrder.LITTLE_ENDIAN);
+    header.put(MAGIC).put((byte) 1).put((byte) 0)
+        .putShort((short) text.length).put(text);
+    ((Buffer) header).flip();
+    writeFully(channel, header);
+  }
+
+  private static void writeValues(WritableByteChannel channel,
+      ByteBuffer buffer, double[] values, int length) throws IOException {
+    int perBuffer = buffer.capacity() / 8;
+    for (int offset = 0; offset < length; offset += perBuffer) {
+      int chunk = Math.min(perBuffer, length - offset);
+      ((Buffer) buffer).clear();
+      buffer.asDoubleBuffer().put(values, offset, chunk);
+      ((Buffer) buffer).limit(chunk * 8);
+      writeFully(channel, buffer);
+    }
+  }
+
+  private static ByteBuffer newBuffer(ByteOrder order) {
+    return ByteBuffer.allocate(BUFFER_SIZE).order(order);
+  }
+
+  /**
+   * Reads the given number of bytes into the beginning of the buffer.
+   */
+  private static void readChunk(ReadableByteChannel channel, ByteBuffer buffer,
+      int bytes) throws IOException {
+    ((Buffer) buffer).clear();
+    ((Buffer) buffer).limit(bytes);
+    readFully(channel, buffer);
+    ((Buffer) buffer).flip();
+  }
+
+  private static void readFully(ReadableByteChannel channel, ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of the array data!");
+      }
+    }
+  }
+
+  private static void writeFully(WritableByteChannel channel,
+      ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Reads the current entry of a zip stream, without closing it.
+   */
+  private static final class EntryStream extends InputStream {
+
+    private final ZipInputStream zip;
+
+    EntryStream(ZipInputStream zip) {
+      this.zip = zip;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return zip.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return zip.read(b, off, len);
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+package de.jungblut.math.io;
+
+import java.util.Arrays;
+
+import de.jungblut.math.DoubleVector;
+
+/**
+ * Reusable scratch space for the non-zero entries of a vector, sorted
+ * ascending by their index.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class SparseEntries {
+
+  int[] indices;
+  double[] values;
+  int length;
+
+  SparseEntries() {
+    this(16);
+  }
+
+  SparseEntries(int capacity) {
+    this.indices = new int[capacity];
+    this.values = new double[capacity];
+  }
+
+  /**
+   * Collects the non-zero entries of the given vector, replacing the previous
+   * content.
+   */
+  void collect(DoubleVector vector) {
+    int capacity = vector.getLength();
+    if (indices.length < capacity) {
+      indices = new int[capacity];
+      values = new double[capacity];
+    }
+    length = 0;
+    boolean[] unordered = new boolean[1];
+    vector.forEachNonZero((index, value) -> {
+      if (length > 0 && indices[length - 1] >= index) {
+        unordered[0] = true;
+      }
+      indices[length] = index;
+      values[length++] = value;
+    });
+    if (unordered[0]) {
+      // hash based vectors iterate in arbitrary order
+      Arrays.sort(indices, 0, length);
+      for (int i = 0; i < length; i++) {
+        values[i] = vector.get(indices[i]);
+      }
+    }
+  }
+
+}
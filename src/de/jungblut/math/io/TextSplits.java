@@ -0,0 +1,148 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a text file into byte ranges that start at the beginning of a line,
+ * so they can be mapped into memory and parsed independently.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class TextSplits {
+
+  /**
+   * The maximum size of a single split, a mapped buffer can't exceed 2GB.
+   */
+  static final long MAX_SPLIT_SIZE = 1L << 30;
+
+  private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+  private TextSplits() {
+    throw new IllegalAccessError();
+  }
+
+  /**
+   * Computes the boundaries of roughly equally sized splits of the given file
+   * region. Every boundary except the first one is the offset directly after a
+   * line break. There are at least as many splits as needed to keep every
+   * split below {@link #MAX_SPLIT_SIZE}, unless a single line is longer.
+   *
+   * @param channel the file to split.
+   * @param start the offset where the region begins.
+   * @param numSplits the desired number of splits.
+   * @return the ascending boundaries, split i is [bounds[i], bounds[i+1]).
+   */
+  static long[] split(FileChannel channel, long start, int numSplits)
+      throws IOException {
+    long size = channel.size();
+    long length = size - start;
+    int splits = (int) Math.max(Math.max(1, numSplits),
+        (length + MAX_SPLIT_SIZE - 1) / MAX_SPLIT_SIZE);
+    long[] bounds = new long[splits + 1];
+    int numBounds = 1;
+    bounds[0] = start;
+    ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    for (int i = 1; i < splits; i++) {
+      long nominal = Math.max(start + length * i / splits,
+          bounds[numBounds - 1]);
+      long bound = nextLineStart(channel, nominal, size, scan);
+      if (bound > bounds[numBounds - 1] && bound < size) {
+        bounds[numBounds++] = bound;
+      }
+    }
+    bounds[numBounds++] = size;
+    if (numBounds < bounds.length) {
+      long[] trimmed = new long[numBounds];
+      System.arraycopy(bounds, 0, trimmed, 0, numBounds);
+      return trimmed;
+    }
+    return bounds;
+  }
+
+  /**
+   * Maps the given split of the file read-only into memory.
+   */
+  static MappedByteBuffer map(FileChannel channel, long[] bounds, int split)
+      throws IOException {
+    long length = bounds[split + 1] - bounds[split];
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Line at offset " + bounds[split]
+          + " is too long to be mapped!");
+    }
+    return channel.map(MapMode.READ_ONLY, bounds[split], length);
+  }
+
+  /**
+   * Runs the given tasks on the pool and waits for their results, unwrapping
+   * {@link IOException}s and runtime exceptions thrown by a task.
+   */
+  static <T> List<T> invokeAll(ForkJoinPool pool,
+      List<? extends Callable<T>> tasks) throws IOException {
+    List<T> results = new ArrayList<>(tasks.size());
+    try {
+      for (Future<T> future : pool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading splits!", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      // the pool wraps checked exceptions of a callable, possibly twice when
+      // they are rethrown on another thread
+      Throwable unwrapped = cause;
+      while (unwrapped != null && unwrapped.getClass() == RuntimeException.class) {
+        unwrapped = unwrapped.getCause();
+      }
+      if (unwrapped instanceof IOException) {
+        cause = unwrapped;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+    return results;
+  }
+
+  /**
+   * @return the offset after the first line break at or after the given
+   *         offset minus one, or the size of the file if there is none.
+   */
+  private static long nextLineStart(FileChannel channel, long offset,
+      long size, ByteBuffer scan) throws IOException {
+    long position = Math.max(0, offset - 1);
+    while (position < size) {
+      // cast, because java 9 overrides clear with a covariant return type
+      ((Buffer) scan).clear();
+      int read = channel.read(scan, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (scan.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+}
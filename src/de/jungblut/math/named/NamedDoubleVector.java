@@ -5,6 +5,7 @@ import java.util.Iterator;
 import de.jungblut.math.DoubleVector;
 import de.jungblut.math.function.DoubleDoubleVectorFunction;
 import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
 
 /**
  * A named vector that contains a string name and an embedded double vector.
@@ -140,6 +141,36 @@ public final class NamedDoubleVector implements DoubleVector {
     return vector.sqrt();
   }
 
+  @Override
+  public DoubleVector addInPlace(DoubleVector v) {
+    vector.addInPlace(v);
+    return this;
+  }
+
+  @Override
+  public DoubleVector subtractInPlace(DoubleVector v) {
+    vector.subtractInPlace(v);
+    return this;
+  }
+
+  @Override
+  public DoubleVector scaleInPlace(double scalar) {
+    vector.scaleInPlace(scalar);
+    return this;
+  }
+
+  @Override
+  public DoubleVector axpy(double alpha, DoubleVector x) {
+    vector.axpy(alpha, x);
+    return this;
+  }
+
+  @Override
+  public DoubleVector applyInPlace(DoubleVectorFunction func) {
+    vector.applyInPlace(func);
+    return this;
+  }
+
   @Override
   public double sum() {
     return vector.sum();
@@ -210,6 +241,16 @@ public final class NamedDoubleVector implements DoubleVector {
     return vector.iterate();
   }
 
+  @Override
+  public void forEachNonZero(IntDoubleConsumer consumer) {
+    vector.forEachNonZero(consumer);
+  }
+
+  @Override
+  public void forEach(IntDoubleConsumer consumer) {
+    vector.forEach(consumer);
+  }
+
   @Override
   public boolean isSparse() {
     return vector.isSparse();
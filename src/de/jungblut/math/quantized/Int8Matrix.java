@@ -0,0 +1,182 @@
+package de.jungblut.math.quantized;
+
+import java.util.Arrays;
+
+import de.jungblut.math.DoubleVector;
+
+/**
+ * Table of {@link Int8Vector} rows of the same dimension for large indices.
+ * The codes of all rows are stored back to back in a few large byte arrays,
+ * so a row takes its dimension in bytes plus 32 bytes for scale, offset and
+ * cached sums, without any per-row object. Arrays are limited to 2^31 bytes,
+ * so the rows are split into chunks of up to 2^30 bytes.<br/>
+ * <br/>
+ * Writing different rows concurrently is safe, a row must not be read while
+ * it is written.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class Int8Matrix {
+
+  private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+  private final int numRows;
+  private final int dimension;
+  private final int rowsPerChunk;
+  private final byte[][] chunks;
+  private final double[] scales;
+  private final double[] offsets;
+  private final long[] codeSums;
+  private final double[] squaredNorms;
+
+  /**
+   * Creates a new matrix where every row is zero.
+   *
+   * @param numRows the number of rows.
+   * @param dimension the dimension of every row.
+   */
+  public Int8Matrix(int numRows, int dimension) {
+    this.numRows = numRows;
+    this.dimension = dimension;
+    this.rowsPerChunk = Math.max(1, MAX_CHUNK_BYTES / Math.max(1, dimension));
+    int numChunks = (numRows + rowsPerChunk - 1) / rowsPerChunk;
+    this.chunks = new byte[numChunks][];
+    for (int i = 0; i < numChunks; i++) {
+      int rows = Math.min(rowsPerChunk, numRows - i * rowsPerChunk);
+      chunks[i] = new byte[rows * dimension];
+    }
+    this.scales = new double[numRows];
+    this.offsets = new double[numRows];
+    this.codeSums = new long[numRows];
+    this.squaredNorms = new double[numRows];
+  }
+
+  /**
+   * Quantizes the given vector into the given row.
+   */
+  public void set(int row, DoubleVector vector) {
+    if (vector.getDimension() != dimension) {
+      throw new IllegalArgumentException("Dimension " + vector.getDimension()
+          + " does not match the row dimension " + dimension);
+    }
+    double[] scaleAndOffset = new double[2];
+    byte[] chunk = chunk(row);
+    int from = from(row);
+    Int8Vector.quantize(vector, chunk, from, scaleAndOffset);
+    updateRow(row, chunk, from, scaleAndOffset[0], scaleAndOffset[1]);
+  }
+
+  /**
+   * Copies the given quantized vector into the given row.
+   */
+  public void set(int row, Int8Vector vector) {
+    if (vector.getDimension() != dimension) {
+      throw new IllegalArgumentException("Dimension " + vector.getDimension()
+          + " does not match the row dimension " + dimension);
+    }
+    byte[] chunk = chunk(row);
+    int from = from(row);
+    System.arraycopy(vector.getCodes(), 0, chunk, from, dimension);
+    updateRow(row, chunk, from, vector.getScale(), vector.getOffset());
+  }
+
+  /**
+   * @return the reconstructed value at the given row and column.
+   */
+  public double get(int row, int col) {
+    return offsets[row] + scales[row] * chunk(row)[from(row) + col];
+  }
+
+  /**
+   * @return a copy of the given row.
+   */
+  public Int8Vector getRow(int row) {
+    int from = from(row);
+    return new Int8Vector(Arrays.copyOfRange(chunk(row), from, from
+        + dimension), scales[row], offsets[row]);
+  }
+
+  /**
+   * Computes the dot product between the given row and the quantized query in
+   * integer arithmetic.
+   */
+  public double dot(int row, Int8Vector query) {
+    long codeProducts = Int8Vector.dotCodes(chunk(row), from(row),
+        query.getCodes(), 0, dimension);
+    return Int8Vector.dot(dimension, scales[row], offsets[row], codeSums[row],
+        query.getScale(), query.getOffset(), query.codeSum(), codeProducts);
+  }
+
+  /**
+   * Computes the dot product between the given row and the full precision
+   * query.
+   */
+  public double dot(int row, DoubleVector query) {
+    return Int8Vector.dot(chunk(row), from(row), dimension, scales[row],
+        offsets[row], query);
+  }
+
+  /**
+   * Computes the squared euclidean distance between the given row and the
+   * quantized query in integer arithmetic.
+   */
+  public double squaredEuclidean(int row, Int8Vector query) {
+    return Math.max(0d,
+        squaredNorms[row] + query.squaredNorm() - 2d * dot(row, query));
+  }
+
+  /**
+   * Computes the squared euclidean distance between the given row and the
+   * full precision query. Scans over many rows should compute the squared norm
+   * of the query once and use
+   * {@link #squaredEuclidean(int, DoubleVector, double)}.
+   */
+  public double squaredEuclidean(int row, DoubleVector query) {
+    return squaredEuclidean(row, query, query.dot(query));
+  }
+
+  /**
+   * Computes the squared euclidean distance between the given row and the
+   * full precision query, whose squared norm is already known.
+   */
+  public double squaredEuclidean(int row, DoubleVector query,
+      double querySquaredNorm) {
+    return Math.max(0d,
+        squaredNorms[row] + querySquaredNorm - 2d * dot(row, query));
+  }
+
+  /**
+   * @return the maximum absolute error of a single element in the given row.
+   */
+  public double getMaxError(int row) {
+    return scales[row] / 2d;
+  }
+
+  public int getRowCount() {
+    return numRows;
+  }
+
+  public int getDimension() {
+    return dimension;
+  }
+
+  private void updateRow(int row, byte[] chunk, int from, double scale,
+      double offset) {
+    long codeSum = Int8Vector.codeSum(chunk, from, dimension);
+    scales[row] = scale;
+    offsets[row] = offset;
+    codeSums[row] = codeSum;
+    squaredNorms[row] = Int8Vector.squaredNorm(dimension, scale, offset,
+        codeSum, Int8Vector.dotCodes(chunk, from, chunk, from, dimension));
+  }
+
+  private byte[] chunk(int row) {
+    return chunks[row / rowsPerChunk];
+  }
+
+  private int from(int row) {
+    return (row % rowsPerChunk) * dimension;
+  }
+
+}
@@ -0,0 +1,311 @@
+package de.jungblut.math.quantized;
+
+import java.util.Arrays;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+
+/**
+ * Vector that stores every element in a single byte, it takes an eighth of the
+ * memory of a {@link DenseDoubleVector}. The range [min, max] of the source
+ * vector is split into 256 equal steps, an element is reconstructed as offset
+ * + scale * code with codes from -128 to 127. The error of every element is
+ * thus at most scale / 2, see {@link #getMaxError()}.<br/>
+ * <br/>
+ * Dot products and distances between two quantized vectors only multiply and
+ * add the codes in integer arithmetic, scale and offset are applied once at
+ * the end. To score many vectors against a full precision query, quantize the
+ * query once with {@link #quantize(DoubleVector)} and compare against that.
+ * Instances are immutable.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class Int8Vector {
+
+  /**
+   * Number of elements whose code products are summed in an int, 2^16
+   * products of at most 2^14 can't overflow.
+   */
+  private static final int INT_BLOCK = 1 << 16;
+
+  private final byte[] codes;
+  private final double scale;
+  private final double offset;
+  // cached for the dot products and distances
+  private final long codeSum;
+  private final double squaredNorm;
+
+  /**
+   * Creates a new vector over the given codes, the array is not copied.
+   *
+   * @param codes the quantized elements.
+   * @param scale the distance between two consecutive codes.
+   * @param offset the value of the code zero.
+   */
+  public Int8Vector(byte[] codes, double scale, double offset) {
+    this.codes = codes;
+    this.scale = scale;
+    this.offset = offset;
+    this.codeSum = codeSum(codes, 0, codes.length);
+    this.squaredNorm = squaredNorm(codes.length, scale, offset, codeSum,
+        dotCodes(codes, 0, codes, 0, codes.length));
+  }
+
+  /**
+   * Quantizes the given vector, sparse vectors are quantized with their zeros.
+   *
+   * @param vector the vector to quantize.
+   * @return a new quantized vector with the dimension of the given vector.
+   */
+  public static Int8Vector quantize(DoubleVector vector) {
+    byte[] codes = new byte[vector.getDimension()];
+    double[] scaleAndOffset = new double[2];
+    quantize(vector, codes, 0, scaleAndOffset);
+    return new Int8Vector(codes, scaleAndOffset[0], scaleAndOffset[1]);
+  }
+
+  /**
+   * @return the dimension of this vector.
+   */
+  public int getDimension() {
+    return codes.length;
+  }
+
+  /**
+   * @return the reconstructed value at the given index.
+   */
+  public double get(int index) {
+    return offset + scale * codes[index];
+  }
+
+  /**
+   * @return the backing codes, not a copy.
+   */
+  public byte[] getCodes() {
+    return codes;
+  }
+
+  public double getScale() {
+    return scale;
+  }
+
+  public double getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return the maximum absolute error of a single element, half of a
+   *         quantization step.
+   */
+  public double getMaxError() {
+    return scale / 2d;
+  }
+
+  /**
+   * @return the squared euclidean distance between the given original vector
+   *         and the reconstruction of this vector.
+   */
+  public double quantizationError(DoubleVector original) {
+    double error = 0d;
+    for (int i = 0; i < codes.length; i++) {
+      double diff = original.get(i) - get(i);
+      error += diff * diff;
+    }
+    return error;
+  }
+
+  /**
+   * Computes the dot product of both reconstructed vectors in integer
+   * arithmetic.
+   */
+  public double dot(Int8Vector other) {
+    return dot(codes.length, scale, offset, codeSum, other.scale,
+        other.offset, other.codeSum,
+        dotCodes(codes, 0, other.codes, 0, codes.length));
+  }
+
+  /**
+   * Computes the dot product of the reconstruction of this vector and the
+   * given full precision vector.
+   */
+  public double dot(DoubleVector query) {
+    return dot(codes, 0, codes.length, scale, offset, query);
+  }
+
+  /**
+   * Computes the squared euclidean distance of both reconstructed vectors in
+   * integer arithmetic.
+   */
+  public double squaredEuclidean(Int8Vector other) {
+    return Math.max(0d, squaredNorm + other.squaredNorm - 2d * dot(other));
+  }
+
+  /**
+   * Computes the squared euclidean distance between the reconstruction of this
+   * vector and the given full precision vector. Scans over many vectors should
+   * compute the squared norm of the query once and use
+   * {@link #squaredEuclidean(DoubleVector, double)}.
+   */
+  public double squaredEuclidean(DoubleVector query) {
+    return squaredEuclidean(query, query.dot(query));
+  }
+
+  /**
+   * Computes the squared euclidean distance between the reconstruction of this
+   * vector and the given full precision vector, whose squared norm is already
+   * known.
+   */
+  public double squaredEuclidean(DoubleVector query, double querySquaredNorm) {
+    return Math.max(0d, squaredNorm + querySquaredNorm - 2d * dot(query));
+  }
+
+  /**
+   * @return the squared norm of the reconstructed vector.
+   */
+  public double squaredNorm() {
+    return squaredNorm;
+  }
+
+  /**
+   * @return the sum of the codes.
+   */
+  long codeSum() {
+    return codeSum;
+  }
+
+  /**
+   * @return a new dense vector with the reconstructed values.
+   */
+  public DenseDoubleVector toDoubleVector() {
+    DenseDoubleVector v = new DenseDoubleVector(codes.length);
+    double[] array = v.toArray();
+    for (int i = 0; i < codes.length; i++) {
+      array[i] = offset + scale * codes[i];
+    }
+    return v;
+  }
+
+  /**
+   * Quantizes the given vector into codes[from, from + dimension).
+   *
+   * @param scaleAndOffset receives the scale at index 0 and the offset at
+   *          index 1.
+   */
+  static void quantize(DoubleVector vector, byte[] codes, int from,
+      double[] scaleAndOffset) {
+    int dimension = vector.getDimension();
+    if (dimension == 0) {
+      scaleAndOffset[0] = 0d;
+      scaleAndOffset[1] = 0d;
+      return;
+    }
+    double min;
+    double max;
+    if (vector.isSparse()) {
+      // the zeros are part of the range, unless the vector is full
+      double[] range = new double[] { Double.MAX_VALUE, -Double.MAX_VALUE };
+      vector.forEachNonZero((index, value) -> {
+        range[0] = Math.min(range[0], value);
+        range[1] = Math.max(range[1], value);
+      });
+      min = vector.getLength() < dimension ? Math.min(range[0], 0d) : range[0];
+      max = vector.getLength() < dimension ? Math.max(range[1], 0d) : range[1];
+    } else {
+      min = vector.min();
+      max = vector.max();
+    }
+    double scale = (max - min) / 255d;
+    double offset = min + 128d * scale;
+    scaleAndOffset[0] = scale;
+    scaleAndOffset[1] = offset;
+    if (scale == 0d) {
+      // constant vector, every code is zero
+      scaleAndOffset[1] = min;
+      Arrays.fill(codes, from, from + dimension, (byte) 0);
+      return;
+    }
+    if (vector.isSparse()) {
+      byte zero = code(0d, min, scale);
+      Arrays.fill(codes, from, from + dimension, zero);
+      vector.forEachNonZero((index, value) -> codes[from + index] = code(value,
+          min, scale));
+    } else {
+      for (int i = 0; i < dimension; i++) {
+        codes[from + i] = code(vector.get(i), min, scale);
+      }
+    }
+  }
+
+  private static byte code(double value, double min, double scale) {
+    long step = Math.round((value - min) / scale);
+    return (byte) (Math.max(0L, Math.min(255L, step)) - 128L);
+  }
+
+  static long codeSum(byte[] codes, int from, int length) {
+    long sum = 0;
+    for (int i = from; i < from + length; i++) {
+      sum += codes[i];
+    }
+    return sum;
+  }
+
+  /**
+   * @return the sum of the products of the codes of both ranges.
+   */
+  static long dotCodes(byte[] a, int aFrom, byte[] b, int bFrom, int length) {
+    long sum = 0;
+    for (int block = 0; block < length; block += INT_BLOCK) {
+      int end = Math.min(length, block + INT_BLOCK);
+      int blockSum = 0;
+      for (int i = block; i < end; i++) {
+        blockSum += a[aFrom + i] * b[bFrom + i];
+      }
+      sum += blockSum;
+    }
+    return sum;
+  }
+
+  /**
+   * Expands sum((oa + sa * a_i) * (ob + sb * b_i)) into the sums of the codes.
+   */
+  static double dot(int length, double scaleA, double offsetA, long codeSumA,
+      double scaleB, double offsetB, long codeSumB, long codeProducts) {
+    return length * offsetA * offsetB + offsetA * scaleB * codeSumB + offsetB
+        * scaleA * codeSumA + scaleA * scaleB * codeProducts;
+  }
+
+  static double squaredNorm(int length, double scale, double offset,
+      long codeSum, long codeProducts) {
+    return dot(length, scale, offset, codeSum, scale, offset, codeSum,
+        codeProducts);
+  }
+
+  /**
+   * @return the dot product of the codes[from, from + length) reconstructed
+   *         with the given scale and offset and the query.
+   */
+  static double dot(byte[] codes, int from, int length, double scale,
+      double offset, DoubleVector query) {
+    double querySum = 0d;
+    double codeProducts = 0d;
+    if (query.isSparse()) {
+      double[] sums = new double[2];
+      query.forEachNonZero((index, value) -> {
+        sums[0] += value;
+        sums[1] += codes[from + index] * value;
+      });
+      querySum = sums[0];
+      codeProducts = sums[1];
+    } else {
+      // dense vectors return their backing array, so this does not copy
+      double[] q = query.toArray();
+      for (int i = 0; i < length; i++) {
+        querySum += q[i];
+        codeProducts += codes[from + i] * q[i];
+      }
+    }
+    return offset * querySum + scale * codeProducts;
+  }
+
+}
@@ -0,0 +1,134 @@
+package de.jungblut.math.search;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of ids ordered by their distance, backed by primitive arrays so
+ * nothing is boxed. A max-heap keeps the largest distance at the root and is
+ * used as bounded heap for the k nearest ids, a min-heap serves the closest
+ * candidate first.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class DistanceHeap {
+
+  private final boolean max;
+  private double[] distances;
+  private int[] ids;
+  private int size;
+
+  DistanceHeap(int capacity, boolean max) {
+    this.max = max;
+    this.distances = new double[Math.max(1, capacity)];
+    this.ids = new int[distances.length];
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  int peekId() {
+    return ids[0];
+  }
+
+  double peekDistance() {
+    return distances[0];
+  }
+
+  void push(int id, double distance) {
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+      distances = Arrays.copyOf(distances, size * 2);
+    }
+    int i = size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!before(distance, distances[parent])) {
+        break;
+      }
+      ids[i] = ids[parent];
+      distances[i] = distances[parent];
+      i = parent;
+    }
+    ids[i] = id;
+    distances[i] = distance;
+  }
+
+  /**
+   * Adds the id to a bounded max-heap: if the heap is full, the id replaces
+   * the root if it is closer.
+   *
+   * @return true if the id was added.
+   */
+  boolean offer(int id, double distance, int bound) {
+    if (size < bound) {
+      push(id, distance);
+      return true;
+    }
+    if (distance < distances[0]) {
+      replaceRoot(id, distance);
+      return true;
+    }
+    return false;
+  }
+
+  void pop() {
+    size--;
+    if (size > 0) {
+      replaceRoot(ids[size], distances[size]);
+    }
+  }
+
+  /**
+   * Removes all ids of a max-heap into the given arrays in ascending order of
+   * their distance.
+   *
+   * @return the number of ids.
+   */
+  int drainAscending(int[] idsOut, double[] distancesOut) {
+    int n = size;
+    for (int i = n - 1; i >= 0; i--) {
+      idsOut[i] = ids[0];
+      distancesOut[i] = distances[0];
+      pop();
+    }
+    return n;
+  }
+
+  private void replaceRoot(int id, double distance) {
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      int right = child + 1;
+      if (right < size && before(distances[right], distances[child])) {
+        child = right;
+      }
+      if (!before(distances[child], distance)) {
+        break;
+      }
+      ids[i] = ids[child];
+      distances[i] = distances[child];
+      i = child;
+    }
+    ids[i] = id;
+    distances[i] = distance;
+  }
+
+  /**
+   * @return true if a belongs closer to the root than b.
+   */
+  private boolean before(double a, double b) {
+    return max ? a > b : a < b;
+  }
+
+}
@@ -0,0 +1,20 @@
+package de.jungblut.math.search;
+
+import de.jungblut.math.DoubleVector;
+
+/**
+ * Measures the distance between two vectors, smaller means more similar. See
+ * {@link Distances} for the common measures.
+ *
+ * @author thomas.jungblut
+ *
+ */
+@FunctionalInterface
+public interface DistanceMeasure {
+
+  /**
+   * @return the distance between both vectors.
+   */
+  public double measureDistance(DoubleVector a, DoubleVector b);
+
+}
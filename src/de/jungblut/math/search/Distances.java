@@ -0,0 +1,99 @@
+package de.jungblut.math.search;
+
+import de.jungblut.math.DoubleVector;
+
+/**
+ * The common {@link DistanceMeasure}s. Two dense vectors are compared in a
+ * single pass over their arrays, sparse vectors through their dot products.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public enum Distances implements DistanceMeasure {
+
+  /**
+   * One minus the cosine similarity, between 0 and 2. Zero vectors have a
+   * distance of 1 to every vector.
+   */
+  COSINE {
+    @Override
+    public double measureDistance(DoubleVector a, DoubleVector b) {
+      double dot;
+      double normA;
+      double normB;
+      if (!a.isSparse() && !b.isSparse()) {
+        // dense vectors return their backing array, so this does not copy
+        double[] x = a.toArray();
+        double[] y = b.toArray();
+        dot = 0d;
+        normA = 0d;
+        normB = 0d;
+        for (int i = 0; i < x.length; i++) {
+          dot += x[i] * y[i];
+          normA += x[i] * x[i];
+          normB += y[i] * y[i];
+        }
+      } else {
+        dot = a.dot(b);
+        normA = a.dot(a);
+        normB = b.dot(b);
+      }
+      return cosine(dot, normA, normB);
+    }
+  },
+
+  /**
+   * The squared euclidean distance, it ranks like {@link #EUCLIDEAN} without
+   * the square root.
+   */
+  SQUARED_EUCLIDEAN {
+    @Override
+    public double measureDistance(DoubleVector a, DoubleVector b) {
+      if (!a.isSparse() && !b.isSparse()) {
+        double[] x = a.toArray();
+        double[] y = b.toArray();
+        double sum = 0d;
+        for (int i = 0; i < x.length; i++) {
+          double diff = x[i] - y[i];
+          sum += diff * diff;
+        }
+        return sum;
+      }
+      return Math.max(0d, a.dot(a) + b.dot(b) - 2d * a.dot(b));
+    }
+  },
+
+  /**
+   * The euclidean distance.
+   */
+  EUCLIDEAN {
+    @Override
+    public double measureDistance(DoubleVector a, DoubleVector b) {
+      return Math.sqrt(SQUARED_EUCLIDEAN.measureDistance(a, b));
+    }
+  },
+
+  /**
+   * The negative dot product, for maximum inner product search. Equivalent to
+   * {@link #COSINE} on normalized vectors, but cheaper.
+   */
+  INNER_PRODUCT {
+    @Override
+    public double measureDistance(DoubleVector a, DoubleVector b) {
+      return -a.dot(b);
+    }
+  };
+
+  /**
+   * @return the {@link #COSINE} distance from the dot product and the squared
+   *         norms, callers that compare a vector many times can cache the
+   *         norms.
+   */
+  static double cosine(double dot, double squaredNormA, double squaredNormB) {
+    if (squaredNormA == 0d || squaredNormB == 0d) {
+      return 1d;
+    }
+    return 1d - dot / Math.sqrt(squaredNormA * squaredNormB);
+  }
+
+}
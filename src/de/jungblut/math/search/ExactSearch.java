@@ -0,0 +1,434 @@
+package de.jungblut.math.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+
+/**
+ * Exact top-k search that compares a query against every added vector.
+ * Instead of one dot product per pair, the candidates are stored in blocks of
+ * rows and a batch of queries is scored against a whole block at once: dense
+ * candidates with a cache blocked {@link DenseDoubleMatrix} product, sparse
+ * candidates are kept as added and scored with their sparse dot product
+ * against every query of the batch. The distances are derived from the dot
+ * products and the cached squared norms, the k closest of every query are kept
+ * in primitive bounded heaps.<br/>
+ * <br/>
+ * The blocks are scored in parallel, any {@link DoubleVector} can be added and
+ * the search results contain the added instances, so the keys of
+ * {@link de.jungblut.math.named.KeyedDoubleVector}s are available through
+ * {@link Neighbor#getKey()}. Adding and searching is thread-safe, the added
+ * vectors must not be changed afterwards.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class ExactSearch {
+
+  public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+  private static final int QUERY_BATCH = 64;
+
+  private final Distances distance;
+  private final int blockSize;
+
+  private final List<DoubleVector> vectors = new ArrayList<>();
+  private final List<Block> blocks = new ArrayList<>();
+  private final List<Integer> pendingDense = new ArrayList<>();
+  private final List<Integer> pendingSparse = new ArrayList<>();
+  // blocks over the pending ids, reused by searches until the next add
+  private Block pendingDenseBlock;
+  private Block pendingSparseBlock;
+  private int dimension = -1;
+
+  /**
+   * Creates a new search with the default block size.
+   *
+   * @param distance the distance between the vectors.
+   */
+  public ExactSearch(Distances distance) {
+    this(distance, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Creates a new search.
+   *
+   * @param distance the distance between the vectors.
+   * @param blockSize the number of candidates in a block, a block is scored
+   *          by a single thread.
+   */
+  public ExactSearch(Distances distance, int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize must be positive, given "
+          + blockSize);
+    }
+    this.distance = distance;
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Adds the given vector, all vectors must have the same dimension.
+   *
+   * @return the id of the vector.
+   */
+  public synchronized int add(DoubleVector vector) {
+    if (dimension < 0) {
+      dimension = vector.getDimension();
+    } else if (vector.getDimension() != dimension) {
+      throw new IllegalArgumentException("Dimension "
+          + vector.getDimension() + " does not match the dimension "
+          + dimension);
+    }
+    int id = vectors.size();
+    vectors.add(vector);
+    List<Integer> pending;
+    if (vector.isSparse()) {
+      pending = pendingSparse;
+      pendingSparseBlock = null;
+    } else {
+      pending = pendingDense;
+      pendingDenseBlock = null;
+    }
+    pending.add(id);
+    if (pending.size() == blockSize) {
+      seal(pending);
+    }
+    return id;
+  }
+
+  /**
+   * Adds all given vectors.
+   *
+   * @return the ids of the vectors in the order of the list.
+   */
+  public synchronized int[] addAll(List<? extends DoubleVector> vectors) {
+    int[] ids = new int[vectors.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = add(vectors.get(i));
+    }
+    return ids;
+  }
+
+  /**
+   * @return the vector with the given id.
+   */
+  public synchronized DoubleVector get(int id) {
+    return vectors.get(id);
+  }
+
+  /**
+   * @return the number of vectors.
+   */
+  public synchronized int size() {
+    return vectors.size();
+  }
+
+  /**
+   * Searches the k nearest neighbours of the query.
+   *
+   * @return up to k neighbours in ascending order of their distance.
+   */
+  public List<Neighbor> search(DoubleVector query, int k) {
+    return search(Collections.singletonList(query), k).get(0);
+  }
+
+  /**
+   * Searches the k nearest neighbours of all queries on the common
+   * {@link ForkJoinPool}, see {@link #search(List, int, ForkJoinPool)}.
+   */
+  public List<List<Neighbor>> search(List<? extends DoubleVector> queries,
+      int k) {
+    return search(queries, k, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Searches the k nearest neighbours of all queries. The queries are scored
+   * in batches, the blocks of a batch are scored in parallel on the given
+   * pool.
+   *
+   * @return for every query up to k neighbours in ascending order of their
+   *         distance.
+   */
+  public List<List<Neighbor>> search(List<? extends DoubleVector> queries,
+      int k, ForkJoinPool pool) {
+    Block[] snapshot;
+    synchronized (this) {
+      // the pending vectors are scored without sealing them, so later adds
+      // still fill up their blocks
+      if (pendingDenseBlock == null && !pendingDense.isEmpty()) {
+        pendingDenseBlock = new DenseBlock(toIds(pendingDense));
+      }
+      if (pendingSparseBlock == null && !pendingSparse.isEmpty()) {
+        pendingSparseBlock = new SparseBlock(toIds(pendingSparse));
+      }
+      List<Block> all = new ArrayList<>(blocks);
+      if (!pendingDense.isEmpty()) {
+        all.add(pendingDenseBlock);
+      }
+      if (!pendingSparse.isEmpty()) {
+        all.add(pendingSparseBlock);
+      }
+      snapshot = all.toArray(new Block[all.size()]);
+    }
+    List<List<Neighbor>> result = new ArrayList<>(queries.size());
+    if (snapshot.length == 0 || k <= 0) {
+      for (int i = 0; i < queries.size(); i++) {
+        result.add(new ArrayList<>());
+      }
+      return result;
+    }
+    for (DoubleVector query : queries) {
+      if (query.getDimension() != dimension) {
+        throw new IllegalArgumentException("Dimension "
+            + query.getDimension() + " does not match the dimension "
+            + dimension);
+      }
+    }
+
+    boolean dense = false;
+    for (Block block : snapshot) {
+      dense |= block instanceof DenseBlock;
+    }
+    int[] ids = new int[k];
+    double[] distances = new double[k];
+    for (int from = 0; from < queries.size(); from += QUERY_BATCH) {
+      QueryBatch batch = new QueryBatch(queries.subList(from,
+          Math.min(queries.size(), from + QUERY_BATCH)), dimension, k, dense);
+      pool.invoke(new ScoreTask(snapshot, batch, 0, snapshot.length));
+      // the vectors are only appended, so the scored ids are still valid
+      synchronized (this) {
+        for (DistanceHeap heap : batch.heaps) {
+          int n = heap.drainAscending(ids, distances);
+          List<Neighbor> neighbors = new ArrayList<>(n);
+          for (int i = 0; i < n; i++) {
+            double d = distance == Distances.EUCLIDEAN ? Math
+                .sqrt(distances[i]) : distances[i];
+            neighbors.add(new Neighbor(ids[i], vectors.get(ids[i]), d));
+          }
+          result.add(neighbors);
+        }
+      }
+    }
+    return result;
+  }
+
+  public Distances getDistance() {
+    return distance;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Moves the pending ids into a new block.
+   */
+  private void seal(List<Integer> pending) {
+    int[] ids = toIds(pending);
+    pending.clear();
+    blocks.add(vectors.get(ids[0]).isSparse() ? new SparseBlock(ids)
+        : new DenseBlock(ids));
+  }
+
+  private static int[] toIds(List<Integer> pending) {
+    int[] ids = new int[pending.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = pending.get(i);
+    }
+    return ids;
+  }
+
+  /**
+   * Converts the dot product of a candidate and a query into the distance,
+   * the euclidean distance is ranked by its square.
+   */
+  private double distance(double dot, double candidateNorm, double queryNorm) {
+    switch (distance) {
+      case INNER_PRODUCT:
+        return -dot;
+      case COSINE:
+        if (candidateNorm == 0d || queryNorm == 0d) {
+          return 1d;
+        }
+        return 1d - dot / Math.sqrt(candidateNorm * queryNorm);
+      default:
+        return Math.max(0d, candidateNorm + queryNorm - 2d * dot);
+    }
+  }
+
+  /**
+   * A batch of queries, the transposed queries as dimension x batch matrix are
+   * only built if there are dense blocks to multiply them with.
+   */
+  private static final class QueryBatch {
+
+    private final int size;
+    private final int k;
+    private final DoubleVector[] queries;
+    private final DenseDoubleMatrix transposed;
+    private final double[] squaredNorms;
+    private final DistanceHeap[] heaps;
+
+    QueryBatch(List<? extends DoubleVector> queries, int dimension, int k,
+        boolean dense) {
+      this.size = queries.size();
+      this.k = k;
+      this.queries = queries.toArray(new DoubleVector[size]);
+      double[] t = dense ? new double[dimension * size] : null;
+      this.squaredNorms = new double[size];
+      this.heaps = new DistanceHeap[size];
+      for (int j = 0; j < size; j++) {
+        int query = j;
+        this.queries[j].forEachNonZero((index, value) -> {
+          if (t != null) {
+            // column j of the transposed queries
+            t[index + query * dimension] = value;
+          }
+          squaredNorms[query] += value * value;
+        });
+        heaps[j] = new DistanceHeap(k, true);
+      }
+      this.transposed = dense ? new DenseDoubleMatrix(dimension, size, t)
+          : null;
+    }
+  }
+
+  private abstract class Block {
+
+    final int[] ids;
+    final double[] squaredNorms;
+
+    Block(int[] ids) {
+      this.ids = ids;
+      this.squaredNorms = new double[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        DoubleVector v = vectors.get(ids[i]);
+        squaredNorms[i] = v.dot(v);
+      }
+    }
+
+    /**
+     * @return the dot products of all candidates with all queries of the
+     *         batch, the products of query j are at [j * rows, (j + 1) *
+     *         rows).
+     */
+    abstract double[] score(QueryBatch batch);
+
+    void search(QueryBatch batch) {
+      double[] scores = score(batch);
+      int rows = ids.length;
+      DistanceHeap heap = new DistanceHeap(batch.k, true);
+      for (int j = 0; j < batch.size; j++) {
+        heap.clear();
+        double queryNorm = batch.squaredNorms[j];
+        int offset = j * rows;
+        for (int i = 0; i < rows; i++) {
+          heap.offer(ids[i],
+              distance(scores[offset + i], squaredNorms[i], queryNorm),
+              batch.k);
+        }
+        DistanceHeap result = batch.heaps[j];
+        synchronized (result) {
+          while (!heap.isEmpty()) {
+            result.offer(heap.peekId(), heap.peekDistance(), batch.k);
+            heap.pop();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Block of dense candidates as rows of a column major matrix.
+   */
+  private final class DenseBlock extends Block {
+
+    private final DenseDoubleMatrix candidates;
+
+    DenseBlock(int[] ids) {
+      super(ids);
+      int rows = ids.length;
+      double[] columnMajor = new double[rows * dimension];
+      for (int i = 0; i < rows; i++) {
+        int row = i;
+        vectors.get(ids[i]).forEachNonZero(
+            (col, value) -> columnMajor[row + col * rows] = value);
+      }
+      this.candidates = new DenseDoubleMatrix(rows, dimension, columnMajor);
+    }
+
+    @Override
+    double[] score(QueryBatch batch) {
+      // rows x batch in column major, so the scores of a query are contiguous
+      DoubleMatrix product = candidates.multiply(batch.transposed);
+      return ((DenseDoubleMatrix) product).getColumnMajorMatrix();
+    }
+  }
+
+  /**
+   * Block of sparse candidates, kept as added. Every candidate is scored with
+   * its sparse dot product kernel, which only visits the non-zeros the
+   * candidate and the query have in common.
+   */
+  private final class SparseBlock extends Block {
+
+    private final DoubleVector[] candidates;
+
+    SparseBlock(int[] ids) {
+      super(ids);
+      this.candidates = new DoubleVector[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        candidates[i] = vectors.get(ids[i]);
+      }
+    }
+
+    @Override
+    double[] score(QueryBatch batch) {
+      int rows = ids.length;
+      double[] scores = new double[rows * batch.size];
+      for (int j = 0; j < batch.size; j++) {
+        DoubleVector query = batch.queries[j];
+        int offset = j * rows;
+        for (int i = 0; i < rows; i++) {
+          scores[offset + i] = candidates[i].dot(query);
+        }
+      }
+      return scores;
+    }
+  }
+
+  private static final class ScoreTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 4735211823318012447L;
+
+    private final Block[] blocks;
+    private final QueryBatch batch;
+    private final int start;
+    private final int end;
+
+    ScoreTask(Block[] blocks, QueryBatch batch, int start, int end) {
+      this.blocks = blocks;
+      this.batch = batch;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start == 1) {
+        blocks[start].search(batch);
+      } else {
+        int mid = start + (end - start) / 2;
+        invokeAll(new ScoreTask(blocks, batch, start, mid), new ScoreTask(
+            blocks, batch, mid, end));
+      }
+    }
+  }
+
+}
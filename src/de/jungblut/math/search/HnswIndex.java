@@ -0,0 +1,682 @@
+package de.jungblut.math.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.io.DoubleVectorCodec;
+
+/**
+ * Approximate nearest neighbour index on a hierarchical navigable small world
+ * graph (Malkov and Yashunin, "Efficient and robust approximate nearest
+ * neighbor search using Hierarchical Navigable Small World graphs"). Every
+ * vector is a node on a random number of layers, the upper layers are sparse
+ * and guide a greedy search to the dense bottom layer, where a beam of
+ * efSearch candidates is explored.<br/>
+ * <br/>
+ * Any {@link DoubleVector} can be added, the search results contain the added
+ * instances, so names and keys of named and keyed vectors are kept. Vectors
+ * can be added from many threads concurrently and searches may run while
+ * vectors are added, every node is guarded by its own lock.<br/>
+ * <br/>
+ * The parameters are: m, the number of links per node and layer (twice as
+ * many on the bottom layer); efConstruction, the beam width while inserting;
+ * and efSearch, the beam width while searching, which can be changed at any
+ * time. Larger values give a better recall at the cost of speed.<br/>
+ * <br/>
+ * The layers of the nodes are drawn from the given {@link Random}, so a seeded
+ * index that is filled by a single thread builds the same graph every time.
+ * For {@link Distances#COSINE} the squared norms of the added vectors and the
+ * query are computed once, so every comparison is a single dot product.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class HnswIndex {
+
+  public static final int DEFAULT_M = 16;
+  public static final int DEFAULT_EF_CONSTRUCTION = 200;
+  public static final int DEFAULT_EF_SEARCH = 50;
+
+  private static final int MAGIC = 0x484e5357; // "HNSW"
+  private static final int VERSION = 1;
+
+  // nodes are stored in pages of 2^16, so the index can grow without copying
+  private static final int PAGE_SHIFT = 16;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+  private static final int PARALLEL_ADD_THRESHOLD = 256;
+
+  private final DistanceMeasure distance;
+  private final int m;
+  private final int maxM0;
+  private final int efConstruction;
+  private final double levelMultiplier;
+  private final Random random;
+  // cosine distances are computed from the dot product and cached norms
+  private final boolean cosine;
+  private volatile int efSearch;
+
+  private final AtomicInteger size = new AtomicInteger();
+  private volatile Node[][] pages = new Node[0][];
+
+  private final Object entryLock = new Object();
+  private volatile int entryPoint = -1;
+  private int maxLevel = -1;
+
+  private final ThreadLocal<SearchContext> contexts = ThreadLocal
+      .withInitial(SearchContext::new);
+
+  /**
+   * Creates a new index with the default parameters.
+   *
+   * @param distance the distance between the vectors.
+   */
+  public HnswIndex(DistanceMeasure distance) {
+    this(distance, DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF_SEARCH);
+  }
+
+  /**
+   * Creates a new index with a randomly seeded level generator.
+   *
+   * @param distance the distance between the vectors.
+   * @param m the number of links per node on the upper layers, the bottom
+   *          layer has 2 * m links.
+   * @param efConstruction the number of candidates that are explored to find
+   *          the links of a new node.
+   * @param efSearch the number of candidates that are explored for a query.
+   */
+  public HnswIndex(DistanceMeasure distance, int m, int efConstruction,
+      int efSearch) {
+    this(distance, m, efConstruction, efSearch, new Random());
+  }
+
+  /**
+   * Creates a new index.
+   *
+   * @param distance the distance between the vectors.
+   * @param m the number of links per node on the upper layers, the bottom
+   *          layer has 2 * m links.
+   * @param efConstruction the number of candidates that are explored to find
+   *          the links of a new node.
+   * @param efSearch the number of candidates that are explored for a query.
+   * @param random the generator the layers of the nodes are drawn from.
+   */
+  public HnswIndex(DistanceMeasure distance, int m, int efConstruction,
+      int efSearch, Random random) {
+    if (m < 2) {
+      throw new IllegalArgumentException("m must be at least 2, given " + m);
+    }
+    if (efConstruction < 1 || efSearch < 1) {
+      throw new IllegalArgumentException(
+          "efConstruction and efSearch must be positive");
+    }
+    this.distance = distance;
+    this.m = m;
+    this.maxM0 = 2 * m;
+    this.efConstruction = efConstruction;
+    this.efSearch = efSearch;
+    this.levelMultiplier = 1d / Math.log(m);
+    this.random = random;
+    this.cosine = distance == Distances.COSINE;
+  }
+
+  /**
+   * Adds the given vector to the index, this is thread-safe.
+   *
+   * @return the id of the vector.
+   */
+  public int add(DoubleVector vector) {
+    int id = size.getAndIncrement();
+    int level = (int) (-Math.log(1d - random.nextDouble()) * levelMultiplier);
+    Node node = new Node(vector, level, m, maxM0, squaredNorm(vector));
+    store(id, node);
+
+    int ep;
+    synchronized (entryLock) {
+      if (entryPoint < 0) {
+        maxLevel = level;
+        entryPoint = id;
+        return id;
+      }
+      ep = entryPoint;
+    }
+    Node entry = node(ep);
+    int top = entry.level();
+
+    SearchContext ctx = contexts.get();
+    int current = ep;
+    double norm = node.squaredNorm;
+    double currentDistance = distance(vector, norm, entry);
+    for (int l = top; l > level; l--) {
+      current = greedySearch(ctx, vector, norm, current, currentDistance, l);
+      currentDistance = ctx.greedyDistance;
+    }
+    for (int l = Math.min(level, top); l >= 0; l--) {
+      int found = searchLayer(ctx, vector, norm, current, currentDistance,
+          efConstruction, l, id);
+      current = ctx.ids[0];
+      currentDistance = ctx.distances[0];
+      int[] selected = ctx.selected(m);
+      int count = selectNeighbors(ctx, ctx.ids, ctx.distances, found, m,
+          selected);
+      synchronized (node) {
+        System.arraycopy(selected, 0, node.neighbors[l], 0, count);
+        node.counts[l] = count;
+      }
+      for (int i = 0; i < count; i++) {
+        connect(ctx, selected[i], id, l);
+      }
+    }
+
+    if (level > top) {
+      synchronized (entryLock) {
+        if (level > maxLevel) {
+          maxLevel = level;
+          entryPoint = id;
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Adds all vectors in parallel on the common {@link ForkJoinPool}, see
+   * {@link #addAll(List, ForkJoinPool)}.
+   */
+  public int[] addAll(List<? extends DoubleVector> vectors) {
+    return addAll(vectors, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Adds all vectors in parallel on the given pool.
+   *
+   * @return the ids of the vectors in the order of the list.
+   */
+  public int[] addAll(List<? extends DoubleVector> vectors, ForkJoinPool pool) {
+    int[] ids = new int[vectors.size()];
+    pool.invoke(new AddTask(vectors, ids, 0, ids.length));
+    return ids;
+  }
+
+  /**
+   * Searches the approximate k nearest neighbours of the query, this is
+   * thread-safe.
+   *
+   * @return up to k neighbours in ascending order of their distance.
+   */
+  public List<Neighbor> search(DoubleVector query, int k) {
+    int ep = entryPoint;
+    if (ep < 0 || k <= 0) {
+      return new ArrayList<>();
+    }
+    Node entry = node(ep);
+    SearchContext ctx = contexts.get();
+    int current = ep;
+    double norm = squaredNorm(query);
+    double currentDistance = distance(query, norm, entry);
+    for (int l = entry.level(); l > 0; l--) {
+      current = greedySearch(ctx, query, norm, current, currentDistance, l);
+      currentDistance = ctx.greedyDistance;
+    }
+    int found = searchLayer(ctx, query, norm, current, currentDistance,
+        Math.max(efSearch, k), 0, -1);
+    List<Neighbor> result = new ArrayList<>(Math.min(k, found));
+    for (int i = 0; i < found && i < k; i++) {
+      result.add(new Neighbor(ctx.ids[i], node(ctx.ids[i]).vector,
+          ctx.distances[i]));
+    }
+    return result;
+  }
+
+  /**
+   * @return the vector with the given id.
+   */
+  public DoubleVector get(int id) {
+    return node(id).vector;
+  }
+
+  /**
+   * @return the number of added vectors.
+   */
+  public int size() {
+    return size.get();
+  }
+
+  public int getEfSearch() {
+    return efSearch;
+  }
+
+  /**
+   * Sets the number of candidates that are explored for a query.
+   */
+  public void setEfSearch(int efSearch) {
+    if (efSearch < 1) {
+      throw new IllegalArgumentException("efSearch must be positive");
+    }
+    this.efSearch = efSearch;
+  }
+
+  public int getM() {
+    return m;
+  }
+
+  public int getEfConstruction() {
+    return efConstruction;
+  }
+
+  /**
+   * Writes the vectors and the graph to the given file. Vectors must not be
+   * added while writing.
+   */
+  public void write(Path file) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(file), 1 << 16))) {
+      int n = size.get();
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeInt(m);
+      out.writeInt(efConstruction);
+      out.writeInt(efSearch);
+      out.writeInt(n);
+      synchronized (entryLock) {
+        out.writeInt(entryPoint);
+      }
+      for (int id = 0; id < n; id++) {
+        Node node = node(id);
+        DoubleVectorCodec.write(node.vector, out);
+        synchronized (node) {
+          out.writeByte(node.level());
+          for (int l = 0; l <= node.level(); l++) {
+            out.writeShort(node.counts[l]);
+            for (int i = 0; i < node.counts[l]; i++) {
+              out.writeInt(node.neighbors[l][i]);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads an index that was written with {@link #write(Path)}.
+   *
+   * @param file the file to read.
+   * @param distance the distance the index was built with.
+   */
+  public static HnswIndex read(Path file, DistanceMeasure distance)
+      throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not an HNSW index file: " + file);
+      }
+      int version = in.readUnsignedByte();
+      if (version != VERSION) {
+        throw new IOException("Unsupported version " + version);
+      }
+      HnswIndex index = new HnswIndex(distance, in.readInt(), in.readInt(),
+          in.readInt());
+      int n = in.readInt();
+      int entryPoint = in.readInt();
+      for (int id = 0; id < n; id++) {
+        DoubleVector vector = DoubleVectorCodec.read(in);
+        int level = in.readUnsignedByte();
+        Node node = new Node(vector, level, index.m, index.maxM0,
+            index.squaredNorm(vector));
+        for (int l = 0; l <= level; l++) {
+          int count = in.readUnsignedShort();
+          if (count > node.neighbors[l].length) {
+            throw new IOException("Node " + id + " has " + count
+                + " links on layer " + l);
+          }
+          for (int i = 0; i < count; i++) {
+            node.neighbors[l][i] = in.readInt();
+          }
+          node.counts[l] = count;
+        }
+        index.store(id, node);
+      }
+      index.size.set(n);
+      synchronized (index.entryLock) {
+        index.maxLevel = entryPoint < 0 ? -1 : index.node(entryPoint).level();
+        index.entryPoint = entryPoint;
+      }
+      return index;
+    }
+  }
+
+  /**
+   * @return the distance between the vector and the vector of the node, the
+   *         squared norm of the vector is only used for the cosine distance.
+   */
+  private double distance(DoubleVector vector, double squaredNorm, Node node) {
+    if (cosine) {
+      return Distances.cosine(vector.dot(node.vector), squaredNorm,
+          node.squaredNorm);
+    }
+    return distance.measureDistance(vector, node.vector);
+  }
+
+  private double squaredNorm(DoubleVector vector) {
+    return cosine ? vector.dot(vector) : 0d;
+  }
+
+  /**
+   * Follows the closest links on the given layer until no link is closer.
+   *
+   * @return the closest node, its distance is in ctx.greedyDistance.
+   */
+  private int greedySearch(SearchContext ctx, DoubleVector query,
+      double queryNorm, int start, double startDistance, int level) {
+    int current = start;
+    double currentDistance = startDistance;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      int count = copyNeighbors(node(current), level, ctx);
+      for (int i = 0; i < count; i++) {
+        int candidate = ctx.links[i];
+        double d = distance(query, queryNorm, node(candidate));
+        if (d < currentDistance) {
+          currentDistance = d;
+          current = candidate;
+          changed = true;
+        }
+      }
+    }
+    ctx.greedyDistance = currentDistance;
+    return current;
+  }
+
+  /**
+   * Beam search on a single layer.
+   *
+   * @param exclude an id that is never returned, -1 for none.
+   * @return the number of found nodes, which are in ctx.ids and
+   *         ctx.distances in ascending order of their distance.
+   */
+  private int searchLayer(SearchContext ctx, DoubleVector query,
+      double queryNorm, int start, double startDistance, int ef, int level,
+      int exclude) {
+    ctx.newSearch(size.get());
+    if (exclude >= 0) {
+      ctx.visit(exclude);
+    }
+    DistanceHeap candidates = ctx.candidates;
+    DistanceHeap results = ctx.results;
+    ctx.visit(start);
+    candidates.push(start, startDistance);
+    results.push(start, startDistance);
+    while (!candidates.isEmpty()) {
+      double candidateDistance = candidates.peekDistance();
+      int candidate = candidates.peekId();
+      candidates.pop();
+      if (candidateDistance > results.peekDistance() && results.size() >= ef) {
+        break;
+      }
+      int count = copyNeighbors(node(candidate), level, ctx);
+      for (int i = 0; i < count; i++) {
+        int next = ctx.links[i];
+        if (!ctx.visit(next)) {
+          continue;
+        }
+        double d = distance(query, queryNorm, node(next));
+        if (results.offer(next, d, ef)) {
+          candidates.push(next, d);
+        }
+      }
+    }
+    ctx.ensureResultCapacity(results.size());
+    return results.drainAscending(ctx.ids, ctx.distances);
+  }
+
+  /**
+   * Selects up to max diverse neighbours from the candidates in ascending
+   * order of their distance: a candidate is only taken if it is closer to the
+   * base than to every already selected neighbour. Slots that are left are
+   * filled with the closest skipped candidates.
+   *
+   * @return the number of selected neighbours.
+   */
+  private int selectNeighbors(SearchContext ctx, int[] ids,
+      double[] distances, int count, int max, int[] selected) {
+    if (count <= max) {
+      System.arraycopy(ids, 0, selected, 0, count);
+      return count;
+    }
+    int numSelected = 0;
+    int numSkipped = 0;
+    int[] skipped = ctx.skipped(count);
+    for (int i = 0; i < count && numSelected < max; i++) {
+      Node candidate = node(ids[i]);
+      boolean diverse = true;
+      for (int j = 0; j < numSelected; j++) {
+        if (distance(candidate.vector, candidate.squaredNorm,
+            node(selected[j])) < distances[i]) {
+          diverse = false;
+          break;
+        }
+      }
+      if (diverse) {
+        selected[numSelected++] = ids[i];
+      } else {
+        skipped[numSkipped++] = ids[i];
+      }
+    }
+    for (int i = 0; i < numSkipped && numSelected < max; i++) {
+      selected[numSelected++] = skipped[i];
+    }
+    return numSelected;
+  }
+
+  /**
+   * Adds a link from the given node to the new node, a full link list is
+   * shrunk with the neighbour selection.
+   */
+  private void connect(SearchContext ctx, int id, int newId, int level) {
+    Node node = node(id);
+    int max = level == 0 ? maxM0 : m;
+    synchronized (node) {
+      int[] links = node.neighbors[level];
+      int count = node.counts[level];
+      if (count < max) {
+        links[count] = newId;
+        node.counts[level]++;
+        return;
+      }
+      // sort the current links and the new one by their distance to the node
+      int[] ids = ctx.shrinkIds;
+      double[] distances = ctx.shrinkDistances;
+      for (int i = 0; i <= count; i++) {
+        int link = i < count ? links[i] : newId;
+        double d = distance(node.vector, node.squaredNorm, node(link));
+        int j = i - 1;
+        while (j >= 0 && distances[j] > d) {
+          ids[j + 1] = ids[j];
+          distances[j + 1] = distances[j];
+          j--;
+        }
+        ids[j + 1] = link;
+        distances[j + 1] = d;
+      }
+      node.counts[level] = selectNeighbors(ctx, ids, distances, count + 1,
+          max, links);
+    }
+  }
+
+  /**
+   * Copies the links of the node on the given layer into ctx.links.
+   *
+   * @return the number of links.
+   */
+  private static int copyNeighbors(Node node, int level, SearchContext ctx) {
+    synchronized (node) {
+      int count = node.counts[level];
+      System.arraycopy(node.neighbors[level], 0, ctx.links, 0, count);
+      return count;
+    }
+  }
+
+  private Node node(int id) {
+    return pages[id >>> PAGE_SHIFT][id & PAGE_MASK];
+  }
+
+  private void store(int id, Node node) {
+    int page = id >>> PAGE_SHIFT;
+    Node[][] current = pages;
+    if (page >= current.length || current[page] == null) {
+      synchronized (this) {
+        current = pages;
+        if (page >= current.length) {
+          current = Arrays.copyOf(current, Math.max(page + 1,
+              current.length * 2));
+        }
+        if (current[page] == null) {
+          current[page] = new Node[PAGE_SIZE];
+        }
+        pages = current;
+      }
+    }
+    current[page][id & PAGE_MASK] = node;
+  }
+
+  /**
+   * A vector with its links, the links are guarded by the node's monitor.
+   */
+  private static final class Node {
+
+    final DoubleVector vector;
+    // only computed for the cosine distance
+    final double squaredNorm;
+    final int[][] neighbors;
+    final int[] counts;
+
+    Node(DoubleVector vector, int level, int m, int maxM0, double squaredNorm) {
+      this.vector = vector;
+      this.squaredNorm = squaredNorm;
+      this.neighbors = new int[level + 1][];
+      this.counts = new int[level + 1];
+      neighbors[0] = new int[maxM0];
+      for (int l = 1; l <= level; l++) {
+        neighbors[l] = new int[m];
+      }
+    }
+
+    int level() {
+      return neighbors.length - 1;
+    }
+  }
+
+  /**
+   * Scratch space of a single thread.
+   */
+  private final class SearchContext {
+
+    final DistanceHeap candidates = new DistanceHeap(64, false);
+    final DistanceHeap results = new DistanceHeap(64, true);
+    final int[] links = new int[maxM0];
+    final int[] shrinkIds = new int[maxM0 + 1];
+    final double[] shrinkDistances = new double[maxM0 + 1];
+    int[] ids = new int[64];
+    double[] distances = new double[64];
+    double greedyDistance;
+
+    private int[] selected = new int[m];
+    private int[] skipped = new int[64];
+    private int[] visited = new int[1024];
+    private int epoch;
+
+    void newSearch(int numNodes) {
+      candidates.clear();
+      results.clear();
+      if (visited.length < numNodes) {
+        visited = new int[Math.max(numNodes, visited.length * 2)];
+        epoch = 0;
+      }
+      if (++epoch == 0) {
+        Arrays.fill(visited, 0);
+        epoch = 1;
+      }
+    }
+
+    /**
+     * @return true if the id wasn't visited before in this search.
+     */
+    boolean visit(int id) {
+      if (id >= visited.length) {
+        // added concurrently after the search started
+        visited = Arrays.copyOf(visited, Math.max(id + 1, visited.length * 2));
+      }
+      if (visited[id] == epoch) {
+        return false;
+      }
+      visited[id] = epoch;
+      return true;
+    }
+
+    void ensureResultCapacity(int n) {
+      if (ids.length < n) {
+        ids = new int[n];
+        distances = new double[n];
+      }
+    }
+
+    int[] selected(int n) {
+      if (selected.length < n) {
+        selected = new int[n];
+      }
+      return selected;
+    }
+
+    int[] skipped(int n) {
+      if (skipped.length < n) {
+        skipped = new int[n];
+      }
+      return skipped;
+    }
+  }
+
+  private final class AddTask extends RecursiveAction {
+
+    private static final long serialVersionUID = -1651416225431592232L;
+
+    private final List<? extends DoubleVector> vectors;
+    private final int[] ids;
+    private final int start;
+    private final int end;
+
+    AddTask(List<? extends DoubleVector> vectors, int[] ids, int start, int end) {
+      this.vectors = vectors;
+      this.ids = ids;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= PARALLEL_ADD_THRESHOLD) {
+        for (int i = start; i < end; i++) {
+          ids[i] = add(vectors.get(i));
+        }
+      } else {
+        int mid = start + (end - start) / 2;
+        invokeAll(new AddTask(vectors, ids, start, mid), new AddTask(vectors,
+            ids, mid, end));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,36 @@
+package de.jungblut.math.search;
+
+import de.jungblut.math.DoubleVector;
+
+/**
+ * A family of locality sensitive hash functions: the more similar two vectors
+ * are, the more positions of their signatures are equal. See {@link MinHash}
+ * for the jaccard similarity and {@link SimHash} for the cosine similarity.
+ * Implementations must be thread-safe.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public interface LshFamily {
+
+  /**
+   * @return the number of positions in a signature.
+   */
+  public int getSignatureLength();
+
+  /**
+   * Computes the signature of the given vector from its non-zero elements.
+   *
+   * @param vector the vector to hash.
+   * @param signature receives the signature, its length is
+   *          {@link #getSignatureLength()}.
+   */
+  public void signature(DoubleVector vector, int[] signature);
+
+  /**
+   * @return the exact similarity between both vectors that the signatures
+   *         approximate, at most 1 for equal vectors.
+   */
+  public double similarity(DoubleVector a, DoubleVector b);
+
+}
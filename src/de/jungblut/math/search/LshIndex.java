@@ -0,0 +1,298 @@
+package de.jungblut.math.search;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.jungblut.math.DoubleVector;
+
+/**
+ * Locality sensitive hashing index for near duplicates. The signature of every
+ * vector from a {@link LshFamily} is split into bands of rows, two vectors are
+ * candidates if all rows of at least one band are equal. With b bands of r
+ * rows, vectors with a signature agreement s become candidates with a
+ * probability of 1 - (1 - s^r)^b, an s-curve around (1 / b)^(1 / r). The
+ * candidates are verified with the exact similarity of the family, so the
+ * results never contain false positives.<br/>
+ * <br/>
+ * Signatures of many vectors are computed in parallel, finding all near
+ * duplicates only compares the vectors that share a bucket instead of all
+ * pairs. The results contain the added instances, so the keys of
+ * {@link de.jungblut.math.named.KeyedDoubleVector}s are available through
+ * {@link Neighbor#getKey()}. Adding and searching is thread-safe.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class LshIndex {
+
+  private static final int PARALLEL_THRESHOLD = 64;
+
+  private final LshFamily family;
+  private final int bands;
+  private final int rows;
+
+  private final List<DoubleVector> vectors = new ArrayList<>();
+  private final TLongObjectHashMap<TIntArrayList>[] buckets;
+  // the bucket keys of vector i are at [i * bands, (i + 1) * bands)
+  private long[] keys = new long[0];
+
+  /**
+   * Creates a new index.
+   *
+   * @param family the hash functions.
+   * @param bands the number of bands, must divide the signature length.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public LshIndex(LshFamily family, int bands) {
+    if (bands < 1 || family.getSignatureLength() % bands != 0) {
+      throw new IllegalArgumentException("The signature length "
+          + family.getSignatureLength() + " can't be split into " + bands
+          + " bands");
+    }
+    this.family = family;
+    this.bands = bands;
+    this.rows = family.getSignatureLength() / bands;
+    this.buckets = new TLongObjectHashMap[bands];
+    for (int i = 0; i < bands; i++) {
+      buckets[i] = new TLongObjectHashMap<>();
+    }
+  }
+
+  /**
+   * Adds the given vector.
+   *
+   * @return the id of the vector.
+   */
+  public int add(DoubleVector vector) {
+    long[] vectorKeys = new long[bands];
+    bucketKeys(vector, new int[family.getSignatureLength()], vectorKeys, 0);
+    return insert(Collections.singletonList(vector), vectorKeys)[0];
+  }
+
+  /**
+   * Adds all vectors, the signatures are computed in parallel on the common
+   * {@link ForkJoinPool}.
+   *
+   * @return the ids of the vectors in the order of the list.
+   */
+  public int[] addAll(List<? extends DoubleVector> vectors) {
+    return addAll(vectors, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Adds all vectors, the signatures are computed in parallel on the given
+   * pool.
+   *
+   * @return the ids of the vectors in the order of the list.
+   */
+  public int[] addAll(List<? extends DoubleVector> vectors, ForkJoinPool pool) {
+    long[] vectorKeys = new long[vectors.size() * bands];
+    pool.invoke(new SignatureTask(vectors, vectorKeys, 0, vectors.size()));
+    return insert(vectors, vectorKeys);
+  }
+
+  /**
+   * Searches the vectors whose similarity to the query is at least the given
+   * minimum. The distance of a result is one minus its similarity.
+   *
+   * @return the found vectors in ascending order of their distance.
+   */
+  public List<Neighbor> query(DoubleVector query, double minSimilarity) {
+    long[] queryKeys = new long[bands];
+    bucketKeys(query, new int[family.getSignatureLength()], queryKeys, 0);
+    synchronized (this) {
+      return verify(query, queryKeys, 0, -1, minSimilarity, new TIntHashSet());
+    }
+  }
+
+  /**
+   * Finds the near duplicates of all vectors on the common
+   * {@link ForkJoinPool}, see {@link #nearDuplicates(double, ForkJoinPool)}.
+   */
+  public List<List<Neighbor>> nearDuplicates(double minSimilarity) {
+    return nearDuplicates(minSimilarity, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Finds the near duplicates of all vectors, the candidates of the vectors
+   * are verified in parallel on the given pool.
+   *
+   * @return for every id the other vectors whose similarity is at least the
+   *         given minimum, in ascending order of their distance.
+   */
+  public synchronized List<List<Neighbor>> nearDuplicates(
+      double minSimilarity, ForkJoinPool pool) {
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    List<Neighbor>[] result = new List[vectors.size()];
+    pool.invoke(new DuplicateTask(result, minSimilarity, 0, result.length));
+    return Arrays.asList(result);
+  }
+
+  /**
+   * @return the vector with the given id.
+   */
+  public synchronized DoubleVector get(int id) {
+    return vectors.get(id);
+  }
+
+  /**
+   * @return the number of vectors.
+   */
+  public synchronized int size() {
+    return vectors.size();
+  }
+
+  public int getBands() {
+    return bands;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  private synchronized int[] insert(List<? extends DoubleVector> added,
+      long[] addedKeys) {
+    int first = vectors.size();
+    int[] ids = new int[added.size()];
+    keys = Arrays.copyOf(keys, (first + ids.length) * bands);
+    System.arraycopy(addedKeys, 0, keys, first * bands, addedKeys.length);
+    for (int i = 0; i < ids.length; i++) {
+      int id = first + i;
+      ids[i] = id;
+      vectors.add(added.get(i));
+      for (int band = 0; band < bands; band++) {
+        long key = keys[id * bands + band];
+        TIntArrayList bucket = buckets[band].get(key);
+        if (bucket == null) {
+          bucket = new TIntArrayList(2);
+          buckets[band].put(key, bucket);
+        }
+        bucket.add(id);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Verifies all vectors that share a bucket with the given keys.
+   *
+   * @param exclude an id that is not part of the result, -1 for none.
+   */
+  private List<Neighbor> verify(DoubleVector query, long[] queryKeys,
+      int from, int exclude, double minSimilarity, TIntHashSet candidates) {
+    candidates.clear();
+    for (int band = 0; band < bands; band++) {
+      TIntArrayList bucket = buckets[band].get(queryKeys[from + band]);
+      if (bucket != null) {
+        for (int i = 0; i < bucket.size(); i++) {
+          candidates.add(bucket.getQuick(i));
+        }
+      }
+    }
+    candidates.remove(exclude);
+    List<Neighbor> result = new ArrayList<>();
+    TIntIterator it = candidates.iterator();
+    while (it.hasNext()) {
+      int id = it.next();
+      DoubleVector candidate = vectors.get(id);
+      double similarity = family.similarity(query, candidate);
+      if (similarity >= minSimilarity) {
+        result.add(new Neighbor(id, candidate, 1d - similarity));
+      }
+    }
+    result.sort(Comparator.comparingDouble(Neighbor::getDistance));
+    return result;
+  }
+
+  /**
+   * Computes the signature of the vector and writes the bucket key of every
+   * band into keys[from, from + bands).
+   */
+  private void bucketKeys(DoubleVector vector, int[] signature, long[] keys,
+      int from) {
+    family.signature(vector, signature);
+    for (int band = 0; band < bands; band++) {
+      long hash = band;
+      for (int i = band * rows; i < (band + 1) * rows; i++) {
+        hash = hash * 0x9e3779b97f4a7c15L + signature[i];
+      }
+      keys[from + band] = MinHash.mix(hash);
+    }
+  }
+
+  private final class SignatureTask extends RecursiveAction {
+
+    private static final long serialVersionUID = -5064219730950291123L;
+
+    private final List<? extends DoubleVector> vectors;
+    private final long[] keys;
+    private final int start;
+    private final int end;
+
+    SignatureTask(List<? extends DoubleVector> vectors, long[] keys,
+        int start, int end) {
+      this.vectors = vectors;
+      this.keys = keys;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= PARALLEL_THRESHOLD) {
+        int[] signature = new int[family.getSignatureLength()];
+        for (int i = start; i < end; i++) {
+          bucketKeys(vectors.get(i), signature, keys, i * bands);
+        }
+      } else {
+        int mid = start + (end - start) / 2;
+        invokeAll(new SignatureTask(vectors, keys, start, mid),
+            new SignatureTask(vectors, keys, mid, end));
+      }
+    }
+  }
+
+  private final class DuplicateTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 2617395410853092674L;
+
+    private final List<Neighbor>[] result;
+    private final double minSimilarity;
+    private final int start;
+    private final int end;
+
+    DuplicateTask(List<Neighbor>[] result, double minSimilarity, int start,
+        int end) {
+      this.result = result;
+      this.minSimilarity = minSimilarity;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= PARALLEL_THRESHOLD) {
+        TIntHashSet candidates = new TIntHashSet();
+        for (int id = start; id < end; id++) {
+          result[id] = verify(vectors.get(id), keys, id * bands, id,
+              minSimilarity, candidates);
+        }
+      } else {
+        int mid = start + (end - start) / 2;
+        invokeAll(new DuplicateTask(result, minSimilarity, start, mid),
+            new DuplicateTask(result, minSimilarity, mid, end));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+package de.jungblut.math.search;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+
+/**
+ * MinHash for the jaccard similarity of the sets of non-zero indices, for
+ * example shingles in a {@link de.jungblut.math.sparse.SparseBitVector}. Every
+ * position of the signature is the minimum of a random hash function over the
+ * non-zero indices, two vectors agree on a position with a probability equal
+ * to their jaccard similarity. The values of the elements are ignored.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class MinHash implements LshFamily {
+
+  private final long[] multipliers;
+  private final long[] increments;
+
+  /**
+   * Creates a new family with the given signature length.
+   *
+   * @param numHashes the number of hash functions.
+   * @param seed the seed for the hash functions, vectors are only comparable
+   *          when hashed with the same seed.
+   */
+  public MinHash(int numHashes, long seed) {
+    if (numHashes < 1) {
+      throw new IllegalArgumentException("numHashes must be positive, given "
+          + numHashes);
+    }
+    Random random = new Random(seed);
+    this.multipliers = new long[numHashes];
+    this.increments = new long[numHashes];
+    for (int i = 0; i < numHashes; i++) {
+      // odd multipliers are a permutation of the 64 bit integers
+      multipliers[i] = random.nextLong() | 1L;
+      increments[i] = random.nextLong();
+    }
+  }
+
+  @Override
+  public int getSignatureLength() {
+    return multipliers.length;
+  }
+
+  @Override
+  public void signature(DoubleVector vector, int[] signature) {
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    Iterator<DoubleVectorElement> it = vector.iterateNonZero();
+    while (it.hasNext()) {
+      long index = it.next().getIndex();
+      for (int i = 0; i < signature.length; i++) {
+        int hash = (int) (mix(multipliers[i] * index + increments[i]) >>> 33);
+        if (hash < signature[i]) {
+          signature[i] = hash;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of common non-zero indices divided by the number of
+   *         non-zero indices in either vector, 0 if both are zero.
+   */
+  @Override
+  public double similarity(DoubleVector a, DoubleVector b) {
+    // getLength is the dimension of dense vectors, so the non-zeros are
+    // counted: the non-zeros of a, of b and the common ones
+    int[] counts = new int[3];
+    a.forEachNonZero((index, value) -> {
+      counts[0]++;
+      if (b.get(index) != 0d) {
+        counts[2]++;
+      }
+    });
+    b.forEachNonZero((index, value) -> counts[1]++);
+    int intersection = counts[2];
+    int union = counts[0] + counts[1] - intersection;
+    return union == 0 ? 0d : (double) intersection / union;
+  }
+
+  /**
+   * The finalizer of murmur3, spreads every input bit over the whole word.
+   */
+  static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+}
@@ -0,0 +1,55 @@
+package de.jungblut.math.search;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.named.KeyedDoubleVector;
+
+/**
+ * A search result, the vector that was found with its distance to the query.
+ * The vector is the instance that was added to the index, so the name of a
+ * {@link de.jungblut.math.named.NamedDoubleVector} or the key of a
+ * {@link KeyedDoubleVector} is available through it.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class Neighbor {
+
+  private final int id;
+  private final DoubleVector vector;
+  private final double distance;
+
+  public Neighbor(int id, DoubleVector vector, double distance) {
+    this.id = id;
+    this.vector = vector;
+    this.distance = distance;
+  }
+
+  /**
+   * @return the id of the vector within the index that found it.
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * @return the key of a {@link KeyedDoubleVector}, otherwise the id.
+   */
+  public int getKey() {
+    return vector instanceof KeyedDoubleVector ? ((KeyedDoubleVector) vector)
+        .getKey() : id;
+  }
+
+  public DoubleVector getVector() {
+    return vector;
+  }
+
+  public double getDistance() {
+    return distance;
+  }
+
+  @Override
+  public String toString() {
+    return getKey() + " -> " + distance;
+  }
+
+}
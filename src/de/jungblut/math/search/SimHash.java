@@ -0,0 +1,81 @@
+package de.jungblut.math.search;
+
+import java.util.Iterator;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+
+/**
+ * SimHash (Charikar, "Similarity estimation techniques from rounding
+ * algorithms") for the cosine similarity, for example of TF-IDF vectors. Every
+ * position of the signature is the side of a random hyperplane the vector
+ * lies on, two vectors with an angle theta agree on a position with a
+ * probability of 1 - theta / pi.<br/>
+ * <br/>
+ * The hyperplanes are never stored: their components are random signs that
+ * are derived from a hash of the index, so the dimension can be arbitrarily
+ * large and a vector costs one hash per non-zero element and 64 positions.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class SimHash implements LshFamily {
+
+  private final int numBits;
+  private final long seed;
+
+  /**
+   * Creates a new family with the given signature length.
+   *
+   * @param numBits the number of hyperplanes.
+   * @param seed the seed for the hyperplanes, vectors are only comparable when
+   *          hashed with the same seed.
+   */
+  public SimHash(int numBits, long seed) {
+    if (numBits < 1) {
+      throw new IllegalArgumentException("numBits must be positive, given "
+          + numBits);
+    }
+    this.numBits = numBits;
+    this.seed = seed;
+  }
+
+  @Override
+  public int getSignatureLength() {
+    return numBits;
+  }
+
+  @Override
+  public void signature(DoubleVector vector, int[] signature) {
+    double[] projections = new double[numBits];
+    Iterator<DoubleVectorElement> it = vector.iterateNonZero();
+    while (it.hasNext()) {
+      DoubleVectorElement e = it.next();
+      long index = e.getIndex();
+      double value = e.getValue();
+      for (int word = 0; word < numBits; word += 64) {
+        // the bits of the hash are the signs of 64 hyperplanes at this index
+        long signs = MinHash.mix(seed + MinHash.mix(index * 0x9e3779b97f4a7c15L
+            + word));
+        int end = Math.min(numBits, word + 64);
+        for (int bit = word; bit < end; bit++) {
+          projections[bit] += (signs & 1L) == 0 ? value : -value;
+          signs >>>= 1;
+        }
+      }
+    }
+    for (int i = 0; i < numBits; i++) {
+      signature[i] = projections[i] >= 0d ? 1 : 0;
+    }
+  }
+
+  /**
+   * @return the cosine similarity between both vectors, 0 if one of them is
+   *         zero.
+   */
+  @Override
+  public double similarity(DoubleVector a, DoubleVector b) {
+    return 1d - Distances.COSINE.measureDistance(a, b);
+  }
+
+}
@@ -0,0 +1,808 @@
+package de.jungblut.math.sparse;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleVector;
+
+/**
+ * Immutable sparse matrix in the compressed sparse row (CSR) format. The non
+ * zero entries are stored row by row in two parallel arrays (column indices and
+ * values), the row pointer array denotes where each row starts. Column indices
+ * are sorted within a row.<br/>
+ * <br/>
+ * This layout is much more compact than the {@link SparseDoubleRowMatrix} and
+ * allows linear scans over the non-zeros, thus it is well suited for matrix
+ * vector products, multiplications and transposition. Building it is done by a
+ * {@link Builder} or by converting another matrix, every set operation throws
+ * an {@link IllegalStateException}.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class CsrDoubleMatrix implements DoubleMatrix {
+
+  private final int numRows;
+  private final int numColumns;
+  // rowPointers[row] until rowPointers[row+1] denotes the range of the row
+  private final int[] rowPointers;
+  private final int[] columnIndices;
+  private final double[] values;
+
+  /**
+   * Creates a new matrix from the given CSR arrays. The arrays are not copied.
+   *
+   * @param rows the number of rows.
+   * @param columns the number of columns.
+   * @param rowPointers the row pointers, must have the length rows + 1.
+   * @param columnIndices the column indices, sorted ascending within a row.
+   * @param values the values, parallel to the column indices.
+   */
+  public CsrDoubleMatrix(int rows, int columns, int[] rowPointers,
+      int[] columnIndices, double[] values) {
+    if (rowPointers.length != rows + 1) {
+      throw new IllegalArgumentException("Row pointers must have the length "
+          + (rows + 1) + ", but was " + rowPointers.length);
+    }
+    this.numRows = rows;
+    this.numColumns = columns;
+    this.rowPointers = rowPointers;
+    this.columnIndices = columnIndices;
+    this.values = values;
+  }
+
+  /**
+   * Converts the given matrix into the CSR format.
+   *
+   * @param other the other matrix.
+   */
+  public CsrDoubleMatrix(DoubleMatrix other) {
+    this(fromMatrix(other));
+  }
+
+  /**
+   * Creates a new matrix from the given row vectors.
+   *
+   * @param vec a list of row vectors, all of them must have the same
+   *          dimension.
+   */
+  public CsrDoubleMatrix(List<DoubleVector> vec) {
+    this(fromRows(vec.toArray(new DoubleVector[vec.size()])));
+  }
+
+  /**
+   * Creates a new matrix from the given row vectors.
+   *
+   * @param vectorArray an array of row vectors, all of them must have the same
+   *          dimension.
+   */
+  public CsrDoubleMatrix(DoubleVector[] vectorArray) {
+    this(fromRows(vectorArray));
+  }
+
+  private CsrDoubleMatrix(CsrDoubleMatrix other) {
+    this(other.numRows, other.numColumns, other.rowPointers,
+        other.columnIndices, other.values);
+  }
+
+  private static CsrDoubleMatrix fromRows(DoubleVector[] vectorArray) {
+    Builder builder = new Builder(vectorArray.length == 0 ? 0 : vectorArray[0]
+        .getDimension());
+    for (DoubleVector row : vectorArray) {
+      builder.addRow(row);
+    }
+    return builder.build();
+  }
+
+  private static CsrDoubleMatrix fromMatrix(DoubleMatrix other) {
+    if (other instanceof CsrDoubleMatrix) {
+      return (CsrDoubleMatrix) other;
+    }
+    Builder builder = new Builder(other.getColumnCount());
+    if (other instanceof SparseDoubleRowMatrix) {
+      // only ask for existing rows, getRowVector would insert empty ones
+      int[] rows = other.rowIndices();
+      Arrays.sort(rows);
+      int next = 0;
+      for (int row = 0; row < other.getRowCount(); row++) {
+        if (next < rows.length && rows[next] == row) {
+          builder.addRow(other.getRowVector(row));
+          next++;
+        } else {
+          builder.addEmptyRow();
+        }
+      }
+    } else {
+      for (int row = 0; row < other.getRowCount(); row++) {
+        builder.addRow(other.getRowVector(row));
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public double get(int row, int col) {
+    int offset = Arrays.binarySearch(columnIndices, rowPointers[row],
+        rowPointers[row + 1], col);
+    return offset >= 0 ? values[offset] : 0d;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return numColumns;
+  }
+
+  @Override
+  public DoubleVector getColumnVector(int col) {
+    SequentialSparseDoubleVector v = new SequentialSparseDoubleVector(numRows);
+    for (int row = 0; row < numRows; row++) {
+      int offset = Arrays.binarySearch(columnIndices, rowPointers[row],
+          rowPointers[row + 1], col);
+      if (offset >= 0) {
+        v.set(row, values[offset]);
+      }
+    }
+    return v;
+  }
+
+  @Override
+  public int getRowCount() {
+    return numRows;
+  }
+
+  /**
+   * @return a read-only view on the given row, no copy is made. Mutating
+   *         operations on the view throw an {@link IllegalStateException}.
+   */
+  @Override
+  public DoubleVector getRowVector(int row) {
+    return new CsrRowVector(numColumns, columnIndices, values,
+        rowPointers[row], rowPointers[row + 1]);
+  }
+
+  @Override
+  public void set(int row, int col, double value) {
+    throw new IllegalStateException("Can't mutate an immutable CSR matrix!");
+  }
+
+  @Override
+  public void setColumnVector(int col, DoubleVector column) {
+    throw new IllegalStateException("Can't mutate an immutable CSR matrix!");
+  }
+
+  @Override
+  public void setRowVector(int rowIndex, DoubleVector row) {
+    throw new IllegalStateException("Can't mutate an immutable CSR matrix!");
+  }
+
+  @Override
+  public DoubleMatrix multiply(double scalar) {
+    double[] newValues = new double[getNumNonZeros()];
+    for (int i = 0; i < newValues.length; i++) {
+      newValues[i] = values[i] * scalar;
+    }
+    return withValues(newValues);
+  }
+
+  /**
+   * Multiplies this matrix with the given other matrix. If the other matrix is
+   * a {@link DenseDoubleMatrix}, the result is dense as well, in every other
+   * case the other matrix is converted to CSR and the result is computed with
+   * Gustavson's row-by-row algorithm as a {@link CsrDoubleMatrix}.
+   */
+  @Override
+  public DoubleMatrix multiply(DoubleMatrix other) {
+    if (other instanceof DenseDoubleMatrix) {
+      return multiplyDense((DenseDoubleMatrix) other);
+    }
+    return multiplySparse(new CsrDoubleMatrix(other));
+  }
+
+  private DoubleMatrix multiplyDense(DenseDoubleMatrix other) {
+    int n = other.getColumnCount();
+    double[] b = other.getColumnMajorMatrix();
+    double[] c = new double[numRows * n];
+    for (int col = 0; col < n; col++) {
+      // column major layout makes the column of b a contiguous block
+      int bOffset = col * numColumns;
+      int cOffset = col * numRows;
+      for (int row = 0; row < numRows; row++) {
+        double sum = 0d;
+        for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+          sum += values[i] * b[bOffset + columnIndices[i]];
+        }
+        c[cOffset + row] = sum;
+      }
+    }
+    return new DenseDoubleMatrix(numRows, n, c);
+  }
+
+  private CsrDoubleMatrix multiplySparse(CsrDoubleMatrix other) {
+    int n = other.numColumns;
+    int[] resultPointers = new int[numRows + 1];
+    int[] resultIndices = new int[Math.max(16, getNumNonZeros())];
+    double[] resultValues = new double[resultIndices.length];
+    // the row a column was last touched in and where it was put in the result
+    int[] marker = new int[n];
+    int[] position = new int[n];
+    Arrays.fill(marker, -1);
+    int nnz = 0;
+    for (int row = 0; row < numRows; row++) {
+      // upper bound of entries this row can produce
+      long bound = 0;
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        int k = columnIndices[i];
+        bound += other.rowPointers[k + 1] - other.rowPointers[k];
+      }
+      int required = nnz + (int) Math.min(bound, n);
+      if (required > resultIndices.length) {
+        int newLength = Math.max(required, resultIndices.length * 3 / 2);
+        resultIndices = Arrays.copyOf(resultIndices, newLength);
+        resultValues = Arrays.copyOf(resultValues, newLength);
+      }
+      int rowStart = nnz;
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        int k = columnIndices[i];
+        double a = values[i];
+        for (int j = other.rowPointers[k]; j < other.rowPointers[k + 1]; j++) {
+          int col = other.columnIndices[j];
+          if (marker[col] != row) {
+            marker[col] = row;
+            position[col] = nnz;
+            resultIndices[nnz] = col;
+            resultValues[nnz++] = a * other.values[j];
+          } else {
+            resultValues[position[col]] += a * other.values[j];
+          }
+        }
+      }
+      OrderedIntDoubleMapping.sortByIndex(resultIndices, resultValues,
+          rowStart, nnz);
+      // drop entries that cancelled out
+      int write = rowStart;
+      for (int i = rowStart; i < nnz; i++) {
+        if (resultValues[i] != 0d) {
+          resultIndices[write] = resultIndices[i];
+          resultValues[write++] = resultValues[i];
+        }
+      }
+      nnz = write;
+      resultPointers[row + 1] = nnz;
+    }
+    return new CsrDoubleMatrix(numRows, n, resultPointers, Arrays.copyOf(
+        resultIndices, nnz), Arrays.copyOf(resultValues, nnz));
+  }
+
+  @Override
+  public DoubleMatrix multiplyElementWise(DoubleMatrix other) {
+    double[] newValues = new double[getNumNonZeros()];
+    for (int row = 0; row < numRows; row++) {
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        newValues[i] = values[i] * other.get(row, columnIndices[i]);
+      }
+    }
+    return withValues(newValues);
+  }
+
+  @Override
+  public DoubleVector multiplyVectorRow(DoubleVector v) {
+    double[] result = new double[numRows];
+    if (!v.isSparse()) {
+      double[] vector = v.toArray();
+      for (int row = 0; row < numRows; row++) {
+        double sum = 0d;
+        for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+          sum += values[i] * vector[columnIndices[i]];
+        }
+        result[row] = sum;
+      }
+    } else {
+      for (int row = 0; row < numRows; row++) {
+        double sum = 0d;
+        for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+          sum += values[i] * v.get(columnIndices[i]);
+        }
+        result[row] = sum;
+      }
+    }
+    return new DenseDoubleVector(result);
+  }
+
+  @Override
+  public DoubleVector multiplyVectorColumn(DoubleVector v) {
+    double[] result = new double[numColumns];
+    if (v.isSparse()) {
+      // only the rows of the non-zero vector entries contribute
+      Iterator<DoubleVectorElement> iterateNonZero = v.iterateNonZero();
+      while (iterateNonZero.hasNext()) {
+        DoubleVectorElement e = iterateNonZero.next();
+        int row = e.getIndex();
+        double factor = e.getValue();
+        for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+          result[columnIndices[i]] += values[i] * factor;
+        }
+      }
+    } else {
+      double[] vector = v.toArray();
+      for (int row = 0; row < numRows; row++) {
+        double factor = vector[row];
+        if (factor != 0d) {
+          for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+            result[columnIndices[i]] += values[i] * factor;
+          }
+        }
+      }
+    }
+    return new DenseDoubleVector(result);
+  }
+
+  /**
+   * Transposes this matrix with a counting sort over the column indices. The
+   * result is the compressed sparse column representation of this matrix,
+   * interpreted as CSR of the transpose.
+   */
+  @Override
+  public CsrDoubleMatrix transpose() {
+    int nnz = getNumNonZeros();
+    int[] newPointers = new int[numColumns + 1];
+    for (int i = 0; i < nnz; i++) {
+      newPointers[columnIndices[i] + 1]++;
+    }
+    for (int col = 0; col < numColumns; col++) {
+      newPointers[col + 1] += newPointers[col];
+    }
+    int[] next = Arrays.copyOf(newPointers, numColumns);
+    int[] newIndices = new int[nnz];
+    double[] newValues = new double[nnz];
+    // rows are visited in order, so the new rows are sorted already
+    for (int row = 0; row < numRows; row++) {
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        int dest = next[columnIndices[i]]++;
+        newIndices[dest] = row;
+        newValues[dest] = values[i];
+      }
+    }
+    return new CsrDoubleMatrix(numColumns, numRows, newPointers, newIndices,
+        newValues);
+  }
+
+  @Override
+  public DoubleMatrix subtractBy(double amount) {
+    DenseDoubleMatrix result = new DenseDoubleMatrix(numRows, numColumns,
+        amount);
+    double[] matrix = result.getColumnMajorMatrix();
+    for (int row = 0; row < numRows; row++) {
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        matrix[row + columnIndices[i] * numRows] -= values[i];
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public DoubleMatrix subtract(double amount) {
+    DenseDoubleMatrix result = new DenseDoubleMatrix(numRows, numColumns,
+        -amount);
+    double[] matrix = result.getColumnMajorMatrix();
+    for (int row = 0; row < numRows; row++) {
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        matrix[row + columnIndices[i] * numRows] += values[i];
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public DoubleMatrix subtract(DoubleMatrix other) {
+    return addScaled(other, -1d);
+  }
+
+  @Override
+  public DoubleMatrix subtract(DoubleVector vec) {
+    DenseDoubleMatrix result = new DenseDoubleMatrix(numRows, numColumns);
+    double[] matrix = result.getColumnMajorMatrix();
+    for (int row = 0; row < numRows; row++) {
+      double amount = vec.get(row);
+      for (int col = 0; col < numColumns; col++) {
+        matrix[row + col * numRows] = -amount;
+      }
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        matrix[row + columnIndices[i] * numRows] += values[i];
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public DoubleMatrix divide(DoubleVector vec) {
+    double[] newValues = new double[getNumNonZeros()];
+    for (int row = 0; row < numRows; row++) {
+      double divisor = vec.get(row);
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        newValues[i] = values[i] / divisor;
+      }
+    }
+    return withValues(newValues);
+  }
+
+  @Override
+  public DoubleMatrix divide(DoubleMatrix other) {
+    double[] newValues = new double[getNumNonZeros()];
+    for (int row = 0; row < numRows; row++) {
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        newValues[i] = values[i] / other.get(row, columnIndices[i]);
+      }
+    }
+    return withValues(newValues);
+  }
+
+  @Override
+  public DoubleMatrix divide(double scalar) {
+    double[] newValues = new double[getNumNonZeros()];
+    for (int i = 0; i < newValues.length; i++) {
+      newValues[i] = values[i] / scalar;
+    }
+    return withValues(newValues);
+  }
+
+  @Override
+  public DoubleMatrix add(DoubleMatrix other) {
+    return addScaled(other, 1d);
+  }
+
+  @Override
+  public DoubleMatrix pow(double x) {
+    double[] newValues = new double[getNumNonZeros()];
+    for (int i = 0; i < newValues.length; i++) {
+      if (x != 2d) {
+        newValues[i] = Math.pow(values[i], x);
+      } else {
+        newValues[i] = values[i] * values[i];
+      }
+    }
+    return withValues(newValues);
+  }
+
+  @Override
+  public double max(int column) {
+    return getColumnVector(column).max();
+  }
+
+  @Override
+  public double min(int column) {
+    return getColumnVector(column).min();
+  }
+
+  @Override
+  public double sum() {
+    double res = 0d;
+    for (int i = 0; i < getNumNonZeros(); i++) {
+      res += values[i];
+    }
+    return res;
+  }
+
+  @Override
+  public int[] columnIndices() {
+    return SparseDoubleRowMatrix.fromUpTo(0, numColumns, 1);
+  }
+
+  /**
+   * @return the indices of the rows that have at least a single non-zero
+   *         entry.
+   */
+  @Override
+  public int[] rowIndices() {
+    int count = 0;
+    for (int row = 0; row < numRows; row++) {
+      if (rowPointers[row] != rowPointers[row + 1]) {
+        count++;
+      }
+    }
+    int[] rows = new int[count];
+    count = 0;
+    for (int row = 0; row < numRows; row++) {
+      if (rowPointers[row] != rowPointers[row + 1]) {
+        rows[count++] = row;
+      }
+    }
+    return rows;
+  }
+
+  @Override
+  public double[][] toArray() {
+    double[][] dim = new double[numRows][numColumns];
+    for (int row = 0; row < numRows; row++) {
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        dim[row][columnIndices[i]] = values[i];
+      }
+    }
+    return dim;
+  }
+
+  @Override
+  public boolean isSparse() {
+    return true;
+  }
+
+  @Override
+  public DoubleMatrix slice(int rows, int cols) {
+    return slice(0, rows, 0, cols);
+  }
+
+  @Override
+  public DoubleMatrix slice(int rowOffset, int rowMax, int colOffset, int colMax) {
+    Builder builder = new Builder(colMax - colOffset);
+    for (int row = rowOffset; row < rowMax; row++) {
+      int offset = Arrays.binarySearch(columnIndices, rowPointers[row],
+          rowPointers[row + 1], colOffset);
+      if (offset < 0) {
+        offset = -(offset + 1);
+      }
+      builder.startRow();
+      for (int i = offset; i < rowPointers[row + 1]
+          && columnIndices[i] < colMax; i++) {
+        builder.append(columnIndices[i] - colOffset, values[i]);
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public DoubleMatrix deepCopy() {
+    return new CsrDoubleMatrix(numRows, numColumns, rowPointers.clone(),
+        columnIndices.clone(), values.clone());
+  }
+
+  /**
+   * @return the number of stored non-zero entries.
+   */
+  public int getNumNonZeros() {
+    return rowPointers[numRows];
+  }
+
+  /**
+   * @return the internal row pointers, no defensive copy is made.
+   */
+  public int[] getRowPointers() {
+    return rowPointers;
+  }
+
+  /**
+   * @return the internal column indices, no defensive copy is made.
+   */
+  public int[] getColumnIndices() {
+    return columnIndices;
+  }
+
+  /**
+   * @return the internal values, no defensive copy is made.
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    if (numRows * numColumns < 100) {
+      StringBuilder sb = new StringBuilder();
+      double[][] array = toArray();
+      for (int i = 0; i < numRows; i++) {
+        sb.append(Arrays.toString(array[i]));
+        sb.append('\n');
+      }
+      return sb.toString();
+    } else {
+      return sizeToString();
+    }
+  }
+
+  /**
+   * Returns the size of the matrix as string (ROWSxCOLUMNS).
+   */
+  public String sizeToString() {
+    return numRows + "x" + numColumns;
+  }
+
+  /**
+   * Adds the other matrix multiplied by the given factor to this matrix. Dense
+   * matrices yield a dense result, sparse ones are merged row by row.
+   */
+  private DoubleMatrix addScaled(DoubleMatrix other, double factor) {
+    if (!other.isSparse()) {
+      DenseDoubleMatrix result;
+      if (other instanceof DenseDoubleMatrix) {
+        double[] otherMatrix = ((DenseDoubleMatrix) other)
+            .getColumnMajorMatrix();
+        double[] matrix = new double[otherMatrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+          matrix[i] = factor * otherMatrix[i];
+        }
+        result = new DenseDoubleMatrix(numRows, numColumns, matrix);
+      } else {
+        result = new DenseDoubleMatrix(other.toArray());
+        if (factor != 1d) {
+          result = result.multiply(factor);
+        }
+      }
+      double[] matrix = result.getColumnMajorMatrix();
+      for (int row = 0; row < numRows; row++) {
+        for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+          matrix[row + columnIndices[i] * numRows] += values[i];
+        }
+      }
+      return result;
+    }
+
+    CsrDoubleMatrix o = new CsrDoubleMatrix(other);
+    Builder builder = new Builder(numColumns);
+    for (int row = 0; row < numRows; row++) {
+      builder.startRow();
+      int i = rowPointers[row];
+      int j = o.rowPointers[row];
+      int iEnd = rowPointers[row + 1];
+      int jEnd = o.rowPointers[row + 1];
+      while (i < iEnd && j < jEnd) {
+        if (columnIndices[i] < o.columnIndices[j]) {
+          builder.append(columnIndices[i], values[i]);
+          i++;
+        } else if (columnIndices[i] > o.columnIndices[j]) {
+          builder.append(o.columnIndices[j], factor * o.values[j]);
+          j++;
+        } else {
+          builder.append(columnIndices[i], values[i] + factor * o.values[j]);
+          i++;
+          j++;
+        }
+      }
+      for (; i < iEnd; i++) {
+        builder.append(columnIndices[i], values[i]);
+      }
+      for (; j < jEnd; j++) {
+        builder.append(o.columnIndices[j], factor * o.values[j]);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a new matrix with the structure of this matrix and the given
+   * values. The structure is shared if no value became zero, otherwise the
+   * zeros are removed.
+   */
+  private CsrDoubleMatrix withValues(double[] newValues) {
+    boolean hasZeros = false;
+    for (double d : newValues) {
+      if (d == 0d) {
+        hasZeros = true;
+        break;
+      }
+    }
+    if (!hasZeros) {
+      return new CsrDoubleMatrix(numRows, numColumns, rowPointers,
+          columnIndices, newValues);
+    }
+    Builder builder = new Builder(numColumns);
+    for (int row = 0; row < numRows; row++) {
+      builder.startRow();
+      for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++) {
+        builder.append(columnIndices[i], newValues[i]);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Builds a {@link CsrDoubleMatrix} row by row. Rows that don't iterate their
+   * non-zeros in ascending order (like the hash based
+   * {@link SparseDoubleVector}) are sorted while they are added.
+   */
+  public static final class Builder {
+
+    private final int numColumns;
+    private int numRows;
+    private int[] rowPointers = new int[17];
+    private int[] columnIndices = new int[16];
+    private double[] values = new double[16];
+    private int nnz;
+
+    /**
+     * Creates a new builder for a matrix with the given number of columns.
+     *
+     * @param numColumns the number of columns.
+     */
+    public Builder(int numColumns) {
+      this.numColumns = numColumns;
+    }
+
+    /**
+     * Adds the given vector as the next row of the matrix, zeros are skipped.
+     *
+     * @param row the row vector, the dimension must match the number of
+     *          columns.
+     * @return this builder.
+     */
+    public Builder addRow(DoubleVector row) {
+      if (row.getDimension() != numColumns) {
+        throw new IllegalArgumentException("Row dimension "
+            + row.getDimension() + " doesn't match the number of columns "
+            + numColumns);
+      }
+      startRow();
+      int rowStart = nnz;
+      if (row.isSparse()) {
+        boolean sorted = true;
+        int last = -1;
+        Iterator<DoubleVectorElement> iterateNonZero = row.iterateNonZero();
+        while (iterateNonZero.hasNext()) {
+          DoubleVectorElement e = iterateNonZero.next();
+          if (e.getValue() != 0d) {
+            sorted &= e.getIndex() > last;
+            last = e.getIndex();
+            append(e.getIndex(), e.getValue());
+          }
+        }
+        if (!sorted) {
+          OrderedIntDoubleMapping.sortByIndex(columnIndices, values, rowStart,
+              nnz);
+        }
+      } else {
+        double[] array = row.toArray();
+        for (int i = 0; i < array.length; i++) {
+          append(i, array[i]);
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Adds a row without any non-zero entries.
+     *
+     * @return this builder.
+     */
+    public Builder addEmptyRow() {
+      startRow();
+      return this;
+    }
+
+    /**
+     * @return a new matrix with all rows added so far.
+     */
+    public CsrDoubleMatrix build() {
+      return new CsrDoubleMatrix(numRows, numColumns, Arrays.copyOf(
+          rowPointers, numRows + 1), Arrays.copyOf(columnIndices, nnz),
+          Arrays.copyOf(values, nnz));
+    }
+
+    void startRow() {
+      if (numRows + 2 > rowPointers.length) {
+        rowPointers = Arrays.copyOf(rowPointers, rowPointers.length * 2);
+      }
+      numRows++;
+      rowPointers[numRows] = nnz;
+    }
+
+    /**
+     * Appends the given entry to the current row, zeros are skipped.
+     */
+    void append(int column, double value) {
+      if (value == 0d) {
+        return;
+      }
+      if (nnz == columnIndices.length) {
+        columnIndices = Arrays.copyOf(columnIndices, nnz * 2);
+        values = Arrays.copyOf(values, nnz * 2);
+      }
+      columnIndices[nnz] = column;
+      values[nnz++] = value;
+      rowPointers[numRows] = nnz;
+    }
+
+  }
+
+}
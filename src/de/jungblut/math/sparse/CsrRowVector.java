@@ -0,0 +1,403 @@
+package de.jungblut.math.sparse;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import com.google.common.collect.AbstractIterator;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.function.DoubleDoubleVectorFunction;
+import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
+
+/**
+ * Read-only view on a single row of a {@link CsrDoubleMatrix}. It directly
+ * works on a range of the column index and value arrays of the matrix, so
+ * creating it does not copy anything. Read operations are implemented on the
+ * arrays, the arithmetic operations that return a new vector copy the row into
+ * a {@link SequentialSparseDoubleVector} first.
+ *
+ * @author thomas.jungblut
+ *
+ */
+final class CsrRowVector implements DoubleVector {
+
+  private final int dimension;
+  private final int[] indices;
+  private final double[] values;
+  private final int start;
+  private final int end;
+
+  CsrRowVector(int dimension, int[] indices, double[] values, int start,
+      int end) {
+    this.dimension = dimension;
+    this.indices = indices;
+    this.values = values;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @return a mutable copy of this row.
+   */
+  SequentialSparseDoubleVector toSequential() {
+    int length = end - start;
+    // leave some space for the mapping to grow
+    int[] newIndices = new int[length + 1];
+    double[] newValues = new double[length + 1];
+    System.arraycopy(indices, start, newIndices, 0, length);
+    System.arraycopy(values, start, newValues, 0, length);
+    return new SequentialSparseDoubleVector(dimension,
+        new OrderedIntDoubleMapping(newIndices, newValues, length));
+  }
+
+  @Override
+  public double get(int index) {
+    int offset = Arrays.binarySearch(indices, start, end, index);
+    return offset >= 0 ? values[offset] : 0d;
+  }
+
+  @Override
+  public int getLength() {
+    return end - start;
+  }
+
+  @Override
+  public int getDimension() {
+    return dimension;
+  }
+
+  @Override
+  public void set(int index, double value) {
+    throw new IllegalStateException(
+        "Can't mutate a row of an immutable CSR matrix!");
+  }
+
+  @Override
+  public DoubleVector apply(DoubleVectorFunction func) {
+    return toSequential().apply(func);
+  }
+
+  @Override
+  public DoubleVector apply(DoubleVector other, DoubleDoubleVectorFunction func) {
+    return toSequential().apply(other, func);
+  }
+
+  @Override
+  public DoubleVector add(DoubleVector v) {
+    return toSequential().add(v);
+  }
+
+  @Override
+  public DoubleVector add(double scalar) {
+    return toSequential().add(scalar);
+  }
+
+  @Override
+  public DoubleVector subtract(DoubleVector v) {
+    return toSequential().subtract(v);
+  }
+
+  @Override
+  public DoubleVector subtract(double scalar) {
+    return toSequential().subtract(scalar);
+  }
+
+  @Override
+  public DoubleVector subtractFrom(double scalar) {
+    return toSequential().subtractFrom(scalar);
+  }
+
+  @Override
+  public DoubleVector multiply(double scalar) {
+    return toSequential().multiply(scalar);
+  }
+
+  @Override
+  public DoubleVector multiply(DoubleVector vector) {
+    return toSequential().multiply(vector);
+  }
+
+  @Override
+  public DoubleVector divide(double scalar) {
+    return toSequential().divide(scalar);
+  }
+
+  @Override
+  public DoubleVector divideFrom(double scalar) {
+    return toSequential().divideFrom(scalar);
+  }
+
+  @Override
+  public DoubleVector divideFrom(DoubleVector vector) {
+    return toSequential().divideFrom(vector);
+  }
+
+  @Override
+  public DoubleVector divide(DoubleVector vector) {
+    return toSequential().divide(vector);
+  }
+
+  @Override
+  public DoubleVector pow(double x) {
+    return toSequential().pow(x);
+  }
+
+  @Override
+  public DoubleVector abs() {
+    return toSequential().abs();
+  }
+
+  @Override
+  public DoubleVector sqrt() {
+    return toSequential().sqrt();
+  }
+
+  @Override
+  public DoubleVector log() {
+    return toSequential().log();
+  }
+
+  @Override
+  public DoubleVector exp() {
+    return toSequential().exp();
+  }
+
+  @Override
+  public DoubleVector addInPlace(DoubleVector v) {
+    throw new IllegalStateException(
+        "Can't mutate a row of an immutable CSR matrix!");
+  }
+
+  @Override
+  public DoubleVector subtractInPlace(DoubleVector v) {
+    throw new IllegalStateException(
+        "Can't mutate a row of an immutable CSR matrix!");
+  }
+
+  @Override
+  public DoubleVector scaleInPlace(double scalar) {
+    throw new IllegalStateException(
+        "Can't mutate a row of an immutable CSR matrix!");
+  }
+
+  @Override
+  public DoubleVector axpy(double alpha, DoubleVector x) {
+    throw new IllegalStateException(
+        "Can't mutate a row of an immutable CSR matrix!");
+  }
+
+  @Override
+  public DoubleVector applyInPlace(DoubleVectorFunction func) {
+    throw new IllegalStateException(
+        "Can't mutate a row of an immutable CSR matrix!");
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0d;
+    for (int i = start; i < end; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public double dot(DoubleVector s) {
+    double dotProduct = 0d;
+    if (!s.isSparse()) {
+      // dense vectors return their backing array, so this does not copy
+      double[] other = s.toArray();
+      for (int i = start; i < end; i++) {
+        dotProduct += values[i] * other[indices[i]];
+      }
+    } else {
+      for (int i = start; i < end; i++) {
+        dotProduct += values[i] * s.get(indices[i]);
+      }
+    }
+    return dotProduct;
+  }
+
+  @Override
+  public DoubleVector slice(int end) {
+    return toSequential().slice(end);
+  }
+
+  @Override
+  public DoubleVector slice(int start, int end) {
+    return toSequential().slice(start, end);
+  }
+
+  @Override
+  public DoubleVector sliceByLength(int start, int length) {
+    return toSequential().sliceByLength(start, length);
+  }
+
+  @Override
+  public double max() {
+    double res = -Double.MAX_VALUE;
+    for (int i = start; i < end; i++) {
+      if (res < values[i]) {
+        res = values[i];
+      }
+    }
+    // at the end check for zero, because we have skipped zero elements
+    if (end - start != dimension && res < 0d) {
+      res = 0d;
+    }
+    return res;
+  }
+
+  @Override
+  public double min() {
+    double res = Double.MAX_VALUE;
+    for (int i = start; i < end; i++) {
+      if (res > values[i]) {
+        res = values[i];
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public int maxIndex() {
+    int index = 0;
+    double res = -Double.MAX_VALUE;
+    for (int i = start; i < end; i++) {
+      if (res < values[i]) {
+        res = values[i];
+        index = indices[i];
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public int minIndex() {
+    int index = 0;
+    double res = Double.MAX_VALUE;
+    for (int i = start; i < end; i++) {
+      if (res > values[i]) {
+        res = values[i];
+        index = indices[i];
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public double[] toArray() {
+    double[] d = new double[dimension];
+    for (int i = start; i < end; i++) {
+      d[indices[i]] = values[i];
+    }
+    return d;
+  }
+
+  @Override
+  public DoubleVector deepCopy() {
+    return toSequential();
+  }
+
+  @Override
+  public Iterator<DoubleVectorElement> iterateNonZero() {
+    return new NonZeroIterator();
+  }
+
+  @Override
+  public Iterator<DoubleVectorElement> iterate() {
+    return new DefaultIterator();
+  }
+
+  @Override
+  public void forEachNonZero(IntDoubleConsumer consumer) {
+    for (int i = start; i < end; i++) {
+      consumer.accept(indices[i], values[i]);
+    }
+  }
+
+  @Override
+  public void forEach(IntDoubleConsumer consumer) {
+    int offset = start;
+    for (int i = 0; i < dimension; i++) {
+      if (offset < end && indices[offset] == i) {
+        consumer.accept(i, values[offset++]);
+      } else {
+        consumer.accept(i, 0d);
+      }
+    }
+  }
+
+  @Override
+  public boolean isSparse() {
+    return true;
+  }
+
+  @Override
+  public boolean isNamed() {
+    return false;
+  }
+
+  @Override
+  public boolean isSingle() {
+    return false;
+  }
+
+  @Override
+  public String getName() {
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return toSequential().toString();
+  }
+
+  private final class NonZeroIterator extends
+      AbstractIterator<DoubleVectorElement> {
+
+    private final DoubleVectorElement element = new DoubleVectorElement();
+    private int currentIndex = start;
+
+    @Override
+    protected final DoubleVectorElement computeNext() {
+      if (currentIndex < end) {
+        element.setIndex(indices[currentIndex]);
+        element.setValue(values[currentIndex]);
+        currentIndex++;
+        return element;
+      } else {
+        return endOfData();
+      }
+    }
+
+  }
+
+  private final class DefaultIterator extends
+      AbstractIterator<DoubleVectorElement> {
+
+    private final DoubleVectorElement element = new DoubleVectorElement();
+    private int index = 0;
+    private int currentIndex = start;
+
+    @Override
+    protected DoubleVectorElement computeNext() {
+      if (index < dimension) {
+        element.setIndex(index);
+        // advance along the non-zeros instead of searching for every index
+        if (currentIndex < end && indices[currentIndex] == index) {
+          element.setValue(values[currentIndex++]);
+        } else {
+          element.setValue(0d);
+        }
+        index++;
+        return element;
+      } else {
+        return endOfData();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,505 @@
+package de.jungblut.math.sparse;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import de.jungblut.math.function.IntFloatConsumer;
+
+/**
+ * Open addressing hash map from int to float with linear probing, tuned for
+ * the non-zero elements of a {@link SparseFloatVector}. The keys and values
+ * are stored in two parallel arrays of a power of two capacity, a key of zero
+ * marks a free slot, so there is no array of slot states and a new or cleared
+ * table is free without any fill. The key zero itself is kept in an extra slot
+ * at the end of the arrays.<br/>
+ * <br/>
+ * Removals shift the following entries of the probe sequence back instead of
+ * leaving tombstones, so lookups never have to skip deleted slots. Copies are
+ * a plain copy of both arrays and the iteration runs directly over the slots.
+ * This is the float counterpart of {@link FastIntDoubleHashMap}.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class FastIntFloatHashMap {
+
+  public static final int DEFAULT_CAPACITY = 10;
+  public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+  private static final int FREE_KEY = 0;
+
+  private final float loadFactor;
+  private final int noEntryKey;
+  private final float noEntryValue;
+
+  // the slot at index n (= mask + 1) holds the value of the key zero
+  private int[] keys;
+  private float[] values;
+  private int mask;
+  private int maxFill;
+  private int size;
+  private boolean containsZeroKey;
+
+  /**
+   * Creates a new map for {@link #DEFAULT_CAPACITY} entries.
+   */
+  public FastIntFloatHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new map.
+   *
+   * @param initialCapacity the number of entries that fit without a resize.
+   * @param loadFactor the maximum fill of the table before it is doubled.
+   * @param noEntryKey the key that {@link #getNoEntryKey()} reports.
+   * @param noEntryValue the value that is returned for absent keys.
+   */
+  public FastIntFloatHashMap(int initialCapacity, float loadFactor,
+      int noEntryKey, float noEntryValue) {
+    if (!(loadFactor > 0f && loadFactor < 1f)) {
+      throw new IllegalArgumentException(
+          "The load factor must be between 0 and 1, given " + loadFactor);
+    }
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException(
+          "The initial capacity must not be negative, given "
+              + initialCapacity);
+    }
+    this.loadFactor = loadFactor;
+    this.noEntryKey = noEntryKey;
+    this.noEntryValue = noEntryValue;
+    allocate(tableSize(initialCapacity, loadFactor));
+  }
+
+  /**
+   * Creates a new map.
+   *
+   * @param initialCapacity the number of entries that fit without a resize.
+   * @param loadFactor the maximum fill of the table before it is doubled.
+   */
+  public FastIntFloatHashMap(int initialCapacity, float loadFactor) {
+    this(initialCapacity, loadFactor, 0, 0f);
+  }
+
+  /**
+   * Creates a new map.
+   *
+   * @param initialCapacity the number of entries that fit without a resize.
+   */
+  public FastIntFloatHashMap(int initialCapacity) {
+    this(initialCapacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  /**
+   * Creates a new map with the given pairs, if a key occurs more than once the
+   * last value wins.
+   *
+   * @param keys the keys.
+   * @param values the values of the keys.
+   */
+  public FastIntFloatHashMap(int[] keys, float[] values) {
+    this(Math.min(keys.length, values.length));
+    int length = Math.min(keys.length, values.length);
+    for (int i = 0; i < length; i++) {
+      put(keys[i], values[i]);
+    }
+  }
+
+  /**
+   * Copy constructor, see {@link #fastDeepCopy()}.
+   */
+  private FastIntFloatHashMap(FastIntFloatHashMap other) {
+    this.loadFactor = other.loadFactor;
+    this.noEntryKey = other.noEntryKey;
+    this.noEntryValue = other.noEntryValue;
+    this.keys = Arrays.copyOf(other.keys, other.keys.length);
+    this.values = Arrays.copyOf(other.values, other.values.length);
+    this.mask = other.mask;
+    this.maxFill = other.maxFill;
+    this.size = other.size;
+    this.containsZeroKey = other.containsZeroKey;
+  }
+
+  /**
+   * @return a copy of this map, which only allocates the copy of both arrays.
+   */
+  public FastIntFloatHashMap fastDeepCopy() {
+    return new FastIntFloatHashMap(this);
+  }
+
+  /**
+   * @return the value of the given key or the no entry value if absent.
+   */
+  public float get(int key) {
+    if (key == FREE_KEY) {
+      return containsZeroKey ? values[mask + 1] : noEntryValue;
+    }
+    int[] keys = this.keys;
+    int pos = slot(key);
+    int current;
+    while ((current = keys[pos]) != FREE_KEY) {
+      if (current == key) {
+        return values[pos];
+      }
+      pos = (pos + 1) & mask;
+    }
+    return noEntryValue;
+  }
+
+  /**
+   * @return true if the given key is in this map.
+   */
+  public boolean containsKey(int key) {
+    return find(key) >= 0;
+  }
+
+  /**
+   * Puts the given value for the key.
+   *
+   * @return the previous value or the no entry value if the key was absent.
+   */
+  public float put(int key, float value) {
+    int pos = find(key);
+    if (pos >= 0) {
+      float previous = values[pos];
+      values[pos] = value;
+      return previous;
+    }
+    insert(-pos - 1, key, value);
+    return noEntryValue;
+  }
+
+  /**
+   * Adds the adjustment to the value of the key or puts the given value if the
+   * key is absent.
+   *
+   * @return the new value of the key.
+   */
+  public float adjustOrPutValue(int key, float adjustAmount, float putAmount) {
+    int pos = find(key);
+    if (pos >= 0) {
+      return values[pos] += adjustAmount;
+    }
+    insert(-pos - 1, key, putAmount);
+    return putAmount;
+  }
+
+  /**
+   * Removes the given key.
+   *
+   * @return the previous value or the no entry value if the key was absent.
+   */
+  public float remove(int key) {
+    int pos = find(key);
+    if (pos < 0) {
+      return noEntryValue;
+    }
+    float previous = values[pos];
+    removeAt(pos, null);
+    return previous;
+  }
+
+  /**
+   * @return the number of entries.
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes all entries, but keeps the allocated capacity for reuse.
+   */
+  public void clear() {
+    if (size > 0) {
+      Arrays.fill(keys, FREE_KEY);
+      containsZeroKey = false;
+      size = 0;
+    }
+  }
+
+  public int getNoEntryKey() {
+    return noEntryKey;
+  }
+
+  public float getNoEntryValue() {
+    return noEntryValue;
+  }
+
+  /**
+   * Passes every entry to the given consumer by directly iterating over the
+   * internal arrays, the order is unspecified.
+   */
+  public void forEachKeyValue(IntFloatConsumer consumer) {
+    int[] keys = this.keys;
+    float[] values = this.values;
+    if (containsZeroKey) {
+      consumer.accept(FREE_KEY, values[mask + 1]);
+    }
+    for (int i = mask; i >= 0; i--) {
+      if (keys[i] != FREE_KEY) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  /**
+   * @return a new iterator over the entries, the order is unspecified.
+   */
+  public EntryIterator iterator() {
+    return new EntryIterator();
+  }
+
+  /**
+   * Iterator over the entries in the style of the trove iterators: call
+   * {@link #advance()} before reading the current entry. The current entry can
+   * be changed and removed while iterating.
+   */
+  public final class EntryIterator {
+
+    // slots are visited from the top down, wrapped entries after slot zero
+    private int pos = mask + 1;
+    private int remaining = size;
+    private boolean mustReturnZeroKey = containsZeroKey;
+    private int current = -1;
+    private int currentKey;
+    // entries that a removal moved from a lower into an already visited slot
+    private int[] wrapped;
+    private int wrappedSize;
+
+    private EntryIterator() {
+    }
+
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    /**
+     * Moves to the next entry.
+     */
+    public void advance() {
+      if (remaining <= 0) {
+        throw new NoSuchElementException();
+      }
+      remaining--;
+      if (mustReturnZeroKey) {
+        mustReturnZeroKey = false;
+        current = mask + 1;
+        currentKey = FREE_KEY;
+        return;
+      }
+      while (true) {
+        if (--pos < 0) {
+          currentKey = wrapped[--wrappedSize];
+          current = find(currentKey);
+          return;
+        }
+        if (keys[pos] != FREE_KEY) {
+          current = pos;
+          currentKey = keys[pos];
+          return;
+        }
+      }
+    }
+
+    public int key() {
+      return currentKey;
+    }
+
+    public float value() {
+      return values[current];
+    }
+
+    public void setValue(float value) {
+      values[current] = value;
+    }
+
+    /**
+     * Removes the current entry.
+     */
+    public void remove() {
+      if (current < 0) {
+        throw new IllegalStateException();
+      }
+      if (pos < 0) {
+        // the slots are exhausted, only wrapped entries are left
+        FastIntFloatHashMap.this.remove(currentKey);
+      } else {
+        removeAt(current, this);
+      }
+      current = -1;
+    }
+
+    private void addWrapped(int key) {
+      if (wrapped == null) {
+        wrapped = new int[2];
+      } else if (wrappedSize == wrapped.length) {
+        wrapped = Arrays.copyOf(wrapped, 2 * wrappedSize);
+      }
+      wrapped[wrappedSize++] = key;
+    }
+  }
+
+  /**
+   * @return the slot of the key, or -(insertion slot + 1) if it is absent.
+   */
+  private int find(int key) {
+    if (key == FREE_KEY) {
+      return containsZeroKey ? mask + 1 : -(mask + 1) - 1;
+    }
+    int[] keys = this.keys;
+    int pos = slot(key);
+    int current;
+    while ((current = keys[pos]) != FREE_KEY) {
+      if (current == key) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return -pos - 1;
+  }
+
+  private void insert(int pos, int key, float value) {
+    if (pos == mask + 1) {
+      containsZeroKey = true;
+    } else {
+      keys[pos] = key;
+    }
+    values[pos] = value;
+    if (++size >= maxFill) {
+      rehash(2 * (mask + 1));
+    }
+  }
+
+  private void removeAt(int pos, EntryIterator iterator) {
+    size--;
+    if (pos == mask + 1) {
+      containsZeroKey = false;
+      return;
+    }
+    // shift the following entries of the cluster back into the gap
+    int[] keys = this.keys;
+    int last;
+    while (true) {
+      pos = ((last = pos) + 1) & mask;
+      int current;
+      while (true) {
+        if ((current = keys[pos]) == FREE_KEY) {
+          keys[last] = FREE_KEY;
+          return;
+        }
+        int slot = slot(current);
+        // the entry can move if its home is not between the gap and itself
+        if (last <= pos ? last >= slot || slot > pos : last >= slot
+            && slot > pos) {
+          break;
+        }
+        pos = (pos + 1) & mask;
+      }
+      if (iterator != null && pos < last) {
+        iterator.addWrapped(current);
+      }
+      keys[last] = current;
+      values[last] = values[pos];
+    }
+  }
+
+  private void rehash(int newCapacity) {
+    int[] oldKeys = keys;
+    float[] oldValues = values;
+    int oldCapacity = mask + 1;
+    allocate(newCapacity);
+    int[] keys = this.keys;
+    for (int i = 0; i < oldCapacity; i++) {
+      int key = oldKeys[i];
+      if (key != FREE_KEY) {
+        int pos = slot(key);
+        while (keys[pos] != FREE_KEY) {
+          pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        values[pos] = oldValues[i];
+      }
+    }
+    values[mask + 1] = oldValues[oldCapacity];
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity + 1];
+    values = new float[capacity + 1];
+    mask = capacity - 1;
+    maxFill = Math.min(capacity - 1,
+        (int) Math.ceil(capacity * (double) loadFactor));
+  }
+
+  private int slot(int key) {
+    // spread the bits, consecutive indices would otherwise form one cluster
+    int h = key * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * @return the power of two table size that fits the expected entries.
+   */
+  private static int tableSize(int expected, float loadFactor) {
+    long needed = Math.max(2L, (long) Math.ceil(expected / loadFactor) + 1);
+    if (needed > (1 << 30)) {
+      throw new IllegalArgumentException("Too many entries: " + expected);
+    }
+    return Integer.highestOneBit((int) needed - 1) << 1;
+  }
+
+  @Override
+  public int hashCode() {
+    // independent of the order of the entries
+    int[] hash = new int[1];
+    forEachKeyValue((key, value) -> hash[0] += key
+        ^ Float.hashCode(value));
+    return hash[0];
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof FastIntFloatHashMap))
+      return false;
+    FastIntFloatHashMap other = (FastIntFloatHashMap) obj;
+    if (size != other.size)
+      return false;
+    EntryIterator it = iterator();
+    while (it.hasNext()) {
+      it.advance();
+      int pos = other.find(it.key());
+      if (pos < 0 || other.values[pos] != it.value()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the entries in ascending order of their keys, so the string does
+   *         not depend on the layout of the table.
+   */
+  @Override
+  public String toString() {
+    int[] sortedKeys = new int[size];
+    int[] length = new int[1];
+    forEachKeyValue((key, value) -> sortedKeys[length[0]++] = key);
+    Arrays.sort(sortedKeys);
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < sortedKeys.length; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(sortedKeys[i]).append('=').append(get(sortedKeys[i]));
+    }
+    return sb.append('}').toString();
+  }
+
+}
@@ -1,6 +1,7 @@
 package de.jungblut.math.sparse;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 import de.jungblut.math.function.DoubleDoubleFunction;
 
@@ -13,6 +14,9 @@ public final class OrderedIntDoubleMapping implements Serializable, Cloneable {
 
   static final double DEFAULT_VALUE = 0.0;
 
+  // below this length the pairs are insertion sorted instead of radix sorted
+  private static final int RADIX_SORT_THRESHOLD = 256;
+
   private int[] indices;
   private double[] values;
   private int numMappings;
@@ -63,6 +67,13 @@ public final class OrderedIntDoubleMapping implements Serializable, Cloneable {
     return numMappings;
   }
 
+  /**
+   * Doubles the capacity, so appending n mappings copies O(n) elements.
+   */
+  private void grow() {
+    growTo(Math.max(2 * numMappings, numMappings + 4));
+  }
+
   private void growTo(int newCapacity) {
     if (newCapacity > indices.length) {
       int[] newIndices = new int[newCapacity];
@@ -100,7 +111,7 @@ public final class OrderedIntDoubleMapping implements Serializable, Cloneable {
     if (numMappings == 0 || index > indices[numMappings - 1]) {
       if (!noDefault || value != DEFAULT_VALUE) {
         if (numMappings >= indices.length) {
-          growTo(Math.max((int) (1.2 * numMappings), numMappings + 1));
+          grow();
         }
         indices[numMappings] = index;
         values[numMappings] = value;
@@ -116,6 +127,60 @@ public final class OrderedIntDoubleMapping implements Serializable, Cloneable {
     }
   }
 
+  /**
+   * Sets all given index value pairs at once, which is linear in the number of
+   * existing and given mappings instead of shifting the arrays for every
+   * index. The pairs don't need to be sorted, if an index occurs more than
+   * once the last value is set. A zero removes the index, like in
+   * {@link #set(int, double)}. The given arrays are not changed.
+   * 
+   * @param indices the indices to set.
+   * @param values the values of the indices.
+   */
+  public void setAll(int[] indices, double[] values) {
+    if (indices.length != values.length) {
+      throw new IllegalArgumentException("Got " + indices.length
+          + " indices, but " + values.length + " values");
+    }
+    OrderedIntDoubleMapping updates = sortedDistinct(indices.clone(),
+        values.clone(), indices.length, false);
+    int[] updateIndices = updates.indices;
+    double[] updateValues = updates.values;
+    int updateMappings = updates.numMappings;
+
+    int[] newIndices = new int[Math.max(1, numMappings + updateMappings)];
+    double[] newValues = new double[newIndices.length];
+    int k = 0;
+    int i = 0, j = 0;
+    while (i < numMappings || j < updateMappings) {
+      if (j == updateMappings
+          || (i < numMappings && this.indices[i] < updateIndices[j])) {
+        newIndices[k] = this.indices[i];
+        newValues[k++] = this.values[i++];
+      } else {
+        if (i < numMappings && this.indices[i] == updateIndices[j]) {
+          // the existing value is replaced
+          ++i;
+        }
+        if (updateValues[j] != DEFAULT_VALUE) {
+          newIndices[k] = updateIndices[j];
+          newValues[k++] = updateValues[j];
+        }
+        ++j;
+      }
+    }
+    this.indices = newIndices;
+    this.values = newValues;
+    this.numMappings = k;
+  }
+
+  /**
+   * Removes all mappings, but keeps the allocated capacity.
+   */
+  public void clear() {
+    numMappings = 0;
+  }
+
   public void copyInternalState(OrderedIntDoubleMapping mapping) {
     indices = new int[mapping.indices.length];
     System.arraycopy(mapping.indices, 0, indices, 0, indices.length);
@@ -132,51 +197,232 @@ public final class OrderedIntDoubleMapping implements Serializable, Cloneable {
    * @param updates another list of mappings to be merged in.
    */
   public void merge(OrderedIntDoubleMapping updates, DoubleDoubleFunction func) {
-    int[] updateIndices = updates.getIndices();
-    double[] updateValues = updates.getValues();
+    OrderedIntDoubleMapping merged = merged(updates, func, true, true);
+    indices = merged.indices;
+    values = merged.values;
+    numMappings = merged.numMappings;
+  }
 
-    int newNumMappings = numMappings + updates.getNumMappings();
-    int newCapacity = Math
-        .max((int) (1.2 * newNumMappings), newNumMappings + 1);
-    int[] newIndices = new int[newCapacity];
-    double[] newValues = new double[newCapacity];
+  /**
+   * Merge-joins this mapping with the other mapping into a new mapping in
+   * linear time, neither of both is changed. Indices that are only in one of
+   * both mappings are combined with zero on the other side, results that are
+   * zero are not part of the new mapping.
+   * 
+   * @param other the right hand side of the function.
+   * @param func the function of the left and the right value.
+   * @param keepLeft true if indices that are only in this mapping are part of
+   *          the result.
+   * @param keepRight true if indices that are only in the other mapping are
+   *          part of the result.
+   * @return a new mapping.
+   */
+  OrderedIntDoubleMapping merged(OrderedIntDoubleMapping other,
+      DoubleDoubleFunction func, boolean keepLeft, boolean keepRight) {
+    int[] otherIndices = other.indices;
+    double[] otherValues = other.values;
+    int otherMappings = other.numMappings;
+
+    int capacity = keepLeft || keepRight ? (keepLeft ? numMappings : 0)
+        + (keepRight ? otherMappings : 0) : Math.min(numMappings,
+        otherMappings);
+    int[] newIndices = new int[Math.max(1, capacity)];
+    double[] newValues = new double[newIndices.length];
 
     int k = 0;
     int i = 0, j = 0;
-    for (; i < numMappings && j < updates.getNumMappings(); ++k) {
-      if (indices[i] < updateIndices[j]) {
+    while (i < numMappings && j < otherMappings) {
+      int index;
+      double value;
+      if (indices[i] < otherIndices[j]) {
+        index = indices[i];
+        if (!keepLeft) {
+          ++i;
+          continue;
+        }
+        value = func.apply(values[i++], 0);
+      } else if (indices[i] > otherIndices[j]) {
+        index = otherIndices[j];
+        if (!keepRight) {
+          ++j;
+          continue;
+        }
+        value = func.apply(0, otherValues[j++]);
+      } else {
+        index = indices[i];
+        value = func.apply(values[i++], otherValues[j++]);
+      }
+      if (value != DEFAULT_VALUE) {
+        newIndices[k] = index;
+        newValues[k++] = value;
+      }
+    }
+
+    // the remaining tail of either side still needs to go through the function
+    for (; keepLeft && i < numMappings; ++i) {
+      double value = func.apply(values[i], 0);
+      if (value != DEFAULT_VALUE) {
         newIndices[k] = indices[i];
-        newValues[k] = func.apply(values[i], 0);
-        ++i;
-      } else if (indices[i] > updateIndices[j]) {
-        newIndices[k] = updateIndices[j];
-        newValues[k] = func.apply(0, updateValues[j]);
-        ++j;
+        newValues[k++] = value;
+      }
+    }
+
+    for (; keepRight && j < otherMappings; ++j) {
+      double value = func.apply(0, otherValues[j]);
+      if (value != DEFAULT_VALUE) {
+        newIndices[k] = otherIndices[j];
+        newValues[k++] = value;
+      }
+    }
+
+    return new OrderedIntDoubleMapping(newIndices, newValues, k);
+  }
+
+  /**
+   * Sorts the pairs in [0, length) of the given arrays by their index and
+   * removes duplicate indices, the value that was last in the arrays wins. The
+   * sort is a stable radix sort, so this is linear in the length. The
+   * resulting arrays are handed to the new mapping without copying, so the
+   * given arrays must not be used afterwards.
+   * 
+   * @param dropZeros true if pairs with a zero value are not part of the
+   *          mapping.
+   * @return a new mapping with sorted and distinct indices.
+   */
+  static OrderedIntDoubleMapping sortedDistinct(int[] indices,
+      double[] values, int length, boolean dropZeros) {
+    boolean sorted = true;
+    int max = 0;
+    for (int i = 0; i < length; i++) {
+      if (i > 0 && indices[i] < indices[i - 1]) {
+        sorted = false;
+      }
+      max = Math.max(max, indices[i]);
+    }
+    if (!sorted) {
+      if (length < RADIX_SORT_THRESHOLD) {
+        insertionSortByIndex(indices, values, length);
       } else {
-        newIndices[k] = updateIndices[j];
-        newValues[k] = func.apply(values[i], updateValues[j]);
-        ++i;
-        ++j;
+        int[] tmpIndices = new int[length];
+        double[] tmpValues = new double[length];
+        int[] counts = new int[(1 << 16) + 1];
+        radixPass(indices, values, tmpIndices, tmpValues, length, 0, counts);
+        if (max >>> 16 != 0) {
+          radixPass(tmpIndices, tmpValues, indices, values, length, 16, counts);
+        } else {
+          // a single pass of the low 16 bits sorts small indices already
+          indices = tmpIndices;
+          values = tmpValues;
+        }
+      }
+    }
+    int k = 0;
+    for (int i = 0; i < length; i++) {
+      if (i + 1 < length && indices[i + 1] == indices[i]) {
+        // a later value of the same index wins
+        continue;
+      }
+      if (!dropZeros || values[i] != DEFAULT_VALUE) {
+        indices[k] = indices[i];
+        values[k++] = values[i];
       }
     }
+    return new OrderedIntDoubleMapping(indices, values, k);
+  }
 
-    if (i < numMappings) {
-      int delta = numMappings - i;
-      System.arraycopy(indices, i, newIndices, k, delta);
-      System.arraycopy(values, i, newValues, k, delta);
-      k += delta;
+  /**
+   * Stable counting sort of [0, length) by 16 bits of the indices starting at
+   * the given shift, from the source into the destination arrays.
+   */
+  private static void radixPass(int[] srcIndices, double[] srcValues,
+      int[] dstIndices, double[] dstValues, int length, int shift, int[] counts) {
+    Arrays.fill(counts, 0);
+    for (int i = 0; i < length; i++) {
+      counts[((srcIndices[i] >>> shift) & 0xFFFF) + 1]++;
+    }
+    for (int i = 1; i < counts.length; i++) {
+      counts[i] += counts[i - 1];
     }
+    for (int i = 0; i < length; i++) {
+      int at = counts[(srcIndices[i] >>> shift) & 0xFFFF]++;
+      dstIndices[at] = srcIndices[i];
+      dstValues[at] = srcValues[i];
+    }
+  }
 
-    if (j < updates.getNumMappings()) {
-      int delta = updates.getNumMappings() - j;
-      System.arraycopy(updateIndices, j, newIndices, k, delta);
-      System.arraycopy(updateValues, j, newValues, k, delta);
-      k += delta;
+  private static void insertionSortByIndex(int[] indices, double[] values,
+      int length) {
+    for (int i = 1; i < length; i++) {
+      int index = indices[i];
+      double value = values[i];
+      int j = i - 1;
+      while (j >= 0 && indices[j] > index) {
+        indices[j + 1] = indices[j];
+        values[j + 1] = values[j];
+        j--;
+      }
+      indices[j + 1] = index;
+      values[j + 1] = value;
     }
+  }
+
+  /**
+   * Sorts the given parallel arrays by the indices in the range [from, to).
+   * The values are moved along with their indices.
+   */
+  static void sortByIndex(int[] indices, double[] values, int from, int to) {
+    while (to - from > 16) {
+      // median of three pivot, then a hoare partition
+      int mid = (from + to) >>> 1;
+      int pivot = median(indices[from], indices[mid], indices[to - 1]);
+      int i = from;
+      int j = to - 1;
+      while (i <= j) {
+        while (indices[i] < pivot) {
+          i++;
+        }
+        while (indices[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(indices, values, i++, j--);
+        }
+      }
+      // recurse into the smaller half to bound the stack depth
+      if (j - from < to - i) {
+        sortByIndex(indices, values, from, j + 1);
+        from = i;
+      } else {
+        sortByIndex(indices, values, i, to);
+        to = j + 1;
+      }
+    }
+    // insertion sort for the small remainder
+    for (int i = from + 1; i < to; i++) {
+      int index = indices[i];
+      double value = values[i];
+      int j = i - 1;
+      while (j >= from && indices[j] > index) {
+        indices[j + 1] = indices[j];
+        values[j + 1] = values[j];
+        j--;
+      }
+      indices[j + 1] = index;
+      values[j + 1] = value;
+    }
+  }
+
+  private static int median(int a, int b, int c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
 
-    indices = newIndices;
-    values = newValues;
-    numMappings = k;
+  private static void swap(int[] indices, double[] values, int i, int j) {
+    int index = indices[i];
+    indices[i] = indices[j];
+    indices[j] = index;
+    double value = values[i];
+    values[i] = values[j];
+    values[j] = value;
   }
 
   @Override
@@ -237,7 +483,7 @@ public final class OrderedIntDoubleMapping implements Serializable, Cloneable {
   private void insertValueIfNotDefault(int index, int offset, double value) {
     if (!noDefault || value != DEFAULT_VALUE) {
       if (numMappings >= indices.length) {
-        growTo(Math.max((int) (1.2 * numMappings), numMappings + 1));
+        grow();
       }
       int at = -offset - 1;
       if (numMappings > at) {
@@ -8,8 +8,11 @@ import org.apache.commons.math3.util.FastMath;
 import com.google.common.collect.AbstractIterator;
 
 import de.jungblut.math.DoubleVector;
+import de.jungblut.math.function.DoubleDoubleFunction;
 import de.jungblut.math.function.DoubleDoubleVectorFunction;
 import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
+import de.jungblut.math.sparse.VectorKernels.Operation;
 
 /**
  * Sparse double vector backed by two parallel arrays (one for indices and one
@@ -50,17 +53,34 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
    * @param v the given vector to copy.
    */
   public SequentialSparseDoubleVector(DoubleVector v) {
-    this(v.getDimension(), v.getLength());
-    if (v.isSparse()) {
-      SequentialSparseDoubleVector vx = (SequentialSparseDoubleVector) v;
-      mapping.copyInternalState(vx.mapping);
-    } else {
-      Iterator<DoubleVectorElement> iterateNonZero = v.iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement next = iterateNonZero.next();
-        mapping.set(next.getIndex(), next.getValue());
-      }
-    }
+    this(v.getDimension(), v instanceof SequentialSparseDoubleVector ?
+        ((SequentialSparseDoubleVector) v).mapping.clone() : sortedMapping(v));
+  }
+
+  /**
+   * Constructs a new {@link SequentialSparseDoubleVector} from two parallel
+   * arrays that are sorted ascending by index and don't contain duplicate
+   * indices. The arrays are not copied.
+   * 
+   * @param dimension the dimensionality of the vector.
+   * @param indices the indices of the non-zero elements.
+   * @param values the values of the non-zero elements.
+   * @param length the number of elements to use from both arrays.
+   */
+  public SequentialSparseDoubleVector(int dimension, int[] indices,
+      double[] values, int length) {
+    this(dimension, new OrderedIntDoubleMapping(indices, values, length));
+  }
+
+  /**
+   * Creates a new vector with the given internal properties.
+   * 
+   * @param dimension the dimension of the vector.
+   * @param mapping the underlying mapping between index and value, not copied.
+   */
+  SequentialSparseDoubleVector(int dimension, OrderedIntDoubleMapping mapping) {
+    this.dimension = dimension;
+    this.mapping = mapping;
   }
 
   /**
@@ -126,6 +146,14 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
     mapping.set(index, value);
   }
 
+  /**
+   * Sets all given index value pairs at once, see
+   * {@link OrderedIntDoubleMapping#setAll(int[], double[])}.
+   */
+  public void setAll(int[] indices, double[] values) {
+    mapping.setAll(indices, values);
+  }
+
   @Override
   public DoubleVector apply(DoubleVectorFunction func) {
     SequentialSparseDoubleVector newV = new SequentialSparseDoubleVector(this);
@@ -140,29 +168,37 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
 
   @Override
   public DoubleVector apply(DoubleVector other, DoubleDoubleVectorFunction func) {
-    SequentialSparseDoubleVector newV = new SequentialSparseDoubleVector(this);
-    Iterator<DoubleVectorElement> iterate = iterate();
-    while (iterate.hasNext()) {
-      DoubleVectorElement next = iterate.next();
-      double res = func.calculate(next.getIndex(), next.getValue(),
-          other.get(next.getIndex()));
-      newV.set(next.getIndex(), res);
+    // walk both sorted mappings along every index, so the result is appended
+    OrderedIntDoubleMapping right = sortedMapping(other);
+    int[] leftIndices = mapping.getIndices();
+    double[] leftValues = mapping.getValues();
+    int[] rightIndices = right.getIndices();
+    double[] rightValues = right.getValues();
+    OrderedIntDoubleMapping result = new OrderedIntDoubleMapping(
+        mapping.getNumMappings() + right.getNumMappings() + 1);
+    int i = 0;
+    int j = 0;
+    for (int index = 0; index < dimension; index++) {
+      double left = 0d;
+      if (i < mapping.getNumMappings() && leftIndices[i] == index) {
+        left = leftValues[i++];
+      }
+      double value = 0d;
+      if (j < right.getNumMappings() && rightIndices[j] == index) {
+        value = rightValues[j++];
+      }
+      result.set(index, func.calculate(index, left, value));
     }
-    return newV;
+    return new SequentialSparseDoubleVector(dimension, result);
   }
 
   @Override
   public DoubleVector add(DoubleVector other) {
-
-    DoubleVector result = new SequentialSparseDoubleVector(this);
-    Iterator<DoubleVectorElement> iter = other.iterateNonZero();
-    while (iter.hasNext()) {
-      DoubleVectorElement e = iter.next();
-      int index = e.getIndex();
-      result.set(index, get(index) + e.getValue());
+    DoubleVector result = VectorKernels.apply(Operation.ADD, this, other);
+    if (result != null) {
+      return result;
     }
-
-    return result;
+    return merged(other, (l, r) -> l + r, true, true);
   }
 
   @Override
@@ -179,19 +215,11 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
 
   @Override
   public DoubleVector subtract(DoubleVector other) {
-    SequentialSparseDoubleVector result = new SequentialSparseDoubleVector(this);
-    if (other.isSparse()) {
-      SequentialSparseDoubleVector vec = (SequentialSparseDoubleVector) other;
-      result.mapping.merge(vec.mapping, (l, r) -> l - r);
-    } else {
-      Iterator<DoubleVectorElement> iter = other.iterateNonZero();
-      while (iter.hasNext()) {
-        DoubleVectorElement e = iter.next();
-        int index = e.getIndex();
-        result.set(index, result.get(index) - e.getValue());
-      }
+    DoubleVector result = VectorKernels.apply(Operation.SUBTRACT, this, other);
+    if (result != null) {
+      return result;
     }
-    return result;
+    return merged(other, (l, r) -> l - r, true, true);
   }
 
   @Override
@@ -233,19 +261,12 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
 
   @Override
   public DoubleVector multiply(DoubleVector s) {
-    // take a shortcut by just iterating over the non-zero elements of the
-    // smaller vector of both multiplicants.
-    DoubleVector smallestVector = s.getLength() < getLength() ? s : this;
-    DoubleVector vec = new SequentialSparseDoubleVector(s.getDimension());
-    DoubleVector largerVector = smallestVector == this ? s : this;
-    Iterator<DoubleVectorElement> it = smallestVector.iterateNonZero();
-    while (it.hasNext()) {
-      DoubleVectorElement next = it.next();
-      double otherValue = largerVector.get(next.getIndex());
-      vec.set(next.getIndex(), next.getValue() * otherValue);
+    DoubleVector result = VectorKernels.apply(Operation.MULTIPLY, this, s);
+    if (result != null) {
+      return result;
     }
-
-    return vec;
+    // only the indices that are non-zero on both sides can be non-zero
+    return merged(s, (l, r) -> l * r, false, false);
   }
 
   @Override
@@ -263,13 +284,8 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
 
   @Override
   public DoubleVector divide(DoubleVector vector) {
-    DoubleVector v = new SequentialSparseDoubleVector(this);
-    Iterator<DoubleVectorElement> it = iterateNonZero();
-    while (it.hasNext()) {
-      DoubleVectorElement e = it.next();
-      v.set(e.getIndex(), e.getValue() / vector.get(e.getIndex()));
-    }
-    return v;
+    // the zeros of this vector stay zero
+    return merged(vector, (l, r) -> l / r, true, false);
   }
 
   @Override
@@ -338,6 +354,45 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
     return v;
   }
 
+  @Override
+  public DoubleVector addInPlace(DoubleVector v) {
+    return axpy(1d, v);
+  }
+
+  @Override
+  public DoubleVector subtractInPlace(DoubleVector v) {
+    return axpy(-1d, v);
+  }
+
+  @Override
+  public DoubleVector scaleInPlace(double scalar) {
+    if (scalar == 0d) {
+      mapping.clear();
+      return this;
+    }
+    for (int i = 0; i < mapping.getNumMappings(); i++) {
+      mapping.getValues()[i] *= scalar;
+    }
+    return this;
+  }
+
+  @Override
+  public DoubleVector axpy(double alpha, DoubleVector x) {
+    if (x == this) {
+      return scaleInPlace(1d + alpha);
+    }
+    mapping.merge(sortedMapping(x), (l, r) -> l + alpha * r);
+    return this;
+  }
+
+  @Override
+  public DoubleVector applyInPlace(DoubleVectorFunction func) {
+    for (int i = 0; i < dimension; i++) {
+      mapping.set(i, func.calculate(i, mapping.get(i)));
+    }
+    return this;
+  }
+
   @Override
   public double sum() {
     double sum = 0.0d;
@@ -358,20 +413,7 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
 
   @Override
   public double dot(DoubleVector s) {
-    double dotProduct = 0.0d;
-    // take a shortcut by just iterating over the non-zero elements of the
-    // smaller vector of both multiplicants.
-    DoubleVector smallestVector = s.getLength() < getLength() ? s : this;
-    DoubleVector largerVector = smallestVector == this ? s : this;
-    Iterator<DoubleVectorElement> it = smallestVector.iterateNonZero();
-
-    while (it.hasNext()) {
-      DoubleVectorElement next = it.next();
-      double d = largerVector.get(next.getIndex());
-      dotProduct += d * next.getValue();
-    }
-
-    return dotProduct;
+    return VectorKernels.dot(this, s);
   }
 
   @Override
@@ -416,7 +458,7 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
     }
 
     // at the end check for zero, because we have skipped zero elements
-    if (mapping.getNumMappings() != getDimension() && res == 0d) {
+    if (mapping.getNumMappings() != getDimension() && res < 0d) {
       res = 0d;
     }
     return res;
@@ -472,6 +514,42 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
     return d;
   }
 
+  /**
+   * Merge-joins this vector with the sorted non-zeros of the other vector, see
+   * {@link OrderedIntDoubleMapping#merged}.
+   */
+  private SequentialSparseDoubleVector merged(DoubleVector other,
+      DoubleDoubleFunction func, boolean keepLeft, boolean keepRight) {
+    return new SequentialSparseDoubleVector(dimension, mapping.merged(
+        sortedMapping(other), func, keepLeft, keepRight));
+  }
+
+  /**
+   * @return the mapping of a {@link SequentialSparseDoubleVector}, otherwise a
+   *         new mapping with the non-zeros of the given vector that are loaded
+   *         in bulk and sorted once.
+   */
+  static OrderedIntDoubleMapping sortedMapping(DoubleVector v) {
+    if (v instanceof SequentialSparseDoubleVector) {
+      return ((SequentialSparseDoubleVector) v).mapping;
+    }
+    Builder builder = new Builder(v.getDimension(), v.isSparse() ? v
+        .getLength() : 16);
+    Iterator<DoubleVectorElement> it = v.iterateNonZero();
+    while (it.hasNext()) {
+      DoubleVectorElement e = it.next();
+      builder.set(e.getIndex(), e.getValue());
+    }
+    return builder.build().mapping;
+  }
+
+  /**
+   * @return the backing mapping, no defensive copy is made.
+   */
+  OrderedIntDoubleMapping getMapping() {
+    return mapping;
+  }
+
   @Override
   public String toString() {
     if (getLength() < 50) {
@@ -496,8 +574,8 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
     final int prime = 31;
     int result = 1;
     result = prime * result + dimension;
-    result = prime * result + Arrays.hashCode(mapping.getIndices());
-    result = prime * result + Arrays.hashCode(mapping.getValues());
+    // only the used entries, the arrays may have spare capacity
+    result = prime * result + mapping.hashCode();
     return result;
   }
 
@@ -512,11 +590,7 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
     SequentialSparseDoubleVector other = (SequentialSparseDoubleVector) obj;
     if (dimension != other.dimension)
       return false;
-    if (!Arrays.equals(mapping.getIndices(), other.mapping.getIndices()))
-      return false;
-    if (!Arrays.equals(mapping.getValues(), other.mapping.getValues()))
-      return false;
-    return true;
+    return mapping.equals(other.mapping);
   }
 
   @Override
@@ -534,6 +608,106 @@ public final class SequentialSparseDoubleVector implements DoubleVector {
     return new DefaultIterator();
   }
 
+  @Override
+  public void forEachNonZero(IntDoubleConsumer consumer) {
+    int[] indices = mapping.getIndices();
+    double[] values = mapping.getValues();
+    for (int i = 0; i < mapping.getNumMappings(); i++) {
+      if (values[i] != 0d) {
+        consumer.accept(indices[i], values[i]);
+      }
+    }
+  }
+
+  @Override
+  public void forEach(IntDoubleConsumer consumer) {
+    int[] indices = mapping.getIndices();
+    double[] values = mapping.getValues();
+    int numMappings = mapping.getNumMappings();
+    int offset = 0;
+    for (int i = 0; i < dimension; i++) {
+      if (offset < numMappings && indices[offset] == i) {
+        consumer.accept(i, values[offset++]);
+      } else {
+        consumer.accept(i, 0d);
+      }
+    }
+  }
+
+  /**
+   * Builds a {@link SequentialSparseDoubleVector} from index value pairs in
+   * any order, for example in the hash order of a
+   * {@link SparseDoubleVector}. The pairs are appended to primitive buffers
+   * and sorted once in linear time when the vector is built, the buffers
+   * become the arrays of the vector without copying. If an index is set more
+   * than once, the last value wins.
+   */
+  public static final class Builder {
+
+    private final int dimension;
+    private int[] indices;
+    private double[] values;
+    private int length;
+
+    /**
+     * Creates a new builder.
+     * 
+     * @param dimension the dimension of the vector.
+     */
+    public Builder(int dimension) {
+      this(dimension, 16);
+    }
+
+    /**
+     * Creates a new builder.
+     * 
+     * @param dimension the dimension of the vector.
+     * @param expectedLength the expected number of pairs.
+     */
+    public Builder(int dimension, int expectedLength) {
+      this.dimension = dimension;
+      this.indices = new int[Math.max(1, expectedLength)];
+      this.values = new double[indices.length];
+    }
+
+    /**
+     * Adds the given pair, zeros are skipped when the vector is built.
+     * 
+     * @return this builder.
+     */
+    public Builder set(int index, double value) {
+      if (length == indices.length) {
+        indices = Arrays.copyOf(indices, 2 * length);
+        values = Arrays.copyOf(values, 2 * length);
+      }
+      indices[length] = index;
+      values[length++] = value;
+      return this;
+    }
+
+    /**
+     * @return the number of pairs that were set, including duplicates.
+     */
+    public int size() {
+      return length;
+    }
+
+    /**
+     * Builds the vector, afterwards this builder is empty.
+     * 
+     * @return a new vector that owns the buffers of this builder.
+     */
+    public SequentialSparseDoubleVector build() {
+      OrderedIntDoubleMapping mapping = OrderedIntDoubleMapping
+          .sortedDistinct(indices, values, length, true);
+      indices = new int[1];
+      values = new double[1];
+      length = 0;
+      return new SequentialSparseDoubleVector(dimension, mapping);
+    }
+
+  }
+
   private final class NonZeroIterator extends
       AbstractIterator<DoubleVectorElement> {
 
@@ -12,6 +12,7 @@ import com.google.common.collect.AbstractIterator;
 import de.jungblut.math.DoubleVector;
 import de.jungblut.math.function.DoubleDoubleVectorFunction;
 import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
 
 /**
  * Sparse bit vector backed by a {@link BitSet}. Every element either is zero or
@@ -94,6 +95,19 @@ public final class SparseBitVector implements DoubleVector {
     set(array.length, lastValue);
   }
 
+  /**
+   * Constructs a new {@link SparseBitVector} from the words of a bit set, as
+   * returned by {@link BitSet#toLongArray()}.
+   * 
+   * @param dimension the dimensionality of the vector.
+   * @param words the words that contain the set bits, in the layout of
+   *          {@link BitSet#valueOf(long[])}.
+   */
+  public SparseBitVector(int dimension, long[] words) {
+    this.dimension = dimension;
+    this.vector = BitSet.valueOf(words);
+  }
+
   @Override
   public double get(int index) {
     return vector.get(index) ? 1d : 0d;
@@ -334,6 +348,44 @@ public final class SparseBitVector implements DoubleVector {
     return v;
   }
 
+  @Override
+  public DoubleVector addInPlace(DoubleVector v) {
+    return axpy(1d, v);
+  }
+
+  @Override
+  public DoubleVector subtractInPlace(DoubleVector v) {
+    return axpy(-1d, v);
+  }
+
+  @Override
+  public DoubleVector scaleInPlace(double scalar) {
+    // every set bit stays set unless it is scaled to zero
+    if (scalar == 0d) {
+      vector.clear();
+    }
+    return this;
+  }
+
+  @Override
+  public DoubleVector axpy(double alpha, DoubleVector x) {
+    Iterator<DoubleVectorElement> iter = x.iterateNonZero();
+    while (iter.hasNext()) {
+      DoubleVectorElement e = iter.next();
+      int index = e.getIndex();
+      set(index, get(index) + alpha * e.getValue());
+    }
+    return this;
+  }
+
+  @Override
+  public DoubleVector applyInPlace(DoubleVectorFunction func) {
+    for (int i = 0; i < dimension; i++) {
+      set(i, func.calculate(i, get(i)));
+    }
+    return this;
+  }
+
   @Override
   public double sum() {
     double sum = 0.0d;
@@ -369,20 +421,7 @@ public final class SparseBitVector implements DoubleVector {
 
   @Override
   public double dot(DoubleVector s) {
-    double dotProduct = 0.0d;
-    // take a shortcut by just iterating over the non-zero elements of the
-    // smaller vector of both multiplicants.
-    DoubleVector smallestVector = s.getLength() < getLength() ? s : this;
-    DoubleVector largerVector = smallestVector == this ? s : this;
-    Iterator<DoubleVectorElement> it = smallestVector.iterateNonZero();
-
-    while (it.hasNext()) {
-      DoubleVectorElement next = it.next();
-      double d = largerVector.get(next.getIndex());
-      dotProduct += d * next.getValue();
-    }
-
-    return dotProduct;
+    return VectorKernels.dot(this, s);
   }
 
   @Override
@@ -493,6 +532,13 @@ public final class SparseBitVector implements DoubleVector {
     return d;
   }
 
+  /**
+   * @return the backing bit set, no defensive copy is made.
+   */
+  BitSet getBitSet() {
+    return vector;
+  }
+
   @Override
   public String toString() {
     if (getLength() < 50) {
@@ -539,6 +585,26 @@ public final class SparseBitVector implements DoubleVector {
     return new DefaultIterator();
   }
 
+  @Override
+  public void forEachNonZero(IntDoubleConsumer consumer) {
+    for (int i = vector.nextSetBit(0); i >= 0; i = vector.nextSetBit(i + 1)) {
+      consumer.accept(i, 1d);
+    }
+  }
+
+  @Override
+  public void forEach(IntDoubleConsumer consumer) {
+    int next = vector.nextSetBit(0);
+    for (int i = 0; i < dimension; i++) {
+      if (i == next) {
+        consumer.accept(i, 1d);
+        next = vector.nextSetBit(i + 1);
+      } else {
+        consumer.accept(i, 0d);
+      }
+    }
+  }
+
   private final class NonZeroIterator extends
       AbstractIterator<DoubleVectorElement> {
 
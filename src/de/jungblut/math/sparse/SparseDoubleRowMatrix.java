@@ -3,12 +3,15 @@ package de.jungblut.math.sparse;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import de.jungblut.math.DoubleMatrix;
 import de.jungblut.math.DoubleVector;
-import de.jungblut.math.DoubleVector.DoubleVectorElement;
+import de.jungblut.math.dense.DenseDoubleMatrix;
 import de.jungblut.math.dense.DenseDoubleVector;
 
 /**
@@ -21,22 +24,38 @@ import de.jungblut.math.dense.DenseDoubleVector;
  */
 public final class SparseDoubleRowMatrix implements DoubleMatrix {
 
+  /**
+   * Number of rows that are multiplied by a single thread in a parallel
+   * multiplication.
+   */
+  public static final int PARALLEL_ROW_THRESHOLD = 64;
+
+  /**
+   * The largest number of rows the backing map is sized for up front.
+   */
+  public static final int MAX_CAPACITY_HINT = 1 << 16;
+
   // int -> vector, where int is the row index and vector the corresponding
   // row vector
   private final TIntObjectHashMap<SparseDoubleVector> matrix;
   private final int numRows;
   private final int numColumns;
+  // lazily built column oriented copy of the non-zeros, null if outdated
+  private ColumnIndex columnIndex;
 
   /**
    * Constructs a sparse matrix with the given dimensions.
    * 
-   * @param rows the number of rows (act as a hint to the backed hashmap).
+   * @param rows the number of rows (act as a hint to the backed hashmap, up to
+   *          {@link #MAX_CAPACITY_HINT} rows).
    * @param columns the number of columns.
    */
   public SparseDoubleRowMatrix(int rows, int columns) {
     this.numRows = rows;
     this.numColumns = columns;
-    this.matrix = new TIntObjectHashMap<>(numRows);
+    // the rows of a huge sparse matrix are mostly empty, so the map grows
+    // with the rows that are set instead of being sized for all of them
+    this.matrix = new TIntObjectHashMap<>(Math.min(numRows, MAX_CAPACITY_HINT));
   }
 
   /**
@@ -121,14 +140,20 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     return numColumns;
   }
 
+  /**
+   * Returns the given column. The first call builds a column index over all
+   * non-zeros, so subsequent calls take time proportional to the non-zeros of
+   * the column. Every mutation drops the index, including mutations of the row
+   * vectors that were handed out by {@link #getRowVector(int)}.
+   */
   @Override
   public DoubleVector getColumnVector(int col) {
-    int[] rows = matrix.keys();
-    DoubleVector v = new SparseDoubleVector(getRowCount());
-    for (int row : rows) {
-      v.set(row, get(row, col));
+    ColumnIndex index = columnIndex;
+    if (index == null) {
+      index = new ColumnIndex();
+      columnIndex = index;
     }
-    return v;
+    return index.getColumn(col);
   }
 
   @Override
@@ -143,12 +168,15 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
       v = new SparseDoubleVector(getColumnCount());
       matrix.put(row, v);
     }
+    // the returned row can be mutated by the caller and has to tell us
+    v.setOwner(this);
     return v;
   }
 
   @Override
   public void set(int row, int col, double value) {
     if (value != 0.0d) {
+      columnIndex = null;
       SparseDoubleVector sparseDoubleVector = matrix.get(row);
       if (sparseDoubleVector == null) {
         sparseDoubleVector = new SparseDoubleVector(getColumnCount());
@@ -160,54 +188,266 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
 
   @Override
   public void setColumnVector(int col, DoubleVector column) {
-    Iterator<DoubleVectorElement> iterateNonZero = column.iterateNonZero();
-    while (iterateNonZero.hasNext()) {
-      DoubleVectorElement next = iterateNonZero.next();
-      set(next.getIndex(), col, next.getValue());
-    }
+    column.forEachNonZero((row, value) -> set(row, col, value));
   }
 
   @Override
   public void setRowVector(int rowIndex, DoubleVector row) {
-    matrix.put(rowIndex, new SparseDoubleVector(row));
+    columnIndex = null;
+    detach(matrix.put(rowIndex, new SparseDoubleVector(row)));
   }
 
   @Override
   public DoubleMatrix multiply(double scalar) {
     DoubleMatrix result = new SparseDoubleRowMatrix(this);
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-          .iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
-        result.set(row, e.getIndex(), get(row, e.getIndex()) * scalar);
-      }
+      matrix.get(row).forEachNonZero(
+          (col, value) -> result.set(row, col, value * scalar));
     }
     return result;
   }
 
+  /**
+   * Multiplies this matrix with the given other matrix row by row (Gustavson's
+   * algorithm): every non-zero (k, value) of a row in this matrix scales the
+   * non-zeros of the k-th row of the other matrix into a sparse accumulator.
+   * Thus only the structural non-zeros of both matrices are touched.
+   */
   @Override
   public DoubleMatrix multiply(DoubleMatrix other) {
-    DoubleMatrix result = new SparseDoubleRowMatrix(this.getRowCount(),
+    SparseDoubleRowMatrix result = new SparseDoubleRowMatrix(
+        this.getRowCount(), other.getColumnCount());
+    SparseAccumulator accumulator = new SparseAccumulator(
         other.getColumnCount());
-    for (int row = 0; row < getRowCount(); row++) {
-      for (int col = 0; col < other.getColumnCount(); col++) {
-        double sum = 0;
-        Iterator<DoubleVectorElement> kIterator = getRowVector(row)
-            .iterateNonZero();
-        while (kIterator.hasNext()) {
-          DoubleVectorElement k = kIterator.next();
-          double val = other.get(k.getIndex(), col);
-          if (val != 0d) {
-            sum += k.getValue() * val;
-          }
-        }
-        result.set(row, col, sum);
+    for (int row : this.matrix.keys()) {
+      SparseDoubleVector resultRow = multiplyRow(matrix.get(row), other,
+          accumulator);
+      if (resultRow.getLength() > 0) {
+        result.matrix.put(row, resultRow);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Multiplies this matrix with the given other matrix using the common
+   * {@link ForkJoinPool}. See {@link #multiply(DoubleMatrix, ForkJoinPool)}.
+   */
+  public DoubleMatrix multiplyParallel(DoubleMatrix other) {
+    return multiply(other, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Multiplies this matrix with the given other matrix. The rows of the result
+   * are split into panels that are computed in parallel on the given pool.
+   * Matrices with less than {@link #PARALLEL_ROW_THRESHOLD} rows are multiplied
+   * on the calling thread. The other matrix is only read, so it must not be
+   * modified concurrently.
+   * 
+   * @param other the other matrix.
+   * @param pool the pool to run the panel computations on.
+   * @return a new matrix with the result of the multiplication.
+   */
+  public DoubleMatrix multiply(DoubleMatrix other, ForkJoinPool pool) {
+    int[] rows = this.matrix.keys();
+    if (rows.length < PARALLEL_ROW_THRESHOLD) {
+      return multiply(other);
+    }
+    SparseDoubleVector[] resultRows = new SparseDoubleVector[rows.length];
+    pool.invoke(new MultiplyTask(rows, resultRows, other,
+        new ConcurrentLinkedQueue<>(), 0, rows.length));
+
+    SparseDoubleRowMatrix result = new SparseDoubleRowMatrix(
+        this.getRowCount(), other.getColumnCount());
+    for (int i = 0; i < rows.length; i++) {
+      if (resultRows[i].getLength() > 0) {
+        result.matrix.put(rows[i], resultRows[i]);
       }
     }
     return result;
   }
 
+  /**
+   * Multiplies a single row of this matrix with the other matrix.
+   * 
+   * @return the row of the resulting matrix.
+   */
+  private static SparseDoubleVector multiplyRow(SparseDoubleVector rowVector,
+      DoubleMatrix other, SparseAccumulator accumulator) {
+    if (other instanceof DenseDoubleMatrix) {
+      // the column major layout of the dense matrix has a stride of numRows
+      double[] b = ((DenseDoubleMatrix) other).getColumnMajorMatrix();
+      int otherRows = other.getRowCount();
+      int otherColumns = other.getColumnCount();
+      rowVector.forEachNonZero((k, value) -> {
+        int offset = k;
+        for (int col = 0; col < otherColumns; col++) {
+          accumulator.add(col, value * b[offset]);
+          offset += otherRows;
+        }
+      });
+    } else {
+      rowVector.forEachNonZero((k, value) -> {
+        DoubleVector otherRow = rowOf(other, k);
+        if (otherRow != null) {
+          otherRow.forEachNonZero((col, otherValue) -> accumulator.add(col,
+              value * otherValue));
+        }
+      });
+    }
+    return accumulator.drain();
+  }
+
+  /**
+   * @return the given row of the other matrix, or null if a
+   *         {@link SparseDoubleRowMatrix} doesn't contain it (asking it for
+   *         the row vector would insert an empty row).
+   */
+  private static DoubleVector rowOf(DoubleMatrix other, int row) {
+    if (other instanceof SparseDoubleRowMatrix) {
+      return ((SparseDoubleRowMatrix) other).matrix.get(row);
+    }
+    return other.getRowVector(row);
+  }
+
+  /**
+   * Dense scratch space for a single row of a multiplication result. Only the
+   * touched columns are read and reset, so reusing it across rows costs time
+   * proportional to the non-zeros of the row and not to its dimension.
+   */
+  private static final class SparseAccumulator {
+
+    private final double[] values;
+    private final boolean[] occupied;
+    private final int[] touched;
+    private int size;
+
+    SparseAccumulator(int dimension) {
+      this.values = new double[dimension];
+      this.occupied = new boolean[dimension];
+      this.touched = new int[dimension];
+    }
+
+    void add(int index, double value) {
+      if (!occupied[index]) {
+        occupied[index] = true;
+        touched[size++] = index;
+      }
+      values[index] += value;
+    }
+
+    /**
+     * @return the accumulated row without zeros, resets the accumulator.
+     */
+    SparseDoubleVector drain() {
+      SparseDoubleVector row = new SparseDoubleVector(values.length);
+      for (int i = 0; i < size; i++) {
+        int index = touched[i];
+        if (values[index] != 0d) {
+          row.set(index, values[index]);
+        }
+        values[index] = 0d;
+        occupied[index] = false;
+      }
+      size = 0;
+      return row;
+    }
+
+  }
+
+  /**
+   * Compressed column copy of the non-zeros of this matrix. The entries of a
+   * column are stored contiguously and sorted by their row.
+   */
+  private final class ColumnIndex {
+
+    // columnPointers[col] until columnPointers[col+1] denotes the column
+    private final int[] columnPointers;
+    private final int[] rows;
+    private final double[] values;
+
+    ColumnIndex() {
+      int[] rowKeys = matrix.keys();
+      Arrays.sort(rowKeys);
+      columnPointers = new int[numColumns + 1];
+      for (int row : rowKeys) {
+        matrix.get(row).forEachNonZero((col, value) -> columnPointers[col + 1]++);
+      }
+      for (int col = 0; col < numColumns; col++) {
+        columnPointers[col + 1] += columnPointers[col];
+      }
+      rows = new int[columnPointers[numColumns]];
+      values = new double[rows.length];
+      int[] next = Arrays.copyOf(columnPointers, numColumns);
+      // rows are visited in ascending order, so every column ends up sorted
+      for (int row : rowKeys) {
+        matrix.get(row).forEachNonZero((col, value) -> {
+          int dest = next[col]++;
+          rows[dest] = row;
+          values[dest] = value;
+        });
+      }
+    }
+
+    DoubleVector getColumn(int col) {
+      int start = columnPointers[col];
+      int end = columnPointers[col + 1];
+      return new SequentialSparseDoubleVector(numRows,
+          new OrderedIntDoubleMapping(Arrays.copyOfRange(rows, start, end),
+              Arrays.copyOfRange(values, start, end), end - start));
+    }
+
+  }
+
+  /**
+   * Computes the result rows for a range of row indices, splits the range
+   * until it contains less than {@link #PARALLEL_ROW_THRESHOLD} rows. The
+   * accumulators are shared by all tasks of a multiplication, so there are only
+   * as many of them as leaves ran at the same time.
+   */
+  private final class MultiplyTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 2498290938428402425L;
+
+    private final int[] rows;
+    private final SparseDoubleVector[] resultRows;
+    private final DoubleMatrix other;
+    private final Queue<SparseAccumulator> accumulators;
+    private final int start;
+    private final int end;
+
+    MultiplyTask(int[] rows, SparseDoubleVector[] resultRows,
+        DoubleMatrix other, Queue<SparseAccumulator> accumulators, int start,
+        int end) {
+      this.rows = rows;
+      this.resultRows = resultRows;
+      this.other = other;
+      this.accumulators = accumulators;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= PARALLEL_ROW_THRESHOLD) {
+        SparseAccumulator accumulator = accumulators.poll();
+        if (accumulator == null) {
+          accumulator = new SparseAccumulator(other.getColumnCount());
+        }
+        for (int i = start; i < end; i++) {
+          resultRows[i] = multiplyRow(matrix.get(rows[i]), other, accumulator);
+        }
+        // every drain resets the accumulator, so it is clean for the next leaf
+        accumulators.offer(accumulator);
+      } else {
+        int mid = start + (end - start) / 2;
+        invokeAll(new MultiplyTask(rows, resultRows, other, accumulators,
+            start, mid), new MultiplyTask(rows, resultRows, other,
+            accumulators, mid, end));
+      }
+    }
+  }
+
   @Override
   public DoubleMatrix slice(int rows, int cols) {
     return slice(0, rows, 0, cols);
@@ -217,10 +457,14 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
   public DoubleMatrix slice(int rowOffset, int rowMax, int colOffset, int colMax) {
     DoubleMatrix m = new SparseDoubleRowMatrix(rowMax - rowOffset, colMax
         - colOffset);
-    for (int col : columnIndices()) {
-      DoubleVector columnVector = getColumnVector(col);
-      columnVector = columnVector.slice(rowOffset, rowMax);
-      m.setColumnVector(col - colOffset, columnVector);
+    for (int row : this.matrix.keys()) {
+      if (row >= rowOffset && row < rowMax) {
+        matrix.get(row).forEachNonZero((col, value) -> {
+          if (col >= colOffset && col < colMax) {
+            m.set(row - rowOffset, col - colOffset, value);
+          }
+        });
+      }
     }
 
     return m;
@@ -231,13 +475,8 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     DoubleMatrix result = new SparseDoubleRowMatrix(this.getRowCount(),
         this.getColumnCount());
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-          .iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
-        result.set(row, e.getIndex(),
-            get(row, e.getIndex()) * other.get(row, e.getIndex()));
-      }
+      matrix.get(row).forEachNonZero(
+          (col, value) -> result.set(row, col, value * other.get(row, col)));
     }
     return result;
   }
@@ -246,14 +485,8 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
   public DoubleVector multiplyVectorRow(DoubleVector v) {
     DoubleVector result = new SparseDoubleVector(this.getRowCount());
     for (int row : matrix.keys()) {
-      Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-          .iterateNonZero();
-      double sum = 0.0d;
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
-        sum += (e.getValue() * v.get(e.getIndex()));
-      }
-      result.set(row, sum);
+      // the dot product picks the kernel for the type pair of row and vector
+      result.set(row, matrix.get(row).dot(v));
     }
     return result;
   }
@@ -262,28 +495,17 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
   public DoubleVector multiplyVectorColumn(DoubleVector v) {
     DoubleVector result = new SparseDoubleVector(this.getColumnCount());
     if (v.isSparse()) {
-      Iterator<DoubleVectorElement> vectorNonZero = v.iterateNonZero();
-      while (vectorNonZero.hasNext()) {
-        DoubleVectorElement featureElement = vectorNonZero.next();
-        DoubleVector rowVector = getRowVector(featureElement.getIndex());
-        Iterator<DoubleVectorElement> rowNonZero = rowVector.iterateNonZero();
-        while (rowNonZero.hasNext()) {
-          DoubleVectorElement outcomeElement = rowNonZero.next();
-          result.set(
-              outcomeElement.getIndex(),
-              result.get(outcomeElement.getIndex())
-                  + (outcomeElement.getValue() * featureElement.getValue()));
+      v.forEachNonZero((row, feature) -> {
+        DoubleVector rowVector = matrix.get(row);
+        if (rowVector != null) {
+          rowVector.forEachNonZero((col, value) -> result.set(col,
+              result.get(col) + (value * feature)));
         }
-      }
+      });
     } else {
       for (int row : rowIndices()) {
-        Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-            .iterateNonZero();
-        while (iterateNonZero.hasNext()) {
-          DoubleVectorElement e = iterateNonZero.next();
-          result.set(e.getIndex(),
-              (e.getValue() * v.get(row)) + result.get(e.getIndex()));
-        }
+        matrix.get(row).forEachNonZero(
+            (col, value) -> result.set(col, (value * v.get(row)) + result.get(col)));
       }
     }
     return result;
@@ -299,12 +521,7 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     SparseDoubleRowMatrix m = new SparseDoubleRowMatrix(this.numColumns,
         this.numRows);
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-          .iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
-        m.set(e.getIndex(), row, e.getValue());
-      }
+      matrix.get(row).forEachNonZero((col, value) -> m.set(col, row, value));
     }
     return m;
   }
@@ -314,11 +531,8 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     DoubleMatrix result = new SparseDoubleRowMatrix(this.getRowCount(),
         this.getColumnCount());
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterate = matrix.get(row).iterate();
-      while (iterate.hasNext()) {
-        DoubleVectorElement e = iterate.next();
-        result.set(row, e.getIndex(), amount - e.getValue());
-      }
+      matrix.get(row).forEach(
+          (col, value) -> result.set(row, col, amount - value));
     }
     return result;
   }
@@ -328,11 +542,8 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     DoubleMatrix result = new SparseDoubleRowMatrix(this.getRowCount(),
         this.getColumnCount());
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterate = matrix.get(row).iterate();
-      while (iterate.hasNext()) {
-        DoubleVectorElement e = iterate.next();
-        result.set(row, e.getIndex(), e.getValue() - amount);
-      }
+      matrix.get(row).forEach(
+          (col, value) -> result.set(row, col, value - amount));
     }
     return result;
   }
@@ -343,12 +554,8 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
         other.getRowCount(), other.getColumnCount());
 
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterate = matrix.get(row).iterate();
-      while (iterate.hasNext()) {
-        DoubleVectorElement e = iterate.next();
-        result.set(row, e.getIndex(),
-            e.getValue() - other.get(row, e.getIndex()));
-      }
+      matrix.get(row).forEach(
+          (col, value) -> result.set(row, col, value - other.get(row, col)));
     }
 
     return result;
@@ -370,12 +577,8 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     DoubleMatrix result = new SparseDoubleRowMatrix(this.getRowCount(),
         this.getColumnCount());
     for (int row : this.matrix.keys()) {
-      SparseDoubleVector rowVector = matrix.get(row);
-      Iterator<DoubleVectorElement> iterateNonZero = rowVector.iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement next = iterateNonZero.next();
-        result.set(row, next.getIndex(), next.getValue() / vec.get(row));
-      }
+      matrix.get(row).forEachNonZero(
+          (col, value) -> result.set(row, col, value / vec.get(row)));
     }
     return result;
   }
@@ -385,23 +588,13 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     SparseDoubleRowMatrix m = new SparseDoubleRowMatrix(other);
 
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-          .iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
-        m.set(row, e.getIndex(),
-            get(row, e.getIndex()) / other.get(row, e.getIndex()));
-      }
+      matrix.get(row).forEachNonZero(
+          (col, value) -> m.set(row, col, value / other.get(row, col)));
     }
 
     for (int col : other.columnIndices()) {
-      Iterator<DoubleVectorElement> iterateNonZero = other.getColumnVector(col)
-          .iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
-        m.set(e.getIndex(), col,
-            get(e.getIndex(), col) / other.get(e.getIndex(), col));
-      }
+      other.getColumnVector(col).forEachNonZero(
+          (row, value) -> m.set(row, col, get(row, col) / value));
     }
 
     return m;
@@ -412,12 +605,8 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     DoubleMatrix result = new SparseDoubleRowMatrix(this.getRowCount(),
         this.getColumnCount());
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-          .iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
-        result.set(row, e.getIndex(), e.getValue() / scalar);
-      }
+      matrix.get(row).forEachNonZero(
+          (col, value) -> result.set(row, col, value / scalar));
     }
     return result;
   }
@@ -428,12 +617,8 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
         other.getRowCount(), other.getColumnCount());
 
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterate = matrix.get(row).iterate();
-      while (iterate.hasNext()) {
-        DoubleVectorElement e = iterate.next();
-        result.set(row, e.getIndex(),
-            e.getValue() + other.get(row, e.getIndex()));
-      }
+      matrix.get(row).forEach(
+          (col, value) -> result.set(row, col, value + other.get(row, col)));
     }
 
     return result;
@@ -444,17 +629,13 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     DoubleMatrix result = new SparseDoubleRowMatrix(this.getRowCount(),
         this.getColumnCount());
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-          .iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
+      matrix.get(row).forEachNonZero((col, value) -> {
         if (x != 2d) {
-          result.set(row, e.getIndex(), Math.pow(get(row, e.getIndex()), x));
+          result.set(row, col, Math.pow(value, x));
         } else {
-          double res = get(row, e.getIndex());
-          result.set(row, e.getIndex(), res * res);
+          result.set(row, col, value * value);
         }
-      }
+      });
     }
     return result;
   }
@@ -473,12 +654,7 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
   public double sum() {
     double res = 0.0d;
     for (int row : this.matrix.keys()) {
-      Iterator<DoubleVectorElement> iterateNonZero = matrix.get(row)
-          .iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement e = iterateNonZero.next();
-        res += e.getValue();
-      }
+      res += matrix.get(row).sum();
     }
     return res;
   }
@@ -499,12 +675,7 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
     double[][] dim = new double[getRowCount()][getColumnCount()];
 
     for (int row : rowIndices) {
-      DoubleVector rowVector = getRowVector(row);
-      Iterator<DoubleVectorElement> iterateNonZero = rowVector.iterateNonZero();
-      while (iterateNonZero.hasNext()) {
-        DoubleVectorElement next = iterateNonZero.next();
-        dim[row][next.getIndex()] = next.getValue();
-      }
+      matrix.get(row).forEachNonZero((col, value) -> dim[row][col] = value);
     }
 
     return dim;
@@ -525,7 +696,24 @@ public final class SparseDoubleRowMatrix implements DoubleMatrix {
   }
 
   public void removeRow(int row) {
-    matrix.remove(row);
+    columnIndex = null;
+    detach(matrix.remove(row));
+  }
+
+  /**
+   * Called by the row vectors on every mutation, drops the column index.
+   */
+  void rowModified() {
+    columnIndex = null;
+  }
+
+  /**
+   * Mutations of a removed row no longer concern this matrix.
+   */
+  private static void detach(SparseDoubleVector row) {
+    if (row != null) {
+      row.setOwner(null);
+    }
   }
 
   /**
@@ -1,7 +1,5 @@
 package de.jungblut.math.sparse;
 
-import gnu.trove.iterator.TIntDoubleIterator;
-
 import java.util.Iterator;
 
 import org.apache.commons.math3.util.FastMath;
@@ -11,6 +9,8 @@ import com.google.common.collect.AbstractIterator;
 import de.jungblut.math.DoubleVector;
 import de.jungblut.math.function.DoubleDoubleVectorFunction;
 import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.function.IntDoubleConsumer;
+import de.jungblut.math.sparse.VectorKernels.Operation;
 
 /**
  * Sparse double vector backed by a trove hashmap.
@@ -23,6 +23,8 @@ public final class SparseDoubleVector implements DoubleVector {
   private static final double SPARSE_DEFAULT_VALUE = 0d;
   private final FastIntDoubleHashMap vector;
   private final int dimension;
+  // the matrix this vector is a row of, it is notified about every mutation
+  private SparseDoubleRowMatrix owner;
 
   /**
    * Constructs a new {@link SparseDoubleVector}.
@@ -130,6 +132,7 @@ public final class SparseDoubleVector implements DoubleVector {
 
   @Override
   public void set(int index, double value) {
+    modified();
     if (value != SPARSE_DEFAULT_VALUE) {
       vector.put(index, value);
     } else {
@@ -166,7 +169,11 @@ public final class SparseDoubleVector implements DoubleVector {
 
   @Override
   public DoubleVector add(DoubleVector other) {
-    DoubleVector result = new SparseDoubleVector(this.vector.fastDeepCopy(),
+    DoubleVector result = VectorKernels.apply(Operation.ADD, this, other);
+    if (result != null) {
+      return result;
+    }
+    result = new SparseDoubleVector(this.vector.fastDeepCopy(),
         this.getDimension());
     Iterator<DoubleVectorElement> iter = other.iterateNonZero();
     while (iter.hasNext()) {
@@ -191,8 +198,12 @@ public final class SparseDoubleVector implements DoubleVector {
 
   @Override
   public DoubleVector subtract(DoubleVector other) {
+    DoubleVector result = VectorKernels.apply(Operation.SUBTRACT, this, other);
+    if (result != null) {
+      return result;
+    }
 
-    DoubleVector result = new SparseDoubleVector(this.vector.fastDeepCopy(),
+    result = new SparseDoubleVector(this.vector.fastDeepCopy(),
         this.getDimension());
 
     Iterator<DoubleVectorElement> iter = other.iterateNonZero();
@@ -240,6 +251,10 @@ public final class SparseDoubleVector implements DoubleVector {
 
   @Override
   public DoubleVector multiply(DoubleVector s) {
+    DoubleVector result = VectorKernels.apply(Operation.MULTIPLY, this, s);
+    if (result != null) {
+      return result;
+    }
     // take a shortcut by just iterating over the non-zero elements of the
     // smaller vector of both multiplicants.
     DoubleVector smallestVector = s.getLength() < getLength() ? s : this;
@@ -339,6 +354,62 @@ public final class SparseDoubleVector implements DoubleVector {
     return v;
   }
 
+  @Override
+  public DoubleVector addInPlace(DoubleVector v) {
+    return axpy(1d, v);
+  }
+
+  @Override
+  public DoubleVector subtractInPlace(DoubleVector v) {
+    return axpy(-1d, v);
+  }
+
+  @Override
+  public DoubleVector scaleInPlace(double scalar) {
+    modified();
+    if (scalar == 0d) {
+      vector.clear();
+      return this;
+    }
+    FastIntDoubleHashMap.EntryIterator iterator = vector.iterator();
+    while (iterator.hasNext()) {
+      iterator.advance();
+      double value = iterator.value() * scalar;
+      if (value != SPARSE_DEFAULT_VALUE) {
+        iterator.setValue(value);
+      } else {
+        iterator.remove();
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public DoubleVector axpy(double alpha, DoubleVector x) {
+    if (x == this) {
+      return scaleInPlace(1d + alpha);
+    }
+    modified();
+    Iterator<DoubleVectorElement> iter = x.iterateNonZero();
+    while (iter.hasNext()) {
+      DoubleVectorElement e = iter.next();
+      double delta = alpha * e.getValue();
+      double value = vector.adjustOrPutValue(e.getIndex(), delta, delta);
+      if (value == SPARSE_DEFAULT_VALUE) {
+        vector.remove(e.getIndex());
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public DoubleVector applyInPlace(DoubleVectorFunction func) {
+    for (int i = 0; i < dimension; i++) {
+      set(i, func.calculate(i, get(i)));
+    }
+    return this;
+  }
+
   @Override
   public double sum() {
     double sum = 0.0d;
@@ -374,20 +445,7 @@ public final class SparseDoubleVector implements DoubleVector {
 
   @Override
   public double dot(DoubleVector s) {
-    double dotProduct = 0.0d;
-    // take a shortcut by just iterating over the non-zero elements of the
-    // smaller vector of both multiplicants.
-    DoubleVector smallestVector = s.getLength() < getLength() ? s : this;
-    DoubleVector largerVector = smallestVector == this ? s : this;
-    Iterator<DoubleVectorElement> it = smallestVector.iterateNonZero();
-
-    while (it.hasNext()) {
-      DoubleVectorElement next = it.next();
-      double d = largerVector.get(next.getIndex());
-      dotProduct += d * next.getValue();
-    }
-
-    return dotProduct;
+    return VectorKernels.dot(this, s);
   }
 
   @Override
@@ -498,6 +556,26 @@ public final class SparseDoubleVector implements DoubleVector {
     return d;
   }
 
+  /**
+   * Sets the matrix this vector is a row of, null if it is no row (anymore).
+   */
+  void setOwner(SparseDoubleRowMatrix owner) {
+    this.owner = owner;
+  }
+
+  private void modified() {
+    if (owner != null) {
+      owner.rowModified();
+    }
+  }
+
+  /**
+   * @return the backing map, no defensive copy is made.
+   */
+  FastIntDoubleHashMap getMap() {
+    return vector;
+  }
+
   @Override
   public String toString() {
     if (getLength() < 50) {
@@ -544,11 +622,23 @@ public final class SparseDoubleVector implements DoubleVector {
     return new DefaultIterator();
   }
 
+  @Override
+  public void forEachNonZero(IntDoubleConsumer consumer) {
+    vector.forEachKeyValue(consumer);
+  }
+
+  @Override
+  public void forEach(IntDoubleConsumer consumer) {
+    for (int i = 0; i < dimension; i++) {
+      consumer.accept(i, vector.get(i));
+    }
+  }
+
   private final class NonZeroIterator extends
       AbstractIterator<DoubleVectorElement> {
 
     private final DoubleVectorElement element = new DoubleVectorElement();
-    private final TIntDoubleIterator iterator;
+    private final FastIntDoubleHashMap.EntryIterator iterator;
     private int currentIndex = 0;
 
     public NonZeroIterator() {
@@ -0,0 +1,364 @@
+package de.jungblut.math.sparse;
+
+import java.util.Iterator;
+
+import com.google.common.collect.AbstractIterator;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.FloatVector;
+import de.jungblut.math.function.IntFloatConsumer;
+
+/**
+ * Sparse float vector backed by a {@link FastIntFloatHashMap}, see
+ * {@link SparseDoubleVector} for the double precision counterpart.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class SparseFloatVector implements FloatVector {
+
+  private final FastIntFloatHashMap vector;
+  private final int dimension;
+
+  /**
+   * Constructs a new {@link SparseFloatVector}.
+   *
+   * @param dimension the expected dimensionality of the vector.
+   */
+  public SparseFloatVector(int dimension) {
+    this(dimension, 10);
+  }
+
+  /**
+   * Constructs a new {@link SparseFloatVector}.
+   *
+   * @param dimension the expected dimensionality of the vector.
+   * @param expectedInserts the expected number of elements to be inserted.
+   */
+  public SparseFloatVector(int dimension, int expectedInserts) {
+    this(new FastIntFloatHashMap(expectedInserts), dimension);
+  }
+
+  private SparseFloatVector(FastIntFloatHashMap vector, int dimension) {
+    this.vector = vector;
+    this.dimension = dimension;
+  }
+
+  /**
+   * Constructs a new {@link SparseFloatVector}.
+   *
+   * @param v the given vector to copy.
+   */
+  public SparseFloatVector(FloatVector v) {
+    this(v.getDimension(), v.getLength());
+    v.forEachNonZero(this::set);
+  }
+
+  /**
+   * Narrows the non-zero elements of the given double vector into a new
+   * {@link SparseFloatVector}.
+   *
+   * @param v the given vector to copy.
+   */
+  public SparseFloatVector(DoubleVector v) {
+    this(v.getDimension(), v.isSparse() ? v.getLength() : 10);
+    v.forEachNonZero((index, value) -> set(index, (float) value));
+  }
+
+  /**
+   * Constructs a new {@link SparseFloatVector}.
+   *
+   * @param arr the given vector to copy.
+   */
+  public SparseFloatVector(float[] arr) {
+    this(arr.length);
+    for (int i = 0; i < arr.length; i++) {
+      set(i, arr[i]);
+    }
+  }
+
+  @Override
+  public float get(int index) {
+    return vector.get(index);
+  }
+
+  @Override
+  public int getLength() {
+    return vector.size();
+  }
+
+  @Override
+  public int getDimension() {
+    return dimension;
+  }
+
+  @Override
+  public void set(int index, float value) {
+    if (value != 0f) {
+      vector.put(index, value);
+    } else {
+      vector.remove(index);
+    }
+  }
+
+  @Override
+  public FloatVector add(FloatVector v) {
+    return deepCopy().axpy(1f, v);
+  }
+
+  @Override
+  public FloatVector add(float scalar) {
+    SparseFloatVector v = new SparseFloatVector(dimension, dimension);
+    for (int i = 0; i < dimension; i++) {
+      v.set(i, get(i) + scalar);
+    }
+    return v;
+  }
+
+  @Override
+  public FloatVector subtract(FloatVector v) {
+    return deepCopy().axpy(-1f, v);
+  }
+
+  @Override
+  public FloatVector subtract(float scalar) {
+    return add(-scalar);
+  }
+
+  @Override
+  public FloatVector multiply(float scalar) {
+    return deepCopy().scaleInPlace(scalar);
+  }
+
+  @Override
+  public FloatVector multiply(FloatVector s) {
+    // iterate over the non-zero elements of the smaller vector
+    FloatVector smallestVector = s.getLength() < getLength() ? s : this;
+    FloatVector largerVector = smallestVector == this ? s : this;
+    SparseFloatVector result = new SparseFloatVector(dimension,
+        smallestVector.getLength());
+    smallestVector.forEachNonZero((index, value) -> result.set(index, value
+        * largerVector.get(index)));
+    return result;
+  }
+
+  @Override
+  public FloatVector divide(float scalar) {
+    return deepCopy().scaleInPlace(1f / scalar);
+  }
+
+  @Override
+  public FloatVector addInPlace(FloatVector v) {
+    return axpy(1f, v);
+  }
+
+  @Override
+  public FloatVector subtractInPlace(FloatVector v) {
+    return axpy(-1f, v);
+  }
+
+  @Override
+  public FloatVector scaleInPlace(float scalar) {
+    if (scalar == 0f) {
+      vector.clear();
+    } else {
+      FastIntFloatHashMap.EntryIterator it = vector.iterator();
+      while (it.hasNext()) {
+        it.advance();
+        it.setValue(it.value() * scalar);
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public FloatVector axpy(float alpha, FloatVector x) {
+    if (x == this) {
+      // setting zeros removes entries, so don't iterate over our own map
+      return scaleInPlace(1f + alpha);
+    }
+    x.forEachNonZero((index, value) -> set(index, get(index) + alpha * value));
+    return this;
+  }
+
+  @Override
+  public double sum() {
+    double sum = 0d;
+    FastIntFloatHashMap.EntryIterator it = vector.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      sum += it.value();
+    }
+    return sum;
+  }
+
+  @Override
+  public double dot(FloatVector s) {
+    if (s.isSparse() && s.getLength() < getLength()) {
+      return s.dot(this);
+    }
+    double dotProduct = 0d;
+    FastIntFloatHashMap.EntryIterator it = vector.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      dotProduct += (double) it.value() * s.get(it.key());
+    }
+    return dotProduct;
+  }
+
+  @Override
+  public float max() {
+    float max = -Float.MAX_VALUE;
+    FastIntFloatHashMap.EntryIterator it = vector.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      max = Math.max(max, it.value());
+    }
+    return max;
+  }
+
+  @Override
+  public float min() {
+    float min = Float.MAX_VALUE;
+    FastIntFloatHashMap.EntryIterator it = vector.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      min = Math.min(min, it.value());
+    }
+    return min;
+  }
+
+  @Override
+  public int maxIndex() {
+    float max = -Float.MAX_VALUE;
+    int maxIndex = 0;
+    FastIntFloatHashMap.EntryIterator it = vector.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      if (it.value() > max) {
+        max = it.value();
+        maxIndex = it.key();
+      }
+    }
+    return maxIndex;
+  }
+
+  @Override
+  public int minIndex() {
+    float min = Float.MAX_VALUE;
+    int minIndex = 0;
+    FastIntFloatHashMap.EntryIterator it = vector.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      if (it.value() < min) {
+        min = it.value();
+        minIndex = it.key();
+      }
+    }
+    return minIndex;
+  }
+
+  @Override
+  public float[] toArray() {
+    float[] array = new float[dimension];
+    forEachNonZero((index, value) -> array[index] = value);
+    return array;
+  }
+
+  @Override
+  public SparseDoubleVector toDoubleVector() {
+    SparseDoubleVector v = new SparseDoubleVector(dimension, vector.size());
+    forEachNonZero(v::set);
+    return v;
+  }
+
+  @Override
+  public SparseFloatVector deepCopy() {
+    return new SparseFloatVector(vector.fastDeepCopy(), dimension);
+  }
+
+  @Override
+  public Iterator<FloatVectorElement> iterateNonZero() {
+    FastIntFloatHashMap.EntryIterator it = vector.iterator();
+    return new AbstractIterator<FloatVectorElement>() {
+      private final FloatVectorElement element = new FloatVectorElement();
+
+      @Override
+      protected FloatVectorElement computeNext() {
+        if (!it.hasNext()) {
+          return endOfData();
+        }
+        it.advance();
+        element.setIndex(it.key());
+        element.setValue(it.value());
+        return element;
+      }
+    };
+  }
+
+  @Override
+  public Iterator<FloatVectorElement> iterate() {
+    return new AbstractIterator<FloatVectorElement>() {
+      private final FloatVectorElement element = new FloatVectorElement();
+      private int currentIndex = 0;
+
+      @Override
+      protected FloatVectorElement computeNext() {
+        if (currentIndex >= dimension) {
+          return endOfData();
+        }
+        element.setIndex(currentIndex);
+        element.setValue(vector.get(currentIndex++));
+        return element;
+      }
+    };
+  }
+
+  @Override
+  public void forEachNonZero(IntFloatConsumer consumer) {
+    FastIntFloatHashMap.EntryIterator it = vector.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      consumer.accept(it.key(), it.value());
+    }
+  }
+
+  @Override
+  public void forEach(IntFloatConsumer consumer) {
+    for (int i = 0; i < dimension; i++) {
+      consumer.accept(i, vector.get(i));
+    }
+  }
+
+  @Override
+  public boolean isSparse() {
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return vector.toString();
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + dimension;
+    result = prime * result + vector.hashCode();
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    SparseFloatVector other = (SparseFloatVector) obj;
+    return dimension == other.dimension && vector.equals(other.vector);
+  }
+
+}
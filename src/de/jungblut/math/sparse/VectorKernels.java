@@ -0,0 +1,572 @@
+package de.jungblut.math.sparse;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.dense.DoubleArrayKernels;
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.named.NamedDoubleVector;
+
+/**
+ * Registry of specialized loops for binary vector operations, keyed by the
+ * concrete classes of both operands (double dispatch). The vector
+ * implementations route their dot products and their element-wise operations
+ * through this class, so a kernel that is registered for a pair of types is
+ * picked up transparently.<br/>
+ * <br/>
+ * The built-in kernels work directly on the backing structures: merge-joins
+ * over the sorted arrays of two {@link SequentialSparseDoubleVector}s, array
+ * indexing when a sparse vector meets a {@link DenseDoubleVector} (on either
+ * side) and counting the intersection of two {@link SparseBitVector}s. Named
+ * and keyed vectors are unwrapped before the lookup.
+ *
+ * @author thomas.jungblut
+ *
+ */
+public final class VectorKernels {
+
+  /**
+   * Computes the dot product of two vectors of fixed types.
+   */
+  public static interface DotKernel<L extends DoubleVector, R extends DoubleVector> {
+
+    double dot(L left, R right);
+
+  }
+
+  /**
+   * Computes an element-wise operation of two vectors of fixed types.
+   */
+  public static interface BinaryKernel<L extends DoubleVector, R extends DoubleVector> {
+
+    DoubleVector apply(L left, R right);
+
+  }
+
+  /**
+   * The element-wise operations that can be specialized.
+   */
+  public static enum Operation {
+    ADD, SUBTRACT, MULTIPLY
+  }
+
+  // copy on write, so lookups never have to synchronize
+  private static volatile Map<Class<?>, Map<Class<?>, DotKernel<?, ?>>> dotKernels = new IdentityHashMap<>();
+  private static volatile Map<Operation, Map<Class<?>, Map<Class<?>, BinaryKernel<?, ?>>>> binaryKernels = new EnumMap<>(
+      Operation.class);
+
+  static {
+    registerDot(DenseDoubleVector.class, DenseDoubleVector.class,
+        VectorKernels::dotDenseDense);
+    registerDot(DenseDoubleVector.class, SparseDoubleVector.class,
+        VectorKernels::dotDenseSparse);
+    registerDot(DenseDoubleVector.class, SequentialSparseDoubleVector.class,
+        VectorKernels::dotDenseSequential);
+    registerDot(DenseDoubleVector.class, SparseBitVector.class,
+        VectorKernels::dotDenseBits);
+    registerDot(SparseDoubleVector.class, SparseDoubleVector.class,
+        VectorKernels::dotSparseSparse);
+    registerDot(SparseDoubleVector.class, SequentialSparseDoubleVector.class,
+        VectorKernels::dotSparseSequential);
+    registerDot(SparseDoubleVector.class, SparseBitVector.class,
+        VectorKernels::dotSparseBits);
+    registerDot(SequentialSparseDoubleVector.class,
+        SequentialSparseDoubleVector.class,
+        VectorKernels::dotSequentialSequential);
+    registerDot(SequentialSparseDoubleVector.class, SparseBitVector.class,
+        VectorKernels::dotSequentialBits);
+    registerDot(SparseBitVector.class, SparseBitVector.class,
+        VectorKernels::dotBitsBits);
+
+    for (Operation op : Operation.values()) {
+      register(op, DenseDoubleVector.class, DenseDoubleVector.class,
+          (l, r) -> denseDense(op, l, r));
+      register(op, DenseDoubleVector.class, SparseDoubleVector.class,
+          (l, r) -> denseSparse(op, l, r));
+      register(op, DenseDoubleVector.class, SequentialSparseDoubleVector.class,
+          (l, r) -> denseSequential(op, l, r));
+      register(op, DenseDoubleVector.class, SparseBitVector.class,
+          (l, r) -> denseBits(op, l, r));
+      register(op, SparseDoubleVector.class, DenseDoubleVector.class,
+          (l, r) -> sparseDense(op, l, r));
+      register(op, SequentialSparseDoubleVector.class, DenseDoubleVector.class,
+          (l, r) -> sequentialDense(op, l, r));
+    }
+  }
+
+  private VectorKernels() {
+    throw new IllegalAccessError();
+  }
+
+  /**
+   * Registers a dot product kernel for the given pair of types. Since the dot
+   * product is symmetric, it is also used for the swapped pair unless a kernel
+   * is registered for that pair explicitly. An existing kernel for the same
+   * pair is replaced.
+   */
+  public static synchronized <L extends DoubleVector, R extends DoubleVector> void registerDot(
+      Class<L> left, Class<R> right, DotKernel<? super L, ? super R> kernel) {
+    dotKernels = copyWith(dotKernels, left, right, kernel);
+  }
+
+  /**
+   * Registers a kernel for the given operation and pair of types. An existing
+   * kernel for the same pair is replaced.
+   */
+  public static synchronized <L extends DoubleVector, R extends DoubleVector> void register(
+      Operation op, Class<L> left, Class<R> right,
+      BinaryKernel<? super L, ? super R> kernel) {
+    Map<Operation, Map<Class<?>, Map<Class<?>, BinaryKernel<?, ?>>>> copy = new EnumMap<>(
+        binaryKernels);
+    Map<Class<?>, Map<Class<?>, BinaryKernel<?, ?>>> kernels = copy.get(op);
+    copy.put(op, copyWith(kernels == null ? new IdentityHashMap<>() : kernels,
+        left, right, kernel));
+    binaryKernels = copy;
+  }
+
+  /**
+   * @return the dot product of both vectors, computed by the kernel for their
+   *         types or by a generic loop over the non-zero elements.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static double dot(DoubleVector left, DoubleVector right) {
+    left = unwrap(left);
+    right = unwrap(right);
+    Map<Class<?>, Map<Class<?>, DotKernel<?, ?>>> kernels = dotKernels;
+    DotKernel kernel = find(kernels, left.getClass(), right.getClass());
+    if (kernel != null) {
+      return kernel.dot(left, right);
+    }
+    kernel = find(kernels, right.getClass(), left.getClass());
+    if (kernel != null) {
+      return kernel.dot(right, left);
+    }
+    return dotGeneric(left, right);
+  }
+
+  /**
+   * Applies the kernel registered for the given operation and the types of both
+   * vectors.
+   *
+   * @return the result of the kernel, or null if no kernel is registered for
+   *         these types, so the caller has to compute the result itself.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static DoubleVector apply(Operation op, DoubleVector left,
+      DoubleVector right) {
+    left = unwrap(left);
+    right = unwrap(right);
+    Map<Class<?>, Map<Class<?>, BinaryKernel<?, ?>>> kernels = binaryKernels
+        .get(op);
+    if (kernels == null) {
+      return null;
+    }
+    BinaryKernel kernel = find(kernels, left.getClass(), right.getClass());
+    return kernel == null ? null : kernel.apply(left, right);
+  }
+
+  private static DoubleVector unwrap(DoubleVector v) {
+    while (true) {
+      if (v instanceof NamedDoubleVector) {
+        v = ((NamedDoubleVector) v).getVector();
+      } else if (v instanceof KeyedDoubleVector) {
+        v = ((KeyedDoubleVector) v).getVector();
+      } else {
+        return v;
+      }
+    }
+  }
+
+  private static <T> T find(Map<Class<?>, Map<Class<?>, T>> kernels,
+      Class<?> left, Class<?> right) {
+    Map<Class<?>, T> inner = kernels.get(left);
+    return inner == null ? null : inner.get(right);
+  }
+
+  private static <T> Map<Class<?>, Map<Class<?>, T>> copyWith(
+      Map<Class<?>, Map<Class<?>, T>> kernels, Class<?> left, Class<?> right,
+      T kernel) {
+    Map<Class<?>, Map<Class<?>, T>> copy = new IdentityHashMap<>(kernels);
+    Map<Class<?>, T> inner = kernels.get(left);
+    inner = inner == null ? new IdentityHashMap<>() : new IdentityHashMap<>(
+        inner);
+    inner.put(right, kernel);
+    copy.put(left, inner);
+    return copy;
+  }
+
+  /*
+   * ------------DOT PRODUCTS------------
+   */
+
+  private static double dotGeneric(DoubleVector left, DoubleVector right) {
+    // iterate the non-zeros of the sparser side, the length of a dense vector
+    // is its dimension and thus can't be compared with a sparse length
+    DoubleVector smaller;
+    if (left.isSparse() && right.isSparse()) {
+      smaller = left.getLength() <= right.getLength() ? left : right;
+    } else if (left.isSparse() || right.isSparse()) {
+      smaller = left.isSparse() ? left : right;
+    } else {
+      double dotProduct = 0d;
+      for (int i = 0; i < left.getDimension(); i++) {
+        dotProduct += left.get(i) * right.get(i);
+      }
+      return dotProduct;
+    }
+    DoubleVector larger = smaller == left ? right : left;
+    double dotProduct = 0d;
+    Iterator<DoubleVectorElement> it = smaller.iterateNonZero();
+    while (it.hasNext()) {
+      DoubleVectorElement next = it.next();
+      dotProduct += next.getValue() * larger.get(next.getIndex());
+    }
+    return dotProduct;
+  }
+
+  private static double dotDenseDense(DenseDoubleVector left,
+      DenseDoubleVector right) {
+    double[] a = left.toArray();
+    return DoubleArrayKernels.get().dot(a, right.toArray(), a.length);
+  }
+
+  private static double dotDenseSparse(DenseDoubleVector left,
+      SparseDoubleVector right) {
+    double[] a = left.toArray();
+    double dotProduct = 0d;
+    FastIntDoubleHashMap.EntryIterator it = right.getMap().iterator();
+    while (it.hasNext()) {
+      it.advance();
+      dotProduct += a[it.key()] * it.value();
+    }
+    return dotProduct;
+  }
+
+  private static double dotDenseSequential(DenseDoubleVector left,
+      SequentialSparseDoubleVector right) {
+    double[] a = left.toArray();
+    OrderedIntDoubleMapping mapping = right.getMapping();
+    int[] indices = mapping.getIndices();
+    double[] values = mapping.getValues();
+    double dotProduct = 0d;
+    for (int i = 0; i < mapping.getNumMappings(); i++) {
+      dotProduct += a[indices[i]] * values[i];
+    }
+    return dotProduct;
+  }
+
+  private static double dotDenseBits(DenseDoubleVector left,
+      SparseBitVector right) {
+    double[] a = left.toArray();
+    BitSet bits = right.getBitSet();
+    double dotProduct = 0d;
+    for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+      dotProduct += a[i];
+    }
+    return dotProduct;
+  }
+
+  private static double dotSparseSparse(SparseDoubleVector left,
+      SparseDoubleVector right) {
+    // probe the larger map with the keys of the smaller one
+    FastIntDoubleHashMap smaller = left.getMap();
+    FastIntDoubleHashMap larger = right.getMap();
+    if (smaller.size() > larger.size()) {
+      FastIntDoubleHashMap tmp = smaller;
+      smaller = larger;
+      larger = tmp;
+    }
+    double dotProduct = 0d;
+    FastIntDoubleHashMap.EntryIterator it = smaller.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      dotProduct += it.value() * larger.get(it.key());
+    }
+    return dotProduct;
+  }
+
+  private static double dotSparseSequential(SparseDoubleVector left,
+      SequentialSparseDoubleVector right) {
+    FastIntDoubleHashMap map = left.getMap();
+    OrderedIntDoubleMapping mapping = right.getMapping();
+    double dotProduct = 0d;
+    if (mapping.getNumMappings() <= map.size()) {
+      int[] indices = mapping.getIndices();
+      double[] values = mapping.getValues();
+      for (int i = 0; i < mapping.getNumMappings(); i++) {
+        dotProduct += values[i] * map.get(indices[i]);
+      }
+    } else {
+      FastIntDoubleHashMap.EntryIterator it = map.iterator();
+      while (it.hasNext()) {
+        it.advance();
+        dotProduct += it.value() * mapping.get(it.key());
+      }
+    }
+    return dotProduct;
+  }
+
+  private static double dotSparseBits(SparseDoubleVector left,
+      SparseBitVector right) {
+    BitSet bits = right.getBitSet();
+    double dotProduct = 0d;
+    FastIntDoubleHashMap.EntryIterator it = left.getMap().iterator();
+    while (it.hasNext()) {
+      it.advance();
+      if (bits.get(it.key())) {
+        dotProduct += it.value();
+      }
+    }
+    return dotProduct;
+  }
+
+  private static double dotSequentialSequential(
+      SequentialSparseDoubleVector left, SequentialSparseDoubleVector right) {
+    // merge-join over both sorted index arrays
+    OrderedIntDoubleMapping a = left.getMapping();
+    OrderedIntDoubleMapping b = right.getMapping();
+    int[] aIndices = a.getIndices();
+    double[] aValues = a.getValues();
+    int[] bIndices = b.getIndices();
+    double[] bValues = b.getValues();
+    int aLength = a.getNumMappings();
+    int bLength = b.getNumMappings();
+    double dotProduct = 0d;
+    int i = 0;
+    int j = 0;
+    while (i < aLength && j < bLength) {
+      int aIndex = aIndices[i];
+      int bIndex = bIndices[j];
+      if (aIndex == bIndex) {
+        dotProduct += aValues[i++] * bValues[j++];
+      } else if (aIndex < bIndex) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return dotProduct;
+  }
+
+  private static double dotSequentialBits(SequentialSparseDoubleVector left,
+      SparseBitVector right) {
+    BitSet bits = right.getBitSet();
+    OrderedIntDoubleMapping mapping = left.getMapping();
+    int[] indices = mapping.getIndices();
+    double[] values = mapping.getValues();
+    double dotProduct = 0d;
+    for (int i = 0; i < mapping.getNumMappings(); i++) {
+      if (bits.get(indices[i])) {
+        dotProduct += values[i];
+      }
+    }
+    return dotProduct;
+  }
+
+  private static double dotBitsBits(SparseBitVector left, SparseBitVector right) {
+    // all set bits are ones, so the dot product is the size of the
+    // intersection. Bits beyond the last bit of the shorter set can't match.
+    BitSet shorter = left.getBitSet();
+    BitSet longer = right.getBitSet();
+    if (shorter.length() > longer.length()) {
+      BitSet tmp = shorter;
+      shorter = longer;
+      longer = tmp;
+    }
+    int count = 0;
+    for (int i = shorter.nextSetBit(0); i >= 0; i = shorter.nextSetBit(i + 1)) {
+      if (longer.get(i)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /*
+   * ------------ELEMENT-WISE OPERATIONS------------
+   */
+
+  private static DoubleVector denseDense(Operation op, DenseDoubleVector left,
+      DenseDoubleVector right) {
+    double[] a = left.toArray();
+    double[] b = right.toArray();
+    double[] result = new double[a.length];
+    DoubleArrayKernels kernels = DoubleArrayKernels.get();
+    switch (op) {
+      case ADD:
+        kernels.add(a, b, result, a.length);
+        break;
+      case SUBTRACT:
+        kernels.subtract(a, b, result, a.length);
+        break;
+      default:
+        kernels.multiply(a, b, result, a.length);
+        break;
+    }
+    return new DenseDoubleVector(result);
+  }
+
+  /**
+   * @return the start array of a sparse right operand: a copy of the dense
+   *         array for additions and subtractions, zeros for multiplications.
+   */
+  private static double[] startArray(Operation op, double[] a) {
+    return op == Operation.MULTIPLY ? new double[a.length] : a.clone();
+  }
+
+  private static double combine(Operation op, double left, double right) {
+    switch (op) {
+      case ADD:
+        return left + right;
+      case SUBTRACT:
+        return left - right;
+      default:
+        return left * right;
+    }
+  }
+
+  private static DoubleVector denseSparse(Operation op, DenseDoubleVector left,
+      SparseDoubleVector right) {
+    double[] a = left.toArray();
+    double[] result = startArray(op, a);
+    FastIntDoubleHashMap.EntryIterator it = right.getMap().iterator();
+    while (it.hasNext()) {
+      it.advance();
+      int index = it.key();
+      result[index] = combine(op, a[index], it.value());
+    }
+    return new DenseDoubleVector(result);
+  }
+
+  private static DoubleVector denseSequential(Operation op,
+      DenseDoubleVector left, SequentialSparseDoubleVector right) {
+    double[] a = left.toArray();
+    double[] result = startArray(op, a);
+    OrderedIntDoubleMapping mapping = right.getMapping();
+    int[] indices = mapping.getIndices();
+    double[] values = mapping.getValues();
+    for (int i = 0; i < mapping.getNumMappings(); i++) {
+      int index = indices[i];
+      result[index] = combine(op, a[index], values[i]);
+    }
+    return new DenseDoubleVector(result);
+  }
+
+  /**
+   * @return the start array of a dense right operand: a copy of the dense array
+   *         for additions, its negation for subtractions. Multiplications
+   *         don't start with a dense array. The sums are accumulated densely
+   *         and then compacted into the sparse type of the left operand.
+   */
+  private static double[] rightStartArray(Operation op, double[] b) {
+    if (op == Operation.ADD) {
+      return b.clone();
+    }
+    double[] result = new double[b.length];
+    for (int i = 0; i < b.length; i++) {
+      // subtracting from zero avoids negative zeros
+      result[i] = 0d - b[i];
+    }
+    return result;
+  }
+
+  private static DoubleVector sparseDense(Operation op, SparseDoubleVector left,
+      DenseDoubleVector right) {
+    double[] b = right.toArray();
+    FastIntDoubleHashMap.EntryIterator it = left.getMap().iterator();
+    if (op == Operation.MULTIPLY) {
+      // only the non-zeros of the sparse side can be non-zero
+      FastIntDoubleHashMap result = new FastIntDoubleHashMap(left.getLength());
+      while (it.hasNext()) {
+        it.advance();
+        double value = it.value() * b[it.key()];
+        if (value != 0d) {
+          result.put(it.key(), value);
+        }
+      }
+      return new SparseDoubleVector(result, left.getDimension());
+    }
+    double[] result = rightStartArray(op, b);
+    while (it.hasNext()) {
+      it.advance();
+      result[it.key()] += it.value();
+    }
+    // the result keeps the type of the sparse left operand
+    FastIntDoubleHashMap map = new FastIntDoubleHashMap(countNonZeros(result));
+    for (int i = 0; i < result.length; i++) {
+      if (result[i] != 0d) {
+        map.put(i, result[i]);
+      }
+    }
+    return new SparseDoubleVector(map, left.getDimension());
+  }
+
+  private static DoubleVector sequentialDense(Operation op,
+      SequentialSparseDoubleVector left, DenseDoubleVector right) {
+    double[] b = right.toArray();
+    OrderedIntDoubleMapping mapping = left.getMapping();
+    int[] indices = mapping.getIndices();
+    double[] values = mapping.getValues();
+    int length = mapping.getNumMappings();
+    if (op == Operation.MULTIPLY) {
+      // the indices stay sorted, only the zero products are dropped
+      int[] resultIndices = new int[length];
+      double[] resultValues = new double[length];
+      int k = 0;
+      for (int i = 0; i < length; i++) {
+        double value = values[i] * b[indices[i]];
+        if (value != 0d) {
+          resultIndices[k] = indices[i];
+          resultValues[k++] = value;
+        }
+      }
+      return new SequentialSparseDoubleVector(left.getDimension(),
+          new OrderedIntDoubleMapping(resultIndices, resultValues, k));
+    }
+    double[] result = rightStartArray(op, b);
+    for (int i = 0; i < length; i++) {
+      result[indices[i]] += values[i];
+    }
+    // the result keeps the type of the sparse left operand
+    int nonZeros = countNonZeros(result);
+    int[] resultIndices = new int[nonZeros];
+    double[] resultValues = new double[nonZeros];
+    int k = 0;
+    for (int i = 0; i < result.length; i++) {
+      if (result[i] != 0d) {
+        resultIndices[k] = i;
+        resultValues[k++] = result[i];
+      }
+    }
+    return new SequentialSparseDoubleVector(left.getDimension(),
+        new OrderedIntDoubleMapping(resultIndices, resultValues, k));
+  }
+
+  private static int countNonZeros(double[] values) {
+    int count = 0;
+    for (double value : values) {
+      if (value != 0d) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static DoubleVector denseBits(Operation op, DenseDoubleVector left,
+      SparseBitVector right) {
+    double[] a = left.toArray();
+    double[] result = startArray(op, a);
+    BitSet bits = right.getBitSet();
+    for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+      result[i] = combine(op, a[i], 1d);
+    }
+    return new DenseDoubleVector(result);
+  }
+
+}
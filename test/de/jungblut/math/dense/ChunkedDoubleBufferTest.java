@@ -0,0 +1,102 @@
+package de.jungblut.math.dense;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class ChunkedDoubleBufferTest extends TestCase {
+
+  @Test
+  public void testAccessAfterClose() {
+    ChunkedDoubleBuffer buffer = ChunkedDoubleBuffer.allocateDirect(10, 2);
+    buffer.set(5, 2d);
+    assertEquals(2d, buffer.get(5));
+    buffer.close();
+    assertTrue(buffer.isClosed());
+    // closing twice is a no-op
+    buffer.close();
+
+    double[] arr = new double[10];
+    assertClosed(() -> buffer.get(0));
+    assertClosed(() -> buffer.set(0, 1d));
+    assertClosed(() -> buffer.get(0, arr, 0, arr.length));
+    assertClosed(() -> buffer.put(0, arr, 0, arr.length));
+    assertClosed(() -> buffer.dot(0, arr, 0, arr.length));
+    assertClosed(() -> buffer.axpy(0, 1d, arr, 0, arr.length));
+    assertClosed(() -> buffer.get(0, 2, arr, 0, 5));
+    assertClosed(() -> buffer.put(0, 2, arr, 0, 5));
+    assertClosed(() -> buffer.copy());
+    assertClosed(() -> buffer.force());
+  }
+
+  @Test
+  public void testStridedAccess() {
+    try (ChunkedDoubleBuffer buffer = ChunkedDoubleBuffer.allocateDirect(12,
+        2)) {
+      // every third value, crossing the chunks of four values
+      buffer.put(1, 3, new double[] { 1, 2, 3, 4 }, 0, 4);
+      assertEquals(1d, buffer.get(1));
+      assertEquals(2d, buffer.get(4));
+      assertEquals(3d, buffer.get(7));
+      assertEquals(4d, buffer.get(10));
+      assertEquals(0d, buffer.get(5));
+      double[] dst = new double[5];
+      buffer.get(1, 3, dst, 1, 4);
+      assertTrue(Arrays.equals(new double[] { 0, 1, 2, 3, 4 }, dst));
+    }
+  }
+
+  @Test
+  public void testCloseWhileReading() throws Exception {
+    ChunkedDoubleBuffer buffer = ChunkedDoubleBuffer.allocateDirect(1 << 12, 8);
+    double[] ones = new double[1 << 12];
+    Arrays.fill(ones, 1d);
+    buffer.put(0, ones, 0, ones.length);
+
+    int numThreads = 4;
+    CountDownLatch started = new CountDownLatch(numThreads);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      threads[t] = new Thread(() -> {
+        started.countDown();
+        try {
+          while (true) {
+            // a running access always sees intact memory
+            double dot = buffer.dot(0, ones, 0, ones.length);
+            if (dot != ones.length) {
+              failure.compareAndSet(null, new AssertionError("dot was " + dot));
+              return;
+            }
+          }
+        } catch (IllegalStateException e) {
+          // expected once the buffer is closed
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      });
+      threads[t].start();
+    }
+    started.await();
+    buffer.close();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(failure.get());
+    assertTrue(buffer.isClosed());
+  }
+
+  private static void assertClosed(Runnable access) {
+    try {
+      access.run();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+}
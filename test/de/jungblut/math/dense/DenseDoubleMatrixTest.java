@@ -2,6 +2,7 @@ package de.jungblut.math.dense;
 
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import junit.framework.TestCase;
 
@@ -11,6 +12,7 @@ import com.google.common.collect.Lists;
 
 import de.jungblut.math.DoubleMatrix;
 import de.jungblut.math.DoubleVector;
+import de.jungblut.math.sparse.SparseDoubleRowMatrix;
 import de.jungblut.math.sparse.SparseDoubleVector;
 
 public class DenseDoubleMatrixTest extends TestCase {
@@ -168,6 +170,58 @@ public class DenseDoubleMatrixTest extends TestCase {
     arrayEquals(result, multiplyVectorColumn.toArray());
   }
 
+  @Test
+  public void testBlockedMultiplication() throws Exception {
+    // sizes that span multiple blocks and don't fit into the column tiles
+    Random rand = new Random(0L);
+    DenseDoubleMatrix left = new DenseDoubleMatrix(301, 263, rand);
+    DenseDoubleMatrix right = new DenseDoubleMatrix(263, 7, rand);
+
+    double[][] expected = new double[301][7];
+    for (int i = 0; i < 301; i++) {
+      for (int j = 0; j < 7; j++) {
+        for (int k = 0; k < 263; k++) {
+          expected[i][j] += left.get(i, k) * right.get(k, j);
+        }
+      }
+    }
+
+    DoubleMatrix multiply = left.multiply(right);
+    assertEquals(301, multiply.getRowCount());
+    assertEquals(7, multiply.getColumnCount());
+    matrixEquals(expected, multiply.toArray());
+
+    // the generic path for non-dense matrices should yield the same result
+    DoubleMatrix sparseMultiply = left.multiply(new SparseDoubleRowMatrix(
+        right.toArray()));
+    matrixEquals(expected, sparseMultiply.toArray());
+  }
+
+  @Test
+  public void testParallelMultiplication() throws Exception {
+    Random rand = new Random(0L);
+    DenseDoubleMatrix left = new DenseDoubleMatrix(530, 200, rand);
+    DenseDoubleMatrix right = new DenseDoubleMatrix(200, 150, rand);
+
+    double[][] expected = left.multiply(right).toArray();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      DoubleMatrix multiply = left.multiply(right, pool);
+      assertEquals(530, multiply.getRowCount());
+      assertEquals(150, multiply.getColumnCount());
+      matrixEquals(expected, multiply.toArray());
+
+      // small products are computed on the calling thread
+      right = new DenseDoubleMatrix(200, 1, rand);
+      expected = left.multiply(right).toArray();
+      matrixEquals(expected, left.multiply(right, pool).toArray());
+    } finally {
+      pool.shutdown();
+    }
+
+    matrixEquals(expected, left.multiplyParallel(right).toArray());
+  }
+
   @Test
   public void testMultiplyElement() throws Exception {
     double[][] arr = new double[][] { { 1, 2, 3 }, { 4, 5, 6 } };
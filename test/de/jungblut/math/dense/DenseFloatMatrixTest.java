@@ -0,0 +1,79 @@
+package de.jungblut.math.dense;
+
+import static de.jungblut.math.dense.DenseFloatVectorTest.assertArrayEquals;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.sparse.SparseDoubleRowMatrix;
+import de.jungblut.math.sparse.SparseFloatVector;
+
+@RunWith(JUnit4.class)
+public class DenseFloatMatrixTest extends TestCase {
+
+  private final DenseFloatMatrix a = new DenseFloatMatrix(new float[][] {
+      { 1, 2, 3 }, { 4, 5, 6 } });
+
+  @Test
+  public void testAccess() {
+    assertEquals(2, a.getRowCount());
+    assertEquals(3, a.getColumnCount());
+    assertEquals(6f, a.get(1, 2), 0f);
+    assertArrayEquals(new float[] { 1, 4, 2, 5, 3, 6 },
+        a.getColumnMajorMatrix());
+    assertArrayEquals(new float[] { 4, 5, 6 }, a.getRowVector(1).toArray());
+    assertArrayEquals(new float[] { 3, 6 }, a.getColumnVector(2).toArray());
+    assertArrayEquals(new float[] { 4, 5, 6 }, a.toArray()[1]);
+
+    DenseFloatMatrix copy = a.deepCopy();
+    copy.setRowVector(0, new DenseFloatVector(new float[] { 7, 8, 9 }));
+    copy.setColumnVector(0, new SparseFloatVector(2));
+    assertArrayEquals(new float[] { 0, 8, 9 }, copy.getRowVector(0).toArray());
+    assertArrayEquals(new float[] { 0, 5, 6 }, copy.getRowVector(1).toArray());
+    assertEquals(1f, a.get(0, 0), 0f);
+  }
+
+  @Test
+  public void testArithmetic() {
+    assertEquals(21d, a.sum(), 0d);
+    assertArrayEquals(new float[] { 2, 8, 4, 10, 6, 12 }, a.add(a)
+        .getColumnMajorMatrix());
+    assertEquals(0d, a.subtract(a).sum(), 0d);
+    assertArrayEquals(new float[] { 1, 16, 4, 25, 9, 36 }, a
+        .multiplyElementWise(a).getColumnMajorMatrix());
+    assertArrayEquals(new float[] { 3, 12, 6, 15, 9, 18 }, a.multiply(3f)
+        .getColumnMajorMatrix());
+
+    DenseFloatMatrix transposed = a.transpose();
+    assertEquals(3, transposed.getRowCount());
+    assertEquals(4f, transposed.get(0, 1), 0f);
+    // [1 2 3; 4 5 6] * [1 4; 2 5; 3 6] = [14 32; 32 77]
+    DenseFloatMatrix product = a.multiply(transposed);
+    assertArrayEquals(new float[] { 14, 32, 32, 77 },
+        product.getColumnMajorMatrix());
+
+    DenseFloatVector v = new DenseFloatVector(new float[] { 1, 0, -1 });
+    assertArrayEquals(new float[] { -2, -2 }, a.multiplyVectorRow(v)
+        .toArray());
+    assertArrayEquals(new float[] { 5, 7, 9 },
+        a.multiplyVectorColumn(new DenseFloatVector(new float[] { 1, 1 }))
+            .toArray());
+  }
+
+  @Test
+  public void testConversion() {
+    DenseDoubleMatrix d = a.toDoubleMatrix();
+    assertEquals(6d, d.get(1, 2), 0d);
+    assertEquals(a, new DenseFloatMatrix(d));
+
+    DoubleMatrix sparse = new SparseDoubleRowMatrix(3, 4);
+    sparse.set(2, 3, 1.5);
+    DenseFloatMatrix f = new DenseFloatMatrix(sparse);
+    assertEquals(1.5f, f.get(2, 3), 0f);
+    assertEquals(1.5d, f.sum(), 0d);
+  }
+
+}
@@ -0,0 +1,114 @@
+package de.jungblut.math.dense;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.FloatVector;
+import de.jungblut.math.FloatVector.FloatVectorElement;
+import de.jungblut.math.sparse.SparseDoubleVector;
+import de.jungblut.math.sparse.SparseFloatVector;
+
+@RunWith(JUnit4.class)
+public class DenseFloatVectorTest extends TestCase {
+
+  @Test
+  public void testArithmetic() {
+    DenseFloatVector a = new DenseFloatVector(new float[] { 1, 2, 3, 4 });
+    DenseFloatVector b = new DenseFloatVector(new float[] { 4, 3, 2, 1 });
+    assertArrayEquals(new float[] { 5, 5, 5, 5 }, a.add(b).toArray());
+    assertArrayEquals(new float[] { -3, -1, 1, 3 }, a.subtract(b).toArray());
+    assertArrayEquals(new float[] { 4, 6, 6, 4 }, a.multiply(b).toArray());
+    assertArrayEquals(new float[] { 2, 4, 6, 8 }, a.multiply(2f).toArray());
+    assertArrayEquals(new float[] { 0.5f, 1, 1.5f, 2 }, a.divide(2f)
+        .toArray());
+    assertArrayEquals(new float[] { 2, 3, 4, 5 }, a.add(1f).toArray());
+    // the operations above are not allowed to mutate a
+    assertArrayEquals(new float[] { 1, 2, 3, 4 }, a.toArray());
+    assertEquals(20d, a.dot(b), 0d);
+    assertEquals(10d, a.sum(), 0d);
+    assertEquals(4f, a.max(), 0f);
+    assertEquals(3, a.maxIndex());
+    assertEquals(1f, a.min(), 0f);
+    assertEquals(0, a.minIndex());
+  }
+
+  @Test
+  public void testInPlace() {
+    DenseFloatVector a = new DenseFloatVector(new float[] { 1, 2, 3, 4 });
+    SparseFloatVector s = new SparseFloatVector(4);
+    s.set(2, 10f);
+    a.axpy(0.5f, s).addInPlace(new DenseFloatVector(4, 1f)).scaleInPlace(2f);
+    assertArrayEquals(new float[] { 4, 6, 18, 10 }, a.toArray());
+    a.subtractInPlace(a);
+    assertArrayEquals(new float[4], a.toArray());
+  }
+
+  @Test
+  public void testSparseOperands() {
+    DenseFloatVector a = new DenseFloatVector(new float[] { 1, 2, 3, 4 });
+    SparseFloatVector s = new SparseFloatVector(4);
+    s.set(1, 2f);
+    s.set(3, -1f);
+    assertEquals(0d, a.dot(s), 0d);
+    assertEquals(0d, s.dot(a), 0d);
+    assertArrayEquals(new float[] { 0, 4, 0, -4 }, a.multiply(s).toArray());
+    assertArrayEquals(new float[] { 1, 4, 3, 3 }, a.add(s).toArray());
+  }
+
+  @Test
+  public void testIteration() {
+    DenseFloatVector a = new DenseFloatVector(new float[] { 0, 2, 0, 4 });
+    Iterator<FloatVectorElement> it = a.iterateNonZero();
+    FloatVectorElement next = it.next();
+    assertEquals(1, next.getIndex());
+    assertEquals(2f, next.getValue(), 0f);
+    next = it.next();
+    assertEquals(3, next.getIndex());
+    assertEquals(4f, next.getValue(), 0f);
+    assertFalse(it.hasNext());
+
+    int count = 0;
+    it = a.iterate();
+    while (it.hasNext()) {
+      assertEquals(count, it.next().getIndex());
+      count++;
+    }
+    assertEquals(4, count);
+  }
+
+  @Test
+  public void testConversion() {
+    DenseDoubleVector d = new DenseDoubleVector(new double[] { 1.5, -2, 0,
+        1e-3 });
+    DenseFloatVector f = new DenseFloatVector(d);
+    assertArrayEquals(new float[] { 1.5f, -2f, 0f, 1e-3f }, f.toArray());
+    DoubleVector back = f.toDoubleVector();
+    assertTrue(back instanceof DenseDoubleVector);
+    for (int i = 0; i < d.getLength(); i++) {
+      assertEquals(d.get(i), back.get(i), 1e-7);
+    }
+
+    SparseDoubleVector sparse = new SparseDoubleVector(10);
+    sparse.set(7, 3d);
+    f = new DenseFloatVector(sparse);
+    assertEquals(10, f.getDimension());
+    assertEquals(3f, f.get(7), 0f);
+
+    FloatVector copy = new DenseFloatVector(new SparseFloatVector(f));
+    assertEquals(f, copy);
+  }
+
+  static void assertArrayEquals(float[] expected, float[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i], 0f);
+    }
+  }
+
+}
@@ -0,0 +1,161 @@
+package de.jungblut.math.dense;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.sparse.SparseDoubleRowMatrix;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+public class DirectDoubleMatrixTest extends TestCase {
+
+  private static final double[][] ARRAY = new double[][] { { 1, 0, 2, 0 },
+      { 0, -1, 0, 3 }, { 4, 3, 0, 4 } };
+
+  @Test
+  public void testAccessors() {
+    try (DirectDoubleMatrix mat = new DirectDoubleMatrix(ARRAY)) {
+      assertEquals(3, mat.getRowCount());
+      assertEquals(4, mat.getColumnCount());
+      assertFalse(mat.isSparse());
+      matrixEquals(ARRAY, mat.toArray());
+      arrayEquals(new double[] { 0, -1, 3 }, mat.getColumnVector(1).toArray());
+      arrayEquals(ARRAY[2], mat.getRowVector(2).toArray());
+      assertEquals(16d, mat.sum());
+      assertEquals(3d, mat.max(1));
+      assertEquals(-1d, mat.min(1));
+
+      mat.set(1, 2, 7);
+      assertEquals(7d, mat.get(1, 2));
+      mat.setColumnVector(0, new DenseDoubleVector(new double[] { 5, 6, 7 }));
+      assertEquals(6d, mat.get(1, 0));
+      mat.setRowVector(0, new DenseDoubleVector(4));
+      assertEquals(0d, mat.get(0, 0));
+    }
+
+    try (DirectDoubleMatrix mat = new DirectDoubleMatrix(new DenseDoubleMatrix(
+        ARRAY))) {
+      matrixEquals(ARRAY, mat.toArray());
+    }
+    try (DirectDoubleMatrix mat = new DirectDoubleMatrix(
+        new SparseDoubleRowMatrix(ARRAY))) {
+      matrixEquals(ARRAY, mat.toArray());
+    }
+  }
+
+  @Test
+  public void testChunkBoundaries() {
+    Random r = new Random(0);
+    DenseDoubleMatrix dense = new DenseDoubleMatrix(13, 7, r);
+    // chunks of 4 doubles, so columns and vectors span multiple chunks
+    try (DirectDoubleMatrix mat = new DirectDoubleMatrix(13, 7, 2)) {
+      for (int col = 0; col < 7; col++) {
+        mat.setColumnVector(col, dense.getColumnVector(col));
+      }
+      matrixEquals(dense.toArray(), mat.toArray());
+
+      DoubleVector v = random(7, r);
+      arrayEquals(dense.multiplyVectorRow(v).toArray(), mat
+          .multiplyVectorRow(v).toArray());
+      v = random(13, r);
+      arrayEquals(dense.multiplyVectorColumn(v).toArray(), mat
+          .multiplyVectorColumn(v).toArray());
+
+      try (DirectDoubleMatrix copy = mat.deepCopy()) {
+        matrixEquals(dense.toArray(), copy.toArray());
+      }
+      try (DirectDoubleMatrix slice = mat.slice(2, 11, 1, 5)) {
+        matrixEquals(dense.slice(2, 11, 1, 5).toArray(), slice.toArray());
+      }
+    }
+  }
+
+  @Test
+  public void testMultiplication() {
+    Random r = new Random(1);
+    DenseDoubleMatrix a = new DenseDoubleMatrix(9, 5, r);
+    DenseDoubleMatrix b = new DenseDoubleMatrix(5, 6, r);
+    try (DirectDoubleMatrix mat = new DirectDoubleMatrix(a);
+        DirectDoubleMatrix res = mat.multiply(b)) {
+      matrixEquals(a.multiply(b).toArray(), res.toArray());
+      try (DirectDoubleMatrix transpose = mat.transpose()) {
+        matrixEquals(a.transpose().toArray(), transpose.toArray());
+      }
+
+      DoubleVector v = new SparseDoubleVector(5);
+      v.set(3, 2d);
+      arrayEquals(a.multiplyVectorRow(v).toArray(), mat.multiplyVectorRow(v)
+          .toArray());
+    }
+  }
+
+  @Test
+  public void testElementWiseOperations() {
+    DenseDoubleMatrix dense = new DenseDoubleMatrix(ARRAY);
+    DenseDoubleMatrix other = new DenseDoubleMatrix(new double[][] {
+        { 1, 2, 3, 4 }, { 5, 6, 7, 8 }, { 9, 10, 11, 12 } });
+    DoubleVector vec = new DenseDoubleVector(new double[] { 1, 2, 3 });
+    try (DirectDoubleMatrix mat = new DirectDoubleMatrix(ARRAY)) {
+      matrixEquals(dense.multiply(2d).toArray(), close(mat.multiply(2d)));
+      matrixEquals(dense.divide(2d).toArray(), close(mat.divide(2d)));
+      matrixEquals(dense.pow(2d).toArray(), close(mat.pow(2d)));
+      matrixEquals(dense.pow(3d).toArray(), close(mat.pow(3d)));
+      matrixEquals(dense.subtract(1d).toArray(), close(mat.subtract(1d)));
+      matrixEquals(dense.subtractBy(1d).toArray(), close(mat.subtractBy(1d)));
+      matrixEquals(dense.subtract(vec).toArray(), close(mat.subtract(vec)));
+      matrixEquals(dense.divide(vec).toArray(), close(mat.divide(vec)));
+      matrixEquals(dense.add(other).toArray(), close(mat.add(other)));
+      matrixEquals(dense.subtract(other).toArray(), close(mat.subtract(other)));
+      matrixEquals(dense.divide(other).toArray(), close(mat.divide(other)));
+      matrixEquals(dense.multiplyElementWise(other).toArray(),
+          close(mat.multiplyElementWise(other)));
+    }
+  }
+
+  @Test
+  public void testClose() {
+    DirectDoubleMatrix mat = new DirectDoubleMatrix(ARRAY);
+    mat.close();
+    assertTrue(mat.isClosed());
+    assertEquals("3x4", mat.toString());
+    try {
+      mat.get(0, 0);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  private static DoubleVector random(int dimension, Random r) {
+    DoubleVector v = new DenseDoubleVector(dimension);
+    for (int i = 0; i < dimension; i++) {
+      v.set(i, r.nextDouble());
+    }
+    return v;
+  }
+
+  private static double[][] close(DoubleMatrix mat) {
+    double[][] array = mat.toArray();
+    ((DirectDoubleMatrix) mat).close();
+    return array;
+  }
+
+  public void matrixEquals(double[][] left, double[][] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      arrayEquals(left[i], right[i]);
+    }
+  }
+
+  public void arrayEquals(double[] left, double[] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i], right[i], 1e-5);
+    }
+  }
+
+}
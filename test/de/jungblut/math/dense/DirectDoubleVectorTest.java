@@ -0,0 +1,125 @@
+package de.jungblut.math.dense;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+import de.jungblut.math.sparse.SequentialSparseDoubleVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+public class DirectDoubleVectorTest extends TestCase {
+
+  private static final double[] ARRAY = new double[] { 1, 0, 3, -2, 0, 5 };
+
+  @Test
+  public void testAccessors() {
+    try (DirectDoubleVector vec = new DirectDoubleVector(ARRAY)) {
+      assertEquals(6, vec.getDimension());
+      assertEquals(6, vec.getLength());
+      assertFalse(vec.isSparse());
+      arrayEquals(ARRAY, vec.toArray());
+      vec.set(1, 4);
+      assertEquals(4d, vec.get(1));
+      assertEquals(11d, vec.sum());
+      assertEquals(5d, vec.max());
+      assertEquals(5, vec.maxIndex());
+      assertEquals(-2d, vec.min());
+      assertEquals(3, vec.minIndex());
+      arrayEquals(new double[] { 3, -2 }, vec.slice(2, 4).toArray());
+    }
+
+    try (DirectDoubleVector vec = new DirectDoubleVector(
+        new SequentialSparseDoubleVector(ARRAY))) {
+      arrayEquals(ARRAY, vec.toArray());
+    }
+  }
+
+  @Test
+  public void testArithmetic() {
+    DenseDoubleVector dense = new DenseDoubleVector(ARRAY);
+    try (DirectDoubleVector vec = new DirectDoubleVector(ARRAY)) {
+      DoubleVector other = new DenseDoubleVector(new double[] { 1, 2, 3, 4, 5,
+          6 });
+      assertEquals(dense.dot(other), vec.dot(other));
+      assertEquals(dense.dot(other), other.dot(vec));
+      assertEquals(dense.dot(dense), vec.dot(vec));
+      assertEquals(dense.dot(other), vec.dot(new SparseDoubleVector(other)));
+
+      DoubleVector sum = vec.add(other);
+      assertTrue(sum instanceof DenseDoubleVector);
+      arrayEquals(dense.add(other).toArray(), sum.toArray());
+      arrayEquals(dense.multiply(2d).toArray(), vec.multiply(2d).toArray());
+      arrayEquals(dense.subtract(other).toArray(), vec.subtract(other)
+          .toArray());
+      arrayEquals(dense.pow(2d).toArray(), vec.pow(2d).toArray());
+
+      vec.axpy(2d, other);
+      arrayEquals(dense.add(other.multiply(2d)).toArray(), vec.toArray());
+      vec.subtractInPlace(other);
+      vec.subtractInPlace(new SparseDoubleVector(other));
+      arrayEquals(ARRAY, vec.toArray());
+      vec.scaleInPlace(0.5d);
+      arrayEquals(dense.multiply(0.5d).toArray(), vec.toArray());
+    }
+  }
+
+  @Test
+  public void testIterators() {
+    try (DirectDoubleVector vec = new DirectDoubleVector(ARRAY)) {
+      Iterator<DoubleVectorElement> iterateNonZero = vec.iterateNonZero();
+      int count = 0;
+      while (iterateNonZero.hasNext()) {
+        DoubleVectorElement next = iterateNonZero.next();
+        assertEquals(ARRAY[next.getIndex()], next.getValue());
+        assertTrue(next.getValue() != 0d);
+        count++;
+      }
+      assertEquals(4, count);
+
+      Iterator<DoubleVectorElement> iterate = vec.iterate();
+      count = 0;
+      while (iterate.hasNext()) {
+        assertEquals(count, iterate.next().getIndex());
+        count++;
+      }
+      assertEquals(6, count);
+
+      double[] values = new double[ARRAY.length];
+      vec.forEachNonZero((index, value) -> values[index] = value);
+      arrayEquals(ARRAY, values);
+    }
+  }
+
+  @Test
+  public void testCloseAndCopy() {
+    DirectDoubleVector vec = new DirectDoubleVector(ARRAY);
+    DirectDoubleVector copy = (DirectDoubleVector) vec.deepCopy();
+    vec.set(0, 10);
+    assertEquals(1d, copy.get(0));
+
+    vec.close();
+    assertTrue(vec.isClosed());
+    // closing twice is a no-op
+    vec.close();
+    try {
+      vec.get(0);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    arrayEquals(ARRAY, copy.toArray());
+    copy.close();
+  }
+
+  public void arrayEquals(double[] left, double[] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i], right[i], 1e-5);
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+package de.jungblut.math.dense;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DoubleArrayKernelsTest extends TestCase {
+
+  // lengths around the usual lane counts to hit the scalar tails
+  private static final int[] LENGTHS = { 0, 1, 3, 4, 7, 8, 9, 16, 33, 1001 };
+
+  @Test
+  public void testMatchesScalar() {
+    DoubleArrayKernels scalar = DoubleArrayKernels.scalar();
+    DoubleArrayKernels kernels = DoubleArrayKernels.get();
+    Random r = new Random(0);
+    for (int length : LENGTHS) {
+      double[] a = random(r, length);
+      double[] b = random(r, length);
+      assertEquals(scalar.dot(a, b, length), kernels.dot(a, b, length), 1e-9);
+      assertEquals(scalar.sum(a, length), kernels.sum(a, length), 1e-9);
+
+      double[] expected = new double[length];
+      double[] actual = new double[length];
+      scalar.add(a, b, expected, length);
+      kernels.add(a, b, actual, length);
+      assertArrayEquals(expected, actual);
+      scalar.subtract(a, b, expected, length);
+      kernels.subtract(a, b, actual, length);
+      assertArrayEquals(expected, actual);
+      scalar.multiply(a, b, expected, length);
+      kernels.multiply(a, b, actual, length);
+      assertArrayEquals(expected, actual);
+      scalar.scale(a, 2.5, expected, length);
+      kernels.scale(a, 2.5, actual, length);
+      assertArrayEquals(expected, actual);
+      scalar.axpy(-0.5, a, expected, length);
+      kernels.axpy(-0.5, a, actual, length);
+      assertArrayEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testInPlace() {
+    double[] a = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+    DoubleArrayKernels.get().scale(a, 2, a, a.length);
+    assertArrayEquals(new double[] { 2, 4, 6, 8, 10, 12, 14, 16, 18 }, a);
+    DoubleArrayKernels.get().add(a, a, a, a.length);
+    assertArrayEquals(new double[] { 4, 8, 12, 16, 20, 24, 28, 32, 36 }, a);
+  }
+
+  @Test
+  public void testSwitch() {
+    boolean enabled = DoubleArrayKernels.isSimdEnabled();
+    try {
+      assertFalse(DoubleArrayKernels.setSimdEnabled(false));
+      assertSame(DoubleArrayKernels.scalar(), DoubleArrayKernels.get());
+      assertEquals(DoubleArrayKernels.isSimdAvailable(),
+          DoubleArrayKernels.setSimdEnabled(true));
+    } finally {
+      DoubleArrayKernels.setSimdEnabled(enabled);
+    }
+  }
+
+  @Test
+  public void testVectorOperations() {
+    DenseDoubleVector a = new DenseDoubleVector(new double[] { 1, 2, 3, 4, 5 });
+    DenseDoubleVector b = new DenseDoubleVector(new double[] { 5, 4, 3, 2, 1 });
+    assertEquals(35d, a.dot(b), 1e-9);
+    assertEquals(15d, a.sum(), 1e-9);
+    assertArrayEquals(new double[] { 6, 6, 6, 6, 6 }, a.add(b).toArray());
+    assertArrayEquals(new double[] { 2, 4, 6, 8, 10 }, a.multiply(2d)
+        .toArray());
+    assertArrayEquals(new double[] { 1, 2, 3, 4, 5 }, a.toArray());
+  }
+
+  @Test
+  public void testMatrixOperations() {
+    DenseDoubleMatrix a = new DenseDoubleMatrix(new double[][] { { 1, 2 },
+        { 3, 4 }, { 5, 6 } });
+    DenseDoubleMatrix b = new DenseDoubleMatrix(new double[][] { { 6, 5 },
+        { 4, 3 }, { 2, 1 } });
+    assertArrayEquals(new double[] { 7, 7, 7, 7, 7, 7 },
+        ((DenseDoubleMatrix) a.add(b)).getColumnMajorMatrix());
+    assertArrayEquals(new double[] { -5, -1, 3, -3, 1, 5 },
+        ((DenseDoubleMatrix) a.subtract(b)).getColumnMajorMatrix());
+    assertArrayEquals(new double[] { 6, 12, 10, 10, 12, 6 },
+        ((DenseDoubleMatrix) a.multiplyElementWise(b)).getColumnMajorMatrix());
+    assertArrayEquals(new double[] { 2, 6, 10, 4, 8, 12 }, a.multiply(2d)
+        .getColumnMajorMatrix());
+  }
+
+  private static double[] random(Random r, int length) {
+    double[] arr = new double[length];
+    for (int i = 0; i < length; i++) {
+      arr[i] = r.nextGaussian();
+    }
+    return arr;
+  }
+
+  private static void assertArrayEquals(double[] expected, double[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i], 0d);
+    }
+  }
+
+}
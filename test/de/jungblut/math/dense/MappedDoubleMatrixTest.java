@@ -0,0 +1,184 @@
+package de.jungblut.math.dense;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.MappedDoubleMatrix.Order;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+public class MappedDoubleMatrixTest extends TestCase {
+
+  private static final double[][] ARRAY = new double[][] { { 1, 0, 2, 0, 5 },
+      { 0, -1, 0, 3, 1 }, { 4, 3, 0, 4, 2 } };
+
+  @Test
+  public void testReadColumnMajor() throws Exception {
+    Path file = write(0, ARRAY, Order.COLUMN_MAJOR, ByteOrder.LITTLE_ENDIAN);
+    try (MappedDoubleMatrix mat = new MappedDoubleMatrix(file, 3, 5)) {
+      assertFalse(mat.isWritable());
+      checkReadOperations(mat);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testReadRowMajor() throws Exception {
+    // a header and a big endian layout, chunks of 4 doubles
+    Path file = write(16, ARRAY, Order.ROW_MAJOR, ByteOrder.BIG_ENDIAN);
+    try (MappedDoubleMatrix mat = new MappedDoubleMatrix(file, 16, 3, 5,
+        Order.ROW_MAJOR, ByteOrder.BIG_ENDIAN, false, 2)) {
+      checkReadOperations(mat);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testWriteThrough() throws Exception {
+    Path file = Files.createTempFile("matrix", ".bin");
+    try {
+      for (Order order : Order.values()) {
+        try (MappedDoubleMatrix mat = new MappedDoubleMatrix(file, 0, 3, 5,
+            order, ByteOrder.LITTLE_ENDIAN, true, 2)) {
+          for (int row = 0; row < 3; row++) {
+            mat.setRowVector(row, new DenseDoubleVector(ARRAY[row]));
+          }
+          mat.setColumnVector(4, new DenseDoubleVector(new double[] { 5, 1, 2 }));
+          mat.set(1, 1, -1);
+        }
+        assertEquals(15 * 8, Files.size(file));
+        try (MappedDoubleMatrix mat = new MappedDoubleMatrix(file, 3, 5,
+            order, false)) {
+          matrixEquals(ARRAY, mat.toArray());
+        }
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testReadOnly() throws Exception {
+    Path file = write(0, ARRAY, Order.COLUMN_MAJOR, ByteOrder.LITTLE_ENDIAN);
+    try (MappedDoubleMatrix mat = new MappedDoubleMatrix(file, 3, 5)) {
+      try {
+        mat.set(0, 0, 1);
+        fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+      try {
+        mat.setRowVector(0, new DenseDoubleVector(5));
+        fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
+
+    try {
+      new MappedDoubleMatrix(file, 4, 5);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected, the file is too small
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private void checkReadOperations(MappedDoubleMatrix mat) {
+    DenseDoubleMatrix dense = new DenseDoubleMatrix(ARRAY);
+    assertEquals(3, mat.getRowCount());
+    assertEquals(5, mat.getColumnCount());
+    matrixEquals(ARRAY, mat.toArray());
+    arrayEquals(dense.getColumn(3), mat.getColumnVector(3).toArray());
+    arrayEquals(ARRAY[1], mat.getRowVector(1).toArray());
+    assertEquals(24d, mat.sum());
+    assertEquals(3d, mat.max(1));
+    assertEquals(-1d, mat.min(1));
+
+    DoubleVector v = new DenseDoubleVector(new double[] { 1, 2, 3, 4, 5 });
+    arrayEquals(dense.multiplyVectorRow(v).toArray(), mat.multiplyVectorRow(v)
+        .toArray());
+    arrayEquals(dense.multiplyVectorRow(v).toArray(),
+        mat.multiplyVectorRow(new SparseDoubleVector(v)).toArray());
+    v = new DenseDoubleVector(new double[] { 2, 0, 3 });
+    arrayEquals(dense.multiplyVectorColumn(v).toArray(), mat
+        .multiplyVectorColumn(v).toArray());
+
+    Random r = new Random(0);
+    DenseDoubleMatrix other = new DenseDoubleMatrix(5, 4, r);
+    matrixEquals(dense.multiply(other).toArray(), close(mat.multiply(other)));
+    matrixEquals(dense.transpose().toArray(), close(mat.transpose()));
+    matrixEquals(ARRAY, close(mat.deepCopy()));
+    matrixEquals(dense.slice(1, 3, 1, 4).toArray(),
+        close(mat.slice(1, 3, 1, 4)));
+    matrixEquals(dense.multiply(2d).toArray(), close(mat.multiply(2d)));
+    matrixEquals(dense.pow(2d).toArray(), close(mat.pow(2d)));
+    matrixEquals(dense.subtractBy(1d).toArray(), close(mat.subtractBy(1d)));
+    DoubleVector vec = new DenseDoubleVector(new double[] { 1, 2, 3 });
+    matrixEquals(dense.subtract(vec).toArray(), close(mat.subtract(vec)));
+    matrixEquals(dense.divide(vec).toArray(), close(mat.divide(vec)));
+    other = new DenseDoubleMatrix(3, 5, r);
+    matrixEquals(dense.add(other).toArray(), close(mat.add(other)));
+    matrixEquals(dense.multiplyElementWise(other).toArray(),
+        close(mat.multiplyElementWise(other)));
+  }
+
+  private static Path write(int offset, double[][] array, Order order,
+      ByteOrder byteOrder) throws Exception {
+    int rows = array.length;
+    int cols = array[0].length;
+    ByteBuffer buffer = ByteBuffer.allocate(offset + rows * cols * 8).order(
+        byteOrder);
+    for (int i = 0; i < offset; i++) {
+      buffer.put((byte) 1);
+    }
+    if (order == Order.COLUMN_MAJOR) {
+      for (int col = 0; col < cols; col++) {
+        for (int row = 0; row < rows; row++) {
+          buffer.putDouble(array[row][col]);
+        }
+      }
+    } else {
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < cols; col++) {
+          buffer.putDouble(array[row][col]);
+        }
+      }
+    }
+    Path file = Files.createTempFile("matrix", ".bin");
+    Files.write(file, buffer.array());
+    return file;
+  }
+
+  private static double[][] close(DoubleMatrix mat) {
+    double[][] array = mat.toArray();
+    ((DirectDoubleMatrix) mat).close();
+    return array;
+  }
+
+  public void matrixEquals(double[][] left, double[][] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      arrayEquals(left[i], right[i]);
+    }
+  }
+
+  public void arrayEquals(double[] left, double[] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i], right[i], 1e-5);
+    }
+  }
+
+}
@@ -266,4 +266,10 @@ public class SingleEntryDoubleVectorTest {
     assertEquals(0, numItems);
   }
 
+  @Test(expected = IllegalStateException.class)
+  public void testInPlaceOperations() {
+    DoubleVector vec = new SingleEntryDoubleVector(5d);
+    vec.addInPlace(new SingleEntryDoubleVector(1d));
+  }
+
 }
@@ -0,0 +1,156 @@
+package de.jungblut.math.expression;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.math3.util.FastMath;
+import org.junit.Test;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.function.DoubleDoubleVectorFunction;
+import de.jungblut.math.function.DoubleVectorFunction;
+import de.jungblut.math.sparse.SequentialSparseDoubleVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+public class DoubleVectorExpressionTest extends TestCase {
+
+  @Test
+  public void testEuclideanDistance() {
+    DoubleVector vec1 = new DenseDoubleVector(new double[] { 1, 2, 3 });
+    DoubleVector vec2 = new DenseDoubleVector(new double[] { 4, 6, 3 });
+
+    double expected = FastMath.sqrt(vec2.subtract(vec1).pow(2).sum());
+    double actual = FastMath.sqrt(DoubleVectorExpression.of(vec2)
+        .subtract(vec1).pow(2).sum());
+    assertEquals(5d, expected, 1e-5);
+    assertEquals(expected, actual, 1e-5);
+
+    // mixed sparse and dense operands
+    actual = FastMath.sqrt(DoubleVectorExpression
+        .of(new SparseDoubleVector(vec2)).subtract(vec1).pow(2).sum());
+    assertEquals(expected, actual, 1e-5);
+  }
+
+  @Test
+  public void testDenseExpression() {
+    DoubleVector vec1 = new DenseDoubleVector(new double[] { 1, 2, 3, 4 });
+    DoubleVector vec2 = new DenseDoubleVector(new double[] { 2, 2, 1, 8 });
+
+    DoubleVector eager = vec1.multiply(vec2).add(1d).divide(2d).sqrt().log()
+        .exp().abs().subtract(3d);
+    DoubleVectorExpression lazy = DoubleVectorExpression.of(vec1)
+        .multiply(vec2).add(1d).divide(2d).sqrt().log().exp().abs()
+        .subtract(3d);
+
+    assertEquals(4, lazy.getDimension());
+    arrayEquals(eager.toArray(), lazy.toArray());
+    arrayEquals(eager.toArray(), lazy.materialize().toArray());
+    assertFalse(lazy.materialize().isSparse());
+    assertEquals(eager.sum(), lazy.sum(), 1e-5);
+    assertEquals(eager.max(), lazy.max(), 1e-5);
+    assertEquals(eager.min(), lazy.min(), 1e-5);
+    assertEquals(eager.dot(vec2), lazy.dot(vec2), 1e-5);
+    assertEquals(eager.dot(new SparseDoubleVector(vec2)),
+        lazy.dot(new SparseDoubleVector(vec2)), 1e-5);
+  }
+
+  @Test
+  public void testSparseExpression() {
+    DoubleVector vec1 = new SparseDoubleVector(new double[] { 1, 0, 0, -4, 0 });
+    DoubleVector vec2 = new SequentialSparseDoubleVector(new double[] { 0, 2,
+        0, 1, 0 });
+
+    DoubleVectorExpression lazy = DoubleVectorExpression.of(vec1)
+        .subtract(vec2).pow(2).multiply(2d);
+    double[] expected = new double[] { 2, 8, 0, 50, 0 };
+    arrayEquals(expected, lazy.toArray());
+    assertEquals(60d, lazy.sum(), 1e-5);
+    assertEquals(50d, lazy.max(), 1e-5);
+    // zero is the minimum, although it is never evaluated
+    assertEquals(0d, lazy.min(), 1e-5);
+
+    DoubleVector materialized = lazy.materialize();
+    assertTrue(materialized.isSparse());
+    assertEquals(3, materialized.getLength());
+    arrayEquals(expected, materialized.toArray());
+
+    // multiplying with a dense vector keeps the sparsity of the sparse side
+    DoubleVector dense = new DenseDoubleVector(new double[] { 1, 1, 1, 1, 1 });
+    lazy = DoubleVectorExpression.of(dense).multiply(vec1);
+    assertTrue(lazy.materialize().isSparse());
+    arrayEquals(vec1.toArray(), lazy.toArray());
+
+    // adding a scalar destroys the sparsity
+    lazy = DoubleVectorExpression.of(vec1).add(1d);
+    assertFalse(lazy.materialize().isSparse());
+    arrayEquals(vec1.add(1d).toArray(), lazy.toArray());
+    assertEquals(vec1.add(1d).sum(), lazy.sum(), 1e-5);
+  }
+
+  @Test
+  public void testSparseUnion() {
+    SparseDoubleVector vec1 = new SparseDoubleVector(10_000);
+    SparseDoubleVector vec2 = new SparseDoubleVector(10_000);
+    SparseDoubleVector vec3 = new SparseDoubleVector(10_000);
+    for (int i = 9_999; i >= 0; i -= 3) {
+      vec1.set(i, 1d);
+    }
+    for (int i = 0; i < 10_000; i += 5) {
+      vec2.set(i, 2d);
+    }
+    vec3.set(7, 4d);
+    vec3.set(9_995, 4d);
+
+    DoubleVectorExpression lazy = DoubleVectorExpression.of(vec1).add(vec2)
+        .subtract(vec3);
+    DoubleVector eager = vec1.add(vec2).subtract(vec3);
+    arrayEquals(eager.toArray(), lazy.toArray());
+    // every index of the union is evaluated once
+    assertEquals(eager.sum(), lazy.sum(), 1e-5);
+    DoubleVector materialized = lazy.materialize();
+    assertTrue(materialized.isSparse());
+    arrayEquals(eager.toArray(), materialized.toArray());
+
+    // the dense left side falls back to the sparse right side
+    lazy = DoubleVectorExpression.of(vec1)
+        .add(DoubleVectorExpression.of(vec2).apply((index, value) -> 1d))
+        .multiply(vec3);
+    materialized = lazy.materialize();
+    assertTrue(materialized.isSparse());
+    assertEquals(2, materialized.getLength());
+    arrayEquals(vec1.add(1d).multiply(vec3).toArray(), lazy.toArray());
+  }
+
+  @Test
+  public void testApply() {
+    DoubleVector vec1 = new SparseDoubleVector(new double[] { 1, 0, 3 });
+    DoubleVector vec2 = new DenseDoubleVector(new double[] { 1, 1, 1 });
+
+    DoubleVectorExpression lazy = DoubleVectorExpression.of(vec1).apply(
+        new DoubleVectorFunction() {
+          @Override
+          public double calculate(int index, double value) {
+            return value + index;
+          }
+        });
+    arrayEquals(new double[] { 1, 1, 5 }, lazy.toArray());
+
+    lazy = lazy.apply(vec2, new DoubleDoubleVectorFunction() {
+      @Override
+      public double calculate(int index, double left, double right) {
+        return left - right;
+      }
+    });
+    arrayEquals(new double[] { 0, 0, 4 }, lazy.toArray());
+    assertEquals(4d, lazy.sum(), 1e-5);
+  }
+
+  public void arrayEquals(double[] left, double[] right) {
+    assertEquals(left.length, right.length);
+
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i], right[i], 1e-5);
+    }
+  }
+
+}
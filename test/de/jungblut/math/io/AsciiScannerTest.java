@@ -0,0 +1,83 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class AsciiScannerTest extends TestCase {
+
+  @Test
+  public void testDoubles() throws Exception {
+    String[] numbers = new String[] { "0", "-0", "1", "+2.5", "-3.25", ".5",
+        "1.", "1e3", "1E-3", "-2.5e+10", "0.000123", "123456789012345678901",
+        "1.7976931348623157E308", "4.9E-324", "0.1", "3.141592653589793",
+        "NaN", "Infinity", "-Infinity", "1e400", "00012.5000" };
+    for (String number : numbers) {
+      assertEquals(number, Double.parseDouble(number), scanner(number)
+          .nextDouble());
+    }
+
+    Random r = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      double value = Double.longBitsToDouble(r.nextLong());
+      if (Double.isNaN(value)) {
+        continue;
+      }
+      String number = Double.toString(value);
+      assertEquals(number, value, scanner(number).nextDouble());
+      number = Double.toString(r.nextGaussian());
+      assertEquals(number, Double.parseDouble(number), scanner(number)
+          .nextDouble());
+    }
+  }
+
+  @Test
+  public void testTokens() throws Exception {
+    AsciiScanner scanner = scanner(" 12\t-7:0.5 # comment\r\n  \nqid:3 x");
+    scanner.skipBlanks();
+    assertEquals(12, scanner.nextInt());
+    scanner.skipBlanks();
+    assertEquals(-7, scanner.nextInt());
+    assertTrue(scanner.consume(':'));
+    assertEquals(0.5, scanner.nextDouble());
+    scanner.skipBlanks();
+    assertTrue(scanner.isLineEnd());
+    scanner.skipLine();
+    scanner.skipBlanks();
+    assertTrue(scanner.isLineEnd());
+    scanner.skipLine();
+    assertTrue(scanner.startsWithIgnoreCase("QID:"));
+    scanner.skipToken();
+    assertEquals("x", scanner.nextToken());
+    assertFalse(scanner.hasRemaining());
+  }
+
+  @Test
+  public void testMalformed() throws Exception {
+    for (String number : new String[] { "abc", "1.2.3", "1e", "-", "12x" }) {
+      try {
+        scanner(number).nextDouble();
+        fail(number);
+      } catch (IOException e) {
+        // expected
+      }
+    }
+    try {
+      scanner("99999999999").nextInt();
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private static AsciiScanner scanner(String s) {
+    ByteBuffer buffer = ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    return new AsciiScanner(buffer, 0, buffer.limit());
+  }
+
+}
@@ -0,0 +1,163 @@
+package de.jungblut.math.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.dense.DirectDoubleMatrix;
+import de.jungblut.math.sparse.CsrDoubleMatrix;
+import de.jungblut.math.sparse.SparseDoubleRowMatrix;
+
+public class DoubleMatrixCodecTest extends TestCase {
+
+  private static final double[][] ARRAY = new double[][] { { 1, 0, 2, 0, 5 },
+      { 0, 0, 0, 0, 0 }, { 4, 3, 0, 4, 2 }, { 0, -1, 0, 0, 0 } };
+
+  @Test
+  public void testDense() throws Exception {
+    DoubleMatrix read = roundTrip(new DenseDoubleMatrix(ARRAY));
+    assertEquals(DenseDoubleMatrix.class, read.getClass());
+    matrixEquals(ARRAY, read.toArray());
+    // type, rows, columns and the values
+    assertEquals(3 + 20 * 8, DoubleMatrixCodec.sizeOf(read));
+
+    try (DirectDoubleMatrix direct = new DirectDoubleMatrix(ARRAY)) {
+      read = roundTrip(direct);
+      assertEquals(DenseDoubleMatrix.class, read.getClass());
+      matrixEquals(ARRAY, read.toArray());
+    }
+  }
+
+  @Test
+  public void testSparseRow() throws Exception {
+    DoubleMatrix read = roundTrip(new SparseDoubleRowMatrix(ARRAY));
+    assertEquals(SparseDoubleRowMatrix.class, read.getClass());
+    assertEquals(4, read.getRowCount());
+    assertEquals(5, read.getColumnCount());
+    matrixEquals(ARRAY, read.toArray());
+
+    read = roundTrip(new SparseDoubleRowMatrix(3, 2));
+    assertEquals(3, read.getRowCount());
+    assertEquals(2, read.getColumnCount());
+    matrixEquals(new double[3][2], read.toArray());
+  }
+
+  @Test
+  public void testCsr() throws Exception {
+    DoubleMatrix read = roundTrip(new CsrDoubleMatrix(new DenseDoubleMatrix(
+        ARRAY)));
+    assertEquals(CsrDoubleMatrix.class, read.getClass());
+    assertEquals(8, ((CsrDoubleMatrix) read).getNumNonZeros());
+    matrixEquals(ARRAY, read.toArray());
+    // type, rows, columns, nnz, 4 row lengths, 8 column deltas, 8 values
+    assertEquals(4 + 4 + 8 + 8 * 8, DoubleMatrixCodec.sizeOf(read));
+  }
+
+  @Test
+  public void testCorruptLengths() throws Exception {
+    // negative rows and columns
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.DENSE, -1, 2));
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.CSR, 2, -1));
+    // more non-zeros than cells
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.CSR, 2, 2, 5));
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.CSR, 2, 2,
+        Integer.MAX_VALUE));
+    // more non-empty rows than rows and longer rows than columns
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.SPARSE_ROW, 2,
+        3, 3));
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.SPARSE_ROW, 2,
+        3, 1, 0, 4));
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.SPARSE_ROW, 2,
+        3, 1, 0, -1));
+  }
+
+  @Test
+  public void testHugeLengths() throws Exception {
+    int max = Integer.MAX_VALUE;
+    // valid headers whose values are missing, neither a buffer nor a stream
+    // may allocate for them before the data is there
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.DENSE, 46340,
+        46340));
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.SPARSE_ROW,
+        max, max, max));
+    assertCorrupt(DoubleVectorCodecTest.header(DoubleMatrixCodec.CSR, max - 1,
+        max, max));
+  }
+
+  @Test
+  public void testTruncated() throws Exception {
+    DoubleMatrix[] matrices = new DoubleMatrix[] {
+        new DenseDoubleMatrix(ARRAY), new SparseDoubleRowMatrix(ARRAY),
+        new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY)) };
+    for (DoubleMatrix matrix : matrices) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bos)) {
+        DoubleMatrixCodec.write(matrix, out);
+      }
+      byte[] bytes = bos.toByteArray();
+      assertCorrupt(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+  }
+
+  /**
+   * Asserts that neither the buffer nor the stream reader accept the bytes.
+   */
+  private static void assertCorrupt(byte[] bytes) {
+    try {
+      DoubleMatrixCodec.read(ByteBuffer.wrap(bytes));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+    try {
+      DoubleMatrixCodec.read(new DataInputStream(new ByteArrayInputStream(
+          bytes)));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private static DoubleMatrix roundTrip(DoubleMatrix matrix) throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      DoubleMatrixCodec.write(matrix, out);
+    }
+    byte[] bytes = bos.toByteArray();
+    assertEquals(DoubleMatrixCodec.sizeOf(matrix), bytes.length);
+    for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN,
+        ByteOrder.LITTLE_ENDIAN }) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).order(order);
+      DoubleMatrixCodec.write(matrix, buffer);
+      buffer.flip();
+      assertEquals(ByteBuffer.wrap(bytes), buffer);
+      DoubleMatrix read = DoubleMatrixCodec.read(buffer);
+      assertEquals(0, buffer.remaining());
+      matrixEquals(matrix.toArray(), read.toArray());
+    }
+    return DoubleMatrixCodec.read(new DataInputStream(new ByteArrayInputStream(
+        bytes)));
+  }
+
+  private static void matrixEquals(double[][] left, double[][] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i].length, right[i].length);
+      for (int j = 0; j < left[i].length; j++) {
+        assertEquals(left[i][j], right[i][j], 1e-5);
+      }
+    }
+  }
+
+}
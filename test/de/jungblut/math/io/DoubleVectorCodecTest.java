@@ -0,0 +1,264 @@
+package de.jungblut.math.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.dense.DirectDoubleVector;
+import de.jungblut.math.dense.SingleEntryDoubleVector;
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.named.NamedDoubleVector;
+import de.jungblut.math.sparse.SequentialSparseDoubleVector;
+import de.jungblut.math.sparse.SparseBitVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+public class DoubleVectorCodecTest extends TestCase {
+
+  private static final double[] ARRAY = new double[200];
+
+  static {
+    ARRAY[1] = 2.5;
+    ARRAY[4] = -1;
+    ARRAY[199] = 42;
+  }
+
+  @Test
+  public void testDense() throws Exception {
+    DoubleVector read = roundTrip(new DenseDoubleVector(ARRAY));
+    assertEquals(DenseDoubleVector.class, read.getClass());
+    arrayEquals(ARRAY, read.toArray());
+
+    try (DirectDoubleVector direct = new DirectDoubleVector(ARRAY)) {
+      read = roundTrip(direct);
+      assertEquals(DenseDoubleVector.class, read.getClass());
+      arrayEquals(ARRAY, read.toArray());
+    }
+  }
+
+  @Test
+  public void testSparse() throws Exception {
+    DoubleVector read = roundTrip(new SparseDoubleVector(ARRAY));
+    assertEquals(SparseDoubleVector.class, read.getClass());
+    assertEquals(ARRAY.length, read.getDimension());
+    assertEquals(3, read.getLength());
+    arrayEquals(ARRAY, read.toArray());
+
+    read = roundTrip(new SequentialSparseDoubleVector(ARRAY));
+    assertEquals(SequentialSparseDoubleVector.class, read.getClass());
+    assertEquals(3, read.getLength());
+    arrayEquals(ARRAY, read.toArray());
+
+    // empty vectors
+    read = roundTrip(new SparseDoubleVector(10));
+    assertEquals(10, read.getDimension());
+    assertEquals(0, read.getLength());
+  }
+
+  @Test
+  public void testSparseSize() throws Exception {
+    // type, dimension (2 bytes), length, 3 index deltas (1+1+2), 3 doubles
+    assertEquals(1 + 2 + 1 + 4 + 24,
+        DoubleVectorCodec.sizeOf(new SequentialSparseDoubleVector(ARRAY)));
+  }
+
+  @Test
+  public void testBits() throws Exception {
+    SparseBitVector bits = new SparseBitVector(200);
+    bits.set(0, 1);
+    bits.set(63, 1);
+    bits.set(64, 1);
+    bits.set(130, 1);
+    DoubleVector read = roundTrip(bits);
+    assertEquals(SparseBitVector.class, read.getClass());
+    assertEquals(200, read.getDimension());
+    arrayEquals(bits.toArray(), read.toArray());
+    // type, dimension (2 bytes), words, 3 words
+    assertEquals(1 + 2 + 1 + 24, DoubleVectorCodec.sizeOf(bits));
+  }
+
+  @Test
+  public void testSingle() throws Exception {
+    DoubleVector read = roundTrip(new SingleEntryDoubleVector(5.5));
+    assertEquals(SingleEntryDoubleVector.class, read.getClass());
+    assertEquals(5.5, read.get(0));
+  }
+
+  @Test
+  public void testNamedAndKeyed() throws Exception {
+    DoubleVector read = roundTrip(new NamedDoubleVector("vectör",
+        new SequentialSparseDoubleVector(ARRAY)));
+    assertEquals(NamedDoubleVector.class, read.getClass());
+    assertEquals("vectör", read.getName());
+    assertEquals(SequentialSparseDoubleVector.class,
+        ((NamedDoubleVector) read).getVector().getClass());
+    arrayEquals(ARRAY, read.toArray());
+
+    for (int key : new int[] { 0, 17, -3, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+      read = roundTrip(new KeyedDoubleVector(key, new DenseDoubleVector(ARRAY)));
+      assertEquals(KeyedDoubleVector.class, read.getClass());
+      assertEquals(key, ((KeyedDoubleVector) read).getKey());
+      arrayEquals(ARRAY, read.toArray());
+    }
+  }
+
+  @Test
+  public void testMultipleVectorsInBuffer() throws Exception {
+    DoubleVector[] vectors = new DoubleVector[] {
+        new DenseDoubleVector(new double[] { 1, 2, 3 }),
+        new SparseDoubleVector(ARRAY), new SingleEntryDoubleVector(2) };
+    int size = 0;
+    for (DoubleVector v : vectors) {
+      size += DoubleVectorCodec.sizeOf(v);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    for (DoubleVector v : vectors) {
+      DoubleVectorCodec.write(v, buffer);
+    }
+    assertEquals(0, buffer.remaining());
+    buffer.flip();
+    for (DoubleVector v : vectors) {
+      arrayEquals(v.toArray(), DoubleVectorCodec.read(buffer).toArray());
+    }
+    try {
+      DoubleVectorCodec.read(buffer);
+      fail();
+    } catch (IOException e) {
+      // expected, the buffer is exhausted
+    }
+  }
+
+  @Test
+  public void testWrongVersion() throws Exception {
+    byte[] bytes = encode(new SingleEntryDoubleVector(1));
+    bytes[0] = (byte) ((DoubleVectorCodec.VERSION + 1) << 4);
+    try {
+      DoubleVectorCodec.read(new DataInputStream(new ByteArrayInputStream(
+          bytes)));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCorruptLengths() throws Exception {
+    int sparse = DoubleVectorCodec.SPARSE;
+    // more non-zeros than the dimension
+    assertCorrupt(header(sparse, 10, 1000));
+    assertCorrupt(header(DoubleVectorCodec.SEQUENTIAL_SPARSE, 10, 11));
+    // negative dimension and length
+    assertCorrupt(header(sparse, -1, 0));
+    assertCorrupt(header(sparse, 10, -5));
+    assertCorrupt(header(DoubleVectorCodec.DENSE, -1));
+    // more words than the dimension needs
+    assertCorrupt(header(DoubleVectorCodec.BITS, 64, 2));
+    assertCorrupt(header(DoubleVectorCodec.BITS, 10, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testHugeLengths() throws Exception {
+    int max = Integer.MAX_VALUE;
+    // valid headers whose values are missing, neither a buffer nor a stream
+    // may allocate for them before the data is there
+    assertCorrupt(header(DoubleVectorCodec.DENSE, max));
+    assertCorrupt(header(DoubleVectorCodec.SPARSE, max, max - 1));
+    assertCorrupt(header(DoubleVectorCodec.SEQUENTIAL_SPARSE, max, max - 1));
+    assertCorrupt(header(DoubleVectorCodec.BITS, max, (max >>> 6) + 1));
+    assertCorrupt(header(DoubleVectorCodec.NAMED, max));
+  }
+
+  @Test
+  public void testTruncated() throws Exception {
+    DoubleVector[] vectors = new DoubleVector[] { new DenseDoubleVector(ARRAY),
+        new SparseDoubleVector(ARRAY), new SequentialSparseDoubleVector(ARRAY),
+        new SparseBitVector(ARRAY), new SingleEntryDoubleVector(1),
+        new NamedDoubleVector("name", new DenseDoubleVector(ARRAY)),
+        new KeyedDoubleVector(5, new DenseDoubleVector(ARRAY)) };
+    for (DoubleVector vector : vectors) {
+      byte[] bytes = encode(vector);
+      assertCorrupt(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+  }
+
+  /**
+   * @return the type byte of the given type followed by the varints.
+   */
+  static byte[] header(int type, int... varints) throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      LittleEndianOutput output = LittleEndianOutput.of(out);
+      output.writeByte(DoubleVectorCodec.typeByte(type));
+      for (int varint : varints) {
+        output.writeVarInt(varint);
+      }
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * Asserts that neither the buffer nor the stream reader accept the bytes.
+   */
+  private static void assertCorrupt(byte[] bytes) {
+    try {
+      DoubleVectorCodec.read(ByteBuffer.wrap(bytes));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+    try {
+      DoubleVectorCodec.read(new DataInputStream(new ByteArrayInputStream(
+          bytes)));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Round trips the vector through a stream and buffers of both byte orders,
+   * checks that all encodings are equal and returns the stream decoded vector.
+   */
+  private static DoubleVector roundTrip(DoubleVector vector) throws Exception {
+    byte[] bytes = encode(vector);
+    assertEquals(DoubleVectorCodec.sizeOf(vector), bytes.length);
+    for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN,
+        ByteOrder.LITTLE_ENDIAN }) {
+      ByteBuffer buffer = ByteBuffer.allocate(bytes.length).order(order);
+      DoubleVectorCodec.write(vector, buffer);
+      buffer.flip();
+      assertEquals(ByteBuffer.wrap(bytes), buffer);
+      DoubleVector read = DoubleVectorCodec.read(buffer);
+      assertEquals(0, buffer.remaining());
+      arrayEquals(vector.toArray(), read.toArray());
+    }
+    return DoubleVectorCodec.read(new DataInputStream(new ByteArrayInputStream(
+        bytes)));
+  }
+
+  private static byte[] encode(DoubleVector vector) throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      DoubleVectorCodec.write(vector, out);
+    }
+    return bos.toByteArray();
+  }
+
+  private static void arrayEquals(double[] left, double[] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i], right[i], 1e-5);
+    }
+  }
+
+}
@@ -0,0 +1,174 @@
+package de.jungblut.math.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.sparse.SequentialSparseDoubleVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+import de.jungblut.math.tuple.Tuple;
+
+public class LibSvmReaderTest extends TestCase {
+
+  private static final String TEXT = "# header comment\n"
+      + "1 1:0.5 3:-2 10:1e2\n" + "\n" + "-1 qid:4 2:1.5 # trailing\r\n"
+      + "0\n" + "+1 7:3 4:2 5:0\n" + "   \n" + "2.5 10:1";
+
+  @Test
+  public void testParse() throws Exception {
+    List<Tuple<Double, DoubleVector>> rows = readChannel(TEXT);
+    assertEquals(5, rows.size());
+    checkRow(rows.get(0), 1, new double[] { 0.5, 0, -2, 0, 0, 0, 0, 0, 0, 100 });
+    checkRow(rows.get(1), -1, new double[] { 0, 1.5, 0, 0, 0, 0, 0, 0, 0, 0 });
+    checkRow(rows.get(2), 0, new double[10]);
+    // unordered indices are sorted, zeros are skipped
+    checkRow(rows.get(3), 1, new double[] { 0, 0, 0, 2, 0, 0, 3, 0, 0, 0 });
+    assertEquals(2, rows.get(3).getSecond().getLength());
+    checkRow(rows.get(4), 2.5, new double[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 });
+  }
+
+  @Test
+  public void testZeroBased() throws Exception {
+    List<Tuple<Double, DoubleVector>> rows = new ArrayList<>();
+    new LibSvmReader(3, true).read(channel("1 0:1 2:2\n"),
+        (row, label, features) -> rows.add(new Tuple<>(label, features)));
+    checkRow(rows.get(0), 1, new double[] { 1, 0, 2 });
+  }
+
+  @Test
+  public void testMalformed() throws Exception {
+    for (String text : new String[] { "1 11:1\n", "1 0:1\n", "1 2:1 2:3\n",
+        "1 2 3\n", "1 2:x\n", "a 1:2\n" }) {
+      try {
+        readChannel(text);
+        fail(text);
+      } catch (IOException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTripLargeFile() throws Exception {
+    Random r = new Random(0);
+    int dimension = 1000;
+    List<Tuple<Double, DoubleVector>> expected = new ArrayList<>();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (LibSvmWriter writer = new LibSvmWriter(Channels.newChannel(bos))) {
+      for (int i = 0; i < 2000; i++) {
+        DoubleVector v = new SparseDoubleVector(dimension);
+        for (int j = 0; j < 20; j++) {
+          v.set(r.nextInt(dimension), r.nextInt(3) == 0 ? r.nextInt(10) - 5 : r
+              .nextGaussian());
+        }
+        double label = r.nextInt(2);
+        writer.write(label, v);
+        expected.add(new Tuple<>(label, v));
+      }
+    }
+    // the text spans multiple buffers of the channel reader
+    String text = new String(bos.toByteArray(), StandardCharsets.US_ASCII);
+    assertTrue(text.length() > 128 * 1024);
+    LibSvmReader reader = new LibSvmReader(dimension);
+
+    List<Tuple<Double, DoubleVector>> rows = readChannel(text, dimension);
+    checkRows(expected, rows);
+
+    Path file = Files.createTempFile("libsvm", ".txt");
+    try {
+      Files.write(file, bos.toByteArray());
+      rows.clear();
+      reader.read(file, (row, label, features) -> {
+        assertEquals(rows.size(), row);
+        rows.add(new Tuple<>(label, features));
+      });
+      checkRows(expected, rows);
+
+      List<Tuple<Double, DoubleVector>> parallel = new ArrayList<>(
+          Collections.nCopies(expected.size(), null));
+      ForkJoinPool pool = new ForkJoinPool(3);
+      try {
+        reader.read(file, 7, pool, (row, label, features) -> {
+          assertNull(parallel.get(row));
+          parallel.set(row, new Tuple<>(label, features));
+        });
+        checkRows(expected, parallel);
+
+        Tuple<KeyedDoubleVector[], double[]> keyed = reader.readKeyed(file,
+            pool);
+        assertEquals(expected.size(), keyed.getFirst().length);
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(i, keyed.getFirst()[i].getKey());
+          assertEquals(expected.get(i).getFirst(), keyed.getSecond()[i]);
+          arrayEquals(expected.get(i).getSecond().toArray(),
+              keyed.getFirst()[i].toArray());
+        }
+      } finally {
+        pool.shutdown();
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void checkRows(List<Tuple<Double, DoubleVector>> expected,
+      List<Tuple<Double, DoubleVector>> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      checkRow(actual.get(i), expected.get(i).getFirst(), expected.get(i)
+          .getSecond().toArray());
+    }
+  }
+
+  private static void checkRow(Tuple<Double, DoubleVector> row, double label,
+      double[] features) {
+    assertEquals(label, row.getFirst());
+    assertEquals(SequentialSparseDoubleVector.class, row.getSecond()
+        .getClass());
+    arrayEquals(features, row.getSecond().toArray());
+  }
+
+  private static List<Tuple<Double, DoubleVector>> readChannel(String text)
+      throws IOException {
+    return readChannel(text, 10);
+  }
+
+  private static List<Tuple<Double, DoubleVector>> readChannel(String text,
+      int dimension) throws IOException {
+    List<Tuple<Double, DoubleVector>> rows = new ArrayList<>();
+    new LibSvmReader(dimension).read(channel(text), (row, label, features) -> {
+      assertEquals(rows.size(), row);
+      rows.add(new Tuple<>(label, features));
+    });
+    return rows;
+  }
+
+  private static ReadableByteChannel channel(String text) {
+    return Channels.newChannel(new ByteArrayInputStream(text
+        .getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  private static void arrayEquals(double[] left, double[] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i], right[i], 0d);
+    }
+  }
+
+}
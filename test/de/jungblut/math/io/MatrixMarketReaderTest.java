@@ -0,0 +1,136 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.sparse.CsrDoubleMatrix;
+
+public class MatrixMarketReaderTest extends TestCase {
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(3);
+
+  @Test
+  public void testCoordinate() throws Exception {
+    // column sorted, one duplicate and an empty row
+    DoubleMatrix read = read("%%MatrixMarket matrix coordinate real general\n"
+        + "% a comment\n" + "%\n" + "4 3 6\n" + "1 1 1.5\n" + "3 1 -2\n"
+        + "3 2 4e1\n" + "1 3 3\n" + "3 1 1\n" + "3 3 7\n");
+    assertEquals(CsrDoubleMatrix.class, read.getClass());
+    matrixEquals(new double[][] { { 1.5, 0, 3 }, { 0, 0, 0 }, { -1, 40, 7 },
+        { 0, 0, 0 } }, read.toArray());
+    assertEquals(5, ((CsrDoubleMatrix) read).getNumNonZeros());
+  }
+
+  @Test
+  public void testSymmetricAndPattern() throws Exception {
+    DoubleMatrix read = read("%%MatrixMarket matrix coordinate integer symmetric\n"
+        + "3 3 3\n" + "1 1 1\n" + "3 1 2\n" + "3 2 5\n");
+    matrixEquals(new double[][] { { 1, 0, 2 }, { 0, 0, 5 }, { 2, 5, 0 } },
+        read.toArray());
+
+    read = read("%%MatrixMarket matrix coordinate real skew-symmetric\n"
+        + "3 3 2\n" + "2 1 1\n" + "3 2 5\n");
+    matrixEquals(new double[][] { { 0, -1, 0 }, { 1, 0, -5 }, { 0, 5, 0 } },
+        read.toArray());
+
+    read = read("%%MatrixMarket matrix coordinate pattern general\n"
+        + "2 2 2\n" + "2 1\n" + "1 2\n");
+    matrixEquals(new double[][] { { 0, 1 }, { 1, 0 } }, read.toArray());
+  }
+
+  @Test
+  public void testArray() throws Exception {
+    DoubleMatrix read = read("%%MatrixMarket matrix array real general\n"
+        + "2 3\n" + "1\n" + "2\n" + "3\n" + "4\n" + "5\n" + "6\n");
+    assertEquals(DenseDoubleMatrix.class, read.getClass());
+    matrixEquals(new double[][] { { 1, 3, 5 }, { 2, 4, 6 } }, read.toArray());
+
+    read = read("%%MatrixMarket matrix array real symmetric\n" + "2 2\n"
+        + "1\n" + "2\n" + "3\n");
+    matrixEquals(new double[][] { { 1, 2 }, { 2, 3 } }, read.toArray());
+
+    read = read("%%MatrixMarket matrix array real skew-symmetric\n" + "3 3\n"
+        + "1\n" + "2\n" + "3\n");
+    matrixEquals(new double[][] { { 0, -1, -2 }, { 1, 0, -3 }, { 2, 3, 0 } },
+        read.toArray());
+  }
+
+  @Test
+  public void testMalformed() throws Exception {
+    String[] texts = new String[] { "1 1 1\n1 1 1\n",
+        "%%MatrixMarket matrix coordinate complex general\n1 1 1\n1 1 1 0\n",
+        "%%MatrixMarket matrix coordinate real general\n2 2 2\n1 1 1\n",
+        "%%MatrixMarket matrix coordinate real general\n2 2 1\n3 1 1\n",
+        "%%MatrixMarket matrix array real general\n2 2\n1\n2\n3\n",
+        "%%MatrixMarket matrix array real general\n1 1\n1\n2\n" };
+    for (String text : texts) {
+      try {
+        read(text);
+        fail(text);
+      } catch (IOException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testParallelSplits() throws Exception {
+    Random r = new Random(0);
+    int rows = 500;
+    int cols = 300;
+    double[][] expected = new double[rows][cols];
+    StringBuilder sb = new StringBuilder();
+    int entries = 0;
+    // shuffled entries, so most rows have to be sorted
+    for (int i = 0; i < 20000; i++) {
+      int row = r.nextInt(rows);
+      int col = r.nextInt(cols);
+      if (expected[row][col] == 0) {
+        expected[row][col] = r.nextInt(100) + 1;
+        sb.append(row + 1).append(' ').append(col + 1).append(' ')
+            .append(expected[row][col]).append('\n');
+        entries++;
+      }
+    }
+    String text = "%%MatrixMarket matrix coordinate real general\n" + rows
+        + " " + cols + " " + entries + "\n" + sb;
+    matrixEquals(expected, read(text, 16).toArray());
+    matrixEquals(expected, read(text, 1).toArray());
+  }
+
+  private static DoubleMatrix read(String text) throws IOException {
+    return read(text, 4);
+  }
+
+  private static DoubleMatrix read(String text, int numSplits)
+      throws IOException {
+    Path file = Files.createTempFile("matrix", ".mtx");
+    try {
+      Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+      return MatrixMarketReader.read(file, numSplits, POOL);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  static void matrixEquals(double[][] left, double[][] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i].length, right[i].length);
+      for (int j = 0; j < left[i].length; j++) {
+        assertEquals(left[i][j], right[i][j], 0d);
+      }
+    }
+  }
+
+}
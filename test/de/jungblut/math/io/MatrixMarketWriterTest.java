@@ -0,0 +1,61 @@
+package de.jungblut.math.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.dense.DirectDoubleMatrix;
+import de.jungblut.math.sparse.CsrDoubleMatrix;
+import de.jungblut.math.sparse.SparseDoubleRowMatrix;
+
+public class MatrixMarketWriterTest extends TestCase {
+
+  private static final double[][] ARRAY = new double[][] { { 1, 0, 2.5 },
+      { 0, 0, 0 }, { -4, 1e-3, 0 } };
+
+  @Test
+  public void testCoordinate() throws Exception {
+    String text = write(new SparseDoubleRowMatrix(ARRAY));
+    assertEquals("%%MatrixMarket matrix coordinate real general\n"
+        + "3 3 4\n" + "1 1 1\n" + "1 3 2.5\n" + "3 1 -4\n" + "3 2 0.001\n",
+        text);
+    assertEquals(text, write(new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY))));
+    MatrixMarketReaderTest.matrixEquals(ARRAY, read(text).toArray());
+  }
+
+  @Test
+  public void testArray() throws Exception {
+    String text = write(new DenseDoubleMatrix(ARRAY));
+    assertEquals("%%MatrixMarket matrix array real general\n" + "3 3\n"
+        + "1\n0\n-4\n0\n0\n0.001\n2.5\n0\n0\n", text);
+    try (DirectDoubleMatrix direct = new DirectDoubleMatrix(ARRAY)) {
+      assertEquals(text, write(direct));
+    }
+    MatrixMarketReaderTest.matrixEquals(ARRAY, read(text).toArray());
+  }
+
+  private static String write(DoubleMatrix matrix) throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    MatrixMarketWriter.write(matrix, Channels.newChannel(bos));
+    return new String(bos.toByteArray(), StandardCharsets.US_ASCII);
+  }
+
+  private static DoubleMatrix read(String text) throws Exception {
+    Path file = Files.createTempFile("matrix", ".mtx");
+    try {
+      Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+      return MatrixMarketReader.read(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+}
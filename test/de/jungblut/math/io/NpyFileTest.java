@@ -0,0 +1,195 @@
+package de.jungblut.math.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.dense.MappedDoubleMatrix;
+import de.jungblut.math.sparse.SparseDoubleRowMatrix;
+
+public class NpyFileTest extends TestCase {
+
+  private static final double[][] ARRAY = new double[][] { { 1, 2, 3 },
+      { 4, 5.5, -6 } };
+
+  @Test
+  public void testWriteMatrix() throws Exception {
+    Path file = Files.createTempFile("array", ".npy");
+    try {
+      NpyFile.write(new DenseDoubleMatrix(ARRAY), file);
+      byte[] bytes = Files.readAllBytes(file);
+      // the same header numpy writes for this array, padded to 64 bytes
+      String header = new String(bytes, 10, 118, StandardCharsets.ISO_8859_1);
+      assertTrue(header,
+          header.startsWith("{'descr': '<f8', 'fortran_order': True, "
+              + "'shape': (2, 3), }"));
+      assertTrue(header.endsWith(" \n"));
+      assertEquals(128 + 6 * 8, bytes.length);
+      assertEquals(4d, ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+          .getDouble(128 + 8));
+
+      matrixEquals(ARRAY, NpyFile.readMatrix(file));
+      try (MappedDoubleMatrix mapped = NpyFile.map(file, false)) {
+        matrixEquals(ARRAY, mapped);
+      }
+
+      NpyFile.write(new SparseDoubleRowMatrix(ARRAY), file);
+      matrixEquals(ARRAY, NpyFile.readMatrix(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testReadCOrder() throws Exception {
+    Path file = Files.createTempFile("array", ".npy");
+    try {
+      // C order, as numpy writes by default
+      Files.write(file, npy("<f8", false, "(2, 3)", ByteOrder.LITTLE_ENDIAN, 8,
+          1, 2, 3, 4, 5.5, -6));
+      matrixEquals(ARRAY, NpyFile.readMatrix(file));
+      try (MappedDoubleMatrix mapped = NpyFile.map(file, false)) {
+        matrixEquals(ARRAY, mapped);
+      }
+      try (MappedDoubleMatrix mapped = NpyFile.map(file, true)) {
+        mapped.set(1, 2, 7);
+      }
+      assertEquals(7d, NpyFile.readMatrix(file).get(1, 2));
+
+      // big endian float32 in Fortran order
+      Files.write(file, npy(">f4", true, "(2, 3)", ByteOrder.BIG_ENDIAN, 4, 1,
+          4, 2, 5.5, 3, -6));
+      matrixEquals(ARRAY, NpyFile.readMatrix(file));
+      try {
+        NpyFile.map(file, false);
+        fail();
+      } catch (IOException e) {
+        // expected, float32 can't be mapped as doubles
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testVector() throws Exception {
+    Path file = Files.createTempFile("vector", ".npy");
+    try {
+      NpyFile.write(new DenseDoubleVector(new double[] { 1, -2, 3 }), file);
+      DenseDoubleVector read = NpyFile.readVector(file);
+      assertEquals(3, read.getDimension());
+      assertEquals(-2d, read.get(1));
+      DenseDoubleMatrix matrix = NpyFile.readMatrix(file);
+      assertEquals(1, matrix.getRowCount());
+      assertEquals(3, matrix.getColumnCount());
+
+      Files.write(file, npy("<f4", false, "(3,)", ByteOrder.LITTLE_ENDIAN, 4,
+          0.5, 1, 2));
+      assertEquals(0.5d, NpyFile.readVector(file).get(0));
+
+      Files.write(file, npy("<f8", false, "(2, 3)", ByteOrder.LITTLE_ENDIAN, 8,
+          1, 2, 3, 4, 5.5, -6));
+      try {
+        NpyFile.readVector(file);
+        fail();
+      } catch (IOException e) {
+        // expected
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testUnsupported() throws Exception {
+    Path file = Files.createTempFile("array", ".npy");
+    try {
+      for (byte[] bytes : new byte[][] {
+          npy("<i8", false, "(2,)", ByteOrder.LITTLE_ENDIAN, 8, 1, 2),
+          npy("<f8", false, "(1, 1, 2)", ByteOrder.LITTLE_ENDIAN, 8, 1, 2),
+          npy("<f8", false, "(3,)", ByteOrder.LITTLE_ENDIAN, 8, 1, 2),
+          "not a numpy file".getBytes(StandardCharsets.US_ASCII) }) {
+        Files.write(file, bytes);
+        try {
+          NpyFile.readMatrix(file);
+          fail();
+        } catch (IOException e) {
+          // expected
+        }
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testNpz() throws Exception {
+    Path file = Files.createTempFile("arrays", ".npz");
+    try {
+      try (OutputStream out = Files.newOutputStream(file);
+          ZipOutputStream zip = new ZipOutputStream(out)) {
+        zip.putNextEntry(new ZipEntry("a.npy"));
+        zip.write(npy("<f8", false, "(2, 3)", ByteOrder.LITTLE_ENDIAN, 8, 1, 2,
+            3, 4, 5.5, -6));
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry("b.npy"));
+        zip.write(npy("<f8", false, "(2,)", ByteOrder.LITTLE_ENDIAN, 8, 7, 8));
+        zip.closeEntry();
+      }
+      Map<String, DenseDoubleMatrix> arrays = NpyFile.readNpz(file);
+      assertEquals(2, arrays.size());
+      matrixEquals(ARRAY, arrays.get("a"));
+      assertEquals(8d, arrays.get("b").get(0, 1));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Creates a version 1.0 .npy file with the given header fields and values.
+   */
+  private static byte[] npy(String descr, boolean fortranOrder, String shape,
+      ByteOrder order, int size, double... values) {
+    String dict = "{'descr': '" + descr + "', 'fortran_order': "
+        + (fortranOrder ? "True" : "False") + ", 'shape': " + shape + ", }\n";
+    ByteBuffer buffer = ByteBuffer.allocate(10 + dict.length() + values.length
+        * size);
+    buffer.put(new byte[] { (byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0 });
+    buffer.order(ByteOrder.LITTLE_ENDIAN).putShort((short) dict.length());
+    buffer.put(dict.getBytes(StandardCharsets.ISO_8859_1));
+    buffer.order(order);
+    for (double value : values) {
+      if (size == 8) {
+        buffer.putDouble(value);
+      } else {
+        buffer.putFloat((float) value);
+      }
+    }
+    return buffer.array();
+  }
+
+  private static void matrixEquals(double[][] expected, DoubleMatrix actual) {
+    assertEquals(expected.length, actual.getRowCount());
+    assertEquals(expected[0].length, actual.getColumnCount());
+    for (int i = 0; i < expected.length; i++) {
+      for (int j = 0; j < expected[i].length; j++) {
+        assertEquals(expected[i][j], actual.get(i, j), 0d);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+package de.jungblut.math.quantized;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+
+@RunWith(JUnit4.class)
+public class Int8MatrixTest extends TestCase {
+
+  @Test
+  public void testRowsMatchVectors() {
+    Random r = new Random(1);
+    Int8Matrix matrix = new Int8Matrix(10, 32);
+    DoubleVector[] rows = new DoubleVector[10];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = Int8VectorTest.random(r, 32);
+      matrix.set(i, rows[i]);
+    }
+    DoubleVector query = Int8VectorTest.random(r, 32);
+    Int8Vector quantizedQuery = Int8Vector.quantize(query);
+    double querySquaredNorm = query.dot(query);
+    for (int i = 0; i < rows.length; i++) {
+      Int8Vector row = Int8Vector.quantize(rows[i]);
+      assertEquals(row.dot(quantizedQuery), matrix.dot(i, quantizedQuery),
+          1e-9);
+      assertEquals(row.dot(query), matrix.dot(i, query), 1e-9);
+      assertEquals(row.squaredEuclidean(quantizedQuery),
+          matrix.squaredEuclidean(i, quantizedQuery), 1e-9);
+      assertEquals(row.squaredEuclidean(query),
+          matrix.squaredEuclidean(i, query), 1e-9);
+      assertEquals(matrix.squaredEuclidean(i, query),
+          matrix.squaredEuclidean(i, query, querySquaredNorm), 0d);
+      assertEquals(row.get(5), matrix.get(i, 5), 0d);
+      assertEquals(row.getMaxError(), matrix.getMaxError(i), 0d);
+      assertEquals(row.toDoubleVector(), matrix.getRow(i).toDoubleVector());
+    }
+  }
+
+  @Test
+  public void testOverwriteRow() {
+    Int8Matrix matrix = new Int8Matrix(2, 3);
+    matrix.set(1, new DenseDoubleVector(new double[] { 1, 2, 3 }));
+    matrix.set(1, new DenseDoubleVector(3, 7d));
+    assertEquals(7d, matrix.get(1, 0), 0d);
+    assertEquals(7d, matrix.get(1, 2), 0d);
+    matrix.set(0, matrix.getRow(1));
+    assertEquals(147d, matrix.dot(0, new DenseDoubleVector(3, 7d)), 1e-9);
+    assertEquals(0d, matrix.get(0, 0) - 7d, 0d);
+  }
+
+  @Test
+  public void testDimensionMismatch() {
+    try {
+      new Int8Matrix(2, 3).set(0, new DenseDoubleVector(4));
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+}
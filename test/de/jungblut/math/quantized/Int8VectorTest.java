@@ -0,0 +1,96 @@
+package de.jungblut.math.quantized;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+@RunWith(JUnit4.class)
+public class Int8VectorTest extends TestCase {
+
+  @Test
+  public void testQuantize() {
+    DenseDoubleVector v = new DenseDoubleVector(new double[] { -1, 0, 0.5, 1 });
+    Int8Vector q = Int8Vector.quantize(v);
+    assertEquals(4, q.getDimension());
+    assertEquals(2d / 255d, q.getScale(), 1e-12);
+    // the bounds are exact, every element is within half a step
+    assertEquals(-1d, q.get(0), 1e-12);
+    assertEquals(1d, q.get(3), 1e-12);
+    for (int i = 0; i < v.getDimension(); i++) {
+      assertEquals(v.get(i), q.get(i), q.getMaxError() + 1e-12);
+      assertEquals(q.get(i), q.toDoubleVector().get(i), 0d);
+    }
+    assertTrue(q.quantizationError(v) <= 4 * q.getMaxError()
+        * q.getMaxError());
+  }
+
+  @Test
+  public void testConstantAndSparse() {
+    Int8Vector q = Int8Vector.quantize(new DenseDoubleVector(5, 3d));
+    assertEquals(0d, q.getScale(), 0d);
+    assertEquals(3d, q.get(4), 0d);
+    assertEquals(0d, q.quantizationError(new DenseDoubleVector(5, 3d)), 0d);
+    assertEquals(45d, q.squaredNorm(), 1e-9);
+
+    SparseDoubleVector sparse = new SparseDoubleVector(100);
+    sparse.set(3, 5d);
+    sparse.set(70, 2d);
+    q = Int8Vector.quantize(sparse);
+    assertEquals(0d, q.get(0), q.getMaxError());
+    assertEquals(5d, q.get(3), 1e-12);
+    assertEquals(2d, q.get(70), q.getMaxError());
+  }
+
+  @Test
+  public void testDotAndDistance() {
+    Random r = new Random(42);
+    for (int n = 0; n < 20; n++) {
+      DoubleVector a = random(r, 64);
+      DoubleVector b = random(r, 64);
+      Int8Vector qa = Int8Vector.quantize(a);
+      Int8Vector qb = Int8Vector.quantize(b);
+      DoubleVector ra = qa.toDoubleVector();
+      DoubleVector rb = qb.toDoubleVector();
+
+      // the integer arithmetic is exact for the reconstructed vectors
+      assertEquals(ra.dot(rb), qa.dot(qb), 1e-9);
+      assertEquals(ra.dot(b), qa.dot(b), 1e-9);
+      assertEquals(ra.subtract(rb).pow(2).sum(), qa.squaredEuclidean(qb), 1e-9);
+      assertEquals(ra.subtract(b).pow(2).sum(), qa.squaredEuclidean(b), 1e-9);
+      assertEquals(qa.squaredEuclidean(b), qa.squaredEuclidean(b, b.dot(b)), 0d);
+      assertEquals(ra.dot(ra), qa.squaredNorm(), 1e-9);
+
+      // and close to the original values
+      assertEquals(a.dot(b), qa.dot(qb), 0.1);
+      assertEquals(a.subtract(b).pow(2).sum(), qa.squaredEuclidean(qb), 0.2);
+    }
+  }
+
+  @Test
+  public void testSparseQuery() {
+    Int8Vector q = Int8Vector.quantize(new DenseDoubleVector(new double[] { 1,
+        2, 3, 4 }));
+    SparseDoubleVector query = new SparseDoubleVector(4);
+    query.set(1, 2d);
+    DoubleVector dense = new DenseDoubleVector(query);
+    assertEquals(q.dot(dense), q.dot(query), 1e-12);
+    assertEquals(q.squaredEuclidean(dense), q.squaredEuclidean(query), 1e-12);
+  }
+
+  static DoubleVector random(Random r, int dimension) {
+    DenseDoubleVector v = new DenseDoubleVector(dimension);
+    for (int i = 0; i < dimension; i++) {
+      v.set(i, r.nextGaussian() * 0.5);
+    }
+    return v;
+  }
+
+}
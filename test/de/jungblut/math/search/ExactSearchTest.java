@@ -0,0 +1,139 @@
+package de.jungblut.math.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+@RunWith(JUnit4.class)
+public class ExactSearchTest extends TestCase {
+
+  @Test
+  public void testEmpty() {
+    ExactSearch search = new ExactSearch(Distances.EUCLIDEAN);
+    assertTrue(search.search(new DenseDoubleVector(2), 5).isEmpty());
+    assertEquals(0, search.size());
+  }
+
+  @Test
+  public void testMatchesBruteForce() {
+    List<DoubleVector> vectors = HnswIndexTest.randomVectors(new Random(0),
+        500, 12);
+    List<DoubleVector> queries = HnswIndexTest.randomVectors(new Random(1),
+        100, 12);
+    for (Distances distance : Distances.values()) {
+      ExactSearch search = new ExactSearch(distance, 64);
+      search.addAll(vectors);
+      assertEquals(500, search.size());
+      List<List<Neighbor>> results = search.search(queries, 10);
+      assertEquals(queries.size(), results.size());
+      for (int i = 0; i < queries.size(); i++) {
+        assertBruteForce(vectors, queries.get(i), distance, results.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testSparseCandidatesAndKeys() {
+    Random r = new Random(2);
+    List<DoubleVector> vectors = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      DoubleVector v = new SparseDoubleVector(100);
+      for (int j = 0; j < 5; j++) {
+        v.set(r.nextInt(100), r.nextDouble());
+      }
+      // mix dense and sparse candidates
+      if (i % 3 == 0) {
+        v = new DenseDoubleVector(v.toArray());
+      }
+      vectors.add(new KeyedDoubleVector(1000 + i, v));
+    }
+    ExactSearch search = new ExactSearch(Distances.COSINE, 32);
+    search.addAll(vectors);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<List<Neighbor>> results = search.search(vectors, 5, pool);
+      for (int i = 0; i < vectors.size(); i++) {
+        List<Neighbor> result = results.get(i);
+        assertBruteForce(vectors, vectors.get(i), Distances.COSINE, result);
+        // every vector finds itself
+        assertEquals(0d, result.get(0).getDistance(), 1e-9);
+      }
+      assertEquals(1042, results.get(42).get(0).getKey());
+      assertSame(vectors.get(42), results.get(42).get(0).getVector());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testAddAfterSearch() {
+    ExactSearch search = new ExactSearch(Distances.SQUARED_EUCLIDEAN);
+    search.add(new DenseDoubleVector(new double[] { 1, 1 }));
+    assertEquals(1, search.search(new DenseDoubleVector(2), 5).size());
+    search.add(new DenseDoubleVector(new double[] { 0, 1 }));
+    List<Neighbor> result = search.search(new DenseDoubleVector(2), 5);
+    assertEquals(2, result.size());
+    assertEquals(1, result.get(0).getId());
+    assertEquals(1d, result.get(0).getDistance(), 1e-9);
+    assertEquals(2d, result.get(1).getDistance(), 1e-9);
+  }
+
+  @Test
+  public void testSearchBetweenAdds() {
+    Random r = new Random(3);
+    List<DoubleVector> vectors = new ArrayList<>();
+    ExactSearch search = new ExactSearch(Distances.EUCLIDEAN, 4);
+    DoubleVector query = new DenseDoubleVector(new double[] { 0.5, 0.5, 0.5 });
+    for (int i = 0; i < 11; i++) {
+      DoubleVector v = new SparseDoubleVector(3);
+      v.set(r.nextInt(3), r.nextDouble());
+      if (i % 2 == 0) {
+        v = new DenseDoubleVector(v.toArray());
+      }
+      vectors.add(v);
+      search.add(v);
+      // the pending vectors are found without being sealed into small blocks
+      assertBruteForce(vectors, query, Distances.EUCLIDEAN,
+          search.search(query, 3));
+      assertEquals(Math.min(3, vectors.size()), search.search(query, 3).size());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDimensionMismatch() {
+    ExactSearch search = new ExactSearch(Distances.COSINE);
+    search.add(new DenseDoubleVector(3));
+    search.add(new DenseDoubleVector(4));
+  }
+
+  private static void assertBruteForce(List<DoubleVector> vectors,
+      DoubleVector query, Distances distance, List<Neighbor> result) {
+    Integer[] order = new Integer[vectors.size()];
+    double[] distances = new double[vectors.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+      distances[i] = distance.measureDistance(vectors.get(i), query);
+    }
+    Arrays.sort(order, Comparator.comparingDouble(i -> distances[i]));
+    assertEquals(Math.min(order.length, result.size()), result.size());
+    for (int i = 0; i < result.size(); i++) {
+      assertEquals(distances[order[i]], result.get(i).getDistance(), 1e-9);
+    }
+  }
+
+}
@@ -0,0 +1,220 @@
+package de.jungblut.math.search;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.named.NamedDoubleVector;
+import de.jungblut.math.sparse.SequentialSparseDoubleVector;
+
+@RunWith(JUnit4.class)
+public class HnswIndexTest extends TestCase {
+
+  @Test
+  public void testEmptyAndSingle() {
+    HnswIndex index = new HnswIndex(Distances.EUCLIDEAN);
+    assertTrue(index.search(new DenseDoubleVector(2), 5).isEmpty());
+    index.add(new NamedDoubleVector("a", new DenseDoubleVector(new double[] {
+        1, 1 })));
+    List<Neighbor> result = index.search(new DenseDoubleVector(2), 5);
+    assertEquals(1, result.size());
+    assertEquals("a", result.get(0).getVector().getName());
+    assertEquals(Math.sqrt(2), result.get(0).getDistance(), 1e-9);
+  }
+
+  @Test
+  public void testRecall() {
+    List<DoubleVector> vectors = randomVectors(new Random(0), 2000, 16);
+    HnswIndex index = new HnswIndex(Distances.SQUARED_EUCLIDEAN, 8, 100, 50);
+    for (DoubleVector v : vectors) {
+      index.add(v);
+    }
+    assertEquals(2000, index.size());
+    assertTrue(recall(index, vectors, Distances.SQUARED_EUCLIDEAN) > 0.9);
+  }
+
+  @Test
+  public void testConcurrentInsertsWithKeys() {
+    Random r = new Random(1);
+    List<DoubleVector> vectors = new ArrayList<>();
+    for (DoubleVector v : randomVectors(r, 2000, 16)) {
+      vectors.add(new KeyedDoubleVector(1000 + vectors.size(), v));
+    }
+    HnswIndex index = new HnswIndex(Distances.COSINE, 8, 100, 50);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      int[] ids = index.addAll(vectors, pool);
+      Set<Integer> unique = new HashSet<>();
+      for (int i = 0; i < ids.length; i++) {
+        assertSame(vectors.get(i), index.get(ids[i]));
+        unique.add(ids[i]);
+      }
+      assertEquals(vectors.size(), unique.size());
+    } finally {
+      pool.shutdown();
+    }
+    assertTrue(recall(index, vectors, Distances.COSINE) > 0.9);
+
+    // a vector of the index finds itself by its key
+    DoubleVector query = vectors.get(42);
+    Neighbor best = index.search(query, 1).get(0);
+    assertEquals(1042, best.getKey());
+    assertEquals(0d, best.getDistance(), 1e-9);
+  }
+
+  @Test
+  public void testSparseVectors() {
+    Random r = new Random(2);
+    List<DoubleVector> vectors = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      int[] indices = new int[] { r.nextInt(50), 50 + r.nextInt(50) };
+      double[] values = new double[] { r.nextDouble() + 0.1,
+          r.nextDouble() + 0.1 };
+      vectors.add(new SequentialSparseDoubleVector(100, indices, values, 2));
+    }
+    HnswIndex index = new HnswIndex(Distances.COSINE);
+    index.addAll(vectors);
+    assertTrue(recall(index, vectors, Distances.COSINE) > 0.9);
+  }
+
+  @Test
+  public void testSeededIndexIsReproducible() throws Exception {
+    List<DoubleVector> vectors = randomVectors(new Random(4), 500, 8);
+    byte[][] graphs = new byte[2][];
+    for (int n = 0; n < graphs.length; n++) {
+      HnswIndex index = new HnswIndex(Distances.COSINE, 6, 50, 20, new Random(
+          7));
+      for (DoubleVector v : vectors) {
+        index.add(v);
+      }
+      // the cached norms give the same distances as the measure
+      DoubleVector query = vectors.get(3);
+      for (Neighbor neighbor : index.search(query, 5)) {
+        assertEquals(Distances.COSINE.measureDistance(query,
+            neighbor.getVector()), neighbor.getDistance(), 1e-12);
+      }
+      Path file = Files.createTempFile("hnsw", ".bin");
+      try {
+        index.write(file);
+        graphs[n] = Files.readAllBytes(file);
+      } finally {
+        Files.delete(file);
+      }
+    }
+    assertTrue(Arrays.equals(graphs[0], graphs[1]));
+  }
+
+  @Test
+  public void testPersistence() throws Exception {
+    List<DoubleVector> vectors = new ArrayList<>();
+    for (DoubleVector v : randomVectors(new Random(3), 300, 8)) {
+      vectors.add(new KeyedDoubleVector(vectors.size() * 2, v));
+    }
+    HnswIndex index = new HnswIndex(Distances.EUCLIDEAN, 6, 50, 20);
+    for (DoubleVector v : vectors) {
+      index.add(v);
+    }
+    Path file = Files.createTempFile("hnsw", ".bin");
+    try {
+      index.write(file);
+      HnswIndex read = HnswIndex.read(file, Distances.EUCLIDEAN);
+      assertEquals(index.size(), read.size());
+      assertEquals(6, read.getM());
+      assertEquals(50, read.getEfConstruction());
+      assertEquals(20, read.getEfSearch());
+      for (int i = 0; i < 20; i++) {
+        List<Neighbor> expected = index.search(vectors.get(i * 7), 5);
+        List<Neighbor> actual = read.search(vectors.get(i * 7), 5);
+        assertEquals(expected.size(), actual.size());
+        for (int j = 0; j < expected.size(); j++) {
+          assertEquals(expected.get(j).getKey(), actual.get(j).getKey());
+          assertEquals(expected.get(j).getDistance(), actual.get(j)
+              .getDistance(), 0d);
+        }
+      }
+      // the read index can still grow
+      read.add(new DenseDoubleVector(8));
+      assertEquals(301, read.size());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testInvalidParameters() {
+    try {
+      new HnswIndex(Distances.COSINE, 1, 10, 10);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new HnswIndex(Distances.COSINE).setEfSearch(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * @return the fraction of the exact 10 nearest neighbours of 50 queries that
+   *         were found by the index.
+   */
+  static double recall(HnswIndex index, List<DoubleVector> vectors,
+      DistanceMeasure distance) {
+    Random r = new Random(42);
+    int k = 10;
+    int hits = 0;
+    int queries = 50;
+    for (int q = 0; q < queries; q++) {
+      DoubleVector query = vectors.get(r.nextInt(vectors.size())).add(
+          randomVectors(r, 1, vectors.get(0).getDimension()).get(0).multiply(
+              0.1));
+      Integer[] order = new Integer[vectors.size()];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingDouble(i -> distance
+          .measureDistance(query, vectors.get(i))));
+      Set<DoubleVector> exact = new HashSet<>();
+      for (int i = 0; i < k; i++) {
+        exact.add(vectors.get(order[i]));
+      }
+      for (Neighbor n : index.search(query, k)) {
+        if (exact.contains(n.getVector())) {
+          hits++;
+        }
+      }
+    }
+    return hits / (double) (queries * k);
+  }
+
+  static List<DoubleVector> randomVectors(Random r, int n, int dimension) {
+    List<DoubleVector> list = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      DenseDoubleVector v = new DenseDoubleVector(dimension);
+      for (int j = 0; j < dimension; j++) {
+        v.set(j, r.nextGaussian());
+      }
+      list.add(v);
+    }
+    return list;
+  }
+
+}
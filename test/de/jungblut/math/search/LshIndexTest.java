@@ -0,0 +1,167 @@
+package de.jungblut.math.search;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.sparse.SparseBitVector;
+import de.jungblut.math.sparse.SparseDoubleVector;
+
+@RunWith(JUnit4.class)
+public class LshIndexTest extends TestCase {
+
+  @Test
+  public void testMinHashEstimatesJaccard() {
+    SparseBitVector a = new SparseBitVector(1000);
+    SparseBitVector b = new SparseBitVector(1000);
+    // 60 common of 140 distinct indices
+    for (int i = 0; i < 100; i++) {
+      a.set(i, 1d);
+      b.set(i + 40, 1d);
+    }
+    MinHash minHash = new MinHash(512, 0L);
+    assertEquals(60d / 140d, minHash.similarity(a, b), 1e-9);
+    assertEquals(60d / 140d, agreement(minHash, a, b), 0.07);
+    assertEquals(1d, agreement(minHash, a, a), 1e-9);
+    assertEquals(0d, minHash.similarity(new SparseBitVector(10),
+        new SparseBitVector(10)), 1e-9);
+    // dense vectors count their non-zeros, not their dimension
+    assertEquals(60d / 140d, minHash.similarity(new DenseDoubleVector(
+        a.toArray()), b), 1e-9);
+    assertEquals(60d / 140d, minHash.similarity(new DenseDoubleVector(
+        a.toArray()), new DenseDoubleVector(b.toArray())), 1e-9);
+  }
+
+  @Test
+  public void testSimHashEstimatesAngle() {
+    Random r = new Random(0);
+    SparseDoubleVector a = new SparseDoubleVector(100_000);
+    SparseDoubleVector b = new SparseDoubleVector(100_000);
+    for (int i = 0; i < 50; i++) {
+      int index = r.nextInt(100_000);
+      a.set(index, r.nextDouble());
+      b.set(index, r.nextDouble());
+    }
+    SimHash simHash = new SimHash(1024, 0L);
+    double cosine = simHash.similarity(a, b);
+    double expected = 1d - Math.acos(cosine) / Math.PI;
+    assertEquals(expected, agreement(simHash, a, b), 0.05);
+    assertEquals(1d, agreement(simHash, a, a.multiply(3d)), 1e-9);
+  }
+
+  @Test
+  public void testNearDuplicatesMatchBruteForce() {
+    Random r = new Random(1);
+    List<DoubleVector> vectors = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      SparseBitVector v = new SparseBitVector(10_000);
+      for (int j = 0; j < 50; j++) {
+        v.set(r.nextInt(10_000), 1d);
+      }
+      vectors.add(v);
+    }
+    for (int i = 0; i < 30; i++) {
+      // copies with a few changed shingles
+      DoubleVector copy = new SparseBitVector(vectors.get(i));
+      for (int j = 0; j < 2; j++) {
+        copy.set(r.nextInt(10_000), 1d);
+      }
+      vectors.add(copy);
+    }
+
+    LshIndex index = new LshIndex(new MinHash(100, 7L), 20);
+    assertEquals(5, index.getRows());
+    ForkJoinPool pool = new ForkJoinPool(4);
+    List<List<Neighbor>> duplicates;
+    try {
+      index.addAll(vectors, pool);
+      duplicates = index.nearDuplicates(0.8, pool);
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(vectors.size(), duplicates.size());
+
+    MinHash exact = new MinHash(1, 0L);
+    for (int i = 0; i < vectors.size(); i++) {
+      Set<Integer> expected = new HashSet<>();
+      for (int j = 0; j < vectors.size(); j++) {
+        if (i != j && exact.similarity(vectors.get(i), vectors.get(j)) >= 0.8) {
+          expected.add(j);
+        }
+      }
+      Set<Integer> found = new HashSet<>();
+      for (Neighbor n : duplicates.get(i)) {
+        found.add(n.getId());
+        assertTrue(n.getDistance() <= 0.2 + 1e-9);
+      }
+      assertEquals(expected, found);
+      if (i < 30) {
+        assertTrue(found.contains(300 + i));
+      }
+    }
+  }
+
+  @Test
+  public void testQueryWithKeys() {
+    Random r = new Random(2);
+    LshIndex index = new LshIndex(new SimHash(128, 3L), 16);
+    List<DoubleVector> vectors = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      SparseDoubleVector v = new SparseDoubleVector(50_000);
+      for (int j = 0; j < 20; j++) {
+        v.set(r.nextInt(50_000), r.nextDouble());
+      }
+      vectors.add(new KeyedDoubleVector(1000 + i, v));
+    }
+    index.addAll(vectors);
+    assertEquals(200, index.size());
+    List<Neighbor> result = index.query(vectors.get(42), 0.9);
+    assertEquals(1, result.size());
+    assertEquals(1042, result.get(0).getKey());
+    assertEquals(0d, result.get(0).getDistance(), 1e-9);
+    assertSame(vectors.get(42), index.get(result.get(0).getId()));
+
+    int id = index.add(vectors.get(42).multiply(2d));
+    result = index.query(vectors.get(42), 0.9);
+    assertEquals(2, result.size());
+    Set<Integer> found = new HashSet<>();
+    for (Neighbor n : result) {
+      found.add(n.getId());
+    }
+    assertTrue(found.contains(42));
+    assertTrue(found.contains(id));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBandsMustDivideSignature() {
+    new LshIndex(new MinHash(10, 0L), 3);
+  }
+
+  private static double agreement(LshFamily family, DoubleVector a,
+      DoubleVector b) {
+    int[] x = new int[family.getSignatureLength()];
+    int[] y = new int[family.getSignatureLength()];
+    family.signature(a, x);
+    family.signature(b, y);
+    int equal = 0;
+    for (int i = 0; i < x.length; i++) {
+      if (x[i] == y[i]) {
+        equal++;
+      }
+    }
+    return (double) equal / x.length;
+  }
+
+}
@@ -0,0 +1,268 @@
+package de.jungblut.math.sparse;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import de.jungblut.math.DoubleMatrix;
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.DoubleVector.DoubleVectorElement;
+import de.jungblut.math.dense.DenseDoubleMatrix;
+import de.jungblut.math.dense.DenseDoubleVector;
+
+public class CsrDoubleMatrixTest extends TestCase {
+
+  private static final double[][] ARRAY = new double[][] { { 1, 0, 2, 0 },
+      { 0, 0, 0, 0 }, { 0, 3, 0, 4 } };
+
+  @Test
+  public void testConstructor() {
+    CsrDoubleMatrix mat = new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY));
+    assertEquals(3, mat.getRowCount());
+    assertEquals(4, mat.getColumnCount());
+    assertEquals(4, mat.getNumNonZeros());
+    matrixEquals(ARRAY, mat.toArray());
+    arrayEquals(new int[] { 0, 2, 2, 4 }, mat.getRowPointers());
+    arrayEquals(new int[] { 0, 2, 1, 3 }, mat.getColumnIndices());
+
+    SparseDoubleRowMatrix sparse = new SparseDoubleRowMatrix(3, 4);
+    sparse.set(0, 0, 1);
+    sparse.set(0, 2, 2);
+    sparse.set(2, 3, 4);
+    sparse.set(2, 1, 3);
+    mat = new CsrDoubleMatrix(sparse);
+    matrixEquals(ARRAY, mat.toArray());
+    // the conversion must not insert empty rows into the source
+    assertEquals(2, sparse.rowIndices().length);
+
+    List<DoubleVector> rows = Lists.newArrayList(
+        (DoubleVector) new SparseDoubleVector(ARRAY[0]),
+        (DoubleVector) new SequentialSparseDoubleVector(ARRAY[1]),
+        (DoubleVector) new DenseDoubleVector(ARRAY[2]));
+    mat = new CsrDoubleMatrix(rows);
+    matrixEquals(ARRAY, mat.toArray());
+    mat = new CsrDoubleMatrix(rows.toArray(new DoubleVector[rows.size()]));
+    matrixEquals(ARRAY, mat.toArray());
+
+    mat = new CsrDoubleMatrix.Builder(4).addRow(rows.get(0)).addEmptyRow()
+        .addRow(rows.get(2)).build();
+    matrixEquals(ARRAY, mat.toArray());
+  }
+
+  @Test
+  public void testAccessors() {
+    CsrDoubleMatrix mat = new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY));
+    for (int row = 0; row < ARRAY.length; row++) {
+      for (int col = 0; col < ARRAY[row].length; col++) {
+        assertEquals(ARRAY[row][col], mat.get(row, col));
+      }
+      arrayEquals(ARRAY[row], mat.getRowVector(row).toArray());
+    }
+    arrayEquals(new double[] { 0, 0, 3 }, mat.getColumnVector(1).toArray());
+    arrayEquals(new int[] { 0, 2 }, mat.rowIndices());
+    assertEquals(10d, mat.sum());
+    assertEquals(4d, mat.max(3));
+    // like the other sparse matrices, implicit zeros are not considered
+    assertEquals(new SparseDoubleRowMatrix(ARRAY).min(3), mat.min(3));
+
+    try {
+      mat.set(0, 0, 1);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRowView() {
+    CsrDoubleMatrix mat = new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY));
+    DoubleVector row = mat.getRowVector(2);
+    assertTrue(row.isSparse());
+    assertEquals(4, row.getDimension());
+    assertEquals(2, row.getLength());
+    assertEquals(7d, row.sum());
+    assertEquals(4d, row.max());
+    assertEquals(3, row.maxIndex());
+    assertEquals(3d * 2 + 4d * 3, row.dot(new DenseDoubleVector(new double[] {
+        1, 2, 5, 3 })));
+    assertEquals(3d * 2 + 4d * 3, row.dot(new SparseDoubleVector(
+        new double[] { 1, 2, 5, 3 })));
+
+    Iterator<DoubleVectorElement> iterateNonZero = row.iterateNonZero();
+    DoubleVectorElement next = iterateNonZero.next();
+    assertEquals(1, next.getIndex());
+    assertEquals(3d, next.getValue());
+    next = iterateNonZero.next();
+    assertEquals(3, next.getIndex());
+    assertEquals(4d, next.getValue());
+    assertFalse(iterateNonZero.hasNext());
+
+    Iterator<DoubleVectorElement> iterate = row.iterate();
+    int index = 0;
+    while (iterate.hasNext()) {
+      next = iterate.next();
+      assertEquals(index, next.getIndex());
+      assertEquals(ARRAY[2][index], next.getValue());
+      index++;
+    }
+    assertEquals(4, index);
+
+    // arithmetic returns a mutable copy and leaves the matrix untouched
+    DoubleVector added = row.add(new DenseDoubleVector(new double[] { 1, 1, 1,
+        1 }));
+    arrayEquals(new double[] { 1, 4, 1, 5 }, added.toArray());
+    DoubleVector copy = row.deepCopy();
+    copy.set(0, 5);
+    assertEquals(0d, mat.get(2, 0));
+
+    try {
+      row.set(0, 1);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testMultiplication() {
+    Random r = new Random(0);
+    DenseDoubleMatrix a = sparseRandom(r, 37, 53);
+    DenseDoubleMatrix b = sparseRandom(r, 53, 29);
+    double[][] expected = a.multiply(b).toArray();
+
+    CsrDoubleMatrix csrA = new CsrDoubleMatrix(a);
+    CsrDoubleMatrix csrB = new CsrDoubleMatrix(b);
+    DoubleMatrix res = csrA.multiply(b);
+    assertFalse(res.isSparse());
+    matrixEquals(expected, res.toArray());
+    res = csrA.multiply(csrB);
+    assertTrue(res instanceof CsrDoubleMatrix);
+    matrixEquals(expected, res.toArray());
+    res = csrA.multiply(new SparseDoubleRowMatrix(csrB.toArray()));
+    matrixEquals(expected, res.toArray());
+
+    // entries that cancel out are not stored
+    CsrDoubleMatrix left = new CsrDoubleMatrix(new DenseDoubleMatrix(
+        new double[][] { { 1, 1 } }));
+    CsrDoubleMatrix right = new CsrDoubleMatrix(new DenseDoubleMatrix(
+        new double[][] { { 1, 2 }, { -1, 3 } }));
+    CsrDoubleMatrix product = (CsrDoubleMatrix) left.multiply(right);
+    assertEquals(1, product.getNumNonZeros());
+    matrixEquals(new double[][] { { 0, 5 } }, product.toArray());
+  }
+
+  @Test
+  public void testMultiplyVector() {
+    CsrDoubleMatrix mat = new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY));
+    DenseDoubleMatrix dense = new DenseDoubleMatrix(ARRAY);
+
+    DoubleVector v = new DenseDoubleVector(new double[] { 1, 2, 3, 4 });
+    arrayEquals(dense.multiplyVectorRow(v).toArray(), mat.multiplyVectorRow(v)
+        .toArray());
+    arrayEquals(dense.multiplyVectorRow(v).toArray(),
+        mat.multiplyVectorRow(new SparseDoubleVector(v)).toArray());
+
+    v = new DenseDoubleVector(new double[] { 2, 0, 3 });
+    arrayEquals(dense.multiplyVectorColumn(v).toArray(), mat
+        .multiplyVectorColumn(v).toArray());
+    arrayEquals(dense.multiplyVectorColumn(v).toArray(),
+        mat.multiplyVectorColumn(new SequentialSparseDoubleVector(v))
+            .toArray());
+  }
+
+  @Test
+  public void testTranspose() {
+    CsrDoubleMatrix mat = new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY));
+    CsrDoubleMatrix transpose = mat.transpose();
+    assertEquals(4, transpose.getRowCount());
+    assertEquals(3, transpose.getColumnCount());
+    matrixEquals(new DenseDoubleMatrix(ARRAY).transpose().toArray(),
+        transpose.toArray());
+    matrixEquals(ARRAY, transpose.transpose().toArray());
+  }
+
+  @Test
+  public void testElementWiseOperations() {
+    CsrDoubleMatrix mat = new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY));
+    DenseDoubleMatrix dense = new DenseDoubleMatrix(ARRAY);
+
+    matrixEquals(dense.multiply(2d).toArray(), mat.multiply(2d).toArray());
+    matrixEquals(dense.divide(2d).toArray(), mat.divide(2d).toArray());
+    matrixEquals(dense.pow(2d).toArray(), mat.pow(2d).toArray());
+    matrixEquals(dense.subtract(1d).toArray(), mat.subtract(1d).toArray());
+    matrixEquals(dense.subtractBy(1d).toArray(), mat.subtractBy(1d).toArray());
+    DoubleVector vec = new DenseDoubleVector(new double[] { 1, 2, 3 });
+    matrixEquals(dense.subtract(vec).toArray(), mat.subtract(vec).toArray());
+    matrixEquals(dense.divide(vec).toArray(), mat.divide(vec).toArray());
+
+    CsrDoubleMatrix zeroed = (CsrDoubleMatrix) mat.multiply(0d);
+    assertEquals(0, zeroed.getNumNonZeros());
+
+    DenseDoubleMatrix other = new DenseDoubleMatrix(new double[][] {
+        { 1, 2, 3, 4 }, { 5, 6, 7, 8 }, { 9, 10, 11, 12 } });
+    matrixEquals(dense.add(other).toArray(), mat.add(other).toArray());
+    matrixEquals(dense.subtract(other).toArray(), mat.subtract(other)
+        .toArray());
+    matrixEquals(dense.multiplyElementWise(other).toArray(), mat
+        .multiplyElementWise(other).toArray());
+
+    CsrDoubleMatrix sparseOther = new CsrDoubleMatrix(new DenseDoubleMatrix(
+        new double[][] { { 0, 1, -2, 0 }, { 0, 0, 0, 0 }, { 5, 0, 0, 0 } }));
+    DoubleMatrix sum = mat.add(sparseOther);
+    assertTrue(sum.isSparse());
+    matrixEquals(new double[][] { { 1, 1, 0, 0 }, { 0, 0, 0, 0 },
+        { 5, 3, 0, 4 } }, sum.toArray());
+    matrixEquals(new double[][] { { 1, -1, 4, 0 }, { 0, 0, 0, 0 },
+        { -5, 3, 0, 4 } }, mat.subtract(sparseOther).toArray());
+  }
+
+  @Test
+  public void testSlice() {
+    CsrDoubleMatrix mat = new CsrDoubleMatrix(new DenseDoubleMatrix(ARRAY));
+    DoubleMatrix slice = mat.slice(1, 3, 1, 3);
+    matrixEquals(new double[][] { { 0, 0 }, { 3, 0 } }, slice.toArray());
+    slice = mat.slice(1, 3);
+    matrixEquals(new double[][] { { 1, 0, 2 } }, slice.toArray());
+    matrixEquals(ARRAY, mat.deepCopy().toArray());
+  }
+
+  private static DenseDoubleMatrix sparseRandom(Random r, int rows, int cols) {
+    DenseDoubleMatrix m = new DenseDoubleMatrix(rows, cols);
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        if (r.nextDouble() < 0.1) {
+          m.set(i, j, r.nextInt(10) - 5);
+        }
+      }
+    }
+    return m;
+  }
+
+  public void matrixEquals(double[][] left, double[][] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      arrayEquals(left[i], right[i]);
+    }
+  }
+
+  public void arrayEquals(double[] left, double[] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i], right[i], 1e-5);
+    }
+  }
+
+  public void arrayEquals(int[] left, int[] right) {
+    assertEquals(left.length, right.length);
+    for (int i = 0; i < left.length; i++) {
+      assertEquals(left[i], right[i]);
+    }
+  }
+
+}
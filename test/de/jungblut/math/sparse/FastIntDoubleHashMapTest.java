@@ -0,0 +1,146 @@
+package de.jungblut.math.sparse;
+
+import gnu.trove.map.hash.TIntDoubleHashMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FastIntDoubleHashMapTest extends TestCase {
+
+  @Test
+  public void testRandomOperations() {
+    Random r = new Random(0);
+    FastIntDoubleHashMap map = new FastIntDoubleHashMap();
+    Map<Integer, Double> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      // a small key range, so keys collide, are removed and come back
+      int key = r.nextInt(2000) - 100;
+      double value = r.nextInt(100) + 1;
+      switch (r.nextInt(4)) {
+        case 0:
+          assertEquals(orZero(expected.put(key, value)), map.put(key, value));
+          break;
+        case 1:
+          assertEquals(orZero(expected.remove(key)), map.remove(key));
+          break;
+        case 2:
+          double adjusted = expected.containsKey(key) ? expected.get(key)
+              + value : 1d;
+          expected.put(key, adjusted);
+          assertEquals(adjusted, map.adjustOrPutValue(key, value, 1d));
+          break;
+        default:
+          assertEquals(orZero(expected.get(key)), map.get(key));
+          assertEquals(expected.containsKey(key), map.containsKey(key));
+          break;
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    assertContent(expected, map);
+  }
+
+  @Test
+  public void testIteratorRemoveAndSetValue() {
+    Random r = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      FastIntDoubleHashMap map = new FastIntDoubleHashMap(4);
+      Map<Integer, Double> expected = new HashMap<>();
+      for (int i = 0; i < 500; i++) {
+        int key = r.nextInt(1000);
+        map.put(key, key);
+        expected.put(key, (double) key);
+      }
+      int size = map.size();
+      // remove every other entry while iterating, double the rest
+      Set<Integer> seen = new HashSet<>();
+      FastIntDoubleHashMap.EntryIterator it = map.iterator();
+      while (it.hasNext()) {
+        it.advance();
+        assertTrue(seen.add(it.key()));
+        assertEquals((double) it.key(), it.value());
+        if (it.key() % 2 == 0) {
+          it.remove();
+          expected.remove(it.key());
+        } else {
+          it.setValue(2d * it.value());
+          expected.put(it.key(), 2d * it.key());
+        }
+      }
+      // every entry is visited once, also the ones a removal moved
+      assertEquals(size, seen.size());
+      assertContent(expected, map);
+    }
+  }
+
+  @Test
+  public void testCopyClearAndConstructors() {
+    FastIntDoubleHashMap map = new FastIntDoubleHashMap(new int[] { 0, 5, 9,
+        5 }, new double[] { 1, 2, 3, 4 });
+    assertEquals(3, map.size());
+    assertEquals(1d, map.get(0));
+    assertEquals(4d, map.get(5));
+    assertEquals("{0=1.0, 5=4.0, 9=3.0}", map.toString());
+
+    FastIntDoubleHashMap copy = map.fastDeepCopy();
+    assertEquals(map, copy);
+    assertEquals(map.hashCode(), copy.hashCode());
+    copy.put(7, 1d);
+    copy.remove(0);
+    assertFalse(map.equals(copy));
+    assertEquals(1d, map.get(0));
+    assertFalse(map.containsKey(7));
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertEquals(0d, map.get(5));
+    assertEquals(0d, map.get(0));
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, i);
+    }
+    assertEquals(1000, map.size());
+    assertEquals(999d, map.get(999));
+
+    TIntDoubleHashMap trove = new TIntDoubleHashMap();
+    trove.put(3, 4d);
+    trove.put(-1, 2d);
+    FastIntDoubleHashMap converted = new FastIntDoubleHashMap(trove);
+    assertEquals(2, converted.size());
+    assertEquals(2d, converted.get(-1));
+    assertEquals(-5d, new FastIntDoubleHashMap(10, 0.5f, -1, -5d).get(3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLoadFactor() {
+    new FastIntDoubleHashMap(10, 1.5f);
+  }
+
+  private static void assertContent(Map<Integer, Double> expected,
+      FastIntDoubleHashMap map) {
+    assertEquals(expected.size(), map.size());
+    Map<Integer, Double> actual = new HashMap<>();
+    map.forEachKeyValue((key, value) -> assertNull(actual.put(key, value)));
+    assertEquals(expected, actual);
+    actual.clear();
+    FastIntDoubleHashMap.EntryIterator it = map.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      assertNull(actual.put(it.key(), it.value()));
+    }
+    assertEquals(expected, actual);
+  }
+
+  private static double orZero(Double value) {
+    return value == null ? 0d : value;
+  }
+
+}
@@ -0,0 +1,138 @@
+package de.jungblut.math.sparse;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FastIntFloatHashMapTest extends TestCase {
+
+  @Test
+  public void testRandomOperations() {
+    Random r = new Random(0);
+    FastIntFloatHashMap map = new FastIntFloatHashMap();
+    Map<Integer, Float> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      // a small key range, so keys collide, are removed and come back
+      int key = r.nextInt(2000) - 100;
+      float value = r.nextInt(100) + 1;
+      switch (r.nextInt(4)) {
+        case 0:
+          assertEquals(orZero(expected.put(key, value)), map.put(key, value));
+          break;
+        case 1:
+          assertEquals(orZero(expected.remove(key)), map.remove(key));
+          break;
+        case 2:
+          float adjusted = expected.containsKey(key) ? expected.get(key)
+              + value : 1f;
+          expected.put(key, adjusted);
+          assertEquals(adjusted, map.adjustOrPutValue(key, value, 1f));
+          break;
+        default:
+          assertEquals(orZero(expected.get(key)), map.get(key));
+          assertEquals(expected.containsKey(key), map.containsKey(key));
+          break;
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    assertContent(expected, map);
+  }
+
+  @Test
+  public void testIteratorRemoveAndSetValue() {
+    Random r = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      FastIntFloatHashMap map = new FastIntFloatHashMap(4);
+      Map<Integer, Float> expected = new HashMap<>();
+      for (int i = 0; i < 500; i++) {
+        int key = r.nextInt(1000);
+        map.put(key, key);
+        expected.put(key, (float) key);
+      }
+      int size = map.size();
+      // remove every other entry while iterating, double the rest
+      Set<Integer> seen = new HashSet<>();
+      FastIntFloatHashMap.EntryIterator it = map.iterator();
+      while (it.hasNext()) {
+        it.advance();
+        assertTrue(seen.add(it.key()));
+        assertEquals((float) it.key(), it.value());
+        if (it.key() % 2 == 0) {
+          it.remove();
+          expected.remove(it.key());
+        } else {
+          it.setValue(2f * it.value());
+          expected.put(it.key(), 2f * it.key());
+        }
+      }
+      // every entry is visited once, also the ones a removal moved
+      assertEquals(size, seen.size());
+      assertContent(expected, map);
+    }
+  }
+
+  @Test
+  public void testCopyClearAndConstructors() {
+    FastIntFloatHashMap map = new FastIntFloatHashMap(new int[] { 0, 5, 9,
+        5 }, new float[] { 1, 2, 3, 4 });
+    assertEquals(3, map.size());
+    assertEquals(1f, map.get(0));
+    assertEquals(4f, map.get(5));
+    assertEquals("{0=1.0, 5=4.0, 9=3.0}", map.toString());
+
+    FastIntFloatHashMap copy = map.fastDeepCopy();
+    assertEquals(map, copy);
+    assertEquals(map.hashCode(), copy.hashCode());
+    copy.put(7, 1f);
+    copy.remove(0);
+    assertFalse(map.equals(copy));
+    assertEquals(1f, map.get(0));
+    assertFalse(map.containsKey(7));
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertEquals(0f, map.get(5));
+    assertEquals(0f, map.get(0));
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, i);
+    }
+    assertEquals(1000, map.size());
+    assertEquals(999f, map.get(999));
+
+    assertEquals(-5f, new FastIntFloatHashMap(10, 0.5f, -1, -5f).get(3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLoadFactor() {
+    new FastIntFloatHashMap(10, 1.5f);
+  }
+
+  private static void assertContent(Map<Integer, Float> expected,
+      FastIntFloatHashMap map) {
+    assertEquals(expected.size(), map.size());
+    Map<Integer, Float> actual = new HashMap<>();
+    map.forEachKeyValue((key, value) -> assertNull(actual.put(key, value)));
+    assertEquals(expected, actual);
+    actual.clear();
+    FastIntFloatHashMap.EntryIterator it = map.iterator();
+    while (it.hasNext()) {
+      it.advance();
+      assertNull(actual.put(it.key(), it.value()));
+    }
+    assertEquals(expected, actual);
+  }
+
+  private static float orZero(Float value) {
+    return value == null ? 0f : value;
+  }
+
+}
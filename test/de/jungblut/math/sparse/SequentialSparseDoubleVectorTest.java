@@ -2,6 +2,7 @@ package de.jungblut.math.sparse;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -156,6 +157,12 @@ public class SequentialSparseDoubleVectorTest extends TestCase {
     DoubleVector subtractFrom = summation.subtractFrom(15);
     res = new double[] { 21, 21, 21, 15, 21, 20, 12 };
     arrayEquals(res, subtractFrom.toArray());
+
+    // the other vector has trailing elements that this vector doesn't have
+    vec = new SequentialSparseDoubleVector(new double[] { 1, 2, 0, 0 });
+    vec2 = new SequentialSparseDoubleVector(new double[] { 0, 1, 3, 4 });
+    res = new double[] { 1, 1, -3, -4 };
+    arrayEquals(res, vec.subtract(vec2).toArray());
   }
 
   @Test
@@ -310,6 +317,9 @@ public class SequentialSparseDoubleVectorTest extends TestCase {
     assertEquals(5d, v.max());
     assertEquals(8, v.maxIndex());
 
+    // the implicit zeros are larger than any negative value
+    v = new SequentialSparseDoubleVector(new double[] { -1, 0, -5 });
+    assertEquals(0d, v.max());
   }
 
   @Test
@@ -367,6 +377,198 @@ public class SequentialSparseDoubleVectorTest extends TestCase {
     arrayEquals(deepCopy.toArray(), mat.toArray());
   }
 
+  @Test
+  public void testInPlaceOperations() {
+    double[] arr = new double[] { 1, 2, 0, 3, 4, 0 };
+    DoubleVector vec = new SequentialSparseDoubleVector(arr);
+    DoubleVector other = new SparseDoubleVector(new double[] { 1, -2, 1, 0, 0, 0 });
+
+    DoubleVector result = vec.addInPlace(other);
+    assertSame(vec, result);
+    arrayEquals(new double[] { 2, 0, 1, 3, 4, 0 }, vec.toArray());
+
+    vec.subtractInPlace(other);
+    arrayEquals(arr, vec.toArray());
+
+    vec.axpy(0.5, new SequentialSparseDoubleVector(new double[] { 2, 0, 2, 2, 0, 4 }));
+    arrayEquals(new double[] { 2, 2, 1, 4, 4, 2 }, vec.toArray());
+
+    vec.scaleInPlace(2d);
+    arrayEquals(new double[] { 4, 4, 2, 8, 8, 4 }, vec.toArray());
+
+    vec.applyInPlace(new DoubleVectorFunction() {
+      @Override
+      public double calculate(int index, double value) {
+        return value - index;
+      }
+    });
+    arrayEquals(new double[] { 4, 3, 0, 5, 4, -1 }, vec.toArray());
+
+    // cancelling values are removed from the mapping
+    DoubleVector copy = new SequentialSparseDoubleVector(new double[] { 4, 3,
+        0, 5, 4, -1 });
+    vec.axpy(-1d, new SequentialSparseDoubleVector(new double[] { 4, 0, 0, 5,
+        0, -1 }));
+    arrayEquals(new double[] { 0, 3, 0, 0, 4, 0 }, vec.toArray());
+    assertEquals(2, vec.getLength());
+    Iterator<DoubleVectorElement> iterator = vec.iterateNonZero();
+    while (iterator.hasNext()) {
+      assertTrue(iterator.next().getValue() != 0d);
+    }
+    vec.addInPlace(copy.subtract(vec));
+    arrayEquals(new double[] { 4, 3, 0, 5, 4, -1 }, vec.toArray());
+
+    // aliasing the vector itself
+    vec.subtractInPlace(vec);
+    arrayEquals(new double[6], vec.toArray());
+    assertEquals(0, vec.getLength());
+  }
+
+  @Test
+  public void testForEach() {
+    DoubleVector vec = new SequentialSparseDoubleVector(new double[] { 1, 0, 3, 0, 5 });
+    double[] nonZeros = new double[vec.getDimension()];
+    int[] count = new int[1];
+    vec.forEachNonZero((index, value) -> {
+      assertTrue(value != 0d);
+      nonZeros[index] = value;
+      count[0]++;
+    });
+    assertEquals(3, count[0]);
+    arrayEquals(new double[] { 1, 0, 3, 0, 5 }, nonZeros);
+
+    double[] all = new double[vec.getDimension()];
+    count[0] = 0;
+    vec.forEach((index, value) -> {
+      assertEquals(count[0]++, index);
+      all[index] = value;
+    });
+    assertEquals(vec.getDimension(), count[0]);
+    arrayEquals(new double[] { 1, 0, 3, 0, 5 }, all);
+  }
+
+  @Test
+  public void testArithmeticWithOtherSparseTypes() {
+    double[] arr = new double[] { 0, 2, 3, 0, 5, 0, 8, 1 };
+    double[] arr2 = new double[] { 1, 3, 0, 0, 6, 5, 8, 0 };
+    SequentialSparseDoubleVector vec = new SequentialSparseDoubleVector(arr);
+    DoubleVector[] others = new DoubleVector[] {
+        new SequentialSparseDoubleVector(arr2), new SparseDoubleVector(arr2),
+        new DenseDoubleVector(arr2) };
+    for (DoubleVector other : others) {
+      double[] sum = new double[arr.length];
+      double[] difference = new double[arr.length];
+      double[] product = new double[arr.length];
+      for (int i = 0; i < arr.length; i++) {
+        sum[i] = arr[i] + arr2[i];
+        difference[i] = arr[i] - arr2[i];
+        product[i] = arr[i] * arr2[i];
+      }
+      arrayEquals(sum, vec.add(other).toArray());
+      arrayEquals(difference, vec.subtract(other).toArray());
+      arrayEquals(product, vec.multiply(other).toArray());
+      arrayEquals(new double[] { 0, 2d / 3, Double.POSITIVE_INFINITY, 0,
+          5d / 6, 0, 1, Double.POSITIVE_INFINITY }, vec.divide(other)
+          .toArray());
+      arrayEquals(difference,
+          vec.apply(other, (index, l, r) -> l - r).toArray());
+      arrayEquals(sum, vec.deepCopy().addInPlace(other).toArray());
+      // equal values cancel out and don't leave zeros in the mapping
+      assertEquals(0, vec.subtract(new SequentialSparseDoubleVector(vec))
+          .getLength());
+      assertEquals(3, vec.multiply(other).getLength());
+    }
+
+    SparseBitVector bits = new SparseBitVector(new double[] { 1, 1, 0, 0, 0,
+        0, 1, 1 });
+    arrayEquals(new double[] { 1, 3, 3, 0, 5, 0, 9, 2 }, vec.add(bits)
+        .toArray());
+    arrayEquals(new double[] { 0, 2, 0, 0, 0, 0, 8, 1 }, vec.multiply(bits)
+        .toArray());
+  }
+
+  @Test
+  public void testBulkLoadFromHashOrder() {
+    SparseDoubleVector sparse = new SparseDoubleVector(100_000);
+    for (int i = 99_999; i >= 0; i -= 7) {
+      sparse.set(i, i);
+    }
+    SequentialSparseDoubleVector vec = new SequentialSparseDoubleVector(sparse);
+    assertEquals(sparse.getLength(), vec.getLength());
+    int[] indices = vec.getMapping().getIndices();
+    for (int i = 1; i < vec.getLength(); i++) {
+      assertTrue(indices[i - 1] < indices[i]);
+    }
+    for (int i = 99_999; i >= 0; i -= 7) {
+      assertEquals(i, vec.get(i), 0d);
+    }
+  }
+
+  @Test
+  public void testBuilderAndSetAll() {
+    Random r = new Random(0);
+    double[] expected = new double[200_000];
+    SequentialSparseDoubleVector.Builder builder = new SequentialSparseDoubleVector.Builder(
+        expected.length, 4);
+    for (int i = 0; i < 5000; i++) {
+      // duplicates, zeros and indices above 2^16 in random order
+      int index = r.nextInt(expected.length);
+      double value = i % 10 == 0 ? 0d : r.nextDouble();
+      builder.set(index, value);
+      expected[index] = value;
+    }
+    assertEquals(5000, builder.size());
+    SequentialSparseDoubleVector vec = builder.build();
+    assertEquals(0, builder.size());
+    arrayEquals(expected, vec.toArray());
+    int[] indices = vec.getMapping().getIndices();
+    for (int i = 0; i < vec.getLength(); i++) {
+      assertTrue(i == 0 || indices[i - 1] < indices[i]);
+      assertTrue(vec.getMapping().getValues()[i] != 0d);
+    }
+
+    int[] updateIndices = new int[] { 7, 3, indices[0], 199_999, 3 };
+    double[] updateValues = new double[] { 1, 2, 0, 4, 5 };
+    vec.setAll(updateIndices, updateValues);
+    expected[7] = 1;
+    expected[indices[0]] = 0;
+    expected[199_999] = 4;
+    expected[3] = 5;
+    arrayEquals(expected, vec.toArray());
+    // the arrays of the caller are not changed
+    assertEquals(3, updateIndices[1]);
+
+    // indices below 2^16 are sorted by a single radix pass
+    double[] dense = new double[1000];
+    builder = new SequentialSparseDoubleVector.Builder(dense.length);
+    for (int i = 0; i < 3000; i++) {
+      int index = r.nextInt(dense.length);
+      dense[index] = i + 1;
+      builder.set(index, i + 1);
+    }
+    arrayEquals(dense, builder.build().toArray());
+
+    SequentialSparseDoubleVector small = new SequentialSparseDoubleVector(10);
+    small.setAll(new int[] { 9, 1, 5 }, new double[] { 3, 1, 2 });
+    arrayEquals(new double[] { 0, 1, 0, 0, 0, 2, 0, 0, 0, 3 }, small.toArray());
+  }
+
+  @Test
+  public void testBuiltVectorEqualsSetVector() {
+    // the built vector has spare capacity and a stale duplicate in its arrays
+    SequentialSparseDoubleVector built = new SequentialSparseDoubleVector.Builder(
+        10).set(1, 1).set(1, 2).build();
+    SequentialSparseDoubleVector set = new SequentialSparseDoubleVector(10);
+    set.set(1, 2);
+    assertEquals(set, built);
+    assertEquals(built, set);
+    assertEquals(set.hashCode(), built.hashCode());
+
+    set.set(4, 1);
+    assertFalse(set.equals(built));
+    assertFalse(built.equals(new SequentialSparseDoubleVector(11)));
+  }
+
   public void arrayEquals(double[] left, double[] right) {
     assertEquals(left.length, right.length);
 
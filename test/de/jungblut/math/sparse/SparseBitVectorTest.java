@@ -335,6 +335,61 @@ public class SparseBitVectorTest extends TestCase {
     arrayEquals(deepCopy.toArray(), mat.toArray());
   }
 
+  @Test
+  public void testInPlaceOperations() {
+    double[] arr = new double[] { 1, 1, 0, 1, 0, 0 };
+    DoubleVector vec = new SparseBitVector(arr);
+    DoubleVector other = new DenseDoubleVector(new double[] { 1, 0, 1, 0, 0,
+        0 });
+
+    DoubleVector result = vec.addInPlace(other);
+    assertSame(vec, result);
+    arrayEquals(new double[] { 1, 1, 1, 1, 0, 0 }, vec.toArray());
+
+    vec.subtractInPlace(other);
+    arrayEquals(new double[] { 0, 1, 0, 1, 0, 0 }, vec.toArray());
+
+    vec.axpy(2, new SparseBitVector(new double[] { 1, 0, 0, 0, 0, 1 }));
+    arrayEquals(new double[] { 1, 1, 0, 1, 0, 1 }, vec.toArray());
+
+    vec.scaleInPlace(2d);
+    arrayEquals(new double[] { 1, 1, 0, 1, 0, 1 }, vec.toArray());
+
+    vec.applyInPlace(new DoubleVectorFunction() {
+      @Override
+      public double calculate(int index, double value) {
+        return index % 2 == 0 ? 1 - value : value;
+      }
+    });
+    arrayEquals(new double[] { 0, 1, 1, 1, 1, 1 }, vec.toArray());
+
+    vec.scaleInPlace(0d);
+    assertEquals(0, vec.getLength());
+  }
+
+  @Test
+  public void testForEach() {
+    DoubleVector vec = new SparseBitVector(new double[] { 1, 0, 3, 0, 5 });
+    double[] nonZeros = new double[vec.getDimension()];
+    int[] count = new int[1];
+    vec.forEachNonZero((index, value) -> {
+      assertTrue(value != 0d);
+      nonZeros[index] = value;
+      count[0]++;
+    });
+    assertEquals(3, count[0]);
+    arrayEquals(new double[] { 1, 0, 1, 0, 1 }, nonZeros);
+
+    double[] all = new double[vec.getDimension()];
+    count[0] = 0;
+    vec.forEach((index, value) -> {
+      assertEquals(count[0]++, index);
+      all[index] = value;
+    });
+    assertEquals(vec.getDimension(), count[0]);
+    arrayEquals(new double[] { 1, 0, 1, 0, 1 }, all);
+  }
+
   public void arrayEquals(double[] left, double[] right) {
     assertEquals(left.length, right.length);
 
@@ -1,6 +1,8 @@
 package de.jungblut.math.sparse;
 
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import junit.framework.TestCase;
 
@@ -111,6 +113,61 @@ public class SparseDoubleRowMatrixTest extends TestCase {
 
   }
 
+  @Test
+  public void testSparseMultiplication() throws Exception {
+    Random rand = new Random(1L);
+    SparseDoubleRowMatrix left = new SparseDoubleRowMatrix(60, 80);
+    SparseDoubleRowMatrix right = new SparseDoubleRowMatrix(80, 70);
+    for (int i = 0; i < 400; i++) {
+      left.set(rand.nextInt(60), rand.nextInt(80), rand.nextInt(10) - 5);
+      right.set(rand.nextInt(80), rand.nextInt(70), rand.nextInt(10) - 5);
+    }
+    int rightRows = right.rowIndices().length;
+    double[][] expected = new DenseDoubleMatrix(left.toArray()).multiply(
+        new DenseDoubleMatrix(right.toArray())).toArray();
+
+    matrixEquals(expected, left.multiply(right).toArray());
+    // missing rows of the other matrix must not be created
+    assertEquals(rightRows, right.rowIndices().length);
+    matrixEquals(expected,
+        left.multiply(new DenseDoubleMatrix(right.toArray())).toArray());
+    matrixEquals(expected, left.multiply(new CsrDoubleMatrix(right))
+        .toArray());
+
+    // cancelled entries are not stored in the result
+    SparseDoubleRowMatrix a = new SparseDoubleRowMatrix(new double[][] { {
+        1, 1 } });
+    SparseDoubleRowMatrix b = new SparseDoubleRowMatrix(new double[][] {
+        { 1, 2 }, { -1, 3 } });
+    DoubleMatrix product = a.multiply(b);
+    assertEquals(1, product.getRowVector(0).getLength());
+    assertEquals(5d, product.get(0, 1));
+  }
+
+  @Test
+  public void testParallelMultiplication() throws Exception {
+    Random rand = new Random(0L);
+    SparseDoubleRowMatrix left = new SparseDoubleRowMatrix(300, 50);
+    SparseDoubleRowMatrix right = new SparseDoubleRowMatrix(50, 40);
+    for (int i = 0; i < 1000; i++) {
+      left.set(rand.nextInt(300), rand.nextInt(50), rand.nextDouble());
+      right.set(rand.nextInt(50), rand.nextInt(40), rand.nextDouble());
+    }
+
+    double[][] expected = left.multiply(right).toArray();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      DoubleMatrix multiply = left.multiply(right, pool);
+      assertEquals(300, multiply.getRowCount());
+      assertEquals(40, multiply.getColumnCount());
+      matrixEquals(expected, multiply.toArray());
+    } finally {
+      pool.shutdown();
+    }
+
+    matrixEquals(expected, left.multiplyParallel(right).toArray());
+  }
+
   @Test
   public void testMultiplyVector() {
     double[][] arr = new double[][] { { 1, 2, 3 }, { 4, 5, 6 } };
@@ -185,6 +242,67 @@ public class SparseDoubleRowMatrixTest extends TestCase {
     matrixEquals(res, slice.toArray());
   }
 
+  @Test
+  public void testColumnIndex() {
+    double[][] arr = new double[][] { { 1, 0, 3 }, { 0, 0, 0 }, { 4, 0, 6 } };
+    SparseDoubleRowMatrix mat = new SparseDoubleRowMatrix(arr);
+    arrayEquals(new double[] { 1, 0, 4 }, mat.getColumnVector(0).toArray());
+    assertEquals(0, mat.getColumnVector(1).getLength());
+    assertEquals(2, mat.getColumnVector(2).getLength());
+
+    // mutations must be visible in the columns
+    mat.set(1, 1, 5);
+    arrayEquals(new double[] { 0, 5, 0 }, mat.getColumnVector(1).toArray());
+    mat.setRowVector(0, new DenseDoubleVector(new double[] { 7, 0, 0 }));
+    arrayEquals(new double[] { 7, 0, 4 }, mat.getColumnVector(0).toArray());
+    arrayEquals(new double[] { 0, 0, 6 }, mat.getColumnVector(2).toArray());
+    mat.setColumnVector(1, new DenseDoubleVector(new double[] { 2, 0, 0 }));
+    arrayEquals(new double[] { 2, 5, 0 }, mat.getColumnVector(1).toArray());
+    mat.removeRow(2);
+    arrayEquals(new double[] { 7, 0, 0 }, mat.getColumnVector(0).toArray());
+    mat.getRowVector(2).set(0, 8);
+    arrayEquals(new double[] { 7, 0, 8 }, mat.getColumnVector(0).toArray());
+
+    // the column vectors are copies
+    mat.getColumnVector(0).set(1, 3);
+    assertEquals(0d, mat.get(1, 0));
+  }
+
+  @Test
+  public void testColumnIndexWithLiveRow() {
+    double[][] arr = new double[][] { { 1, 0 }, { 2, 3 } };
+    SparseDoubleRowMatrix mat = new SparseDoubleRowMatrix(arr);
+    DoubleVector row = mat.getRowVector(0);
+    assertEquals(1d, mat.getColumnVector(0).get(0));
+    // the index was built after the row was handed out
+    row.set(0, 5);
+    assertEquals(5d, mat.get(0, 0));
+    assertEquals(5d, mat.getColumnVector(0).get(0));
+    row.axpy(2d, new DenseDoubleVector(new double[] { 0, 1 }));
+    arrayEquals(new double[] { 2, 3 }, mat.getColumnVector(1).toArray());
+    row.scaleInPlace(0d);
+    arrayEquals(new double[] { 0, 2 }, mat.getColumnVector(0).toArray());
+
+    // a replaced row no longer belongs to the matrix
+    mat.setRowVector(0, new DenseDoubleVector(new double[] { 4, 4 }));
+    assertEquals(4d, mat.getColumnVector(0).get(0));
+    row.set(0, 9);
+    assertEquals(4d, mat.getColumnVector(0).get(0));
+  }
+
+  @Test
+  public void testSliceWithOffsets() {
+    double[][] arr = new double[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 },
+        { 9, 10, 11, 12 } };
+    SparseDoubleRowMatrix mat = new SparseDoubleRowMatrix(arr);
+    DoubleMatrix slice = mat.slice(1, 3, 1, 3);
+    assertEquals(2, slice.getRowCount());
+    assertEquals(2, slice.getColumnCount());
+    matrixEquals(new double[][] { { 6, 7 }, { 10, 11 } }, slice.toArray());
+    // nothing outside of the slice is retained
+    assertEquals(34d, slice.sum(), 1e-5);
+  }
+
   @Test
   public void testMin() {
     double[][] arr = new double[][] { { 1, 2, 3 }, { 0, 5, 6 } };
@@ -314,7 +432,7 @@ public class SparseDoubleRowMatrixTest extends TestCase {
   public void testToString() {
     SparseDoubleRowMatrix mat = new SparseDoubleRowMatrix(new double[][] {
         { 1, 2 }, { 3, 4 } });
-    assertEquals("{1={1=4.0, 0=3.0},0={1=2.0, 0=1.0}}", mat.toString());
+    assertEquals("{1={0=3.0, 1=4.0},0={0=1.0, 1=2.0}}", mat.toString());
 
     mat = new SparseDoubleRowMatrix(100, 102);
     assertEquals("100x102", mat.toString());
@@ -324,7 +324,7 @@ public class SparseDoubleVectorTest extends TestCase {
   public void testToString() {
     double[] arr = new double[] { 1, 2, 3, 4, 5 };
     SparseDoubleVector vec = new SparseDoubleVector(arr);
-    assertEquals("{4=5.0, 3=4.0, 2=3.0, 1=2.0, 0=1.0}", vec.toString());
+    assertEquals("{0=1.0, 1=2.0, 2=3.0, 3=4.0, 4=5.0}", vec.toString());
     vec = new SparseDoubleVector(new DenseDoubleVector(51, 1d));
     assertEquals("51x1", vec.toString());
 
@@ -365,6 +365,62 @@ public class SparseDoubleVectorTest extends TestCase {
     arrayEquals(deepCopy.toArray(), mat.toArray());
   }
 
+  @Test
+  public void testInPlaceOperations() {
+    double[] arr = new double[] { 1, 2, 0, 3, 4, 0 };
+    DoubleVector vec = new SparseDoubleVector(arr);
+    DoubleVector other = new DenseDoubleVector(new double[] { 1, -2, 1, 0, 0, 0 });
+
+    DoubleVector result = vec.addInPlace(other);
+    assertSame(vec, result);
+    arrayEquals(new double[] { 2, 0, 1, 3, 4, 0 }, vec.toArray());
+
+    vec.subtractInPlace(other);
+    arrayEquals(arr, vec.toArray());
+
+    vec.axpy(0.5, new SparseDoubleVector(new double[] { 2, 0, 2, 2, 0, 4 }));
+    arrayEquals(new double[] { 2, 2, 1, 4, 4, 2 }, vec.toArray());
+
+    vec.scaleInPlace(2d);
+    arrayEquals(new double[] { 4, 4, 2, 8, 8, 4 }, vec.toArray());
+
+    vec.applyInPlace(new DoubleVectorFunction() {
+      @Override
+      public double calculate(int index, double value) {
+        return value - index;
+      }
+    });
+    arrayEquals(new double[] { 4, 3, 0, 5, 4, -1 }, vec.toArray());
+
+    // aliasing the vector itself
+    vec.subtractInPlace(vec);
+    arrayEquals(new double[6], vec.toArray());
+    assertEquals(0, vec.getLength());
+  }
+
+  @Test
+  public void testForEach() {
+    DoubleVector vec = new SparseDoubleVector(new double[] { 1, 0, 3, 0, 5 });
+    double[] nonZeros = new double[vec.getDimension()];
+    int[] count = new int[1];
+    vec.forEachNonZero((index, value) -> {
+      assertTrue(value != 0d);
+      nonZeros[index] = value;
+      count[0]++;
+    });
+    assertEquals(3, count[0]);
+    arrayEquals(new double[] { 1, 0, 3, 0, 5 }, nonZeros);
+
+    double[] all = new double[vec.getDimension()];
+    count[0] = 0;
+    vec.forEach((index, value) -> {
+      assertEquals(count[0]++, index);
+      all[index] = value;
+    });
+    assertEquals(vec.getDimension(), count[0]);
+    arrayEquals(new double[] { 1, 0, 3, 0, 5 }, all);
+  }
+
   public void arrayEquals(double[] left, double[] right) {
     assertEquals(left.length, right.length);
 
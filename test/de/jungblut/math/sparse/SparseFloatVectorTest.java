@@ -0,0 +1,118 @@
+package de.jungblut.math.sparse;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.FloatVector;
+import de.jungblut.math.FloatVector.FloatVectorElement;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.dense.DenseFloatVector;
+
+@RunWith(JUnit4.class)
+public class SparseFloatVectorTest extends TestCase {
+
+  @Test
+  public void testSetAndGet() {
+    SparseFloatVector v = new SparseFloatVector(100);
+    v.set(5, 2f);
+    v.set(50, -1f);
+    assertEquals(2, v.getLength());
+    assertEquals(100, v.getDimension());
+    assertEquals(2f, v.get(5), 0f);
+    assertEquals(0f, v.get(6), 0f);
+    v.set(5, 0f);
+    assertEquals(1, v.getLength());
+  }
+
+  @Test
+  public void testArithmetic() {
+    SparseFloatVector a = vector(10, 1, 2f, 3, 4f);
+    SparseFloatVector b = vector(10, 3, 1f, 7, 5f);
+    FloatVector sum = a.add(b);
+    assertTrue(sum.isSparse());
+    assertEquals(3, sum.getLength());
+    assertEquals(5f, sum.get(3), 0f);
+    assertEquals(5f, sum.get(7), 0f);
+    FloatVector diff = a.subtract(a);
+    assertEquals(0, diff.getLength());
+    FloatVector product = a.multiply(b);
+    assertEquals(1, product.getLength());
+    assertEquals(4f, product.get(3), 0f);
+    assertEquals(4d, a.dot(b), 0d);
+    assertEquals(4d, b.dot(a), 0d);
+    assertEquals(6d, a.sum(), 0d);
+    assertEquals(4f, a.multiply(2f).get(1), 0f);
+    assertEquals(1f, a.divide(2f).get(1), 0f);
+    assertEquals(0, a.multiply(0f).getLength());
+    assertEquals(4f, a.max(), 0f);
+    assertEquals(3, a.maxIndex());
+    assertEquals(2f, a.min(), 0f);
+    assertEquals(1, a.minIndex());
+    // the operations above are not allowed to mutate a
+    assertEquals(2, a.getLength());
+    assertEquals(2f, a.get(1), 0f);
+  }
+
+  @Test
+  public void testAxpySelf() {
+    SparseFloatVector a = vector(10, 1, 2f, 3, 4f);
+    a.subtractInPlace(a);
+    assertEquals(0, a.getLength());
+  }
+
+  @Test
+  public void testIteration() {
+    SparseFloatVector a = vector(5, 1, 2f, 3, 4f);
+    Iterator<FloatVectorElement> it = a.iterateNonZero();
+    int count = 0;
+    while (it.hasNext()) {
+      FloatVectorElement next = it.next();
+      assertEquals(a.get(next.getIndex()), next.getValue(), 0f);
+      count++;
+    }
+    assertEquals(2, count);
+    it = a.iterate();
+    count = 0;
+    while (it.hasNext()) {
+      it.next();
+      count++;
+    }
+    assertEquals(5, count);
+  }
+
+  @Test
+  public void testConversion() {
+    SparseDoubleVector d = new SparseDoubleVector(20);
+    d.set(3, 0.25);
+    d.set(19, -8);
+    SparseFloatVector f = new SparseFloatVector(d);
+    assertEquals(20, f.getDimension());
+    assertEquals(2, f.getLength());
+    assertEquals(0.25f, f.get(3), 0f);
+    DoubleVector back = f.toDoubleVector();
+    assertTrue(back.isSparse());
+    assertEquals(-8d, back.get(19), 0d);
+    assertEquals(2, back.getLength());
+
+    f = new SparseFloatVector(new DenseDoubleVector(new double[] { 0, 1, 0 }));
+    assertEquals(1, f.getLength());
+    assertEquals(new DenseFloatVector(new float[] { 0, 1, 0 }),
+        new DenseFloatVector(f));
+    assertEquals(f, f.deepCopy());
+  }
+
+  private static SparseFloatVector vector(int dimension, int i1, float v1,
+      int i2, float v2) {
+    SparseFloatVector v = new SparseFloatVector(dimension);
+    v.set(i1, v1);
+    v.set(i2, v2);
+    return v;
+  }
+
+}
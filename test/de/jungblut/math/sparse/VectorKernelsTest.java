@@ -0,0 +1,143 @@
+package de.jungblut.math.sparse;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import de.jungblut.math.DoubleVector;
+import de.jungblut.math.dense.DenseDoubleVector;
+import de.jungblut.math.dense.SingleEntryDoubleVector;
+import de.jungblut.math.named.KeyedDoubleVector;
+import de.jungblut.math.named.NamedDoubleVector;
+import de.jungblut.math.sparse.VectorKernels.Operation;
+
+public class VectorKernelsTest extends TestCase {
+
+  private static final double[] LEFT = new double[] { 1, 0, 3, 0, 0, 2, 0, 5 };
+  private static final double[] RIGHT = new double[] { 0, 4, 2, 0, 1, 1, 0, 3 };
+
+  @Test
+  public void testDotAllPairs() {
+    for (DoubleVector left : vectors(LEFT)) {
+      for (DoubleVector right : vectors(RIGHT)) {
+        double[] a = left.toArray();
+        double[] b = right.toArray();
+        double expected = 0d;
+        for (int i = 0; i < a.length; i++) {
+          expected += a[i] * b[i];
+        }
+        String pair = left.getClass().getSimpleName() + " x "
+            + right.getClass().getSimpleName();
+        assertEquals(pair, expected, left.dot(right), 1e-5);
+        assertEquals(pair, expected, VectorKernels.dot(left, right), 1e-5);
+        assertEquals(pair, expected, VectorKernels.dot(right, left), 1e-5);
+      }
+    }
+  }
+
+  @Test
+  public void testDenseElementWise() {
+    DoubleVector left = new DenseDoubleVector(LEFT);
+    for (DoubleVector right : vectors(RIGHT)) {
+      double[] b = right.toArray();
+      double[] add = left.add(right).toArray();
+      double[] subtract = left.subtract(right).toArray();
+      double[] multiply = left.multiply(right).toArray();
+      for (int i = 0; i < LEFT.length; i++) {
+        assertEquals(LEFT[i] + b[i], add[i], 1e-5);
+        assertEquals(LEFT[i] - b[i], subtract[i], 1e-5);
+        assertEquals(LEFT[i] * b[i], multiply[i], 1e-5);
+      }
+    }
+    // the operands stay untouched
+    assertEquals(1d, left.get(0));
+  }
+
+  @Test
+  public void testSparseElementWise() {
+    DoubleVector[] lefts = new DoubleVector[] { new SparseDoubleVector(LEFT),
+        new SequentialSparseDoubleVector(LEFT) };
+    for (DoubleVector left : lefts) {
+      for (DoubleVector right : vectors(RIGHT)) {
+        double[] b = right.toArray();
+        double[] add = left.add(right).toArray();
+        double[] subtract = left.subtract(right).toArray();
+        double[] multiply = left.multiply(right).toArray();
+        for (int i = 0; i < LEFT.length; i++) {
+          assertEquals(LEFT[i] + b[i], add[i], 1e-5);
+          assertEquals(LEFT[i] - b[i], subtract[i], 1e-5);
+          assertEquals(LEFT[i] * b[i], multiply[i], 1e-5);
+        }
+      }
+      // all results keep the sparse type of the left side
+      DoubleVector dense = new DenseDoubleVector(RIGHT);
+      assertNotNull(VectorKernels.apply(Operation.ADD, left, dense));
+      assertSame(left.getClass(), left.add(dense).getClass());
+      assertSame(left.getClass(), left.subtract(dense).getClass());
+      // both operands are zero at index 3 and 6 only
+      assertEquals(6, left.add(dense).getLength());
+      assertEquals(6, left.subtract(dense).getLength());
+      assertEquals(LEFT.length, left.add(dense).getDimension());
+      DoubleVector product = left.multiply(dense);
+      assertSame(left.getClass(), product.getClass());
+      assertEquals(3, product.getLength());
+      assertEquals(LEFT.length, product.getDimension());
+      assertEquals(1d, left.get(0));
+    }
+  }
+
+  @Test
+  public void testBitIntersection() {
+    SparseBitVector small = new SparseBitVector(1000);
+    SparseBitVector large = new SparseBitVector(1000);
+    for (int i = 0; i < 1000; i += 3) {
+      large.set(i, 1d);
+    }
+    small.set(3, 1d);
+    small.set(4, 1d);
+    small.set(999, 1d);
+    assertEquals(2d, VectorKernels.dot(small, large), 1e-5);
+    assertEquals(2d, VectorKernels.dot(large, small), 1e-5);
+    assertEquals(334d, VectorKernels.dot(large, large), 1e-5);
+    assertEquals(0d, VectorKernels.dot(new SparseBitVector(10), large), 1e-5);
+  }
+
+  @Test
+  public void testNamedVectorsAreUnwrapped() {
+    DoubleVector left = new NamedDoubleVector("left",
+        new SequentialSparseDoubleVector(LEFT));
+    DoubleVector right = new KeyedDoubleVector(5,
+        new SequentialSparseDoubleVector(RIGHT));
+    assertEquals(6d + 2 + 15, VectorKernels.dot(left, right), 1e-5);
+    assertNotNull(VectorKernels.apply(Operation.ADD, new NamedDoubleVector(
+        "dense", new DenseDoubleVector(LEFT)), right));
+  }
+
+  @Test
+  public void testRegisterKernel() {
+    DoubleVector left = new SingleEntryDoubleVector(2d);
+    DoubleVector right = new SingleEntryDoubleVector(3d);
+    assertEquals(6d, VectorKernels.dot(left, right), 1e-5);
+    assertNull(VectorKernels.apply(Operation.ADD, left, right));
+
+    VectorKernels.registerDot(SingleEntryDoubleVector.class,
+        SingleEntryDoubleVector.class, (l, r) -> -1d);
+    VectorKernels.register(Operation.ADD, SingleEntryDoubleVector.class,
+        SingleEntryDoubleVector.class,
+        (l, r) -> new SingleEntryDoubleVector(l.get(0) + r.get(0)));
+    assertEquals(-1d, VectorKernels.dot(left, right), 1e-5);
+    assertEquals(5d, VectorKernels.apply(Operation.ADD, left, right).get(0),
+        1e-5);
+  }
+
+  private static DoubleVector[] vectors(double[] arr) {
+    double[] bits = new double[arr.length];
+    for (int i = 0; i < arr.length; i++) {
+      bits[i] = arr[i] != 0d ? 1d : 0d;
+    }
+    return new DoubleVector[] { new DenseDoubleVector(arr),
+        new SparseDoubleVector(arr), new SequentialSparseDoubleVector(arr),
+        new SparseBitVector(bits) };
+  }
+
+}